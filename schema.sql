@@ -23,10 +23,13 @@ CREATE TABLE `products` (
   `price` DECIMAL(10,2) NOT NULL,
   `description` TEXT,
   `image_url` VARCHAR(512) DEFAULT NULL,
+  `sku` VARCHAR(64) DEFAULT NULL,
   `created_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
   `updated_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
   `version` INT NOT NULL DEFAULT 1,
-  PRIMARY KEY (`id`)
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_products_sku` (`sku`),
+  INDEX `idx_products_name` (`name`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
 CREATE TABLE `carts` (
@@ -39,7 +42,8 @@ CREATE TABLE `carts` (
   `version` INT NOT NULL DEFAULT 1,
   PRIMARY KEY (`id`),
   INDEX (`session_id`),
-  INDEX (`user_id`)
+  INDEX (`user_id`),
+  INDEX `idx_carts_status_updated` (`status`, `updated_at`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
 CREATE TABLE `cart_items` (
@@ -56,5 +60,29 @@ CREATE TABLE `cart_items` (
   CONSTRAINT `fk_cart_items_product` FOREIGN KEY (`product_id`) REFERENCES `products`(`id`) ON DELETE RESTRICT
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
+-- Archive tables filled by the cart reaper (MaintenanceListener) in ARCHIVE mode
+CREATE TABLE `carts_archive` (
+  `id` BIGINT NOT NULL,
+  `session_id` VARCHAR(128) DEFAULT NULL,
+  `user_id` BIGINT DEFAULT NULL,
+  `status` VARCHAR(32) DEFAULT NULL,
+  `created_at` TIMESTAMP NULL DEFAULT NULL,
+  `updated_at` TIMESTAMP NULL DEFAULT NULL,
+  `version` INT NOT NULL DEFAULT 1,
+  `archived_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE TABLE `cart_items_archive` (
+  `id` BIGINT NOT NULL,
+  `cart_id` BIGINT NOT NULL,
+  `product_id` INT NOT NULL,
+  `quantity` INT NOT NULL,
+  `price_snapshot` DECIMAL(10,2) NOT NULL,
+  `created_at` TIMESTAMP NULL DEFAULT NULL,
+  PRIMARY KEY (`id`),
+  INDEX (`cart_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
 -- Seed admin user manually if needed:
 -- INSERT INTO users(username,email,password_hash,password_salt,role) VALUES(...,'ADMIN');
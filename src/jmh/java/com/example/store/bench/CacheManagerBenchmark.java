@@ -0,0 +1,83 @@
+package com.example.store.bench;
+
+import com.example.store.model.Product;
+import com.example.store.util.CacheManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contended product cache access: one shared CacheManager, lookups drawn uniformly from the catalogue
+ * (ids above catalogSize miss). Covers the "O(1) lock-free reads" claim in ProductDAO, including the
+ * stats counters and sampled hot-key sketch CacheManager now maintains on every get.
+ *
+ * Thread sweep: run get/put with -t 1, then -t 4, -t 16 (JMH takes one thread count per run).
+ * readMostly is a fixed 7 readers : 1 writer group, the storefront's shape.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheManagerBenchmark {
+    @Param({"100", "10000"})
+    public int catalogSize;
+
+    private CacheManager cache;
+    private Product[] products;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        cache = new CacheManager();
+        products = new Product[catalogSize];
+        for (int id = 0; id < catalogSize; id++) {
+            products[id] = CartBenchmark.product(id + 1);
+            cache.put(id + 1, products[id]);
+        }
+    }
+
+    private int randomId() {
+        // 1 in 20 lookups targets an id that is not cached
+        return 1 + ThreadLocalRandom.current().nextInt(catalogSize + catalogSize / 20 + 1);
+    }
+
+    @Benchmark
+    public Product get() {
+        return cache.get(randomId());
+    }
+
+    @Benchmark
+    public void put() {
+        Product p = products[ThreadLocalRandom.current().nextInt(catalogSize)];
+        cache.put(p.getId(), p);
+    }
+
+    @Benchmark
+    @Group("readMostly")
+    @GroupThreads(7)
+    public Product readMostlyGet() {
+        return cache.get(randomId());
+    }
+
+    @Benchmark
+    @Group("readMostly")
+    @GroupThreads(1)
+    public void readMostlyPut() {
+        put();
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.store.bench;
+
+import com.example.store.model.Cart;
+import com.example.store.model.CartItem;
+import com.example.store.model.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cart copy-on-write operations at various cart sizes. The Cart Javadoc claims O(log32 n) writes
+ * and O(1) totals; the size parameter shows whether that holds.
+ *
+ * Every write publishes a new snapshot, so the cart stays as set up: add/remove of one extra product
+ * alternate, and addExisting / updateQuantity flip the quantity of an existing line (a line whose
+ * quantity grew with every invocation would drift away from any real cart).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CartBenchmark {
+    @Param({"1", "10", "100", "1000"})
+    public int size;
+
+    private Cart cart;
+    private Product extra;
+    private int target;
+    private int flip;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        cart = new Cart(1);
+        for (int id = 1; id <= size; id++) {
+            cart.addProduct(product(id), 1 + id % 3);
+        }
+        extra = product(size + 1);
+        target = (size + 1) / 2;
+    }
+
+    static Product product(int id) {
+        Product p = new Product(id, "Product " + id);
+        p.setPrice(BigDecimal.valueOf(100 + id % 900, 2));
+        return p;
+    }
+
+    /** Add a product not in the cart, then remove it again (two snapshot swaps). */
+    @Benchmark
+    public Cart addThenRemove() {
+        cart.addProduct(extra, 1);
+        cart.removeProduct(extra.getId());
+        return cart;
+    }
+
+    /** Merge quantity into an existing line (+1, then -1 on the next call: same merge path). */
+    @Benchmark
+    public Cart addExisting() {
+        cart.addProduct(cart.getItem(target).getProduct(), (flip ^= 1) == 1 ? 1 : -1);
+        return cart;
+    }
+
+    @Benchmark
+    public Cart updateQuantity() {
+        cart.updateQuantity(target, 1 + (flip ^= 1));
+        return cart;
+    }
+
+    @Benchmark
+    public BigDecimal totalPrice() {
+        return cart.totalPrice();
+    }
+
+    @Benchmark
+    public long iterateItems() {
+        long qty = 0;
+        for (CartItem item : cart.getItems()) qty += item.getQuantity();
+        return qty;
+    }
+}
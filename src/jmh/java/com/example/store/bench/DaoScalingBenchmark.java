@@ -0,0 +1,191 @@
+package com.example.store.bench;
+
+import com.example.store.dao.CartDAO;
+import com.example.store.dao.ProductDAO;
+import com.example.store.dao.UserDAO;
+import com.example.store.model.Cart;
+import com.example.store.model.Product;
+import com.example.store.model.User;
+import com.example.store.util.CacheManager;
+import com.example.store.standin.MySqlOnH2Driver;
+import com.example.store.util.DBConnectionManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DAO latency against table size, through the real DAOs, DBConnectionManager and schema.
+ *
+ * By default each products value gets a fresh H2 database in MySQL mode (schema.sql), filled by
+ * DatasetGenerator with products, products / 10 users and products * 10 cart items. For MySQL, fill
+ * the database with DatasetGenerator first and pass -p jdbcUrl=jdbc:mysql://... (products is then
+ * only a label). Add -prof gc for bytes allocated per call (gc.alloc.rate.norm): findAll and
+ * refreshCache materialise the whole table, the point lookups should stay flat. The dataset is
+ * generated once per fork, i.e. per method and size: select methods with a regex when iterating.
+ *
+ *   mvn -Pbench test-compile exec:exec -Djmh.args="DaoScalingBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class DaoScalingBenchmark {
+    private static final int SAMPLE = 10_000;
+
+    @Param({"1000", "10000", "100000"})
+    public int products;
+
+    @Param({""})
+    public String jdbcUrl;
+
+    @Param({"root"})
+    public String jdbcUser;
+
+    @Param({""})
+    public String jdbcPassword;
+
+    private Connection keepAlive;
+    private CacheManager cache;
+    private ProductDAO productDAO;
+    private CartDAO cartDAO;
+    private UserDAO userDAO;
+    private int[] productIds;
+    private String[] sessionIds;
+    private long[] userIds;
+    private String[] usernames;
+
+    @Setup(Level.Trial)
+    public void load() throws Exception {
+        String url = jdbcUrl;
+        if (url.isEmpty()) {
+            url = "jdbc:h2:mem:scaling" + products + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+            keepAlive = DriverManager.getConnection(url, jdbcUser, jdbcPassword);
+            createSchema(keepAlive);
+            url = MySqlOnH2Driver.url(url); // the DAOs speak MySQL (streaming fetch size)
+            long started = System.nanoTime();
+            System.out.printf(Locale.ROOT, "%nGenerated %s in %.1f s%n",
+                    new DatasetGenerator(products, Math.max(1, products / 10), products * 10L, 4, 1.0, 500, 42).generate(keepAlive),
+                    (System.nanoTime() - started) / 1e9);
+        }
+        DBConnectionManager db = new DBConnectionManager(url, jdbcUser, jdbcPassword);
+        cache = new CacheManager();
+        productDAO = new ProductDAO(db, cache);
+        cartDAO = new CartDAO(db);
+        userDAO = new UserDAO(db);
+        try (Connection conn = db.getConnection()) {
+            productIds = sample(conn, "SELECT id FROM products").stream().mapToInt(Integer::parseInt).toArray();
+            sessionIds = sample(conn, "SELECT session_id FROM carts WHERE status = 'OPEN' AND session_id IS NOT NULL").toArray(new String[0]);
+            userIds = sample(conn, "SELECT user_id FROM carts WHERE status = 'OPEN' AND user_id IS NOT NULL").stream().mapToLong(Long::parseLong).toArray();
+            usernames = sample(conn, "SELECT username FROM users").toArray(new String[0]);
+        }
+        productDAO.refreshCache();
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws SQLException {
+        if (keepAlive == null) return;
+        try (Statement st = keepAlive.createStatement()) {
+            st.execute("SHUTDOWN");
+        } finally {
+            keepAlive.close();
+        }
+    }
+
+    /** Up to SAMPLE values of the first column, in random order (fixed seed). */
+    private static List<String> sample(Connection conn, String sql) throws SQLException {
+        List<String> values = new ArrayList<>();
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            while (rs.next()) values.add(rs.getString(1));
+        }
+        Collections.shuffle(values, new Random(7));
+        if (values.isEmpty()) throw new IllegalStateException("No rows for " + sql + ": generate a dataset first");
+        return values.size() > SAMPLE ? values.subList(0, SAMPLE) : values;
+    }
+
+    /** schema.sql minus CREATE DATABASE / USE, which the in-memory database does not need. */
+    private static void createSchema(Connection conn) throws Exception {
+        String script = Files.readString(Paths.get("schema.sql"), StandardCharsets.UTF_8);
+        try (Statement st = conn.createStatement()) {
+            for (String sql : script.replaceAll("(?m)^--.*$", "").split(";\\s*(\\R|$)")) {
+                String s = sql.trim();
+                if (s.isEmpty() || s.startsWith("CREATE DATABASE") || s.startsWith("USE ")) continue;
+                st.execute(s);
+            }
+        }
+    }
+
+    private static int pick(int length) {
+        return ThreadLocalRandom.current().nextInt(length);
+    }
+
+    @Benchmark
+    public List<Product> productFindAll() {
+        return productDAO.findAll();
+    }
+
+    @Benchmark
+    public void productRefreshCache() {
+        productDAO.refreshCache();
+    }
+
+    @Benchmark
+    public Optional<Product> productFindByIdCached() {
+        return productDAO.findById(productIds[pick(productIds.length)]);
+    }
+
+    @Benchmark
+    public Optional<Product> productFindByIdMiss() {
+        int id = productIds[pick(productIds.length)];
+        cache.evict(id);
+        return productDAO.findById(id);
+    }
+
+    @Benchmark
+    public Cart cartLoadBySessionId() {
+        return cartDAO.loadCartBySessionId(sessionIds[pick(sessionIds.length)]);
+    }
+
+    @Benchmark
+    public Cart cartLoadByUserId() {
+        return cartDAO.loadCartByUserId(userIds[pick(userIds.length)]);
+    }
+
+    @Benchmark
+    public Optional<User> userFindByUsername() {
+        return userDAO.findByUsername(usernames[pick(usernames.length)]);
+    }
+
+    @Benchmark
+    public int userLoadAvailabilityFilter() {
+        return userDAO.loadAvailabilityFilter();
+    }
+}
@@ -0,0 +1,334 @@
+package com.example.store.bench;
+
+import com.example.store.util.PasswordHasher;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk-loads a synthetic catalogue, user base and cart history into the store schema (MySQL or the H2
+ * stand-in), appending to whatever is there. Deterministic for a given seed.
+ *
+ * Distributions:
+ * - cart_items.product_id: Zipf (exponent [1.0]) over products, with popularity ranks shuffled across
+ *   ids so hot products are not simply the lowest ids
+ * - cart sizes: log-normal (sigma 1) around meanCartSize [4], capped at 100 lines: most carts hold
+ *   one to three products, a long tail holds dozens
+ * - carts: 80% OPEN, 15% CLEARED, 5% MERGED; 30% belong to a user; updated_at skewed to the last
+ *   few days (exponential, mean 10 days) so the cart reaper has realistic work
+ * - users all share one password, PASSWORD, hashed once: generating 10^5 PBKDF2 hashes would take hours
+ *
+ * Rows go in as multi-row INSERTs of rowsPerInsert [500] rows, committed per statement.
+ *
+ * Run against MySQL (schema from schema.sql or a first deploy):
+ *   mvn -Pbench test-compile exec:java -Dexec.classpathScope=test
+ *       -Dexec.mainClass=com.example.store.bench.DatasetGenerator
+ *       -Dexec.args="--url jdbc:mysql://localhost:3306/homework_ds --products 1000000 --cartItems 10000000 --users 100000"
+ */
+public final class DatasetGenerator {
+    public static final String PASSWORD = "dataset-password";
+
+    private static final int MAX_CART_SIZE = 100;
+    private static final double CART_SIZE_SIGMA = 1.0;
+    private static final String[] WORDS = {
+            "classic", "compact", "wireless", "organic", "premium", "travel", "steel", "bamboo", "smart",
+            "vintage", "ergonomic", "portable", "deluxe", "mini", "pro", "linen", "ceramic", "solar",
+            "lamp", "kettle", "backpack", "speaker", "notebook", "blanket", "mug", "charger", "chair",
+            "jacket", "bottle", "headphones", "tray", "planter", "watch", "scarf", "board", "knife"};
+
+    private final int products;
+    private final int users;
+    private final long cartItems;
+    private final double meanCartSize;
+    private final double zipfExponent;
+    private final int rowsPerInsert;
+    private final Random random;
+
+    public DatasetGenerator(int products, int users, long cartItems, double meanCartSize, double zipfExponent,
+                            int rowsPerInsert, long seed) {
+        if (products < 1 && cartItems > 0) throw new IllegalArgumentException("cart items need products");
+        if (meanCartSize < 1 || rowsPerInsert < 1) throw new IllegalArgumentException("meanCartSize and rowsPerInsert must be >= 1");
+        this.products = products;
+        this.users = users;
+        this.cartItems = cartItems;
+        this.meanCartSize = meanCartSize;
+        this.zipfExponent = zipfExponent;
+        this.rowsPerInsert = rowsPerInsert;
+        this.random = new Random(seed);
+    }
+
+    /** Rows inserted per table, in insertion order (products, users, carts, cart_items). */
+    public Map<String, Long> generate(Connection conn) throws SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            Map<String, Long> inserted = new LinkedHashMap<>();
+            inserted.put("products", insertProducts(conn));
+            inserted.put("users", insertUsers(conn));
+            long[] counts = insertCarts(conn);
+            inserted.put("carts", counts[0]);
+            inserted.put("cart_items", counts[1]);
+            return inserted;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    private long insertProducts(Connection conn) throws SQLException {
+        long base = maxId(conn, "products");
+        try (MultiRowInsert insert = new MultiRowInsert(conn, "products", "name, price, description, image_url", rowsPerInsert)) {
+            for (int i = 1; i <= products; i++) {
+                String name = capitalize(word()) + " " + word() + " " + (base + i);
+                // log-normal prices, median about 25.00
+                BigDecimal price = BigDecimal.valueOf(Math.max(99, Math.round(Math.exp(7.8 + random.nextGaussian()))), 2);
+                String image = random.nextInt(10) < 3 ? null : hex() + hex() + hex() + hex() + ".jpg";
+                insert.add(name, price, description(), image);
+            }
+        }
+        return products;
+    }
+
+    private long insertUsers(Connection conn) throws SQLException {
+        if (users == 0) return 0;
+        PasswordHasher hasher = new PasswordHasher();
+        byte[] salt = hasher.generateSalt();
+        byte[] hash = hasher.hash(PASSWORD.toCharArray(), salt);
+        long base = maxId(conn, "users");
+        try (MultiRowInsert insert = new MultiRowInsert(conn, "users", "username, email, password_hash, password_salt, role", rowsPerInsert)) {
+            for (long i = base + 1; i <= base + users; i++) {
+                insert.add("user" + i, "user" + i + "@example.test", hash, salt, "USER");
+            }
+        }
+        return users;
+    }
+
+    /** Returns {carts, cart_items}. */
+    private long[] insertCarts(Connection conn) throws SQLException {
+        if (cartItems == 0) return new long[]{0, 0};
+        // id -> price for every product (including pre-existing ones), popularity ranks shuffled over ids
+        List<Integer> ids = new ArrayList<>();
+        Map<Integer, BigDecimal> prices = new HashMap<>();
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery("SELECT id, price FROM products")) {
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+                prices.put(rs.getInt(1), rs.getBigDecimal(2));
+            }
+        }
+        Collections.shuffle(ids, random);
+        long[] userIds = userIds(conn);
+        ZipfSampler popularity = new ZipfSampler(ids.size(), zipfExponent);
+        double mu = Math.log(meanCartSize) - CART_SIZE_SIGMA * CART_SIZE_SIGMA / 2;
+        long now = System.currentTimeMillis();
+
+        long carts = 0;
+        long items = 0;
+        try (MultiRowInsert cartInsert = new MultiRowInsert(conn, "carts",
+                "session_id, user_id, status, created_at, updated_at", rowsPerInsert);
+             MultiRowInsert itemInsert = new MultiRowInsert(conn, "cart_items",
+                     "cart_id, product_id, quantity, price_snapshot", rowsPerInsert)) {
+            cartInsert.returnKeys();
+            List<int[]> pending = new ArrayList<>();
+            while (items < cartItems) {
+                int size = (int) Math.min(cartItems - items,
+                        Math.min(Math.min(MAX_CART_SIZE, ids.size()), Math.max(1, Math.round(Math.exp(mu + CART_SIZE_SIGMA * random.nextGaussian())))));
+                Set<Integer> lines = new HashSet<>();
+                for (int attempt = 0; lines.size() < size && attempt < size * 8; attempt++) {
+                    lines.add(ids.get(popularity.sample(random)));
+                }
+                pending.add(lines.stream().mapToInt(Integer::intValue).toArray());
+                items += size; // a few lines short if the sampler kept hitting the same products
+
+                long updated = now - (long) (-Math.log(1 - random.nextDouble()) * TimeUnit.DAYS.toMillis(10));
+                int status = random.nextInt(100);
+                cartInsert.add(hex() + hex(),
+                        userIds.length > 0 && random.nextInt(10) < 3 ? userIds[random.nextInt(userIds.length)] : null,
+                        status < 80 ? "OPEN" : status < 95 ? "CLEARED" : "MERGED",
+                        new Timestamp(updated - random.nextInt((int) TimeUnit.DAYS.toMillis(1))),
+                        new Timestamp(updated));
+                if (pending.size() == rowsPerInsert || items >= cartItems) {
+                    long[] cartIds = cartInsert.flush();
+                    for (int c = 0; c < cartIds.length; c++) {
+                        for (int productId : pending.get(c)) {
+                            itemInsert.add(cartIds[c], productId, 1 + (random.nextInt(4) == 0 ? random.nextInt(5) : 0), prices.get(productId));
+                        }
+                    }
+                    carts += cartIds.length;
+                    pending.clear();
+                }
+            }
+            items = itemInsert.rowsWritten() + itemInsert.pending(); // close() writes the pending rows
+        }
+        return new long[]{carts, items};
+    }
+
+    private String description() {
+        StringBuilder sb = new StringBuilder(200);
+        int words = 15 + random.nextInt(30);
+        for (int i = 0; i < words; i++) {
+            if (i > 0) sb.append(' ');
+            sb.append(word());
+        }
+        return capitalize(sb.append('.').toString());
+    }
+
+    /** 16 random hex digits. */
+    private String hex() {
+        String h = Long.toHexString(random.nextLong());
+        return h.length() == 16 ? h : "0000000000000000".substring(h.length()) + h;
+    }
+
+    private String word() {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    private static String capitalize(String s) {
+        return Character.toUpperCase(s.charAt(0)) + s.substring(1);
+    }
+
+    private static long maxId(Connection conn, String table) throws SQLException {
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(id), 0) FROM " + table)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static long[] userIds(Connection conn) throws SQLException {
+        List<Long> ids = new ArrayList<>();
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery("SELECT id FROM users")) {
+            while (rs.next()) ids.add(rs.getLong(1));
+        }
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * INSERT INTO table (columns) VALUES (..), (..), ... with up to rowsPerStatement rows per execution,
+     * one commit per execution. The full-size statement is prepared once and reused.
+     */
+    private static final class MultiRowInsert implements AutoCloseable {
+        private final Connection conn;
+        private final String table;
+        private final String columns;
+        private final int columnCount;
+        private final int rowsPerStatement;
+        private final List<Object[]> rows = new ArrayList<>();
+        private PreparedStatement full;
+        private boolean returnKeys;
+        private long written;
+
+        MultiRowInsert(Connection conn, String table, String columns, int rowsPerStatement) {
+            this.conn = conn;
+            this.table = table;
+            this.columns = columns;
+            this.columnCount = columns.split(",").length;
+            this.rowsPerStatement = rowsPerStatement;
+        }
+
+        /** flush() returns the generated ids of the rows it wrote, in order. */
+        void returnKeys() {
+            returnKeys = true;
+        }
+
+        void add(Object... values) throws SQLException {
+            rows.add(values);
+            if (rows.size() == rowsPerStatement && !returnKeys) flush();
+        }
+
+        int pending() { return rows.size(); }
+
+        long rowsWritten() { return written; }
+
+        long[] flush() throws SQLException {
+            if (rows.isEmpty()) return new long[0];
+            long[] keys = new long[returnKeys ? rows.size() : 0];
+            boolean reuse = rows.size() == rowsPerStatement;
+            PreparedStatement ps = reuse && full != null ? full : prepare(rows.size());
+            try {
+                int p = 1;
+                for (Object[] row : rows) {
+                    for (Object v : row) {
+                        if (v == null) ps.setNull(p++, Types.NULL);
+                        else ps.setObject(p++, v);
+                    }
+                }
+                ps.executeUpdate();
+                if (returnKeys) {
+                    try (ResultSet rs = ps.getGeneratedKeys()) {
+                        for (int i = 0; i < keys.length && rs.next(); i++) keys[i] = rs.getLong(1);
+                    }
+                }
+                conn.commit();
+            } finally {
+                if (reuse) full = ps;
+                else ps.close();
+            }
+            written += rows.size();
+            rows.clear();
+            return keys;
+        }
+
+        private PreparedStatement prepare(int rowCount) throws SQLException {
+            StringBuilder sql = new StringBuilder(64 + rowCount * (columnCount * 2 + 3))
+                    .append("INSERT INTO ").append(table).append(" (").append(columns).append(") VALUES ");
+            for (int r = 0; r < rowCount; r++) {
+                sql.append(r == 0 ? "(" : ",(");
+                for (int c = 0; c < columnCount; c++) sql.append(c == 0 ? "?" : ",?");
+                sql.append(')');
+            }
+            return returnKeys
+                    ? conn.prepareStatement(sql.toString(), Statement.RETURN_GENERATED_KEYS)
+                    : conn.prepareStatement(sql.toString());
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                flush();
+            } finally {
+                if (full != null) full.close();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) throw new IllegalArgumentException("Expected --name value, got " + args[i]);
+            opts.put(args[i].substring(2), args[i + 1]);
+        }
+        String url = opts.getOrDefault("url", "jdbc:mysql://localhost:3306/homework_ds");
+        DatasetGenerator generator = new DatasetGenerator(
+                Integer.parseInt(opts.getOrDefault("products", "10000")),
+                Integer.parseInt(opts.getOrDefault("users", "1000")),
+                Long.parseLong(opts.getOrDefault("cartItems", "100000")),
+                Double.parseDouble(opts.getOrDefault("meanCartSize", "4")),
+                Double.parseDouble(opts.getOrDefault("zipf", "1.0")),
+                Integer.parseInt(opts.getOrDefault("rowsPerInsert", "500")),
+                Long.parseLong(opts.getOrDefault("seed", "42")));
+        long started = System.nanoTime();
+        try (Connection conn = DriverManager.getConnection(url, opts.getOrDefault("user", "root"), opts.getOrDefault("password", ""))) {
+            Map<String, Long> inserted = generator.generate(conn);
+            double seconds = (System.nanoTime() - started) / 1e9;
+            long total = inserted.values().stream().mapToLong(Long::longValue).sum();
+            System.out.printf(Locale.ROOT, "Inserted %s in %.1f s (%.0f rows/s) into %s; user password: %s%n",
+                    inserted, seconds, total / seconds, url, PASSWORD);
+        }
+    }
+}
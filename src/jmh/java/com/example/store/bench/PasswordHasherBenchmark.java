@@ -0,0 +1,91 @@
+package com.example.store.bench;
+
+import com.example.store.util.PasswordHasher;
+import com.example.store.util.Pbkdf2HmacSha256;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PBKDF2 cost per login/register, with the JDK provider at the same parameters as the baseline the
+ * hand-rolled Pbkdf2HmacSha256 fast path must beat. Each operation is ~100 ms, so iterations are few.
+ *
+ * The trial setup first checks Pbkdf2HmacSha256 against the RFC 7914 section 11 vectors and the JDK
+ * provider; a mismatch fails the run (the bench profile runs JMH with -foe true) instead of timing
+ * a wrong hash or the silent JDK fallback.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordHasherBenchmark {
+    private static final int ITERATIONS = 120_000; // keep in sync with PasswordHasher
+    private static final int KEY_LENGTH = 256;
+
+    private final PasswordHasher hasher = new PasswordHasher();
+    private final char[] password = "correct horse battery staple".toCharArray();
+    private byte[] salt;
+    private byte[] stored;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        check("RFC 7914 c=1", "55ac046e56e3089fec1691c22544b605f94185216dde0465e68b9d57c20dacbc"
+                        + "49ca9cccf179b645991664b39d77ef317c71b845b1e30bd509112041d3a19783",
+                Pbkdf2HmacSha256.derive("passwd".toCharArray(), "salt".getBytes(StandardCharsets.US_ASCII), 1, 64));
+        check("RFC 7914 c=80000", "4ddcd8f60b98be21830cee5ef22701f9641a4418d04c0414aeff08876b34ab56"
+                        + "a1d425a1225833549adb841b51c9b3176a272bdebba1d078478f62b397f33c8d",
+                Pbkdf2HmacSha256.derive("Password".toCharArray(), "NaCl".getBytes(StandardCharsets.US_ASCII), 80000, 64));
+        char[] nonAscii = "päss wörd €".toCharArray();
+        byte[] someSalt = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+        for (int keyBytes : new int[]{16, 32, 33, 64}) {
+            byte[] jdk = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256")
+                    .generateSecret(new PBEKeySpec(nonAscii, someSalt, 1000, keyBytes * 8)).getEncoded();
+            check("JDK cross-check, " + keyBytes + " bytes", HexFormat.of().formatHex(jdk),
+                    Pbkdf2HmacSha256.derive(nonAscii, someSalt, 1000, keyBytes));
+        }
+        if (!PasswordHasher.usesFastPbkdf2()) throw new IllegalStateException("PasswordHasher fell back to the JDK provider");
+
+        salt = hasher.generateSalt();
+        stored = hasher.hash(password, salt);
+    }
+
+    private static void check(String what, String expectedHex, byte[] actual) {
+        if (!Arrays.equals(HexFormat.of().parseHex(expectedHex), actual)) {
+            throw new IllegalStateException("Pbkdf2HmacSha256 " + what + ": expected " + expectedHex
+                    + ", got " + HexFormat.of().formatHex(actual));
+        }
+    }
+
+    @Benchmark
+    public byte[] hash() {
+        return hasher.hash(password, salt);
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return hasher.verify(password, salt, stored);
+    }
+
+    @Benchmark
+    public byte[] jdkBaseline() throws Exception {
+        PBEKeySpec spec = new PBEKeySpec(password, salt, ITERATIONS, KEY_LENGTH);
+        return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+    }
+}
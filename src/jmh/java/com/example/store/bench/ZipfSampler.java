@@ -0,0 +1,28 @@
+package com.example.store.bench;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Zipf-distributed ranks 0..n-1, P(k) proportional to 1 / (k + 1)^exponent, by binary search over the
+ * cumulative distribution. Exact, O(log n) per sample, 8 bytes per rank (8 MB for a million).
+ */
+final class ZipfSampler {
+    private final double[] cdf;
+
+    ZipfSampler(int n, double exponent) {
+        if (n < 1 || exponent < 0) throw new IllegalArgumentException("n must be positive and exponent non-negative");
+        cdf = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+            sum += 1.0 / Math.pow(k + 1, exponent);
+            cdf[k] = sum;
+        }
+        for (int k = 0; k < n; k++) cdf[k] /= sum;
+    }
+
+    int sample(Random random) {
+        int i = Arrays.binarySearch(cdf, random.nextDouble());
+        return Math.min(i >= 0 ? i : -i - 1, cdf.length - 1);
+    }
+}
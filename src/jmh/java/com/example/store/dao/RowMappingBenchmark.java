@@ -0,0 +1,101 @@
+package com.example.store.dao;
+
+import com.example.store.model.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ProductDAO.mapRow over a products result set (H2 in memory, MySQL-compatible table), per full
+ * scan of rows products. mapRow reads columns by label; byIndex is the same mapping by column
+ * position, to show what the label lookups cost.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowMappingBenchmark {
+    private static final String SELECT = "SELECT id,name,price,description,image_url,version,created_at,updated_at FROM products";
+
+    @Param({"100", "10000"})
+    public int rows;
+
+    private Connection conn;
+    private PreparedStatement select;
+
+    @Setup(Level.Trial)
+    public void load() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:h2:mem:rowmapping;MODE=MySQL");
+        try (Statement st = conn.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS products");
+            st.execute("CREATE TABLE products (id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(255) NOT NULL,"
+                    + " price DECIMAL(10,2) NOT NULL, description TEXT, image_url VARCHAR(500),"
+                    + " version INT NOT NULL DEFAULT 1, created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,"
+                    + " updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+        }
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO products (name, price, description, image_url) VALUES (?, ?, ?, ?)")) {
+            for (int i = 1; i <= rows; i++) {
+                ps.setString(1, "Product " + i);
+                ps.setBigDecimal(2, BigDecimal.valueOf(100 + i % 90_000, 2));
+                ps.setString(3, "Description of product " + i + ", long enough to look like real copy text.");
+                ps.setString(4, "/images/" + Integer.toHexString(i * 0x9e3779b9) + ".jpg");
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        select = conn.prepareStatement(SELECT);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws SQLException {
+        conn.close();
+    }
+
+    @Benchmark
+    public void byLabel(Blackhole bh) throws SQLException {
+        try (ResultSet rs = select.executeQuery()) {
+            while (rs.next()) bh.consume(ProductDAO.mapRow(rs));
+        }
+    }
+
+    @Benchmark
+    public void byIndex(Blackhole bh) throws SQLException {
+        try (ResultSet rs = select.executeQuery()) {
+            while (rs.next()) {
+                Product p = new Product();
+                p.setId(rs.getInt(1));
+                p.setName(rs.getString(2));
+                p.setPrice(rs.getBigDecimal(3));
+                p.setDescription(rs.getString(4));
+                p.setImageUrl(rs.getString(5));
+                p.setVersion(rs.getInt(6));
+                p.setCreatedAt(rs.getTimestamp(7));
+                p.setUpdatedAt(rs.getTimestamp(8));
+                bh.consume(p);
+            }
+        }
+    }
+}
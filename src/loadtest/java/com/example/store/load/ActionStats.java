@@ -0,0 +1,81 @@
+package com.example.store.load;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Outcomes of one action (e.g. cart.add) over the measured window: every successful latency is kept,
+ * so percentiles are exact rather than bucketed; failures are counted by kind ("HTTP 503", "timeout").
+ */
+final class ActionStats {
+    private final String action;
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private long[] latencies = new long[1024];
+    private int count;
+
+    ActionStats(String action) {
+        this.action = action;
+    }
+
+    String action() { return action; }
+
+    synchronized void success(long nanos) {
+        if (count == latencies.length) latencies = Arrays.copyOf(latencies, count * 2);
+        latencies[count++] = nanos;
+    }
+
+    void failure(String kind) {
+        errors.computeIfAbsent(kind, k -> new LongAdder()).increment();
+    }
+
+    Summary summarize() {
+        long[] sorted;
+        synchronized (this) {
+            sorted = Arrays.copyOf(latencies, count);
+        }
+        Arrays.sort(sorted);
+        Map<String, Long> failures = new TreeMap<>();
+        errors.forEach((kind, n) -> failures.put(kind, n.sum()));
+        return new Summary(action, sorted, failures);
+    }
+
+    static final class Summary {
+        final String action;
+        final long successes;
+        final long failures;
+        final Map<String, Long> failuresByKind;
+        final double meanMillis;
+        final double p50Millis;
+        final double p90Millis;
+        final double p99Millis;
+        final double maxMillis;
+
+        private Summary(String action, long[] sorted, Map<String, Long> failuresByKind) {
+            this.action = action;
+            this.successes = sorted.length;
+            this.failuresByKind = failuresByKind;
+            this.failures = failuresByKind.values().stream().mapToLong(Long::longValue).sum();
+            long sum = 0;
+            for (long n : sorted) sum += n;
+            this.meanMillis = sorted.length == 0 ? 0 : sum / (double) sorted.length / 1e6;
+            this.p50Millis = percentile(sorted, 0.50);
+            this.p90Millis = percentile(sorted, 0.90);
+            this.p99Millis = percentile(sorted, 0.99);
+            this.maxMillis = sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6;
+        }
+
+        long total() { return successes + failures; }
+
+        double errorRate() { return total() == 0 ? 0 : failures / (double) total(); }
+
+        /** Nearest-rank percentile in milliseconds. */
+        private static double percentile(long[] sorted, double q) {
+            if (sorted.length == 0) return 0;
+            int rank = (int) Math.ceil(q * sorted.length);
+            return sorted[Math.max(0, rank - 1)] / 1e6;
+        }
+    }
+}
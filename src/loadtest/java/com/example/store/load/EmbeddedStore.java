@@ -0,0 +1,59 @@
+package com.example.store.load;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.WebResourceRoot;
+import org.apache.catalina.session.StandardManager;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.catalina.webresources.DirResourceSet;
+import org.apache.catalina.webresources.StandardRoot;
+import org.apache.tomcat.util.descriptor.web.ApplicationParameter;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * The webapp running in an embedded Tomcat, straight from src/main/webapp and target/classes (no war),
+ * with annotations, web.xml and JSPs processed as in a normal deployment.
+ *
+ * Context-params given here win over web.xml, which is how the harness points the servlets at the
+ * stand-in database and lifts the login throttle. maxThreads is the connector's request thread pool
+ * (Tomcat's default is 200), the limit that thread-per-request servlets run into.
+ */
+final class EmbeddedStore implements AutoCloseable {
+    private final Tomcat tomcat;
+
+    EmbeddedStore(Path webapp, Path classes, Path workDir, int port, int maxThreads, Map<String, String> params)
+            throws LifecycleException {
+        tomcat = new Tomcat();
+        tomcat.setBaseDir(workDir.toAbsolutePath().toString());
+        tomcat.setPort(port);
+        tomcat.getConnector().setProperty("maxThreads", String.valueOf(maxThreads));
+
+        Context ctx = tomcat.addWebapp("", webapp.toAbsolutePath().toString());
+        WebResourceRoot resources = new StandardRoot(ctx);
+        resources.addPreResources(new DirResourceSet(resources, "/WEB-INF/classes", classes.toAbsolutePath().toString(), "/"));
+        ctx.setResources(resources);
+        StandardManager sessions = new StandardManager();
+        sessions.setPathname(null); // no session persistence across runs
+        ctx.setManager(sessions);
+        for (Map.Entry<String, String> e : params.entrySet()) {
+            ApplicationParameter p = new ApplicationParameter();
+            p.setName(e.getKey());
+            p.setValue(e.getValue());
+            p.setOverride(false);
+            ctx.addApplicationParameter(p);
+        }
+        tomcat.start();
+    }
+
+    int port() {
+        return tomcat.getConnector().getLocalPort();
+    }
+
+    @Override
+    public void close() throws LifecycleException {
+        tomcat.stop();
+        tomcat.destroy();
+    }
+}
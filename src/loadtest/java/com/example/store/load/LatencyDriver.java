@@ -0,0 +1,97 @@
+package com.example.store.load;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * JDBC driver for jdbc:latency:&lt;millis&gt;:&lt;url&gt; that opens &lt;url&gt; and waits millis before
+ * every statement execution, commit and rollback.
+ *
+ * The in-memory stand-in answers in microseconds, where a real MySQL costs a network round trip per
+ * statement; that wait is what the request threads spend their time on, and what separates
+ * thread-per-request from virtual-thread execution (asyncRequests.enabled). The wait happens before
+ * the call reaches H2, so it holds no database lock, as with a real round trip.
+ */
+public final class LatencyDriver implements Driver {
+    private static final String PREFIX = "jdbc:latency:";
+
+    static {
+        try {
+            DriverManager.registerDriver(new LatencyDriver());
+        } catch (SQLException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /** url with every statement delayed by millis (registers the driver). */
+    static String url(long millis, String url) {
+        return PREFIX + millis + ":" + url;
+    }
+
+    @Override
+    public Connection connect(String url, Properties info) throws SQLException {
+        if (!acceptsURL(url)) return null;
+        int colon = url.indexOf(':', PREFIX.length());
+        if (colon < 0) throw new SQLException("Expected " + PREFIX + "<millis>:<url>, got " + url);
+        long millis = Long.parseLong(url.substring(PREFIX.length(), colon));
+        return delayed(Connection.class, DriverManager.getConnection(url.substring(colon + 1), info), millis);
+    }
+
+    private static <T> T delayed(Class<T> type, T target, long millis) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            String name = method.getName();
+            if (name.startsWith("execute") || name.equals("commit") || name.equals("rollback")) {
+                TimeUnit.MILLISECONDS.sleep(millis);
+            }
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            Class<?> returned = method.getReturnType();
+            if (returned == Statement.class || returned == PreparedStatement.class || returned == CallableStatement.class) {
+                return delayedStatement(returned, result, millis);
+            }
+            return result;
+        };
+        return type.cast(Proxy.newProxyInstance(LatencyDriver.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private static <T> Object delayedStatement(Class<T> type, Object statement, long millis) {
+        return statement == null ? null : delayed(type, type.cast(statement), millis);
+    }
+
+    @Override
+    public boolean acceptsURL(String url) {
+        return url != null && url.startsWith(PREFIX);
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+        return new DriverPropertyInfo[0];
+    }
+
+    @Override public int getMajorVersion() { return 1; }
+    @Override public int getMinorVersion() { return 0; }
+    @Override public boolean jdbcCompliant() { return false; }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+}
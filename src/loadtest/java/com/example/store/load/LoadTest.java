@@ -0,0 +1,260 @@
+package com.example.store.load;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Offline load test: boots the webapp in an embedded Tomcat against an in-memory stand-in for MySQL
+ * (StandInDatabase, loaded from schema.sql + sample-data.sql), then drives Scenario journeys at an
+ * open-loop arrival rate and reports throughput, latency percentiles and error rate per action.
+ *
+ * Open loop: visitors arrive as a Poisson process at --rate per second whether or not earlier ones
+ * have finished, as real traffic does, so a slow server shows up as latency and errors instead of a
+ * politely reduced request rate. At most --concurrency journeys run at once; an arrival beyond that
+ * is dropped and counted (a load generator that queues them would hide the overload).
+ *
+ * Run (see README, Load Testing):
+ *   mvn -Ploadtest test-compile exec:exec -Dloadtest.args="--rate 50 --duration 60"
+ *
+ * Options [defaults]: --rate [20] arrivals/s, --duration [30] s measured, --warmup [5] s unmeasured,
+ * --concurrency [64], --mix [browse=60,shop=30,login=7,register=3], --accounts [20] registered for
+ * LOGIN, --think [0] ms between steps, --timeout [10] s per request, --port [0 = any free],
+ * --param name=value (context-param, repeatable), --url (drive a running deployment instead of the
+ * embedded one; then --products lists the product ids [1,2,3]), --out [target/loadtest-result.json],
+ * --dbLatency [0] ms added to every statement (LatencyDriver), --maxThreads [200] connector threads.
+ *
+ * Thread-per-request against virtual threads: same run with and without
+ * --param asyncRequests.enabled=true (Java 21+), with a --dbLatency standing in for the MySQL round
+ * trip and --maxThreads low enough for the connector pool to matter (README, Load Testing).
+ */
+public final class LoadTest {
+    private static final Map<String, String> DEFAULT_PARAMS = Map.of(
+            "db.url", StandInDatabase.URL,
+            "cartReaper.enabled", "false",
+            // every visitor comes from 127.0.0.1 and LOGIN reuses a few accounts: the throttle would
+            // answer most of them 429 and the run would measure the limiter, not the store
+            "loginThrottle.usernameBurst", "10000",
+            "loginThrottle.usernamePerMinute", "1000000",
+            "loginThrottle.ipBurst", "10000",
+            "loginThrottle.ipPerMinute", "1000000");
+
+    private final Map<String, String> options = new LinkedHashMap<>();
+    private final Map<String, String> params = new LinkedHashMap<>(DEFAULT_PARAMS);
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder arrivals = new LongAdder();
+
+    private LoadTest(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 == args.length) {
+                throw new IllegalArgumentException("Expected --name value, got " + args[i]);
+            }
+            String name = args[i].substring(2);
+            String value = args[++i];
+            if (name.equals("param")) {
+                int eq = value.indexOf('=');
+                if (eq <= 0) throw new IllegalArgumentException("--param expects name=value, got " + value);
+                params.put(value.substring(0, eq), value.substring(eq + 1));
+            } else {
+                options.put(name, value);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Logger.getLogger("org.apache").setLevel(Level.WARNING);
+        new LoadTest(args).run();
+    }
+
+    private String option(String name, String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+
+    private void run() throws Exception {
+        String url = option("url", null);
+        StandInDatabase db = null;
+        EmbeddedStore store = null;
+        try {
+            List<Integer> productIds;
+            if (url == null) {
+                db = new StandInDatabase(Paths.get("schema.sql"), Paths.get("sample-data.sql"));
+                long dbLatency = Long.parseLong(option("dbLatency", "0"));
+                if (dbLatency > 0) params.put("db.url", LatencyDriver.url(dbLatency, params.get("db.url")));
+                store = new EmbeddedStore(Paths.get("src/main/webapp"), Paths.get("target/classes"),
+                        Paths.get("target/loadtest/tomcat"), Integer.parseInt(option("port", "0")),
+                        Integer.parseInt(option("maxThreads", "200")), params);
+                url = "http://localhost:" + store.port();
+                productIds = db.productIds();
+            } else {
+                productIds = Arrays.stream(option("products", "1,2,3").split(","))
+                        .map(String::trim).map(Integer::valueOf).collect(Collectors.toList());
+            }
+            if (productIds.isEmpty()) throw new IllegalStateException("No products to put in carts");
+            execute(url, productIds);
+        } finally {
+            if (store != null) store.close();
+            if (db != null) db.close();
+        }
+    }
+
+    private void execute(String baseUrl, List<Integer> productIds) throws Exception {
+        double rate = Double.parseDouble(option("rate", "20"));
+        long warmupNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(option("warmup", "5")));
+        long measureNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(option("duration", "30")));
+        int concurrency = Integer.parseInt(option("concurrency", "64"));
+        Map<Scenario, Integer> mix = parseMix(option("mix", "browse=60,shop=30,login=7,register=3"));
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        Duration timeout = Duration.ofSeconds(Long.parseLong(option("timeout", "10")));
+        long thinkNanos = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(option("think", "0")));
+        List<String> accounts = new ArrayList<>();
+        Scenario.Workload w = new Scenario.Workload(baseUrl, client, timeout, productIds, accounts, thinkNanos);
+        registerAccounts(w, accounts, Integer.parseInt(option("accounts", "20")));
+
+        AtomicInteger threadIds = new AtomicInteger();
+        ThreadPoolExecutor visitors = new ThreadPoolExecutor(concurrency, concurrency, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), r -> {
+                    Thread t = new Thread(r, "visitor-" + threadIds.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        visitors.prestartAllCoreThreads();
+
+        System.out.printf(Locale.ROOT, "Target %s: %.1f arrivals/s, warmup %d s, measure %d s, concurrency %d, mix %s, options %s, params %s%n",
+                baseUrl, rate, TimeUnit.NANOSECONDS.toSeconds(warmupNanos), TimeUnit.NANOSECONDS.toSeconds(measureNanos),
+                concurrency, mix, options, params);
+        long start = System.nanoTime();
+        long measureStart = start + warmupNanos;
+        long end = measureStart + measureNanos;
+        long next = start;
+        while (next < end) {
+            long now = System.nanoTime();
+            if (next > now) {
+                TimeUnit.NANOSECONDS.sleep(next - now);
+                continue;
+            }
+            // late arrivals are sent at once rather than skipped: the schedule, not the server, sets the rate
+            boolean measuring = next >= measureStart;
+            Scenario scenario = pick(mix);
+            try {
+                visitors.execute(() -> scenario.run(new Scenario.VirtualUser(w, measuring), w));
+                if (measuring) arrivals.increment();
+            } catch (RejectedExecutionException full) {
+                if (measuring) dropped.increment();
+            }
+            next += (long) (-Math.log(1 - ThreadLocalRandom.current().nextDouble()) / rate * 1e9);
+        }
+        visitors.shutdown();
+        if (!visitors.awaitTermination(timeout.toSeconds() * 4 + 5, TimeUnit.SECONDS)) visitors.shutdownNow();
+
+        List<ActionStats.Summary> summaries = w.stats().values().stream()
+                .map(ActionStats::summarize)
+                .sorted((a, b) -> a.action.compareTo(b.action))
+                .collect(Collectors.toList());
+        double seconds = measureNanos / 1e9;
+        print(System.out, summaries, seconds);
+        Path out = Paths.get(option("out", "target/loadtest-result.json"));
+        writeJson(out, summaries, seconds, rate, concurrency, mix);
+        System.out.println("Results written to " + out.toAbsolutePath());
+    }
+
+    /** Accounts for LOGIN, created through the normal registration path before measuring starts. */
+    private static void registerAccounts(Scenario.Workload w, List<String> accounts, int count) {
+        for (int i = 0; i < count; i++) {
+            String name = w.newAccountName();
+            boolean ok = new Scenario.VirtualUser(w, false).post("auth.register", "/auth", Map.of("action", "register",
+                    "username", name, "email", name + "@load.test", "password", Scenario.Workload.PASSWORD), 302);
+            if (ok) accounts.add(name);
+        }
+        if (accounts.isEmpty()) throw new IllegalStateException("Could not register any account for the LOGIN scenario");
+    }
+
+    private static Map<Scenario, Integer> parseMix(String spec) {
+        Map<Scenario, Integer> mix = new LinkedHashMap<>();
+        for (String part : spec.split(",")) {
+            String[] kv = part.trim().split("=", 2);
+            int weight = kv.length == 2 ? Integer.parseInt(kv[1].trim()) : 1;
+            if (weight > 0) mix.put(Scenario.valueOf(kv[0].trim().toUpperCase(Locale.ROOT)), weight);
+        }
+        if (mix.isEmpty()) throw new IllegalArgumentException("Empty scenario mix: " + spec);
+        return mix;
+    }
+
+    private static Scenario pick(Map<Scenario, Integer> mix) {
+        int total = 0;
+        for (int weight : mix.values()) total += weight;
+        int r = ThreadLocalRandom.current().nextInt(total);
+        for (Map.Entry<Scenario, Integer> e : mix.entrySet()) {
+            r -= e.getValue();
+            if (r < 0) return e.getKey();
+        }
+        throw new AssertionError();
+    }
+
+    private void print(PrintStream out, List<ActionStats.Summary> summaries, double seconds) {
+        out.printf(Locale.ROOT, "%nArrivals %d (%.1f/s), dropped at the concurrency limit %d%n",
+                arrivals.sum(), arrivals.sum() / seconds, dropped.sum());
+        out.printf(Locale.ROOT, "%-15s %8s %8s %7s %8s %8s %8s %8s %8s %8s%n",
+                "action", "count", "errors", "err%", "req/s", "mean ms", "p50 ms", "p90 ms", "p99 ms", "max ms");
+        for (ActionStats.Summary s : summaries) {
+            out.printf(Locale.ROOT, "%-15s %8d %8d %6.2f%% %8.1f %8.2f %8.2f %8.2f %8.2f %8.2f%n",
+                    s.action, s.total(), s.failures, s.errorRate() * 100, s.total() / seconds,
+                    s.meanMillis, s.p50Millis, s.p90Millis, s.p99Millis, s.maxMillis);
+        }
+        for (ActionStats.Summary s : summaries) {
+            if (s.failures > 0) out.println("  " + s.action + " failures: " + s.failuresByKind);
+        }
+    }
+
+    private void writeJson(Path out, List<ActionStats.Summary> summaries, double seconds, double rate,
+                           int concurrency, Map<Scenario, Integer> mix) throws IOException {
+        if (out.getParent() != null) Files.createDirectories(out.getParent());
+        try (Writer w = Files.newBufferedWriter(out, StandardCharsets.UTF_8)) {
+            w.write(String.format(Locale.ROOT,
+                    "{\"rate\":%.3f,\"durationSeconds\":%.3f,\"concurrency\":%d,\"mix\":\"%s\",\"options\":\"%s\",\"params\":\"%s\",\"arrivals\":%d,\"dropped\":%d,\"actions\":[",
+                    rate, seconds, concurrency, mix, options, params, arrivals.sum(), dropped.sum()));
+            for (int i = 0; i < summaries.size(); i++) {
+                ActionStats.Summary s = summaries.get(i);
+                if (i > 0) w.write(',');
+                w.write(String.format(Locale.ROOT,
+                        "%n{\"action\":\"%s\",\"count\":%d,\"errors\":%d,\"throughput\":%.3f,\"meanMillis\":%.3f,"
+                                + "\"p50Millis\":%.3f,\"p90Millis\":%.3f,\"p99Millis\":%.3f,\"maxMillis\":%.3f,\"errorsByKind\":{",
+                        s.action, s.total(), s.failures, s.total() / seconds, s.meanMillis,
+                        s.p50Millis, s.p90Millis, s.p99Millis, s.maxMillis));
+                int k = 0;
+                for (Map.Entry<String, Long> e : s.failuresByKind.entrySet()) {
+                    if (k++ > 0) w.write(',');
+                    w.write("\"" + e.getKey() + "\":" + e.getValue());
+                }
+                w.write("}}");
+            }
+            w.write(String.format("%n]}%n"));
+        }
+    }
+}
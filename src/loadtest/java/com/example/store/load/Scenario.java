@@ -0,0 +1,208 @@
+package com.example.store.load;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Scripted user journeys. Each arrival runs one scenario as a fresh visitor (own session cookie);
+ * action names match the server's store_http_action_* labels so both sides can be compared.
+ *
+ * - BROWSE: products.list
+ * - SHOP: products.list, 1-3 x cart.add, cart.update, cart.view (cart calls use format=json)
+ * - LOGIN: cart.add as a guest, auth.login with a wrong password (the login page must come back with
+ *   its error), auth.login as one of the pre-registered accounts (merging the guest cart into the
+ *   account's cart, CartDAO.mergeGuestCart), cart.view checking the guest line survived, then
+ *   cart.add as that user
+ * - REGISTER: auth.register a new account, then products.list
+ */
+enum Scenario {
+    BROWSE {
+        @Override
+        void run(VirtualUser user, Workload w) {
+            user.get("products.list", "/products?action=list", 200);
+        }
+    },
+    SHOP {
+        @Override
+        void run(VirtualUser user, Workload w) {
+            user.get("products.list", "/products?action=list", 200);
+            int lines = 1 + ThreadLocalRandom.current().nextInt(3);
+            int last = 0;
+            for (int i = 0; i < lines; i++) {
+                w.think();
+                last = w.randomProduct();
+                user.post("cart.add", "/cart", Map.of("action", "add", "id", last, "qty", 1, "format", "json"), 200);
+            }
+            w.think();
+            user.post("cart.update", "/cart", Map.of("action", "update", "id", last,
+                    "qty", 1 + ThreadLocalRandom.current().nextInt(5), "format", "json"), 200);
+            w.think();
+            user.get("cart.view", "/cart?action=view&format=json", 200);
+        }
+    },
+    LOGIN {
+        @Override
+        void run(VirtualUser user, Workload w) {
+            int guestProduct = w.randomProduct();
+            if (!user.post("cart.add", "/cart", Map.of("action", "add", "id", guestProduct, "qty", 1, "format", "json"), 200)) return;
+            w.think();
+            String account = w.randomAccount();
+            if (!user.post("auth.login", "/auth", Map.of("action", "login", "username", account,
+                    "password", "wrong-" + Workload.PASSWORD), 200, "Invalid credentials")) return;
+            w.think();
+            if (!user.post("auth.login", "/auth", Map.of("action", "login", "username", account,
+                    "password", Workload.PASSWORD), 302)) return;
+            w.think();
+            // a failed merge does not fail the login (AuthServlet logs it), so check its result here
+            if (!user.get("cart.view", "/cart?action=view&format=json", 200, "\"productId\":" + guestProduct)) return;
+            w.think();
+            user.post("cart.add", "/cart", Map.of("action", "add", "id", w.randomProduct(), "qty", 1, "format", "json"), 200);
+        }
+    },
+    REGISTER {
+        @Override
+        void run(VirtualUser user, Workload w) {
+            String account = w.newAccountName();
+            if (!user.post("auth.register", "/auth", Map.of("action", "register", "username", account,
+                    "email", account + "@load.test", "password", Workload.PASSWORD), 302)) return;
+            w.think();
+            user.get("products.list", "/products?action=list", 200);
+        }
+    };
+
+    abstract void run(VirtualUser user, Workload w);
+
+    /** What scenarios share: target, HTTP client, data to pick from, and where results go. */
+    static final class Workload {
+        static final String PASSWORD = "load-test-password";
+
+        final String baseUrl;
+        final HttpClient client;
+        final Duration timeout;
+        private final List<Integer> productIds;
+        private final List<String> accounts;
+        private final long thinkNanos;
+        private final String runId = Long.toString(System.currentTimeMillis(), 36);
+        private final AtomicLong registered = new AtomicLong();
+        private final Map<String, ActionStats> stats = new ConcurrentHashMap<>();
+
+        Workload(String baseUrl, HttpClient client, Duration timeout, List<Integer> productIds,
+                 List<String> accounts, long thinkNanos) {
+            this.baseUrl = baseUrl;
+            this.client = client;
+            this.timeout = timeout;
+            this.productIds = productIds;
+            this.accounts = accounts;
+            this.thinkNanos = thinkNanos;
+        }
+
+        int randomProduct() {
+            return productIds.get(ThreadLocalRandom.current().nextInt(productIds.size()));
+        }
+
+        String randomAccount() {
+            return accounts.get(ThreadLocalRandom.current().nextInt(accounts.size()));
+        }
+
+        /** Unique per run, so repeated runs against one database do not collide. */
+        String newAccountName() {
+            return "load-" + runId + "-" + registered.incrementAndGet();
+        }
+
+        void think() {
+            if (thinkNanos > 0) LockSupport.parkNanos(thinkNanos);
+        }
+
+        ActionStats stats(String action) {
+            return stats.computeIfAbsent(action, ActionStats::new);
+        }
+
+        Map<String, ActionStats> stats() { return stats; }
+    }
+
+    /**
+     * One visitor: carries the session cookie between its requests. recorded: the visitor arrived in
+     * the measured window, so all of its requests count, even those finishing after the window.
+     */
+    static final class VirtualUser {
+        private final Workload w;
+        private final boolean recorded;
+        private String sessionCookie;
+
+        VirtualUser(Workload w, boolean recorded) {
+            this.w = w;
+            this.recorded = recorded;
+        }
+
+        boolean get(String action, String path, int expectedStatus) {
+            return get(action, path, expectedStatus, null);
+        }
+
+        /** As get(), but the response body must also contain expectedText (recorded as "unexpected body"). */
+        boolean get(String action, String path, int expectedStatus, String expectedText) {
+            return send(action, HttpRequest.newBuilder(URI.create(w.baseUrl + path)).GET(), expectedStatus, expectedText);
+        }
+
+        boolean post(String action, String path, Map<String, ?> form, int expectedStatus) {
+            return post(action, path, form, expectedStatus, null);
+        }
+
+        /** As post(), but the response body must also contain expectedText (recorded as "unexpected body"). */
+        boolean post(String action, String path, Map<String, ?> form, int expectedStatus, String expectedText) {
+            StringBuilder body = new StringBuilder();
+            for (Map.Entry<String, ?> e : form.entrySet()) {
+                if (body.length() > 0) body.append('&');
+                body.append(URLEncoder.encode(e.getKey(), StandardCharsets.UTF_8)).append('=')
+                        .append(URLEncoder.encode(String.valueOf(e.getValue()), StandardCharsets.UTF_8));
+            }
+            return send(action, HttpRequest.newBuilder(URI.create(w.baseUrl + path))
+                    .header("Content-Type", "application/x-www-form-urlencoded")
+                    .POST(HttpRequest.BodyPublishers.ofString(body.toString())), expectedStatus, expectedText);
+        }
+
+        /** Send and record the outcome; true if the server answered expectedStatus (and expectedText, if given). */
+        private boolean send(String action, HttpRequest.Builder request, int expectedStatus, String expectedText) {
+            if (sessionCookie != null) request.header("Cookie", sessionCookie);
+            long started = System.nanoTime();
+            String failure;
+            try {
+                HttpResponse<String> resp = w.client.send(request.timeout(w.timeout).build(), expectedText == null
+                        ? HttpResponse.BodyHandlers.replacing(null) : HttpResponse.BodyHandlers.ofString());
+                long elapsed = System.nanoTime() - started;
+                for (String setCookie : resp.headers().allValues("Set-Cookie")) {
+                    if (setCookie.startsWith("JSESSIONID=")) sessionCookie = setCookie.split(";", 2)[0];
+                }
+                if (resp.statusCode() != expectedStatus) {
+                    failure = "HTTP " + resp.statusCode();
+                } else if (expectedText != null && !resp.body().contains(expectedText)) {
+                    failure = "unexpected body";
+                } else {
+                    if (recorded) w.stats(action).success(elapsed);
+                    return true;
+                }
+            } catch (HttpTimeoutException e) {
+                failure = "timeout";
+            } catch (IOException e) {
+                failure = e.getClass().getSimpleName();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            if (recorded) w.stats(action).failure(failure);
+            return false;
+        }
+    }
+}
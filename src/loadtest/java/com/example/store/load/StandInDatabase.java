@@ -0,0 +1,93 @@
+package com.example.store.load;
+
+import com.example.store.standin.MySqlOnH2Driver;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * In-memory H2 database in MySQL mode standing in for homework_ds, loaded from schema.sql (and
+ * sample-data.sql) exactly as a developer would load MySQL.
+ *
+ * - CREATE DATABASE / USE lines are skipped: the in-memory database is the schema
+ * - GET_LOCK / RELEASE_LOCK (SchemaMigrator) are defined as functions that always succeed; there is
+ *   only one node to serialise against
+ * - The webapp connects through MySqlOnH2Driver (URL), which accepts the MySQL-only statements the
+ *   DAOs use; the DAOs themselves only ever speak MySQL
+ * - One connection is held open for the lifetime of the stand-in, so the database survives between
+ *   the webapp's short-lived connections
+ */
+public final class StandInDatabase implements AutoCloseable {
+    private static final String H2_URL = "jdbc:h2:mem:homework_ds;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    static final String URL = MySqlOnH2Driver.url(H2_URL);
+
+    private final Connection keepAlive;
+
+    StandInDatabase(Path... scripts) throws SQLException, IOException {
+        keepAlive = DriverManager.getConnection(H2_URL, "root", "");
+        try (Statement st = keepAlive.createStatement()) {
+            st.execute("CREATE ALIAS IF NOT EXISTS GET_LOCK FOR \"" + StandInDatabase.class.getName() + ".getLock\"");
+            st.execute("CREATE ALIAS IF NOT EXISTS RELEASE_LOCK FOR \"" + StandInDatabase.class.getName() + ".releaseLock\"");
+            for (Path script : scripts) {
+                for (String sql : statements(Files.readString(script, StandardCharsets.UTF_8))) st.execute(sql);
+            }
+        }
+    }
+
+    /** Ids of the products currently in the database, in id order. */
+    List<Integer> productIds() throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        try (Statement st = keepAlive.createStatement();
+             ResultSet rs = st.executeQuery("SELECT id FROM products ORDER BY id")) {
+            while (rs.next()) ids.add(rs.getInt(1));
+        }
+        return ids;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try (Statement st = keepAlive.createStatement()) {
+            st.execute("SHUTDOWN");
+        } finally {
+            keepAlive.close();
+        }
+    }
+
+    public static int getLock(String name, int timeoutSeconds) {
+        return 1;
+    }
+
+    public static int releaseLock(String name) {
+        return 1;
+    }
+
+    /** Split a mysql-client style script on statement-ending semicolons, dropping comments and USE/CREATE DATABASE. */
+    static List<String> statements(String script) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String line : script.split("\\R")) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("--")) continue;
+            current.append(line).append('\n');
+            if (trimmed.endsWith(";")) {
+                String sql = current.substring(0, current.lastIndexOf(";")).trim();
+                current.setLength(0);
+                String upper = sql.toUpperCase(Locale.ROOT);
+                if (upper.startsWith("USE ") || upper.startsWith("CREATE DATABASE")) continue;
+                statements.add(sql);
+            }
+        }
+        if (current.length() > 0) statements.add(current.toString().trim());
+        return statements;
+    }
+}
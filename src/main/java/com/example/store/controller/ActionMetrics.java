@@ -0,0 +1,55 @@
+package com.example.store.controller;
+
+import com.example.store.util.Metrics;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.util.Map;
+
+/**
+ * Times servlet actions into Metrics.ACTIONS. Used from each controller's service() override:
+ * <pre>
+ *     String label = ActionMetrics.label(req, GET_LABELS, POST_LABELS, "products.list", "products.save");
+ *     long started = System.nanoTime();
+ *     boolean failed = true;
+ *     try { super.service(req, resp); failed = false; }
+ *     finally { ActionMetrics.finish(req, resp, label, started, failed); }
+ * </pre>
+ * Labels come from fixed per-servlet maps (unknown ?action= values fall back to the default the
+ * servlet actually routes them to), so request input can never create new series.
+ * Requests that went async (AuthServlet hashing, AsyncRequests) are recorded when the async cycle completes.
+ */
+final class ActionMetrics {
+    private ActionMetrics() {}
+
+    static String label(HttpServletRequest req, Map<String, String> getLabels, Map<String, String> postLabels,
+                        String getDefault, String postDefault) {
+        String action = req.getParameter("action");
+        boolean post = "POST".equals(req.getMethod());
+        String label = action == null ? null : (post ? postLabels : getLabels).get(action);
+        return label != null ? label : post ? postDefault : getDefault;
+    }
+
+    static void finish(HttpServletRequest req, HttpServletResponse resp, String label, long startedNanos, boolean failed) {
+        if (!failed && req.isAsyncStarted()) {
+            req.getAsyncContext().addListener(new AsyncListener() {
+                private boolean errored;
+                @Override public void onComplete(AsyncEvent event) {
+                    record(label, startedNanos, errored || resp.getStatus() >= 500);
+                }
+                @Override public void onTimeout(AsyncEvent event) { errored = true; }
+                @Override public void onError(AsyncEvent event) { errored = true; }
+                @Override public void onStartAsync(AsyncEvent event) {}
+            });
+            return;
+        }
+        record(label, startedNanos, failed || resp.getStatus() >= 500);
+    }
+
+    private static void record(String label, long startedNanos, boolean error) {
+        Metrics.ACTIONS.recordSince(label, startedNanos);
+        if (error) Metrics.ACTION_ERRORS.increment(label);
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.store.controller;
+
+import com.example.store.util.RequestExecutor;
+import com.example.store.util.RequestTiming;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Hands a servlet's request to RequestExecutor (a virtual thread) when asyncRequests.enabled, from the
+ * servlet's service() override:
+ * <pre>
+ *     if (!AsyncRequests.dispatch(req, resp, requests, () -&gt; super.service(req, resp))) super.service(req, resp);
+ * </pre>
+ * The container thread only calls startAsync() and returns; the handler runs unchanged (blocking JDBC,
+ * forwards to JSPs) on the virtual thread, with the request's RequestTiming attached, and the async
+ * cycle completes when it returns. ActionMetrics and ServerTimingFilter record async requests on
+ * completion, so metrics and Server-Timing are the same in both modes.
+ *
+ * A request that cannot get a permit (queue full, or queue timeout) is answered 503 + Retry-After.
+ * Errors thrown by the handler become a 500, as the container would do on its own thread.
+ */
+final class AsyncRequests {
+    private static final Logger LOG = Logger.getLogger(AsyncRequests.class.getName());
+
+    private AsyncRequests() {}
+
+    @FunctionalInterface
+    interface Handler {
+        void handle() throws ServletException, IOException;
+    }
+
+    /**
+     * true: the request now belongs to a virtual thread. false (executor null, or an include, forward
+     * or error dispatch): the caller handles it on this thread.
+     */
+    static boolean dispatch(HttpServletRequest req, HttpServletResponse resp, RequestExecutor executor, Handler handler) {
+        if (executor == null || req.getDispatcherType() != DispatcherType.REQUEST
+                || !req.isAsyncSupported() || req.isAsyncStarted()) {
+            return false;
+        }
+        AsyncContext async = req.startAsync(req, resp);
+        async.setTimeout(0); // as on a container thread: a slow query holds the request, no timer cuts it off
+        RequestTiming timing = RequestTiming.current();
+        try {
+            executor.execute(RequestTiming.bind(timing, () -> run(req, resp, async, handler)), () -> busy(resp, async));
+        } catch (RejectedExecutionException e) {
+            busy(resp, async);
+        }
+        return true;
+    }
+
+    private static void run(HttpServletRequest req, HttpServletResponse resp, AsyncContext async, Handler handler) {
+        try {
+            handler.handle();
+            resp.flushBuffer(); // commits Server-Timing and bodies written without a forward (JSON)
+        } catch (Exception e) {
+            LOG.log(Level.SEVERE, "Request " + req.getMethod() + " " + req.getRequestURI() + " failed on its virtual thread", e);
+            try {
+                if (!resp.isCommitted()) resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            } catch (IOException ignored) {
+                // client gone
+            }
+        } finally {
+            async.complete();
+        }
+    }
+
+    private static void busy(HttpServletResponse resp, AsyncContext async) {
+        try {
+            resp.setHeader("Retry-After", "1");
+            resp.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Server busy, please retry.");
+        } catch (IOException ignored) {
+            // client gone
+        } finally {
+            async.complete();
+        }
+    }
+}
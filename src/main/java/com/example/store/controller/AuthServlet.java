@@ -1,10 +1,19 @@
 package com.example.store.controller;
 
+import com.example.store.dao.CartDAO;
 import com.example.store.dao.UserDAO;
+import com.example.store.model.Cart;
 import com.example.store.model.User;
 import com.example.store.util.DBConnectionManager;
+import com.example.store.util.DataIntegrityException;
+import com.example.store.util.HashingExecutor;
+import com.example.store.util.LoginThrottle;
+import com.example.store.util.MBeans;
 import com.example.store.util.PasswordHasher;
-import com.example.store.util.SchemaInitializer;
+import com.example.store.util.RequestTiming;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
@@ -12,21 +21,93 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 import java.io.IOException;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
-@WebServlet(name = "AuthServlet", urlPatterns = {"/auth"})
+/**
+ * AuthServlet: register/login/logout.
+ *
+ * PBKDF2 hashing never runs on a connector thread: login and register switch the request to async
+ * mode, hash on the bounded HashingExecutor (threads = cores), and continue on a container thread.
+ * A full hashing queue answers 503 + Retry-After immediately instead of queueing without bound.
+ * Hashing settings (context-params): hashing.queuePerThread [16], hashing.timeoutMillis [10000].
+ *
+ * Before any user lookup or hashing, LoginThrottle rate-limits attempts per username and per client
+ * IP; over-limit attempts get 429 + Retry-After. Settings (context-params, bursts / sustained per minute):
+ * loginThrottle.usernameBurst [5], loginThrottle.usernamePerMinute [5],
+ * loginThrottle.ipBurst [30], loginThrottle.ipPerMinute [30].
+ */
+@WebServlet(name = "AuthServlet", urlPatterns = {"/auth"}, asyncSupported = true)
 public class AuthServlet extends HttpServlet {
+    private static final Map<String, String> GET_LABELS = Map.of(
+            "register", "auth.registerForm", "logout", "auth.logout");
+    private static final Map<String, String> POST_LABELS = Map.of(
+            "register", "auth.register", "logout", "auth.logout");
+    private static final String HASHING_MBEAN = "com.example.store:type=PasswordHashing";
+    private static final String THROTTLE_MBEAN = "com.example.store:type=LoginThrottle";
+
     private UserDAO userDAO;
+    private CartDAO cartDAO;
     private PasswordHasher hasher;
+    private HashingExecutor hashing;
+    private long hashTimeoutMillis;
+    private LoginThrottle throttle;
+
+    /** Work to finish a request once its hash is ready; runs on a container thread. */
+    @FunctionalInterface
+    private interface AfterHash<T> {
+        void run(HttpServletRequest req, HttpServletResponse resp, AsyncContext async, T result) throws Exception;
+    }
 
     @Override
     public void init() throws ServletException {
         super.init();
-        DBConnectionManager db = new DBConnectionManager("jdbc:mysql://localhost:3306/homework_ds","root","");
-        // Ensure minimal schema exists in dev envs so registration/login doesn't 500
-        SchemaInitializer.ensureUsersTable(db);
+        DBConnectionManager db = StoreContextListener.database(getServletContext());
         userDAO = new UserDAO(db);
+        try {
+            userDAO.loadAvailabilityFilter();
+        } catch (RuntimeException e) {
+            e.printStackTrace(); // registration still works, availability checks then always query the DB
+        }
+        cartDAO = new CartDAO(db);
         hasher = new PasswordHasher();
+        hashing = HashingExecutor.forAvailableCores(
+                Integer.parseInt(MaintenanceListener.param(getServletContext(), "hashing.queuePerThread", "16")));
+        hashTimeoutMillis = Long.parseLong(MaintenanceListener.param(getServletContext(), "hashing.timeoutMillis", "10000"));
+        getServletContext().setAttribute("hashingExecutor", hashing);
+        throttle = new LoginThrottle(
+                Integer.parseInt(MaintenanceListener.param(getServletContext(), "loginThrottle.usernameBurst", "5")),
+                Double.parseDouble(MaintenanceListener.param(getServletContext(), "loginThrottle.usernamePerMinute", "5")),
+                Integer.parseInt(MaintenanceListener.param(getServletContext(), "loginThrottle.ipBurst", "30")),
+                Double.parseDouble(MaintenanceListener.param(getServletContext(), "loginThrottle.ipPerMinute", "30")));
+        getServletContext().setAttribute("loginThrottle", throttle);
+        MBeans.register(HASHING_MBEAN, hashing);
+        MBeans.register(THROTTLE_MBEAN, throttle);
+    }
+
+    @Override
+    public void destroy() {
+        MBeans.unregister(HASHING_MBEAN);
+        MBeans.unregister(THROTTLE_MBEAN);
+        hashing.shutdown();
+        super.destroy();
+    }
+
+    /** Times every request into the store_http_action_duration_seconds histogram (see ActionMetrics). */
+    @Override
+    protected void service(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        String label = ActionMetrics.label(req, GET_LABELS, POST_LABELS, "auth.loginForm", "auth.login");
+        long started = System.nanoTime();
+        boolean failed = true;
+        try {
+            super.service(req, resp);
+            failed = false;
+        } finally {
+            ActionMetrics.finish(req, resp, label, started, failed);
+        }
     }
 
     @Override
@@ -64,36 +145,50 @@ public class AuthServlet extends HttpServlet {
             return;
         }
 
-        if (userDAO.findByUsername(username).isPresent()) {
-            req.setAttribute("error", "Username already exists.");
-            req.getRequestDispatcher("/WEB-INF/views/register.jsp").forward(req, resp);
+        long retryAfter = throttle.tryFromIp(req.getRemoteAddr());
+        if (retryAfter > 0) {
+            throttled(req, resp, retryAfter, "/WEB-INF/views/register.jsp");
             return;
         }
-        if (userDAO.findByEmail(email).isPresent()) {
-            req.setAttribute("error", "Email already registered.");
+
+        // Bloom filter answers most "free" names without a query; possible hits cost one EXISTS round trip
+        UserDAO.Conflict conflict = userDAO.findConflict(username, email);
+        if (conflict != UserDAO.Conflict.NONE) {
+            req.setAttribute("error", conflict == UserDAO.Conflict.USERNAME ? "Username already exists." : "Email already registered.");
             req.getRequestDispatcher("/WEB-INF/views/register.jsp").forward(req, resp);
             return;
         }
 
         byte[] salt = hasher.generateSalt();
-        byte[] hash = hasher.hash(password.toCharArray(), salt);
-
-        User user = new User();
-        user.setUsername(username);
-        user.setEmail(email);
-        user.setPasswordSalt(salt);
-        user.setPasswordHash(hash);
-        user.setRole("USER");
+        char[] chars = password.toCharArray();
+        hashThen(req, resp, () -> hasher.hash(chars, salt), (rq, rs, async, hash) -> {
+            User user = new User();
+            user.setUsername(username);
+            user.setEmail(email);
+            user.setPasswordSalt(salt);
+            user.setPasswordHash(hash);
+            user.setRole("USER");
 
-        userDAO.create(user);
+            try {
+                userDAO.create(user);
+            } catch (DataIntegrityException taken) {
+                // lost a race with another registration (or a collation-equal name): the unique key decides
+                rq.setAttribute("error", taken.getMessage());
+                rq.getRequestDispatcher("/WEB-INF/views/register.jsp").forward(rq, rs);
+                async.complete();
+                return;
+            }
 
-        // auto login after register
-        HttpSession session = req.getSession();
-        session.setAttribute("currentUserId", user.getId());
-        session.setAttribute("currentUsername", user.getUsername());
-        session.setAttribute("currentUserRole", user.getRole());
+            // auto login after register
+            HttpSession session = rq.getSession();
+            session.setAttribute("currentUserId", user.getId());
+            session.setAttribute("currentUsername", user.getUsername());
+            session.setAttribute("currentUserRole", user.getRole());
+            bindCart(session, user);
 
-        resp.sendRedirect(req.getContextPath() + "/products?action=list");
+            rs.sendRedirect(rq.getContextPath() + "/products?action=list");
+            async.complete();
+        });
     }
 
     private void handleLogin(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
@@ -105,6 +200,13 @@ public class AuthServlet extends HttpServlet {
             return;
         }
 
+        // getRemoteAddr, not X-Forwarded-For: a client-supplied header would let each request pick its own IP
+        long retryAfter = throttle.tryLogin(username, req.getRemoteAddr());
+        if (retryAfter > 0) {
+            throttled(req, resp, retryAfter, "/WEB-INF/views/login.jsp");
+            return;
+        }
+
         Optional<User> opt = userDAO.findByUsername(username);
         if (!opt.isPresent()) {
             req.setAttribute("error", "Invalid credentials.");
@@ -112,19 +214,99 @@ public class AuthServlet extends HttpServlet {
             return;
         }
         User user = opt.get();
-        boolean ok = hasher.verify(password.toCharArray(), user.getPasswordSalt(), user.getPasswordHash());
-        if (!ok) {
-            req.setAttribute("error", "Invalid credentials.");
-            req.getRequestDispatcher("/WEB-INF/views/login.jsp").forward(req, resp);
-            return;
+        char[] chars = password.toCharArray();
+        hashThen(req, resp, () -> hasher.verify(chars, user.getPasswordSalt(), user.getPasswordHash()), (rq, rs, async, ok) -> {
+            if (!ok) {
+                rq.setAttribute("error", "Invalid credentials.");
+                rq.getRequestDispatcher("/WEB-INF/views/login.jsp").forward(rq, rs);
+                async.complete();
+                return;
+            }
+
+            HttpSession session = rq.getSession();
+            session.setAttribute("currentUserId", user.getId());
+            session.setAttribute("currentUsername", user.getUsername());
+            session.setAttribute("currentUserRole", user.getRole());
+            bindCart(session, user);
+
+            rs.sendRedirect(rq.getContextPath() + "/products?action=list");
+            async.complete();
+        });
+    }
+
+    /**
+     * Put the request in async mode, run job on the hashing pool, then run next on a container thread.
+     * next must end the async cycle with complete(), after a forward for a page: not AsyncContext.dispatch(),
+     * whose JSP would write into ServerTimingFilter's buffer with nothing left to release it.
+     * Saturation or timeout answers 503.
+     */
+    private <T> void hashThen(HttpServletRequest req, HttpServletResponse resp, Supplier<T> job, AfterHash<T> next) throws IOException {
+        AsyncContext async = req.startAsync(req, resp);
+        async.setTimeout(hashTimeoutMillis);
+        AtomicBoolean settled = new AtomicBoolean();
+        async.addListener(new AsyncListener() {
+            @Override public void onTimeout(AsyncEvent event) throws IOException {
+                if (settled.compareAndSet(false, true)) busy(resp, async);
+            }
+            @Override public void onComplete(AsyncEvent event) {}
+            @Override public void onError(AsyncEvent event) {}
+            @Override public void onStartAsync(AsyncEvent event) {}
+        });
+        try {
+            // PBKDF2 and the continuation's DB calls count toward this request's Server-Timing
+            RequestTiming timing = RequestTiming.current();
+            hashing.submit(RequestTiming.bind(timing, job)).whenComplete((result, error) -> async.start(RequestTiming.bind(timing, () -> {
+                if (!settled.compareAndSet(false, true)) return; // timed out meanwhile
+                try {
+                    if (error != null) throw error instanceof Exception ? (Exception) error : new RuntimeException(error);
+                    next.run(req, resp, async, result);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    try {
+                        if (!resp.isCommitted()) resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                    } catch (IOException ignored) {
+                        // client gone
+                    }
+                    async.complete();
+                }
+            })));
+        } catch (RejectedExecutionException e) {
+            if (settled.compareAndSet(false, true)) busy(resp, async);
         }
+    }
 
-        HttpSession session = req.getSession();
-        session.setAttribute("currentUserId", user.getId());
-        session.setAttribute("currentUsername", user.getUsername());
-        session.setAttribute("currentUserRole", user.getRole());
+    private void throttled(HttpServletRequest req, HttpServletResponse resp, long retryAfterSeconds, String view)
+            throws ServletException, IOException {
+        resp.setStatus(429); // Too Many Requests
+        resp.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+        req.setAttribute("error", "Too many sign-in attempts. Please try again in " + retryAfterSeconds + " seconds.");
+        req.getRequestDispatcher(view).forward(req, resp);
+    }
 
-        resp.sendRedirect(req.getContextPath() + "/products?action=list");
+    private void busy(HttpServletResponse resp, AsyncContext async) throws IOException {
+        resp.setHeader("Retry-After", "1");
+        resp.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Too many sign-in attempts in progress, please retry.");
+        async.complete();
+    }
+
+    /**
+     * Merge the guest cart of this session into the user's open cart (single transaction) and
+     * put the result in the session, so CartServlet.getOrCreateCart needs no DB loads afterwards.
+     * A merge failure must not block login; the cart is then resolved lazily by CartServlet.
+     */
+    private void bindCart(HttpSession session, User user) {
+        try {
+            Cart cart = cartDAO.mergeGuestCart(session.getId(), user.getId());
+            if (cart != null) {
+                session.setAttribute("cart", cart);
+                session.setAttribute("cartId", cart.getId());
+                return;
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+        session.removeAttribute("cart");
+        session.removeAttribute("cartId");
     }
 
     private void handleLogout(HttpServletRequest req, HttpServletResponse resp) throws IOException {
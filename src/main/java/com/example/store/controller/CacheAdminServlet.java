@@ -0,0 +1,101 @@
+package com.example.store.controller;
+
+import com.example.store.dao.ProductDAO;
+import com.example.store.util.CacheManager;
+import com.example.store.util.DBConnectionManager;
+import com.example.store.util.LatencyHistogram;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * CacheAdminServlet: product cache introspection for admins.
+ * Routes: GET /admin/cache (stats + hottest ids), POST /admin/cache?action=refresh|evict|refreshAll
+ *
+ * refresh / evict take ids="3, 17 42" and touch only those entries; refreshAll is the old full
+ * ProductDAO.refreshCache(). Non-admins are sent to the product list, as in ProductServlet.
+ */
+@WebServlet(name = "CacheAdminServlet", urlPatterns = {"/admin/cache"})
+public class CacheAdminServlet extends HttpServlet {
+    private static final int MAX_IDS = 500;
+
+    private CacheManager cache;
+    private ProductDAO productDAO;
+
+    @Override
+    public void init() throws ServletException {
+        super.init();
+        DBConnectionManager db = StoreContextListener.database(getServletContext());
+        cache = StoreContextListener.productCache(getServletContext());
+        productDAO = new ProductDAO(db, cache);
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        if (!ProductServlet.isAdmin(req)) { resp.sendRedirect(req.getContextPath() + "/products?action=list"); return; }
+        show(req, resp);
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        if (!ProductServlet.isAdmin(req)) { resp.sendRedirect(req.getContextPath() + "/products?action=list"); return; }
+        String action = req.getParameter("action");
+        try {
+            if ("refreshAll".equals(action)) {
+                productDAO.refreshCache();
+                req.setAttribute("message", "Reloaded " + cache.getSize() + " products.");
+            } else if ("refresh".equals(action) || "evict".equals(action)) {
+                Set<Integer> ids = parseIds(req.getParameter("ids"));
+                if (ids == null) {
+                    req.setAttribute("error", "Enter up to " + MAX_IDS + " product ids separated by commas or spaces.");
+                } else {
+                    int affected = 0;
+                    for (int id : ids) {
+                        if ("refresh".equals(action) ? productDAO.refreshCached(id) : cache.evict(id)) affected++;
+                    }
+                    req.setAttribute("message", ("refresh".equals(action) ? "Refreshed " : "Evicted ")
+                            + affected + " of " + ids.size() + " ids.");
+                }
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            req.setAttribute("error", "Cache operation failed: " + e.getMessage());
+        }
+        show(req, resp);
+    }
+
+    private void show(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        LatencyHistogram loads = cache.getLoadHistogram();
+        req.setAttribute("stats", cache);
+        // past the last finite bucket the page shows "> bound" rather than a made-up upper bound
+        req.setAttribute("loadP50Millis", loads.quantileUpperBoundNanos(0.50) / 1e6);
+        req.setAttribute("loadP50Overflow", loads.quantileOverflows(0.50));
+        req.setAttribute("loadP99Millis", loads.quantileUpperBoundNanos(0.99) / 1e6);
+        req.setAttribute("loadP99Overflow", loads.quantileOverflows(0.99));
+        req.setAttribute("hottest", cache.getHottest());
+        req.setAttribute("cached", cache.getSnapshot());
+        req.getRequestDispatcher("/WEB-INF/views/cache-admin.jsp").forward(req, resp);
+    }
+
+    /** Distinct ids in input order, or null if the input is empty, malformed or too long. */
+    private static Set<Integer> parseIds(String raw) {
+        if (raw == null || raw.isBlank()) return null;
+        Set<Integer> ids = new LinkedHashSet<>();
+        for (String token : raw.trim().split("[\\s,]+")) {
+            try {
+                ids.add(Integer.parseInt(token));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            if (ids.size() > MAX_IDS) return null;
+        }
+        return ids;
+    }
+}
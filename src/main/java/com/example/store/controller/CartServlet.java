@@ -3,9 +3,13 @@ package com.example.store.controller;
 import com.example.store.dao.CartDAO;
 import com.example.store.dao.ProductDAO;
 import com.example.store.model.Cart;
+import com.example.store.model.CartChange;
+import com.example.store.model.CartItem;
 import com.example.store.model.Product;
 import com.example.store.util.DBConnectionManager;
-import com.example.store.util.CacheManager;
+import com.example.store.util.JsonWriter;
+import com.example.store.util.LiveCartIndex;
+import com.example.store.util.RequestExecutor;
 
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
@@ -15,17 +19,23 @@ import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
  * CartServlet: MVC2 controller for shopping cart operations.
- * Routes: /cart?action=add|update|remove|clear|view
+ * Routes: /cart?action=add|update|remove|clear|batch|view
+ * Any route answers with JSON deltas instead of redirect/JSP when called with format=json
+ * or Accept: application/json (see writeCartJson).
  * 
  * Data Structure Analysis:
  * 
- * WHY LinkedHashMap<Integer, CartItem> for cart:
- * - O(1) lookup by product ID - critical for update/remove operations
+ * WHY Map<Integer, CartItem> (copy-on-write snapshot, see Cart) for cart:
+ * - O(1)-ish lookup by product ID - critical for update/remove operations
  * - Preserves insertion order for predictable display to users
+ * - cart.jsp renders a consistent snapshot even if another request mutates the cart
  * - Prevents duplicate products (quantities are merged instead)
  * - Map interface allows direct key-based access vs List requiring O(n) search
  * 
@@ -36,23 +46,49 @@ import java.util.Optional;
  * 
  * Big-O Time Complexity:
  * - findById from cache: O(1) - ConcurrentHashMap direct lookup
- * - addProduct to cart: O(1) - LinkedHashMap.compute() operation
- * - updateQuantity in cart: O(1) - LinkedHashMap.get() + put()
- * - removeProduct from cart: O(1) - LinkedHashMap.remove()
- * - totalQuantity: O(n) where n = number of distinct items
- * - totalPrice: O(n) where n = number of distinct items
+ * - addProduct to cart: O(log32 n) - persistent trie path copy + CAS
+ * - updateQuantity in cart: O(log32 n) - swaps in a copied CartItem
+ * - removeProduct from cart: O(log32 n)
+ * - totalQuantity: O(1) - carried in the snapshot
+ * - totalPrice: O(1) - carried in the snapshot
  */
-@WebServlet(name = "CartServlet", urlPatterns = {"/cart"})
+@WebServlet(name = "CartServlet", urlPatterns = {"/cart"}, asyncSupported = true)
 public class CartServlet extends HttpServlet {
+    private static final Map<String, String> GET_LABELS = Map.of();
+    private static final Map<String, String> POST_LABELS = Map.of(
+            "add", "cart.add", "update", "cart.update", "remove", "cart.remove", "clear", "cart.clear", "batch", "cart.batch");
+    private static final int MAX_BATCH_CHANGES = 200;
+
     private CartDAO cartDAO;
     private ProductDAO productDAO;
+    private LiveCartIndex liveCarts;
+    private RequestExecutor requests;
 
     @Override
     public void init() throws ServletException {
         super.init();
-        DBConnectionManager db = new DBConnectionManager("jdbc:mysql://localhost:3306/homework_ds","root","");
+        DBConnectionManager db = StoreContextListener.database(getServletContext());
         cartDAO = new CartDAO(db);
-        productDAO = new ProductDAO(db, new CacheManager());
+        productDAO = new ProductDAO(db, StoreContextListener.productCache(getServletContext()));
+        liveCarts = StoreContextListener.liveCarts(getServletContext());
+        requests = StoreContextListener.requestExecutor(getServletContext());
+    }
+
+    /**
+     * Times every request into the store_http_action_duration_seconds histogram (see ActionMetrics),
+     * on a virtual thread when asyncRequests.enabled (see AsyncRequests).
+     */
+    @Override
+    protected void service(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        String label = ActionMetrics.label(req, GET_LABELS, POST_LABELS, "cart.view", "cart.other");
+        long started = System.nanoTime();
+        boolean failed = true;
+        try {
+            if (!AsyncRequests.dispatch(req, resp, requests, () -> super.service(req, resp))) super.service(req, resp);
+            failed = false;
+        } finally {
+            ActionMetrics.finish(req, resp, label, started, failed);
+        }
     }
 
     @Override
@@ -76,6 +112,8 @@ public class CartServlet extends HttpServlet {
             removeFromCart(req, resp);
         } else if ("clear".equals(action)) {
             clearCart(req, resp);
+        } else if ("batch".equals(action)) {
+            applyBatch(req, resp);
         } else {
             resp.sendRedirect(req.getContextPath() + "/cart?action=view");
         }
@@ -92,6 +130,11 @@ public class CartServlet extends HttpServlet {
         Long userId = (Long) session.getAttribute("currentUserId");
 
         if (cart != null && cartId != null) {
+            // After a session restore/replication the cart carries id-only product stubs
+            if (cart.hasUnresolvedProducts()) {
+                cart.resolveProducts(id -> productDAO.findById(id).orElse(null));
+                liveCarts.track(cart); // restored sessions fire no attribute events
+            }
             return cart;
         }
         
@@ -136,7 +179,7 @@ public class CartServlet extends HttpServlet {
             String qtyParam = req.getParameter("qty");
             
             if (idParam == null) {
-                resp.sendRedirect(req.getContextPath() + "/products?action=list");
+                fail(req, resp, HttpServletResponse.SC_BAD_REQUEST, "Missing product id.", "/products?action=list");
                 return;
             }
             
@@ -146,23 +189,24 @@ public class CartServlet extends HttpServlet {
             // Load product from cache (O(1) lookup)
             Optional<Product> opt = productDAO.findById(productId);
             if (!opt.isPresent()) {
-                resp.sendRedirect(req.getContextPath() + "/products?action=list");
+                fail(req, resp, HttpServletResponse.SC_NOT_FOUND, "Unknown product " + productId + ".", "/products?action=list");
                 return;
             }
             
             HttpSession session = req.getSession();
             Cart cart = getOrCreateCart(session);
             
-            // Add to cart - O(1) operation using LinkedHashMap
+            // Add to cart - lock-free snapshot swap
             cart.addProduct(opt.get(), quantity);
             
             // Persist to DB
             cartDAO.saveCart(cart);
+            liveCarts.track(cart);
             
-            resp.sendRedirect(req.getContextPath() + "/cart?action=view");
+            done(req, resp, cart, List.of(productId));
         } catch (Exception e) {
             e.printStackTrace();
-            resp.sendRedirect(req.getContextPath() + "/products?action=list");
+            fail(req, resp, HttpServletResponse.SC_BAD_REQUEST, "Could not add product to cart.", "/products?action=list");
         }
     }
 
@@ -175,7 +219,7 @@ public class CartServlet extends HttpServlet {
             String qtyParam = req.getParameter("qty");
             
             if (idParam == null || qtyParam == null) {
-                resp.sendRedirect(req.getContextPath() + "/cart?action=view");
+                fail(req, resp, HttpServletResponse.SC_BAD_REQUEST, "Missing product id or quantity.", "/cart?action=view");
                 return;
             }
             
@@ -185,16 +229,17 @@ public class CartServlet extends HttpServlet {
             HttpSession session = req.getSession();
             Cart cart = getOrCreateCart(session);
             
-            // Update quantity - O(1) via LinkedHashMap.get() + set
+            // Update quantity - lock-free snapshot swap
             cart.updateQuantity(productId, quantity);
             
             // Persist to DB
             cartDAO.saveCart(cart);
+            liveCarts.track(cart);
             
-            resp.sendRedirect(req.getContextPath() + "/cart?action=view");
+            done(req, resp, cart, List.of(productId));
         } catch (Exception e) {
             e.printStackTrace();
-            resp.sendRedirect(req.getContextPath() + "/cart?action=view");
+            fail(req, resp, HttpServletResponse.SC_BAD_REQUEST, "Could not update cart.", "/cart?action=view");
         }
     }
 
@@ -205,7 +250,7 @@ public class CartServlet extends HttpServlet {
         try {
             String idParam = req.getParameter("id");
             if (idParam == null) {
-                resp.sendRedirect(req.getContextPath() + "/cart?action=view");
+                fail(req, resp, HttpServletResponse.SC_BAD_REQUEST, "Missing product id.", "/cart?action=view");
                 return;
             }
             
@@ -214,16 +259,17 @@ public class CartServlet extends HttpServlet {
             HttpSession session = req.getSession();
             Cart cart = getOrCreateCart(session);
             
-            // Remove from cart - O(1) via LinkedHashMap.remove()
+            // Remove from cart - lock-free snapshot swap
             cart.removeProduct(productId);
             
             // Persist to DB
             cartDAO.saveCart(cart);
+            liveCarts.track(cart);
             
-            resp.sendRedirect(req.getContextPath() + "/cart?action=view");
+            done(req, resp, cart, List.of(productId));
         } catch (Exception e) {
             e.printStackTrace();
-            resp.sendRedirect(req.getContextPath() + "/cart?action=view");
+            fail(req, resp, HttpServletResponse.SC_BAD_REQUEST, "Could not remove product from cart.", "/cart?action=view");
         }
     }
 
@@ -234,6 +280,7 @@ public class CartServlet extends HttpServlet {
         try {
             HttpSession session = req.getSession();
             Cart cart = getOrCreateCart(session);
+            List<Integer> removed = new ArrayList<>(cart.getItemsMap().keySet());
             
             cart.clear();
             cartDAO.clearCart(cart.getId());
@@ -242,20 +289,201 @@ public class CartServlet extends HttpServlet {
             session.removeAttribute("cart");
             session.removeAttribute("cartId");
             
-            resp.sendRedirect(req.getContextPath() + "/cart?action=view");
+            done(req, resp, cart, removed);
         } catch (Exception e) {
             e.printStackTrace();
-            resp.sendRedirect(req.getContextPath() + "/cart?action=view");
+            fail(req, resp, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Could not clear cart.", "/cart?action=view");
+        }
+    }
+
+    /**
+     * Apply many line changes in one request, one in-memory swap and one saveCart transaction.
+     * Parameters are parallel repeated op/id/qty values, e.g.
+     * op=update&id=3&qty=2&op=remove&id=5&qty=&op=add&id=9&qty=1 (qty is ignored for remove).
+     * The whole batch is validated before anything is applied; on error the cart is left untouched.
+     * If saving fails the batch is undone in memory too, unless another request changed the cart since.
+     * Renders the updated cart directly instead of redirecting, so a bulk edit costs one round trip.
+     */
+    private void applyBatch(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        HttpSession session = req.getSession();
+        Cart cart = getOrCreateCart(session);
+        List<Integer> changedIds = new ArrayList<>();
+        try {
+            List<CartChange> changes = parseChanges(req.getParameterValues("op"),
+                    req.getParameterValues("id"), req.getParameterValues("qty"));
+            if (!changes.isEmpty()) {
+                Cart.Snapshot applied = cart.apply(changes);
+                try {
+                    cartDAO.saveCart(cart);
+                } catch (RuntimeException e) {
+                    // keep memory in step with the DB; left alone if another request changed the cart since
+                    cart.undo(applied);
+                    throw e;
+                }
+                liveCarts.track(cart);
+            }
+            for (CartChange change : changes) changedIds.add(change.getProductId());
+        } catch (IllegalArgumentException e) {
+            if (wantsJson(req)) {
+                writeJsonError(resp, HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+                return;
+            }
+            req.setAttribute("error", e.getMessage());
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            if (wantsJson(req)) {
+                writeJsonError(resp, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Could not save cart changes.");
+                return;
+            }
+            req.setAttribute("error", "Could not save cart changes.");
         }
+        if (wantsJson(req)) {
+            writeCartJson(resp, cart, changedIds);
+            return;
+        }
+        req.setAttribute("cartSnapshot", cart.snapshot()); // one state for lines and totals
+        req.getRequestDispatcher("/WEB-INF/views/cart.jsp").forward(req, resp);
     }
 
     /**
-     * View cart contents. Loads cart from session/DB and forwards to JSP.
+     * Validate parallel op/id/qty arrays into changes. ADD products are looked up (cache-first) here,
+     * so applying the batch can no longer fail halfway.
+     */
+    private List<CartChange> parseChanges(String[] ops, String[] ids, String[] qtys) {
+        if (ops == null) return new ArrayList<>();
+        if (ids == null || ids.length != ops.length || (qtys != null && qtys.length != ops.length)) {
+            throw new IllegalArgumentException("Each cart change needs an op, id and qty.");
+        }
+        if (ops.length > MAX_BATCH_CHANGES) {
+            throw new IllegalArgumentException("Too many cart changes (max " + MAX_BATCH_CHANGES + ").");
+        }
+        List<CartChange> changes = new ArrayList<>(ops.length);
+        for (int i = 0; i < ops.length; i++) {
+            // messages never echo the raw parameters: they are rendered in cart.jsp and the JSON error
+            String invalid = "Invalid cart change at position " + (i + 1) + ".";
+            int productId;
+            Integer quantity;
+            try {
+                productId = Integer.parseInt(ids[i].trim());
+                String qty = qtys == null ? null : qtys[i];
+                quantity = qty == null || qty.isBlank() ? null : Integer.valueOf(qty.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(invalid);
+            }
+            if ("remove".equals(ops[i])) {
+                changes.add(CartChange.remove(productId));
+            } else if ("update".equals(ops[i])) {
+                if (quantity == null) throw new IllegalArgumentException(invalid);
+                changes.add(CartChange.update(productId, quantity));
+            } else if ("add".equals(ops[i])) {
+                int added = quantity == null ? 1 : quantity;
+                if (added <= 0) throw new IllegalArgumentException("Quantity must be positive for product " + productId + ".");
+                Product product = productDAO.findById(productId)
+                        .orElseThrow(() -> new IllegalArgumentException("Unknown product " + productId + "."));
+                changes.add(CartChange.add(product, added));
+            } else {
+                throw new IllegalArgumentException(invalid);
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * View cart contents. Loads cart from session/DB and forwards to JSP (or the full cart as JSON).
      */
     private void viewCart(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
         HttpSession session = req.getSession();
         Cart cart = getOrCreateCart(session);
-        req.setAttribute("cart", cart);
+        if (wantsJson(req)) {
+            writeCartJson(resp, cart, null);
+            return;
+        }
+        req.setAttribute("cartSnapshot", cart.snapshot()); // one state for lines and totals
         req.getRequestDispatcher("/WEB-INF/views/cart.jsp").forward(req, resp);
     }
+
+    // ---- response modes: HTML post-redirect-get, or JSON deltas for the storefront API ----
+
+    /**
+     * JSON mode is selected with format=json or an Accept header asking for JSON (and not HTML).
+     */
+    private boolean wantsJson(HttpServletRequest req) {
+        if ("json".equals(req.getParameter("format"))) return true;
+        String accept = req.getHeader("Accept");
+        return accept != null && accept.contains("application/json") && !accept.contains("text/html");
+    }
+
+    /**
+     * Finish a successful mutation: JSON delta in one response, or the classic redirect to the cart page.
+     */
+    private void done(HttpServletRequest req, HttpServletResponse resp, Cart cart,
+                      List<Integer> changedIds) throws IOException {
+        if (wantsJson(req)) {
+            writeCartJson(resp, cart, changedIds);
+        } else {
+            resp.sendRedirect(req.getContextPath() + "/cart?action=view");
+        }
+    }
+
+    private void fail(HttpServletRequest req, HttpServletResponse resp, int status, String message,
+                      String redirectPath) throws IOException {
+        if (wantsJson(req)) {
+            writeJsonError(resp, status, message);
+        } else {
+            resp.sendRedirect(req.getContextPath() + redirectPath);
+        }
+    }
+
+    /**
+     * Write cart lines and totals. With changedIds == null every line is written (full view);
+     * otherwise only those products: still-present ones under "lines", the rest under "removed".
+     *
+     * {"cartId":7,"lines":[{"productId":1,"name":"A","quantity":2,"unitPrice":9.99,"subtotal":19.98}],
+     *  "removed":[3],"totalQuantity":2,"totalPrice":19.98}
+     */
+    private void writeCartJson(HttpServletResponse resp, Cart cart, List<Integer> changedIds) throws IOException {
+        Cart.Snapshot snapshot = cart.snapshot(); // lines, removed ids and totals from one state
+        resp.setContentType("application/json");
+        resp.setCharacterEncoding("UTF-8");
+        resp.setHeader("Cache-Control", "no-store");
+        JsonWriter json = new JsonWriter(resp.getWriter());
+        json.beginObject().name("cartId").value(cart.getId());
+        json.name("lines").beginArray();
+        if (changedIds == null) {
+            for (CartItem item : snapshot.getItems()) writeLine(json, item);
+        } else {
+            for (Integer id : changedIds) {
+                CartItem item = snapshot.getItem(id);
+                if (item != null) writeLine(json, item);
+            }
+        }
+        json.endArray();
+        json.name("removed").beginArray();
+        if (changedIds != null) {
+            for (Integer id : changedIds) {
+                if (snapshot.getItem(id) == null) json.value(id);
+            }
+        }
+        json.endArray();
+        json.name("totalQuantity").value(snapshot.getTotalQuantity());
+        json.name("totalPrice").value(snapshot.getTotalPrice());
+        json.endObject().flush();
+    }
+
+    private void writeLine(JsonWriter json, CartItem item) throws IOException {
+        json.beginObject()
+                .name("productId").value(item.getProduct().getId())
+                .name("name").value(item.getProduct().getName())
+                .name("quantity").value(item.getQuantity())
+                .name("unitPrice").value(item.getPriceSnapshot())
+                .name("subtotal").value(item.getTotalPrice())
+                .endObject();
+    }
+
+    private void writeJsonError(HttpServletResponse resp, int status, String message) throws IOException {
+        resp.setStatus(status);
+        resp.setContentType("application/json");
+        resp.setCharacterEncoding("UTF-8");
+        new JsonWriter(resp.getWriter()).beginObject().name("error").value(message).endObject().flush();
+    }
 }
@@ -1,5 +1,11 @@
 package com.example.store.controller;
 
+import com.example.store.util.FileMetadataCache;
+import com.example.store.util.FileMetadataCache.FileInfo;
+import com.example.store.util.HotFileCache;
+import com.example.store.util.ImageDerivatives;
+import com.example.store.util.ImageStore;
+import com.example.store.util.MBeans;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
@@ -8,17 +14,75 @@ import jakarta.servlet.http.HttpServletResponse;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
+/**
+ * ImageServlet: serves uploaded files from the upload directory under /images/*.
+ *
+ * - Metadata (size, mtime, ETag, MIME type) comes from FileMetadataCache: no per-request stat/probe
+ * - Body: Tomcat sendfile (zero-copy) when the connector supports it; otherwise hot files are written
+ *   from HotFileCache's memory-mapped buffers and the rest with FileChannel.transferTo.
+ *   Hot cache settings (context-params): imageCache.maxMegabytes [64], imageCache.maxFileKilobytes [8192]
+ * - Strong ETag + Last-Modified; If-None-Match / If-Modified-Since answer 304 with no body
+ * - Single byte ranges (Range, If-Range) answer 206; unsatisfiable ranges 416; multi-range requests
+ *   get the whole file (allowed by RFC 9110)
+ * - Content-addressed names (ImageStore) are immutable: Cache-Control max-age one year + immutable
+ * - ?size=thumb|medium serves the ImageDerivatives variant; until it exists the original is sent
+ *   with Cache-Control: no-cache (so the client picks up the variant later) and generation is queued
+ */
 @WebServlet(name = "ImageServlet", urlPatterns = {"/images/*"})
 public class ImageServlet extends HttpServlet {
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    private static final int METADATA_MAX_ENTRIES = 10_000;
+    private static final long METADATA_MAX_AGE_MILLIS = 60_000;
+    private static final long[] UNSATISFIABLE = new long[0];
+    private static final String CACHE_DEFAULT = "public, max-age=604800";
+    private static final String CACHE_IMMUTABLE = "public, max-age=31536000, immutable";
+
+    private static final String IMAGE_CACHE_MBEAN = "com.example.store:type=ImageCache";
+
+    private volatile FileMetadataCache metadata;
+    private HotFileCache hotFiles;
+
+    @Override
+    public void init() throws ServletException {
+        super.init();
+        long budget = Long.parseLong(MaintenanceListener.param(getServletContext(), "imageCache.maxMegabytes", "64"));
+        long maxFile = Long.parseLong(MaintenanceListener.param(getServletContext(), "imageCache.maxFileKilobytes", "8192"));
+        hotFiles = new HotFileCache(budget * 1024 * 1024, maxFile * 1024);
+        getServletContext().setAttribute("imageCache", hotFiles);
+        MBeans.register(IMAGE_CACHE_MBEAN, hotFiles);
+    }
+
+    @Override
+    public void destroy() {
+        MBeans.unregister(IMAGE_CACHE_MBEAN);
+        FileMetadataCache m = metadata;
+        if (m != null) m.close();
+        super.destroy();
+    }
 
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
-        String uploadDir = (String) getServletContext().getAttribute("uploadDir");
-        if (uploadDir == null) {
+        serve(req, resp, true);
+    }
+
+    @Override
+    protected void doHead(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        serve(req, resp, false);
+    }
+
+    private void serve(HttpServletRequest req, HttpServletResponse resp, boolean withBody) throws IOException {
+        FileMetadataCache cache = metadata();
+        if (cache == null) {
             resp.sendError(HttpServletResponse.SC_NOT_FOUND);
             return;
         }
@@ -27,18 +91,159 @@ public class ImageServlet extends HttpServlet {
             resp.sendError(HttpServletResponse.SC_BAD_REQUEST);
             return;
         }
-        Path file = Paths.get(uploadDir).resolve(requested.substring(1));
-        if (!Files.exists(file) || !Files.isReadable(file)) {
+        String name = requested.substring(1);
+        ImageDerivatives.Variant variant = ImageDerivatives.Variant.fromParam(req.getParameter("size"));
+        FileInfo file = variant == null ? null : cache.get(variant.path(name));
+        boolean fallback = variant != null && file == null;
+        if (file == null) file = cache.get(name);
+        if (file == null) {
             resp.sendError(HttpServletResponse.SC_NOT_FOUND);
             return;
         }
-        String mime = Files.probeContentType(file);
-        if (mime == null) mime = "application/octet-stream";
-        resp.setContentType(mime);
-        resp.setHeader("Cache-Control", "public, max-age=604800");
-        try (OutputStream out = resp.getOutputStream()) {
-            Files.copy(file, out);
+        if (fallback) {
+            ImageDerivatives derivatives = (ImageDerivatives) getServletContext().getAttribute("imageDerivatives");
+            if (derivatives != null) derivatives.request(name);
+        }
+
+        resp.setHeader("ETag", file.getEtag());
+        resp.setDateHeader("Last-Modified", file.getLastModifiedMillis());
+        resp.setHeader("Accept-Ranges", "bytes");
+        // a hash name always means the same bytes; its variants are derived from them deterministically
+        if (fallback) resp.setHeader("Cache-Control", "no-cache");
+        else resp.setHeader("Cache-Control", ImageStore.isContentAddressed(name) ? CACHE_IMMUTABLE : CACHE_DEFAULT);
+        if (notModified(req, file)) {
+            resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        resp.setContentType(file.getContentType());
+
+        long size = file.getSize();
+        long start = 0;
+        long end = size - 1;
+        String range = req.getHeader("Range");
+        if (range != null && ifRangeMatches(req, file)) {
+            long[] r = parseRange(range, size);
+            if (r == UNSATISFIABLE) {
+                resp.setHeader("Content-Range", "bytes */" + size);
+                resp.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (r != null) {
+                start = r[0];
+                end = r[1];
+                resp.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                resp.setHeader("Content-Range", "bytes " + start + "-" + end + "/" + size);
+            }
+        }
+        long length = end - start + 1;
+        resp.setContentLengthLong(length);
+        if (!withBody || length == 0) return;
+
+        if (Boolean.TRUE.equals(req.getAttribute(SENDFILE_SUPPORT))) {
+            // the connector sends the file with sendfile(2) after this method returns
+            req.setAttribute(SENDFILE_FILENAME, file.getPath().toString());
+            req.setAttribute(SENDFILE_START, start);
+            req.setAttribute(SENDFILE_END, end + 1); // exclusive
+            return;
+        }
+        OutputStream out = resp.getOutputStream();
+        WritableByteChannel target = Channels.newChannel(out);
+        ByteBuffer hot = hotFiles.get(file.getPath(), file.getSize(), file.getLastModifiedMillis());
+        if (hot != null) {
+            hot.limit((int) (end + 1)).position((int) start);
+            while (hot.hasRemaining()) target.write(hot);
+            out.flush();
+            return;
+        }
+        try (FileChannel in = FileChannel.open(file.getPath(), StandardOpenOption.READ)) {
+            long position = start;
+            long remaining = length;
+            while (remaining > 0) {
+                long sent = in.transferTo(position, remaining, target);
+                if (sent <= 0) break; // file shrank underneath us
+                position += sent;
+                remaining -= sent;
+            }
+            out.flush();
         }
     }
-}
 
+    private FileMetadataCache metadata() {
+        FileMetadataCache m = metadata;
+        if (m != null) return m;
+        String uploadDir = (String) getServletContext().getAttribute("uploadDir");
+        if (uploadDir == null) return null; // ProductServlet not initialised yet
+        synchronized (this) {
+            if (metadata == null) {
+                metadata = new FileMetadataCache(Paths.get(uploadDir), METADATA_MAX_ENTRIES, METADATA_MAX_AGE_MILLIS);
+            }
+            return metadata;
+        }
+    }
+
+    /** If-None-Match wins over If-Modified-Since (RFC 9110 13.2.2). */
+    private static boolean notModified(HttpServletRequest req, FileInfo file) {
+        String ifNoneMatch = req.getHeader("If-None-Match");
+        if (ifNoneMatch != null) return etagListMatches(ifNoneMatch, file.getEtag());
+        long since = dateHeader(req, "If-Modified-Since");
+        return since >= 0 && file.getLastModifiedMillis() / 1000 <= since / 1000;
+    }
+
+    /** No If-Range, or it names the current representation (strong comparison). */
+    private static boolean ifRangeMatches(HttpServletRequest req, FileInfo file) {
+        String ifRange = req.getHeader("If-Range");
+        if (ifRange == null) return true;
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) return ifRange.equals(file.getEtag());
+        long date = dateHeader(req, "If-Range");
+        return date >= 0 && file.getLastModifiedMillis() / 1000 == date / 1000;
+    }
+
+    /** Weak comparison, as required for If-None-Match. */
+    private static boolean etagListMatches(String header, String etag) {
+        for (String candidate : header.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) return true;
+            if (tag.startsWith("W/")) tag = tag.substring(2);
+            if (tag.equals(etag)) return true;
+        }
+        return false;
+    }
+
+    private static long dateHeader(HttpServletRequest req, String name) {
+        try {
+            return req.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1; // unparseable date: ignore the condition
+        }
+    }
+
+    /**
+     * Parse a single "bytes=" range against size. Returns {start, end} inclusive, null to ignore the
+     * header (malformed or several ranges), or UNSATISFIABLE.
+     */
+    private static long[] parseRange(String header, long size) {
+        if (!header.startsWith("bytes=")) return null;
+        String spec = header.substring(6).trim();
+        if (spec.indexOf(',') >= 0) return null;
+        int dash = spec.indexOf('-');
+        if (dash < 0) return null;
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                // suffix range: last N bytes
+                long n = Long.parseLong(last);
+                if (n <= 0 || size == 0) return UNSATISFIABLE;
+                return new long[]{Math.max(0, size - n), size - 1};
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? size - 1 : Math.min(Long.parseLong(last), size - 1);
+            if (start < 0 || (!last.isEmpty() && Long.parseLong(last) < start)) return null;
+            if (start >= size) return UNSATISFIABLE;
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.store.controller;
+
+import com.example.store.dao.CartDAO;
+import com.example.store.util.CartReaper;
+import com.example.store.util.DBConnectionManager;
+
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts background maintenance jobs with the webapp and stops them on undeploy.
+ *
+ * Cart reaper settings (context-params in web.xml, defaults in brackets):
+ * - cartReaper.enabled [true]
+ * - cartReaper.mode [ARCHIVE] - ARCHIVE or DELETE
+ * - cartReaper.openRetentionDays [30] - anonymous OPEN carts
+ * - cartReaper.clearedRetentionHours [24] - CLEARED carts
+ * - cartReaper.chunkSize [500], cartReaper.pauseMillis [200], cartReaper.intervalMinutes [60]
+ *
+ * Declared in web.xml after StoreContextListener (not with @WebListener, whose order is unspecified):
+ * the reaper needs the schema migrated and the JDBC profiler installed, and stops before they go away.
+ */
+public class MaintenanceListener implements ServletContextListener {
+    private ScheduledExecutorService scheduler;
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        ServletContext ctx = sce.getServletContext();
+        if (!Boolean.parseBoolean(param(ctx, "cartReaper.enabled", "true"))) return;
+
+        DBConnectionManager db = StoreContextListener.database(ctx);
+        CartReaper reaper = new CartReaper(new CartDAO(db),
+                TimeUnit.DAYS.toMillis(Long.parseLong(param(ctx, "cartReaper.openRetentionDays", "30"))),
+                TimeUnit.HOURS.toMillis(Long.parseLong(param(ctx, "cartReaper.clearedRetentionHours", "24"))),
+                Integer.parseInt(param(ctx, "cartReaper.chunkSize", "500")),
+                Long.parseLong(param(ctx, "cartReaper.pauseMillis", "200")),
+                CartReaper.Mode.valueOf(param(ctx, "cartReaper.mode", "ARCHIVE")));
+        long interval = Long.parseLong(param(ctx, "cartReaper.intervalMinutes", "60"));
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "cart-reaper");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(reaper, interval, interval, TimeUnit.MINUTES);
+        ctx.setAttribute("cartReaper", reaper);
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+
+    static String param(ServletContext ctx, String name, String defaultValue) {
+        String value = ctx.getInitParameter(name);
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+}
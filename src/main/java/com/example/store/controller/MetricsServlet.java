@@ -0,0 +1,104 @@
+package com.example.store.controller;
+
+import com.example.store.util.CacheManager;
+import com.example.store.util.HashingExecutor;
+import com.example.store.util.HotFileCache;
+import com.example.store.util.ImageDerivatives;
+import com.example.store.util.LoginThrottle;
+import com.example.store.util.Metrics;
+import com.example.store.util.RequestExecutor;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Set;
+
+/**
+ * MetricsServlet: Prometheus scrape endpoint at /metrics (text exposition format 0.0.4).
+ *
+ * Exports the Metrics histograms (every DAO method, every servlet action) plus the counters that
+ * the pools and caches already keep for JMX: product cache, password hashing, login throttle, image caches.
+ *
+ * Only scrapers from metrics.allowedAddresses may read it (context-param, comma-separated remote
+ * addresses) [127.0.0.1,0:0:0:0:0:0:0:1]; anyone else gets 404.
+ */
+@WebServlet(name = "MetricsServlet", urlPatterns = {"/metrics"})
+public class MetricsServlet extends HttpServlet {
+    private Set<String> allowedAddresses;
+
+    @Override
+    public void init() throws ServletException {
+        super.init();
+        allowedAddresses = Set.of(MaintenanceListener.param(getServletContext(), "metrics.allowedAddresses",
+                "127.0.0.1,0:0:0:0:0:0:0:1").split("\\s*,\\s*"));
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        if (!allowedAddresses.contains(req.getRemoteAddr())) {
+            resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        resp.setContentType("text/plain; version=0.0.4; charset=utf-8");
+        resp.setHeader("Cache-Control", "no-store");
+        Writer out = resp.getWriter();
+        Metrics.writePrometheus(out);
+        writeComponents(getServletContext(), out);
+        out.flush();
+    }
+
+    /** Components are created by other servlets' init(); ones not started yet are skipped. */
+    private static void writeComponents(ServletContext ctx, Writer out) throws IOException {
+        CacheManager products = (CacheManager) ctx.getAttribute(StoreContextListener.PRODUCT_CACHE);
+        if (products != null) {
+            Metrics.writeSample(out, "store_product_cache_hits_total", "counter", "Product cache hits.", products.getHits());
+            Metrics.writeSample(out, "store_product_cache_misses_total", "counter", "Product cache misses.", products.getMisses());
+            Metrics.writeSample(out, "store_product_cache_puts_total", "counter", "Product cache puts.", products.getPuts());
+            Metrics.writeSample(out, "store_product_cache_removals_total", "counter", "Product cache removals on writes.", products.getRemovals());
+            Metrics.writeSample(out, "store_product_cache_evictions_total", "counter", "Product cache entries dropped without a write.", products.getEvictions());
+            Metrics.writeSample(out, "store_product_cache_clears_total", "counter", "Full product cache clears (refreshCache).", products.getClears());
+            Metrics.writeSample(out, "store_product_cache_entries", "gauge", "Products cached.", products.getSize());
+            Metrics.writeHistogram(out, "store_cache_load_duration_seconds", "Database load time of cache misses.",
+                    "cache", "product", products.getLoadHistogram());
+        }
+        HashingExecutor hashing = (HashingExecutor) ctx.getAttribute("hashingExecutor");
+        if (hashing != null) {
+            Metrics.writeSample(out, "store_hashing_submitted_total", "counter", "Password hashes submitted.", hashing.getSubmitted());
+            Metrics.writeSample(out, "store_hashing_rejected_total", "counter", "Password hashes rejected (pool saturated).", hashing.getRejected());
+            Metrics.writeSample(out, "store_hashing_queue_depth", "gauge", "Password hashes waiting for a thread.", hashing.getQueueDepth());
+            Metrics.writeSample(out, "store_hashing_active", "gauge", "Password hashes running.", hashing.getActiveCount());
+        }
+        RequestExecutor requests = StoreContextListener.requestExecutor(ctx);
+        if (requests != null) {
+            Metrics.writeSample(out, "store_requests_async_submitted_total", "counter", "Requests handed to virtual threads.", requests.getSubmitted());
+            Metrics.writeSample(out, "store_requests_async_rejected_total", "counter", "Requests refused (503) with the request queue full.", requests.getRejected());
+            Metrics.writeSample(out, "store_requests_async_timed_out_total", "counter", "Requests refused (503) after waiting queueTimeoutMillis.", requests.getTimedOut());
+            Metrics.writeSample(out, "store_requests_async_queue_depth", "gauge", "Requests waiting for a database permit.", requests.getQueueDepth());
+            Metrics.writeSample(out, "store_requests_async_active", "gauge", "Requests holding a database permit.", requests.getActiveCount());
+        }
+        LoginThrottle throttle = (LoginThrottle) ctx.getAttribute("loginThrottle");
+        if (throttle != null) {
+            Metrics.writeSample(out, "store_login_attempts_total", "counter", "Login and register attempts checked.", throttle.getAttempts());
+            Metrics.writeSample(out, "store_login_throttled_username_total", "counter", "Attempts refused by the per-username limit.", throttle.getThrottledByUsername());
+            Metrics.writeSample(out, "store_login_throttled_ip_total", "counter", "Attempts refused by the per-IP limit.", throttle.getThrottledByIp());
+        }
+        HotFileCache images = (HotFileCache) ctx.getAttribute("imageCache");
+        if (images != null) {
+            Metrics.writeSample(out, "store_image_cache_hits_total", "counter", "Image bodies served from memory-mapped buffers.", images.getHits());
+            Metrics.writeSample(out, "store_image_cache_misses_total", "counter", "Image bodies read from disk.", images.getMisses());
+            Metrics.writeSample(out, "store_image_cache_evictions_total", "counter", "Image cache evictions.", images.getEvictions());
+            Metrics.writeSample(out, "store_image_cache_resident_bytes", "gauge", "Bytes mapped by the image cache.", images.getResidentBytes());
+        }
+        ImageDerivatives derivatives = (ImageDerivatives) ctx.getAttribute("imageDerivatives");
+        if (derivatives != null) {
+            Metrics.writeSample(out, "store_image_variants_generated_total", "counter", "Image variants generated.", derivatives.getGenerated());
+            Metrics.writeSample(out, "store_image_variants_dropped_total", "counter", "Variant jobs dropped (queue full).", derivatives.getDropped());
+            Metrics.writeSample(out, "store_image_variants_failed_total", "counter", "Variant jobs that failed.", derivatives.getFailed());
+        }
+    }
+}
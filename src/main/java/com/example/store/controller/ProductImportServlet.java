@@ -0,0 +1,177 @@
+package com.example.store.controller;
+
+import com.example.store.dao.CartDAO;
+import com.example.store.dao.ProductDAO;
+import com.example.store.model.ProductUpsert;
+import com.example.store.util.CartRepricer;
+import com.example.store.util.DBConnectionManager;
+import com.example.store.util.JsonWriter;
+import com.example.store.util.ProductImporter;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.MultipartConfig;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.Part;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * ProductImportServlet: bulk product import for admins (see ProductImporter).
+ * Routes: GET /admin/import (form), POST /admin/import?key=name|sku&fileType=csv|jsonl
+ *
+ * The POST body is either a multipart form with a "file" part (the form) or the file itself
+ * (curl --data-binary @products.csv -H 'Content-Type: text/csv'), UTF-8. fileType defaults from the
+ * file name or Content-Type, else CSV. The report is the import page, or JSON with format=json /
+ * Accept: application/json.
+ *
+ * One import runs at a time; a second one gets 409. Settings (context-params, [default]):
+ * import.batchSize [500] rows per JDBC batch, import.chunkSize [5000] rows per transaction,
+ * import.maxErrors [1000] row errors listed in the report.
+ */
+@WebServlet(name = "ProductImportServlet", urlPatterns = {"/admin/import"})
+@MultipartConfig(maxFileSize = 512L * 1024 * 1024, maxRequestSize = 513L * 1024 * 1024)
+public class ProductImportServlet extends HttpServlet {
+    private final AtomicBoolean running = new AtomicBoolean();
+    private ProductImporter importer;
+
+    @Override
+    public void init() throws ServletException {
+        super.init();
+        DBConnectionManager db = StoreContextListener.database(getServletContext());
+        ProductDAO productDAO = new ProductDAO(db, StoreContextListener.productCache(getServletContext()));
+        CartRepricer repricer = new CartRepricer(new CartDAO(db), StoreContextListener.liveCarts(getServletContext()));
+        importer = new ProductImporter(productDAO, repricer,
+                Integer.parseInt(MaintenanceListener.param(getServletContext(), "import.batchSize", "500")),
+                Integer.parseInt(MaintenanceListener.param(getServletContext(), "import.chunkSize", "5000")),
+                Integer.parseInt(MaintenanceListener.param(getServletContext(), "import.maxErrors", "1000")));
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        if (!ProductServlet.isAdmin(req)) { resp.sendRedirect(req.getContextPath() + "/products?action=list"); return; }
+        req.getRequestDispatcher("/WEB-INF/views/product-import.jsp").forward(req, resp);
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        if (!ProductServlet.isAdmin(req)) { resp.sendRedirect(req.getContextPath() + "/products?action=list"); return; }
+        ProductUpsert.Key key = "sku".equalsIgnoreCase(req.getParameter("key")) ? ProductUpsert.Key.SKU : ProductUpsert.Key.NAME;
+        if (!running.compareAndSet(false, true)) {
+            fail(req, resp, HttpServletResponse.SC_CONFLICT, "Another import is running; try again when it has finished.");
+            return;
+        }
+        ProductImporter.Report report;
+        try {
+            String contentType = req.getContentType() == null ? "" : req.getContentType().toLowerCase(Locale.ROOT);
+            String fileName = null;
+            InputStream body;
+            if (contentType.startsWith("multipart/")) {
+                Part file = req.getPart("file");
+                if (file == null || file.getSize() == 0) {
+                    fail(req, resp, HttpServletResponse.SC_BAD_REQUEST, "Choose a CSV or JSON Lines file to import.");
+                    return;
+                }
+                fileName = file.getSubmittedFileName();
+                contentType = file.getContentType() == null ? "" : file.getContentType().toLowerCase(Locale.ROOT);
+                body = file.getInputStream();
+            } else {
+                body = req.getInputStream();
+            }
+            ProductImporter.Format format = format(req.getParameter("fileType"), fileName, contentType);
+            try (Reader in = new InputStreamReader(body, StandardCharsets.UTF_8)) {
+                report = importer.run(in, format, key);
+            }
+        } catch (IllegalArgumentException e) {
+            fail(req, resp, HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        } catch (IllegalStateException e) { // multipart size limit
+            fail(req, resp, HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, "The file is too large: " + e.getMessage());
+            return;
+        } finally {
+            running.set(false);
+        }
+
+        if (wantsJson(req)) {
+            writeJson(resp, report);
+            return;
+        }
+        req.setAttribute("report", report);
+        if (report.getAborted() != null) req.setAttribute("error", report.getAborted());
+        else req.setAttribute("message", "Imported " + report.getRowsRead() + " rows.");
+        req.getRequestDispatcher("/WEB-INF/views/product-import.jsp").forward(req, resp);
+    }
+
+    /** Explicit fileType, else the file extension, else the Content-Type; CSV when nothing says otherwise. */
+    private static ProductImporter.Format format(String fileType, String fileName, String contentType) {
+        if (fileType != null && !fileType.isBlank()) {
+            switch (fileType.trim().toLowerCase(Locale.ROOT)) {
+                case "csv": return ProductImporter.Format.CSV;
+                case "json": case "jsonl": case "ndjson": return ProductImporter.Format.JSON_LINES;
+                default: throw new IllegalArgumentException("fileType must be csv or jsonl");
+            }
+        }
+        String name = fileName == null ? "" : fileName.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".jsonl") || name.endsWith(".ndjson") || name.endsWith(".json")) return ProductImporter.Format.JSON_LINES;
+        if (name.endsWith(".csv")) return ProductImporter.Format.CSV;
+        return contentType.contains("json") ? ProductImporter.Format.JSON_LINES : ProductImporter.Format.CSV;
+    }
+
+    private void fail(HttpServletRequest req, HttpServletResponse resp, int status, String message)
+            throws ServletException, IOException {
+        if (wantsJson(req)) {
+            resp.setStatus(status);
+            resp.setContentType("application/json");
+            resp.setCharacterEncoding("UTF-8");
+            new JsonWriter(resp.getWriter()).beginObject().name("error").value(message).endObject().flush();
+            return;
+        }
+        resp.setStatus(status);
+        req.setAttribute("error", message);
+        req.getRequestDispatcher("/WEB-INF/views/product-import.jsp").forward(req, resp);
+    }
+
+    private void writeJson(HttpServletResponse resp, ProductImporter.Report report) throws IOException {
+        resp.setContentType("application/json");
+        resp.setCharacterEncoding("UTF-8");
+        JsonWriter json = new JsonWriter(resp.getWriter()).beginObject()
+                .name("format").value(report.getFormat().name())
+                .name("key").value(report.getKey().name())
+                .name("rowsRead").value(report.getRowsRead())
+                .name("inserted").value(report.getInserted())
+                .name("updated").value(report.getUpdated())
+                .name("unconfirmed").value(report.getUnconfirmed())
+                .name("unchanged").value(report.getUnchanged())
+                .name("duplicates").value(report.getDuplicates())
+                .name("failed").value(report.getFailed())
+                .name("chunks").value(report.getChunks())
+                .name("cached").value(report.getCached())
+                .name("repriced").value(report.getRepriced())
+                .name("elapsedMillis").value(report.getElapsedMillis())
+                .name("rowsPerSecond").value(Math.round(report.getRowsPerSecond()))
+                .name("aborted");
+        if (report.getAborted() == null) json.nullValue();
+        else json.value(report.getAborted());
+        json.name("ignoredColumns").beginArray();
+        for (String column : report.getIgnoredColumns()) json.value(column);
+        json.endArray().name("errors").beginArray();
+        for (ProductImporter.RowError error : report.getErrors()) {
+            json.beginObject().name("line").value(error.getLine()).name("message").value(error.getMessage()).endObject();
+        }
+        json.endArray().name("errorsTruncated").value(report.isErrorsTruncated()).endObject().flush();
+    }
+
+    private boolean wantsJson(HttpServletRequest req) {
+        if ("json".equals(req.getParameter("format"))) return true;
+        String accept = req.getHeader("Accept");
+        return accept != null && accept.contains("application/json") && !accept.contains("text/html");
+    }
+}
@@ -1,10 +1,16 @@
 package com.example.store.controller;
 
+import com.example.store.dao.CartDAO;
 import com.example.store.dao.ProductDAO;
 import com.example.store.model.Product;
 import com.example.store.util.DBConnectionManager;
 import com.example.store.util.CacheManager;
+import com.example.store.util.CartRepricer;
+import com.example.store.util.ImageDerivatives;
+import com.example.store.util.ImageStore;
+import com.example.store.util.ImageSweeper;
 import com.example.store.util.OptimisticLockException;
+import com.example.store.util.RequestExecutor;
 import com.example.store.util.DataIntegrityException;
 
 import jakarta.servlet.ServletException;
@@ -17,7 +23,11 @@ import jakarta.servlet.http.HttpSession;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * ProductServlet: MVC2 controller for product CRUD operations.
@@ -27,20 +37,31 @@ import java.util.Optional;
  * - Uses ArrayList for findAll() result: provides indexed access O(1) and preserves DB ordering.
  * - DAO uses ConcurrentHashMap for thread-safe product cache: O(1) lookup by ID.
  */
-@WebServlet(name = "ProductServlet", urlPatterns = {"/products"})
+@WebServlet(name = "ProductServlet", urlPatterns = {"/products"}, asyncSupported = true)
 @jakarta.servlet.annotation.MultipartConfig(maxFileSize = 5 * 1024 * 1024)
 public class ProductServlet extends HttpServlet {
+    private static final Map<String, String> GET_LABELS = Map.of(
+            "list", "products.list", "new", "products.new", "edit", "products.edit", "delete", "products.delete");
+    private static final Map<String, String> POST_LABELS = Map.of();
     private static final String[] ALLOWED_TYPES = {"image/jpeg", "image/png", "image/webp"};
     private java.nio.file.Path uploadDir;
     private ProductDAO productDAO;
+    private CartRepricer cartRepricer;
+    private ImageDerivatives imageDerivatives;
+    private ImageStore imageStore;
+    private ImageSweeper imageSweeper;
+    private ScheduledExecutorService sweepScheduler;
+    private RequestExecutor requests;
 
     @Override
     public void init() throws ServletException {
         super.init();
         // Initialize DBConnectionManager and CacheManager here (config from context params)
-        DBConnectionManager db = new DBConnectionManager("jdbc:mysql://localhost:3306/homework_ds","root","");
-        CacheManager cache = new CacheManager();
+        DBConnectionManager db = StoreContextListener.database(getServletContext());
+        CacheManager cache = StoreContextListener.productCache(getServletContext());
         productDAO = new ProductDAO(db, cache);
+        requests = StoreContextListener.requestExecutor(getServletContext());
+        cartRepricer = new CartRepricer(new CartDAO(db), StoreContextListener.liveCarts(getServletContext()));
         String basePath = System.getProperty("user.home") + "/product-uploads";
         uploadDir = java.nio.file.Paths.get(basePath);
         try {
@@ -49,15 +70,54 @@ public class ProductServlet extends HttpServlet {
             throw new ServletException("Unable to initialize upload directory", e);
         }
         getServletContext().setAttribute("uploadDir", uploadDir.toString());
+        imageDerivatives = ImageDerivatives.forAvailableCores(uploadDir);
+        getServletContext().setAttribute("imageDerivatives", imageDerivatives);
+
+        // orphaned uploads: imageSweeper.graceMinutes [30], imageSweeper.intervalMinutes [15]
+        imageStore = new ImageStore(uploadDir);
+        long grace = Long.parseLong(MaintenanceListener.param(getServletContext(), "imageSweeper.graceMinutes", "30"));
+        long interval = Long.parseLong(MaintenanceListener.param(getServletContext(), "imageSweeper.intervalMinutes", "15"));
+        imageSweeper = new ImageSweeper(productDAO, imageStore, TimeUnit.MINUTES.toMillis(grace));
+        sweepScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "image-sweeper");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        sweepScheduler.scheduleWithFixedDelay(imageSweeper, interval, interval, TimeUnit.MINUTES);
     }
 
-    private boolean isAdmin(HttpServletRequest req) {
+    @Override
+    public void destroy() {
+        sweepScheduler.shutdownNow();
+        imageDerivatives.shutdown();
+        super.destroy();
+    }
+
+    static boolean isAdmin(HttpServletRequest req) {
         HttpSession session = req.getSession(false);
         if (session == null) return false;
         Object role = session.getAttribute("currentUserRole");
         return role != null && "ADMIN".equals(role.toString());
     }
 
+    /**
+     * Times every request into the store_http_action_duration_seconds histogram (see ActionMetrics),
+     * on a virtual thread when asyncRequests.enabled (see AsyncRequests).
+     */
+    @Override
+    protected void service(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        String label = ActionMetrics.label(req, GET_LABELS, POST_LABELS, "products.list", "products.save");
+        long started = System.nanoTime();
+        boolean failed = true;
+        try {
+            if (!AsyncRequests.dispatch(req, resp, requests, () -> super.service(req, resp))) super.service(req, resp);
+            failed = false;
+        } finally {
+            ActionMetrics.finish(req, resp, label, started, failed);
+        }
+    }
+
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
         // route actions: list, new, edit, delete
@@ -133,7 +193,8 @@ public class ProductServlet extends HttpServlet {
         try {
             if (idParam != null) {
                 int id = Integer.parseInt(idParam);
-                productDAO.delete(id);
+                String imageUrl = productDAO.findById(id).map(Product::getImageUrl).orElse(null);
+                if (productDAO.delete(id)) imageSweeper.release(imageUrl);
             }
             resp.sendRedirect(req.getContextPath() + "/products?action=list");
         } catch (DataIntegrityException die) {
@@ -173,6 +234,8 @@ public class ProductServlet extends HttpServlet {
                 int id = Integer.parseInt(idParam);
                 int expectedVersion = Integer.parseInt(versionParam);
                 Optional<Product> existing = productDAO.findById(id);
+                BigDecimal oldPrice = existing.map(Product::getPrice).orElse(null);
+                String oldImageUrl = existing.map(Product::getImageUrl).orElse(null);
                 existing.ifPresent(p -> product.setImageUrl(p.getImageUrl()));
                 product.setId(id);
                 if (isValidImagePart(imagePart)) {
@@ -181,6 +244,17 @@ public class ProductServlet extends HttpServlet {
                     product.setImageUrl(imageUrl);
                 }
                 productDAO.update(product, expectedVersion);
+                if (oldImageUrl != null && !oldImageUrl.equals(product.getImageUrl())) {
+                    imageSweeper.release(oldImageUrl);
+                }
+                if (oldPrice == null || oldPrice.compareTo(product.getPrice()) != 0) {
+                    try {
+                        // push the new price into open carts (live sessions + DB snapshots)
+                        productDAO.findById(id).ifPresent(cartRepricer::productRepriced);
+                    } catch (RuntimeException e) {
+                        e.printStackTrace(); // product itself is saved; do not report the save as failed
+                    }
+                }
             }
             resp.sendRedirect(req.getContextPath() + "/products?action=list");
         } catch (OptimisticLockException e) {
@@ -204,20 +278,28 @@ public class ProductServlet extends HttpServlet {
         return false;
     }
 
+    /**
+     * Store the upload under its SHA-256 (ImageStore): identical images share one file and the URL
+     * never changes meaning, so ImageServlet serves it as immutable.
+     */
     private String storeImage(jakarta.servlet.http.Part part) throws IOException {
-        String submitted = part.getSubmittedFileName();
-        String safeName = java.nio.file.Paths.get(submitted == null ? "" : submitted).getFileName().toString();
-        String ext = "";
-        int dot = safeName.lastIndexOf('.');
-        if (dot >= 0) ext = safeName.substring(dot);
-        String fileName = java.util.UUID.randomUUID() + ext;
-        java.nio.file.Path target = uploadDir.resolve(fileName);
+        String fileName;
         try (java.io.InputStream in = part.getInputStream()) {
-            java.nio.file.Files.copy(in, target, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+            fileName = imageStore.store(in, extensionFor(part.getContentType()));
         }
+        imageDerivatives.request(fileName); // thumb/medium variants, in the background
         return reqPath("/images/" + fileName);
     }
 
+    /** Extension from the validated content type (see ALLOWED_TYPES), not the client's file name. */
+    private static String extensionFor(String contentType) {
+        switch (contentType.toLowerCase(java.util.Locale.ROOT)) {
+            case "image/png": return "png";
+            case "image/webp": return "webp";
+            default: return "jpg";
+        }
+    }
+
     private String reqPath(String path) {
         return path;
     }
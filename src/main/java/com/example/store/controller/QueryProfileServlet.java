@@ -0,0 +1,40 @@
+package com.example.store.controller;
+
+import com.example.store.util.DBConnectionManager;
+import com.example.store.util.StatementProfiler;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+
+/**
+ * QueryProfileServlet: StatementProfiler summary for admins.
+ * Routes: GET /admin/queries (per-statement aggregates + recent slow queries), POST ?action=reset
+ */
+@WebServlet(name = "QueryProfileServlet", urlPatterns = {"/admin/queries"})
+public class QueryProfileServlet extends HttpServlet {
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        if (!ProductServlet.isAdmin(req)) { resp.sendRedirect(req.getContextPath() + "/products?action=list"); return; }
+        StatementProfiler profiler = DBConnectionManager.getProfiler();
+        if (profiler != null) {
+            req.setAttribute("profiler", profiler);
+            req.setAttribute("statements", profiler.summaries());
+            req.setAttribute("slowQueries", profiler.slowQueries());
+        }
+        req.getRequestDispatcher("/WEB-INF/views/query-profile.jsp").forward(req, resp);
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        if (!ProductServlet.isAdmin(req)) { resp.sendRedirect(req.getContextPath() + "/products?action=list"); return; }
+        StatementProfiler profiler = DBConnectionManager.getProfiler();
+        if ("reset".equals(req.getParameter("action")) && profiler != null) profiler.reset();
+        resp.sendRedirect(req.getContextPath() + "/admin/queries");
+    }
+}
@@ -0,0 +1,290 @@
+package com.example.store.controller;
+
+import com.example.store.util.RequestTiming;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.RequestDispatcher;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.annotation.WebFilter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Adds a Server-Timing header (db, cache hit/miss, hash, render, total) to page and action responses,
+ * and logs requests slower than serverTiming.slowMillis [500] with their breakdown.
+ *
+ * WHY the body is buffered: the render time is only known once the JSP has written the page, and a
+ * header cannot follow the body. The response wrapper holds the body (up to
+ * serverTiming.maxBufferKilobytes [1024], then it streams and the header lacks render) and writes
+ * header + body when the page is done: on forward's close, flushBuffer, sendRedirect/sendError or
+ * when the chain returns.
+ *
+ * Views are timed by wrapping the RequestDispatcher, so servlets forward exactly as before. Async
+ * requests (AuthServlet hashing, AsyncRequests) keep the same context through RequestTiming.bind, and
+ * must render with a forward followed by AsyncContext.complete(): AsyncContext.dispatch() to a view
+ * bypasses this filter, so nothing would release the buffered page.
+ * The header value is also stored as request attribute "serverTiming" for access logs
+ * (AccessLogValve pattern %{serverTiming}r or %{Server-Timing}o).
+ */
+@WebFilter(filterName = "ServerTimingFilter", urlPatterns = {"/products", "/cart", "/auth", "/admin/*"}, asyncSupported = true)
+public class ServerTimingFilter implements Filter {
+    private static final Logger LOG = Logger.getLogger(ServerTimingFilter.class.getName());
+    static final String ATTRIBUTE = "serverTiming";
+
+    private long slowNanos;
+    private int maxBufferBytes;
+
+    @Override
+    public void init(FilterConfig config) {
+        slowNanos = TimeUnit.MILLISECONDS.toNanos(
+                Long.parseLong(MaintenanceListener.param(config.getServletContext(), "serverTiming.slowMillis", "500")));
+        maxBufferBytes = 1024 * Integer.parseInt(
+                MaintenanceListener.param(config.getServletContext(), "serverTiming.maxBufferKilobytes", "1024"));
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        if (!(request instanceof HttpServletRequest) || !(response instanceof HttpServletResponse)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        HttpServletRequest original = (HttpServletRequest) request;
+        String method = original.getMethod();
+        String uri = original.getRequestURI();
+        String query = original.getQueryString(); // read now: a forward changes them on the wrapper
+        RequestTiming timing = RequestTiming.begin();
+        TimingResponse resp = new TimingResponse((HttpServletRequest) request, (HttpServletResponse) response, timing, maxBufferBytes);
+        TimingRequest req = new TimingRequest((HttpServletRequest) request, timing, resp);
+        try {
+            chain.doFilter(req, resp);
+        } finally {
+            RequestTiming.end();
+        }
+        if (req.isAsyncStarted()) {
+            // the async continuation writes the response; only the log waits for completion
+            req.getAsyncContext().addListener(new AsyncListener() {
+                @Override public void onComplete(AsyncEvent event) { logIfSlow(method, uri, query, resp, timing); }
+                @Override public void onTimeout(AsyncEvent event) {}
+                @Override public void onError(AsyncEvent event) {}
+                @Override public void onStartAsync(AsyncEvent event) {}
+            });
+            return;
+        }
+        resp.commitTiming(true);
+        logIfSlow(method, uri, query, resp, timing);
+    }
+
+    private void logIfSlow(String method, String uri, String query, TimingResponse resp, RequestTiming timing) {
+        if (timing.elapsedNanos() < slowNanos) return;
+        LOG.warning("Slow request " + method + " " + uri + (query == null ? "" : "?" + query)
+                + " -> " + resp.getStatus() + ": " + resp.header());
+    }
+
+    /** Routes getRequestDispatcher through TimingDispatcher so forwards are timed as render. */
+    private static final class TimingRequest extends HttpServletRequestWrapper {
+        private final RequestTiming timing;
+        private final TimingResponse response;
+
+        TimingRequest(HttpServletRequest request, RequestTiming timing, TimingResponse response) {
+            super(request);
+            this.timing = timing;
+            this.response = response;
+        }
+
+        @Override
+        public RequestDispatcher getRequestDispatcher(String path) {
+            RequestDispatcher target = super.getRequestDispatcher(path);
+            return target == null ? null : new TimingDispatcher(target, timing, response);
+        }
+    }
+
+    private static final class TimingDispatcher implements RequestDispatcher {
+        private final RequestDispatcher target;
+        private final RequestTiming timing;
+        private final TimingResponse response;
+
+        TimingDispatcher(RequestDispatcher target, RequestTiming timing, TimingResponse response) {
+            this.target = target;
+            this.timing = timing;
+            this.response = response;
+        }
+
+        @Override
+        public void forward(ServletRequest request, ServletResponse resp) throws ServletException, IOException {
+            timing.startRender();
+            try {
+                target.forward(request, resp);
+            } finally {
+                timing.stopRender();
+                response.commitTiming(true); // no-op if the container already closed the output
+            }
+        }
+
+        @Override
+        public void include(ServletRequest request, ServletResponse resp) throws ServletException, IOException {
+            target.include(request, resp); // part of the enclosing render
+        }
+    }
+
+    /**
+     * Holds the body until commitTiming(), then sets Server-Timing and writes the body through.
+     */
+    private static final class TimingResponse extends HttpServletResponseWrapper {
+        private final HttpServletRequest request;
+        private final RequestTiming timing;
+        private final int maxBufferBytes;
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(8192);
+        private ServletOutputStream stream;
+        private PrintWriter writer;
+        private String header;
+
+        TimingResponse(HttpServletRequest request, HttpServletResponse response, RequestTiming timing, int maxBufferBytes) {
+            super(response);
+            this.request = request;
+            this.timing = timing;
+            this.maxBufferBytes = maxBufferBytes;
+        }
+
+        String header() {
+            return header != null ? header : timing.toHeader();
+        }
+
+        /**
+         * Set the header (once) and release everything buffered so far. complete: the body is
+         * finished, so a fully buffered body also gets its Content-Length.
+         */
+        void commitTiming(boolean complete) throws IOException {
+            if (writer != null) writer.flush();
+            if (header == null) {
+                timing.stopRender();
+                header = timing.toHeader();
+                HttpServletResponse real = (HttpServletResponse) getResponse();
+                if (!real.isCommitted()) {
+                    real.setHeader("Server-Timing", header);
+                    if (complete && buffer.size() > 0) real.setContentLength(buffer.size());
+                }
+                request.setAttribute(ATTRIBUTE, header);
+            }
+            if (buffer.size() > 0) {
+                buffer.writeTo(getResponse().getOutputStream());
+                buffer.reset();
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            if (stream == null) stream = new TimingOutputStream();
+            return stream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            commitTiming(false);
+            super.flushBuffer();
+        }
+
+        @Override
+        public boolean isCommitted() {
+            return header != null || super.isCommitted();
+        }
+
+        @Override
+        public void resetBuffer() {
+            buffer.reset();
+            super.resetBuffer();
+        }
+
+        @Override
+        public void reset() {
+            buffer.reset();
+            super.reset();
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            buffer.reset();
+            commitTiming(false);
+            super.sendRedirect(location);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            buffer.reset();
+            commitTiming(false);
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            buffer.reset();
+            commitTiming(false);
+            super.sendError(sc);
+        }
+
+        private final class TimingOutputStream extends ServletOutputStream {
+            @Override
+            public void write(int b) throws IOException {
+                if (header != null) {
+                    getResponse().getOutputStream().write(b);
+                    return;
+                }
+                buffer.write(b);
+                if (buffer.size() >= maxBufferBytes) commitTiming(false);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                if (header != null) {
+                    getResponse().getOutputStream().write(b, off, len);
+                    return;
+                }
+                buffer.write(b, off, len);
+                if (buffer.size() >= maxBufferBytes) commitTiming(false);
+            }
+
+            @Override
+            public void flush() {
+                // held until commitTiming(): JSPs flush their buffer before the page is complete
+            }
+
+            @Override
+            public void close() throws IOException {
+                commitTiming(true); // RequestDispatcher.forward closes the output when the view is done
+                getResponse().getOutputStream().close();
+            }
+
+            @Override
+            public boolean isReady() { return true; }
+
+            @Override
+            public void setWriteListener(WriteListener listener) {
+                throw new IllegalStateException("Non-blocking output is not supported on timed responses");
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.store.controller;
+
+import com.example.store.model.Cart;
+import com.example.store.util.CacheManager;
+import com.example.store.util.DBConnectionManager;
+import com.example.store.util.LiveCartIndex;
+import com.example.store.util.MBeans;
+import com.example.store.util.RequestExecutor;
+import com.example.store.util.SchemaMigrator;
+import com.example.store.util.StatementProfiler;
+
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import jakarta.servlet.http.HttpSessionAttributeListener;
+import jakarta.servlet.http.HttpSessionBindingEvent;
+
+import java.util.concurrent.ExecutorService;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Owns application-scoped state shared by the servlets and keeps LiveCartIndex in sync with sessions.
+ * Also runs SchemaMigrator once per deployment, before any servlet init() touches the database.
+ *
+ * Context attributes:
+ * - "productCache": the single CacheManager used by every ProductDAO, so a product write made through
+ *   ProductServlet is immediately visible to CartServlet; its stats are the ProductCache MXBean
+ * - "liveCarts": LiveCartIndex of carts bound to sessions under the "cart" attribute
+ *
+ * JDBC profiling (context-params): jdbcProfiler.enabled [true], jdbcProfiler.slowMillis [200],
+ * jdbcProfiler.bindSampleRate [16]. Installed on DBConnectionManager before migrations run; its
+ * summary is the /admin/queries page.
+ *
+ * Database (context-params, read by every servlet through database()): db.url
+ * [jdbc:mysql://localhost:3306/homework_ds], db.user [root], db.password [empty].
+ *
+ * Virtual-thread request execution (context-params): asyncRequests.enabled [false],
+ * asyncRequests.maxConcurrent [20] (keep within the database's connection budget),
+ * asyncRequests.maxQueued [200], asyncRequests.queueTimeoutMillis [2000]. When enabled on Java 21+,
+ * "requestExecutor" holds the RequestExecutor that CartServlet and ProductServlet hand their
+ * requests to (see AsyncRequests); its stats are the RequestExecutor MXBean.
+ *
+ * Declared first in web.xml, so it initializes before (and is destroyed after) MaintenanceListener.
+ */
+public class StoreContextListener implements ServletContextListener, HttpSessionAttributeListener {
+    private static final Logger LOG = Logger.getLogger(StoreContextListener.class.getName());
+    static final String PRODUCT_CACHE = "productCache";
+    static final String LIVE_CARTS = "liveCarts";
+    static final String REQUEST_EXECUTOR = "requestExecutor";
+    private static final String PRODUCT_CACHE_MBEAN = "com.example.store:type=ProductCache";
+    private static final String REQUEST_EXECUTOR_MBEAN = "com.example.store:type=RequestExecutor";
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        ServletContext ctx = sce.getServletContext();
+        if (Boolean.parseBoolean(MaintenanceListener.param(ctx, "jdbcProfiler.enabled", "true"))) {
+            DBConnectionManager.setProfiler(new StatementProfiler(
+                    Long.parseLong(MaintenanceListener.param(ctx, "jdbcProfiler.slowMillis", "200")),
+                    Integer.parseInt(MaintenanceListener.param(ctx, "jdbcProfiler.bindSampleRate", "16"))));
+        }
+        try {
+            DBConnectionManager db = database(ctx);
+            int applied = SchemaMigrator.migrate(db);
+            if (applied > 0) LOG.info("Schema migrated to V" + SchemaMigrator.latestVersion());
+        } catch (RuntimeException e) {
+            // keep deploying: pages that need the DB fail on their own and the next start retries
+            LOG.log(Level.SEVERE, "Schema migration did not complete", e);
+        }
+        MBeans.register(PRODUCT_CACHE_MBEAN, productCache(ctx));
+        liveCarts(ctx);
+        if (Boolean.parseBoolean(MaintenanceListener.param(ctx, "asyncRequests.enabled", "false"))) {
+            ExecutorService virtualThreads = RequestExecutor.virtualThreads();
+            if (virtualThreads != null) {
+                RequestExecutor requests = new RequestExecutor(virtualThreads,
+                        Integer.parseInt(MaintenanceListener.param(ctx, "asyncRequests.maxConcurrent", "20")),
+                        Integer.parseInt(MaintenanceListener.param(ctx, "asyncRequests.maxQueued", "200")),
+                        Long.parseLong(MaintenanceListener.param(ctx, "asyncRequests.queueTimeoutMillis", "2000")));
+                ctx.setAttribute(REQUEST_EXECUTOR, requests);
+                MBeans.register(REQUEST_EXECUTOR_MBEAN, requests);
+            }
+        }
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        RequestExecutor requests = requestExecutor(sce.getServletContext());
+        if (requests != null) {
+            MBeans.unregister(REQUEST_EXECUTOR_MBEAN);
+            requests.shutdown();
+        }
+        MBeans.unregister(PRODUCT_CACHE_MBEAN);
+        DBConnectionManager.setProfiler(null);
+    }
+
+    @Override
+    public void attributeAdded(HttpSessionBindingEvent event) {
+        if ("cart".equals(event.getName()) && event.getValue() instanceof Cart) {
+            liveCarts(event.getSession().getServletContext()).track((Cart) event.getValue());
+        }
+    }
+
+    @Override
+    public void attributeReplaced(HttpSessionBindingEvent event) {
+        if (!"cart".equals(event.getName())) return;
+        LiveCartIndex index = liveCarts(event.getSession().getServletContext());
+        // event value is the old cart; the new one is already bound
+        Object current = event.getSession().getAttribute("cart");
+        if (current == event.getValue()) return; // same cart re-bound, still live
+        if (event.getValue() instanceof Cart) index.untrack((Cart) event.getValue());
+        if (current instanceof Cart) index.track((Cart) current);
+    }
+
+    @Override
+    public void attributeRemoved(HttpSessionBindingEvent event) {
+        // also fired for every attribute when a session expires or is invalidated
+        if ("cart".equals(event.getName()) && event.getValue() instanceof Cart) {
+            liveCarts(event.getSession().getServletContext()).untrack((Cart) event.getValue());
+        }
+    }
+
+    static DBConnectionManager database(ServletContext ctx) {
+        return new DBConnectionManager(
+                MaintenanceListener.param(ctx, "db.url", "jdbc:mysql://localhost:3306/homework_ds"),
+                MaintenanceListener.param(ctx, "db.user", "root"),
+                MaintenanceListener.param(ctx, "db.password", ""));
+    }
+
+    /** The virtual-thread executor, or null: requests run on the container thread. */
+    static RequestExecutor requestExecutor(ServletContext ctx) {
+        return (RequestExecutor) ctx.getAttribute(REQUEST_EXECUTOR);
+    }
+
+    static CacheManager productCache(ServletContext ctx) {
+        CacheManager existing = (CacheManager) ctx.getAttribute(PRODUCT_CACHE);
+        if (existing != null) return existing;
+        synchronized (ctx) {
+            CacheManager cache = (CacheManager) ctx.getAttribute(PRODUCT_CACHE);
+            if (cache == null) {
+                cache = new CacheManager();
+                ctx.setAttribute(PRODUCT_CACHE, cache);
+            }
+            return cache;
+        }
+    }
+
+    static LiveCartIndex liveCarts(ServletContext ctx) {
+        LiveCartIndex existing = (LiveCartIndex) ctx.getAttribute(LIVE_CARTS);
+        if (existing != null) return existing;
+        synchronized (ctx) {
+            LiveCartIndex index = (LiveCartIndex) ctx.getAttribute(LIVE_CARTS);
+            if (index == null) {
+                index = new LiveCartIndex();
+                ctx.setAttribute(LIVE_CARTS, index);
+            }
+            return index;
+        }
+    }
+}
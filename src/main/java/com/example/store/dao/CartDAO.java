@@ -4,13 +4,17 @@ import com.example.store.model.Cart;
 import com.example.store.model.CartItem;
 import com.example.store.model.Product;
 import com.example.store.util.DBConnectionManager;
+import com.example.store.util.Metrics;
 
+import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.Statement;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * CartDAO: persist/load carts and cart_items.
@@ -27,47 +31,59 @@ public class CartDAO {
      * Load cart by session_id. Returns null if not found.
      */
     public Cart loadCartBySessionId(String sessionId) {
-        String sql = "SELECT id, session_id, user_id, status FROM carts WHERE session_id = ? AND status = 'OPEN'";
-        try (Connection conn = db.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, sessionId);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    long cartId = rs.getLong("id");
-                    Cart cart = new Cart(cartId);
-                    cart.setSessionId(rs.getString("session_id"));
-                    Long userId = rs.getLong("user_id");
-                    if (!rs.wasNull()) cart.setUserId(userId);
-                    loadCartItems(cart, conn);
-                    return cart;
+        long started = System.nanoTime();
+        try {
+            String sql = "SELECT id, session_id, user_id, status, version FROM carts WHERE session_id = ? AND status = 'OPEN'";
+            try (Connection conn = db.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setString(1, sessionId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        long cartId = rs.getLong("id");
+                        Cart cart = new Cart(cartId);
+                        cart.setSessionId(rs.getString("session_id"));
+                        cart.setVersion(rs.getInt("version"));
+                        Long userId = rs.getLong("user_id");
+                        if (!rs.wasNull()) cart.setUserId(userId);
+                        loadCartItems(cart, conn);
+                        return cart;
+                    }
                 }
+            } catch (Exception e) {
+                throw new RuntimeException("Error loading cart by session_id", e);
             }
-        } catch (Exception e) {
-            throw new RuntimeException("Error loading cart by session_id", e);
+            return null;
+        } finally {
+            Metrics.recordDao("CartDAO.loadCartBySessionId", started);
         }
-        return null;
     }
 
     /**
      * Load cart by cart ID. Returns null if not found.
      */
     public Cart loadCartById(long cartId) {
-        String sql = "SELECT id, session_id, user_id, status FROM carts WHERE id = ?";
-        try (Connection conn = db.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setLong(1, cartId);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    Cart cart = new Cart(cartId);
-                    cart.setSessionId(rs.getString("session_id"));
-                    Long userId = rs.getLong("user_id");
-                    if (!rs.wasNull()) cart.setUserId(userId);
-                    loadCartItems(cart, conn);
-                    return cart;
+        long started = System.nanoTime();
+        try {
+            String sql = "SELECT id, session_id, user_id, status, version FROM carts WHERE id = ?";
+            try (Connection conn = db.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setLong(1, cartId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        Cart cart = new Cart(cartId);
+                        cart.setSessionId(rs.getString("session_id"));
+                        cart.setVersion(rs.getInt("version"));
+                        Long userId = rs.getLong("user_id");
+                        if (!rs.wasNull()) cart.setUserId(userId);
+                        loadCartItems(cart, conn);
+                        return cart;
+                    }
                 }
+            } catch (Exception e) {
+                throw new RuntimeException("Error loading cart by id", e);
             }
-        } catch (Exception e) {
-            throw new RuntimeException("Error loading cart by id", e);
+            return null;
+        } finally {
+            Metrics.recordDao("CartDAO.loadCartById", started);
         }
-        return null;
     }
 
     private void loadCartItems(Cart cart, Connection conn) throws Exception {
@@ -88,7 +104,7 @@ public class CartDAO {
                     
                     CartItem item = new CartItem(p, rs.getInt("quantity"));
                     item.setPriceSnapshot(rs.getBigDecimal("price_snapshot"));
-                    cart.getItemsMap().put(p.getId(), item);
+                    cart.putItem(item);
                 }
             }
         }
@@ -98,26 +114,31 @@ public class CartDAO {
      * Create new cart in DB. Returns generated cart ID.
      */
     public long createCart(Cart cart) {
-        String sql = "INSERT INTO carts (session_id, user_id, status, version) VALUES (?, ?, 'OPEN', 1)";
-        try (Connection conn = db.getConnection(); PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            ps.setString(1, cart.getSessionId());
-            if (cart.getUserId() != null) {
-                ps.setLong(2, cart.getUserId());
-            } else {
-                ps.setNull(2, java.sql.Types.BIGINT);
-            }
-            ps.executeUpdate();
-            try (ResultSet keys = ps.getGeneratedKeys()) {
-                if (keys.next()) {
-                    long id = keys.getLong(1);
-                    cart.setId(id);
-                    return id;
+        long started = System.nanoTime();
+        try {
+            String sql = "INSERT INTO carts (session_id, user_id, status, version) VALUES (?, ?, 'OPEN', 1)";
+            try (Connection conn = db.getConnection(); PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                ps.setString(1, cart.getSessionId());
+                if (cart.getUserId() != null) {
+                    ps.setLong(2, cart.getUserId());
+                } else {
+                    ps.setNull(2, java.sql.Types.BIGINT);
                 }
+                ps.executeUpdate();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    if (keys.next()) {
+                        long id = keys.getLong(1);
+                        cart.setId(id);
+                        return id;
+                    }
+                }
+            } catch (Exception e) {
+                throw new RuntimeException("Error creating cart", e);
             }
-        } catch (Exception e) {
-            throw new RuntimeException("Error creating cart", e);
+            throw new RuntimeException("Failed to create cart");
+        } finally {
+            Metrics.recordDao("CartDAO.createCart", started);
         }
-        throw new RuntimeException("Failed to create cart");
     }
 
     /**
@@ -125,46 +146,51 @@ public class CartDAO {
      * Deletes existing items and re-inserts current cart contents.
      */
     public boolean saveCart(Cart cart) {
-        try (Connection conn = db.getConnection()) {
-            conn.setAutoCommit(false);
-            try {
-                // Delete existing cart_items
-                String deleteSql = "DELETE FROM cart_items WHERE cart_id = ?";
-                try (PreparedStatement ps = conn.prepareStatement(deleteSql)) {
-                    ps.setLong(1, cart.getId());
-                    ps.executeUpdate();
-                }
+        long started = System.nanoTime();
+        try {
+            try (Connection conn = db.getConnection()) {
+                conn.setAutoCommit(false);
+                try {
+                    // Delete existing cart_items
+                    String deleteSql = "DELETE FROM cart_items WHERE cart_id = ?";
+                    try (PreparedStatement ps = conn.prepareStatement(deleteSql)) {
+                        ps.setLong(1, cart.getId());
+                        ps.executeUpdate();
+                    }
 
-                // Insert current items
-                String insertSql = "INSERT INTO cart_items (cart_id, product_id, quantity, price_snapshot) VALUES (?, ?, ?, ?)";
-                try (PreparedStatement ps = conn.prepareStatement(insertSql)) {
-                    for (CartItem item : cart.getItems()) {
+                    // Insert current items
+                    String insertSql = "INSERT INTO cart_items (cart_id, product_id, quantity, price_snapshot) VALUES (?, ?, ?, ?)";
+                    try (PreparedStatement ps = conn.prepareStatement(insertSql)) {
+                        for (CartItem item : cart.getItems()) {
+                            ps.setLong(1, cart.getId());
+                            ps.setInt(2, item.getProduct().getId());
+                            ps.setInt(3, item.getQuantity());
+                            ps.setBigDecimal(4, item.getPriceSnapshot());
+                            ps.addBatch();
+                        }
+                        ps.executeBatch();
+                    }
+
+                    // Update cart timestamp
+                    String updateSql = "UPDATE carts SET updated_at = CURRENT_TIMESTAMP WHERE id = ?";
+                    try (PreparedStatement ps = conn.prepareStatement(updateSql)) {
                         ps.setLong(1, cart.getId());
-                        ps.setInt(2, item.getProduct().getId());
-                        ps.setInt(3, item.getQuantity());
-                        ps.setBigDecimal(4, item.getPriceSnapshot());
-                        ps.addBatch();
+                        ps.executeUpdate();
                     }
-                    ps.executeBatch();
-                }
 
-                // Update cart timestamp
-                String updateSql = "UPDATE carts SET updated_at = CURRENT_TIMESTAMP WHERE id = ?";
-                try (PreparedStatement ps = conn.prepareStatement(updateSql)) {
-                    ps.setLong(1, cart.getId());
-                    ps.executeUpdate();
+                    conn.commit();
+                    return true;
+                } catch (Exception e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
                 }
-
-                conn.commit();
-                return true;
             } catch (Exception e) {
-                conn.rollback();
-                throw e;
-            } finally {
-                conn.setAutoCommit(true);
+                throw new RuntimeException("Error saving cart", e);
             }
-        } catch (Exception e) {
-            throw new RuntimeException("Error saving cart", e);
+        } finally {
+            Metrics.recordDao("CartDAO.saveCart", started);
         }
     }
 
@@ -172,31 +198,36 @@ public class CartDAO {
      * Clear cart items and mark cart as cleared.
      */
     public boolean clearCart(long cartId) {
-        try (Connection conn = db.getConnection()) {
-            conn.setAutoCommit(false);
-            try {
-                String deleteSql = "DELETE FROM cart_items WHERE cart_id = ?";
-                try (PreparedStatement ps = conn.prepareStatement(deleteSql)) {
-                    ps.setLong(1, cartId);
-                    ps.executeUpdate();
-                }
+        long started = System.nanoTime();
+        try {
+            try (Connection conn = db.getConnection()) {
+                conn.setAutoCommit(false);
+                try {
+                    String deleteSql = "DELETE FROM cart_items WHERE cart_id = ?";
+                    try (PreparedStatement ps = conn.prepareStatement(deleteSql)) {
+                        ps.setLong(1, cartId);
+                        ps.executeUpdate();
+                    }
 
-                String updateSql = "UPDATE carts SET status = 'CLEARED' WHERE id = ?";
-                try (PreparedStatement ps = conn.prepareStatement(updateSql)) {
-                    ps.setLong(1, cartId);
-                    ps.executeUpdate();
-                }
+                    String updateSql = "UPDATE carts SET status = 'CLEARED' WHERE id = ?";
+                    try (PreparedStatement ps = conn.prepareStatement(updateSql)) {
+                        ps.setLong(1, cartId);
+                        ps.executeUpdate();
+                    }
 
-                conn.commit();
-                return true;
+                    conn.commit();
+                    return true;
+                } catch (Exception e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
             } catch (Exception e) {
-                conn.rollback();
-                throw e;
-            } finally {
-                conn.setAutoCommit(true);
+                throw new RuntimeException("Error clearing cart", e);
             }
-        } catch (Exception e) {
-            throw new RuntimeException("Error clearing cart", e);
+        } finally {
+            Metrics.recordDao("CartDAO.clearCart", started);
         }
     }
 
@@ -204,40 +235,353 @@ public class CartDAO {
      * Load cart by user_id. Returns null if not found.
      */
     public Cart loadCartByUserId(Long userId) {
-        String sql = "SELECT id, session_id, user_id, status FROM carts WHERE user_id = ? AND status = 'OPEN'";
-        try (Connection conn = db.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setLong(1, userId);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    long cartId = rs.getLong("id");
-                    Cart cart = new Cart(cartId);
-                    cart.setSessionId(rs.getString("session_id"));
+        long started = System.nanoTime();
+        try {
+            String sql = "SELECT id, session_id, user_id, status, version FROM carts WHERE user_id = ? AND status = 'OPEN'";
+            try (Connection conn = db.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setLong(1, userId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        long cartId = rs.getLong("id");
+                        Cart cart = new Cart(cartId);
+                        cart.setSessionId(rs.getString("session_id"));
+                        cart.setVersion(rs.getInt("version"));
+                        cart.setUserId(userId);
+                        loadCartItems(cart, conn);
+                        return cart;
+                    }
+                }
+            } catch (Exception e) {
+                throw new RuntimeException("Error loading cart by user_id", e);
+            }
+            return null;
+        } finally {
+            Metrics.recordDao("CartDAO.loadCartByUserId", started);
+        }
+    }
+
+    /**
+     * Update cart owner (user_id) in DB.
+     */
+    public void updateCartOwner(long cartId, Long userId) {
+        long started = System.nanoTime();
+        try {
+            String sql = "UPDATE carts SET user_id = ?, updated_at = CURRENT_TIMESTAMP WHERE id = ?";
+            try (Connection conn = db.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+                if (userId != null) {
+                    ps.setLong(1, userId);
+                } else {
+                    ps.setNull(1, java.sql.Types.BIGINT);
+                }
+                ps.setLong(2, cartId);
+                ps.executeUpdate();
+            } catch (Exception e) {
+                throw new RuntimeException("Error updating cart owner", e);
+            }
+        } finally {
+            Metrics.recordDao("CartDAO.updateCartOwner", started);
+        }
+    }
+
+    /**
+     * Merge the session's guest cart into the user's open cart in one transaction and return the result.
+     *
+     * Statements (constant, independent of cart sizes):
+     * 1. lock the user's open cart and the guest cart (SELECT ... FOR UPDATE)
+     * 2. add guest quantities to lines the user cart already has (UPDATE ... JOIN)
+     * 3. copy guest lines the user cart lacks (INSERT ... SELECT)
+     * 4. empty the guest cart and mark it MERGED
+     * 5. touch the user cart and bind it to the current session
+     * 6. load the merged items
+     * Without a user cart the guest cart simply changes owner; without either, returns null.
+     */
+    public Cart mergeGuestCart(String sessionId, long userId) {
+        long started = System.nanoTime();
+        try {
+            String lockSql = "SELECT id, user_id, version FROM carts WHERE status = 'OPEN' AND " +
+                    "(user_id = ? OR (session_id = ? AND user_id IS NULL)) ORDER BY id FOR UPDATE";
+            try (Connection conn = db.getConnection()) {
+                conn.setAutoCommit(false);
+                try {
+                    Long userCartId = null;
+                    Long guestCartId = null;
+                    int userCartVersion = 1;
+                    int guestCartVersion = 1;
+                    try (PreparedStatement ps = conn.prepareStatement(lockSql)) {
+                        ps.setLong(1, userId);
+                        ps.setString(2, sessionId);
+                        try (ResultSet rs = ps.executeQuery()) {
+                            while (rs.next()) {
+                                long id = rs.getLong("id");
+                                int version = rs.getInt("version");
+                                rs.getLong("user_id");
+                                if (rs.wasNull()) {
+                                    if (guestCartId == null) {
+                                        guestCartId = id;
+                                        guestCartVersion = version;
+                                    }
+                                } else if (userCartId == null) {
+                                    userCartId = id;
+                                    userCartVersion = version;
+                                }
+                            }
+                        }
+                    }
+                    if (userCartId == null && guestCartId == null) {
+                        conn.commit();
+                        return null;
+                    }
+
+                    long targetId;
+                    if (userCartId == null) {
+                        targetId = guestCartId;
+                    } else {
+                        targetId = userCartId;
+                        if (guestCartId != null) {
+                            String addSql = "UPDATE cart_items u JOIN cart_items g ON g.cart_id = ? AND g.product_id = u.product_id " +
+                                    "SET u.quantity = u.quantity + g.quantity WHERE u.cart_id = ?";
+                            try (PreparedStatement ps = conn.prepareStatement(addSql)) {
+                                ps.setLong(1, guestCartId);
+                                ps.setLong(2, userCartId);
+                                ps.executeUpdate();
+                            }
+                            String copySql = "INSERT INTO cart_items (cart_id, product_id, quantity, price_snapshot) " +
+                                    "SELECT ?, g.product_id, g.quantity, g.price_snapshot FROM cart_items g " +
+                                    "WHERE g.cart_id = ? AND NOT EXISTS " +
+                                    "(SELECT 1 FROM cart_items u WHERE u.cart_id = ? AND u.product_id = g.product_id)";
+                            try (PreparedStatement ps = conn.prepareStatement(copySql)) {
+                                ps.setLong(1, userCartId);
+                                ps.setLong(2, guestCartId);
+                                ps.setLong(3, userCartId);
+                                ps.executeUpdate();
+                            }
+                            String closeSql = "DELETE FROM cart_items WHERE cart_id = ?";
+                            try (PreparedStatement ps = conn.prepareStatement(closeSql)) {
+                                ps.setLong(1, guestCartId);
+                                ps.executeUpdate();
+                            }
+                            String statusSql = "UPDATE carts SET status = 'MERGED' WHERE id = ?";
+                            try (PreparedStatement ps = conn.prepareStatement(statusSql)) {
+                                ps.setLong(1, guestCartId);
+                                ps.executeUpdate();
+                            }
+                        }
+                    }
+
+                    String ownSql = "UPDATE carts SET user_id = ?, session_id = ?, updated_at = CURRENT_TIMESTAMP WHERE id = ?";
+                    try (PreparedStatement ps = conn.prepareStatement(ownSql)) {
+                        ps.setLong(1, userId);
+                        ps.setString(2, sessionId);
+                        ps.setLong(3, targetId);
+                        ps.executeUpdate();
+                    }
+
+                    Cart cart = new Cart(targetId);
+                    cart.setSessionId(sessionId);
+                    cart.setVersion(userCartId == null ? guestCartVersion : userCartVersion);
                     cart.setUserId(userId);
                     loadCartItems(cart, conn);
+
+                    conn.commit();
                     return cart;
+                } catch (Exception e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
                 }
+            } catch (Exception e) {
+                throw new RuntimeException("Error merging guest cart", e);
             }
-        } catch (Exception e) {
-            throw new RuntimeException("Error loading cart by user_id", e);
+        } finally {
+            Metrics.recordDao("CartDAO.mergeGuestCart", started);
         }
-        return null;
     }
 
     /**
-     * Update cart owner (user_id) in DB.
+     * Set price_snapshot of productId to price in every OPEN cart holding it. Returns carts updated.
+     * Affected carts are found via the cart_items.product_id index, then updated in IN-list chunks
+     * of chunkSize carts, one short auto-commit statement per chunk.
      */
-    public void updateCartOwner(long cartId, Long userId) {
-        String sql = "UPDATE carts SET user_id = ?, updated_at = CURRENT_TIMESTAMP WHERE id = ?";
-        try (Connection conn = db.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
-            if (userId != null) {
-                ps.setLong(1, userId);
-            } else {
-                ps.setNull(1, java.sql.Types.BIGINT);
+    public int repriceOpenCarts(int productId, BigDecimal price, int chunkSize) {
+        long started = System.nanoTime();
+        try {
+            String findSql = "SELECT DISTINCT ci.cart_id FROM cart_items ci JOIN carts c ON c.id = ci.cart_id " +
+                    "WHERE ci.product_id = ? AND c.status = 'OPEN' AND ci.price_snapshot <> ?";
+            try (Connection conn = db.getConnection()) {
+                List<Long> cartIds = new ArrayList<>();
+                try (PreparedStatement ps = conn.prepareStatement(findSql)) {
+                    ps.setInt(1, productId);
+                    ps.setBigDecimal(2, price);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) cartIds.add(rs.getLong(1));
+                    }
+                }
+                for (int from = 0; from < cartIds.size(); from += chunkSize) {
+                    List<Long> chunk = cartIds.subList(from, Math.min(from + chunkSize, cartIds.size()));
+                    String updateSql = "UPDATE cart_items SET price_snapshot = ? WHERE product_id = ? AND cart_id IN (" +
+                            placeholders(chunk.size()) + ")";
+                    try (PreparedStatement ps = conn.prepareStatement(updateSql)) {
+                        ps.setBigDecimal(1, price);
+                        ps.setInt(2, productId);
+                        int i = 3;
+                        for (Long id : chunk) ps.setLong(i++, id);
+                        ps.executeUpdate();
+                    }
+                }
+                return cartIds.size();
+            } catch (Exception e) {
+                throw new RuntimeException("Error repricing carts", e);
+            }
+        } finally {
+            Metrics.recordDao("CartDAO.repriceOpenCarts", started);
+        }
+    }
+
+    /**
+     * One keyset page of reapable cart ids. Resume the scan after (lastUpdatedAt, lastId).
+     */
+    public static final class StalePage {
+        private final List<Long> ids;
+        private final Timestamp lastUpdatedAt;
+        private final long lastId;
+
+        StalePage(List<Long> ids, Timestamp lastUpdatedAt, long lastId) {
+            this.ids = ids;
+            this.lastUpdatedAt = lastUpdatedAt;
+            this.lastId = lastId;
+        }
+
+        public List<Long> getIds() { return ids; }
+        public Timestamp getLastUpdatedAt() { return lastUpdatedAt; }
+        public long getLastId() { return lastId; }
+    }
+
+    /**
+     * Rows removed by one reapCarts() chunk.
+     */
+    public static final class ReapCount {
+        private final int carts;
+        private final int items;
+
+        ReapCount(int carts, int items) {
+            this.carts = carts;
+            this.items = items;
+        }
+
+        public int getCarts() { return carts; }
+        public int getItems() { return items; }
+    }
+
+    private static String stalePredicate(boolean anonymousOnly) {
+        return "status = ? AND updated_at < ?" + (anonymousOnly ? " AND user_id IS NULL" : "");
+    }
+
+    private static String placeholders(int n) {
+        return String.join(",", Collections.nCopies(n, "?"));
+    }
+
+    /**
+     * Find up to limit carts with the given status last touched before cutoff, ordered by (updated_at, id).
+     * Walks idx_carts_status_updated with a keyset cursor (pass null afterUpdatedAt for the first page),
+     * so every page is an index range read and no row is scanned twice. Takes no locks.
+     */
+    public StalePage findStaleCarts(String status, boolean anonymousOnly, Timestamp cutoff,
+                                    Timestamp afterUpdatedAt, long afterId, int limit) {
+        long started = System.nanoTime();
+        try {
+            String sql = "SELECT id, updated_at FROM carts WHERE " + stalePredicate(anonymousOnly) +
+                    (afterUpdatedAt != null ? " AND (updated_at > ? OR (updated_at = ? AND id > ?))" : "") +
+                    " ORDER BY updated_at, id LIMIT ?";
+            try (Connection conn = db.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+                int i = 1;
+                ps.setString(i++, status);
+                ps.setTimestamp(i++, cutoff);
+                if (afterUpdatedAt != null) {
+                    ps.setTimestamp(i++, afterUpdatedAt);
+                    ps.setTimestamp(i++, afterUpdatedAt);
+                    ps.setLong(i++, afterId);
+                }
+                ps.setInt(i, limit);
+                List<Long> ids = new ArrayList<>(limit);
+                Timestamp lastUpdatedAt = afterUpdatedAt;
+                long lastId = afterId;
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        lastId = rs.getLong("id");
+                        lastUpdatedAt = rs.getTimestamp("updated_at");
+                        ids.add(lastId);
+                    }
+                }
+                return new StalePage(ids, lastUpdatedAt, lastId);
+            } catch (Exception e) {
+                throw new RuntimeException("Error finding stale carts", e);
             }
-            ps.setLong(2, cartId);
-            ps.executeUpdate();
-        } catch (Exception e) {
-            throw new RuntimeException("Error updating cart owner", e);
+        } finally {
+            Metrics.recordDao("CartDAO.findStaleCarts", started);
+        }
+    }
+
+    /**
+     * Delete (optionally archiving first) the given carts and their items in one short transaction.
+     * Candidates are re-checked under FOR UPDATE so a cart touched since it was found is left alone.
+     */
+    public ReapCount reapCarts(List<Long> candidateIds, String status, boolean anonymousOnly,
+                               Timestamp cutoff, boolean archive) {
+        long started = System.nanoTime();
+        try {
+            if (candidateIds.isEmpty()) return new ReapCount(0, 0);
+            try (Connection conn = db.getConnection()) {
+                conn.setAutoCommit(false);
+                try {
+                    List<Long> ids = new ArrayList<>(candidateIds.size());
+                    String lockSql = "SELECT id FROM carts WHERE id IN (" + placeholders(candidateIds.size()) + ") AND " +
+                            stalePredicate(anonymousOnly) + " FOR UPDATE";
+                    try (PreparedStatement ps = conn.prepareStatement(lockSql)) {
+                        int i = 1;
+                        for (Long id : candidateIds) ps.setLong(i++, id);
+                        ps.setString(i++, status);
+                        ps.setTimestamp(i, cutoff);
+                        try (ResultSet rs = ps.executeQuery()) {
+                            while (rs.next()) ids.add(rs.getLong(1));
+                        }
+                    }
+                    if (ids.isEmpty()) {
+                        conn.commit();
+                        return new ReapCount(0, 0);
+                    }
+
+                    String in = " IN (" + placeholders(ids.size()) + ")";
+                    if (archive) {
+                        executeForIds(conn, "INSERT INTO cart_items_archive (id, cart_id, product_id, quantity, price_snapshot, created_at) " +
+                                "SELECT id, cart_id, product_id, quantity, price_snapshot, created_at FROM cart_items WHERE cart_id" + in, ids);
+                        executeForIds(conn, "INSERT INTO carts_archive (id, session_id, user_id, status, created_at, updated_at, version) " +
+                                "SELECT id, session_id, user_id, status, created_at, updated_at, version FROM carts WHERE id" + in, ids);
+                    }
+                    int items = executeForIds(conn, "DELETE FROM cart_items WHERE cart_id" + in, ids);
+                    int carts = executeForIds(conn, "DELETE FROM carts WHERE id" + in, ids);
+
+                    conn.commit();
+                    return new ReapCount(carts, items);
+                } catch (Exception e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            } catch (Exception e) {
+                throw new RuntimeException("Error reaping carts", e);
+            }
+        } finally {
+            Metrics.recordDao("CartDAO.reapCarts", started);
+        }
+    }
+
+    private static int executeForIds(Connection conn, String sql, List<Long> ids) throws java.sql.SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            int i = 1;
+            for (Long id : ids) ps.setLong(i++, id);
+            return ps.executeUpdate();
         }
     }
 }
@@ -1,7 +1,9 @@
 package com.example.store.dao;
 
 import com.example.store.model.Product;
+import com.example.store.model.ProductUpsert;
 import com.example.store.util.DBConnectionManager;
+import com.example.store.util.Metrics;
 import com.example.store.util.CacheManager;
 import com.example.store.util.OptimisticLockException;
 import com.example.store.util.DataIntegrityException;
@@ -12,9 +14,15 @@ import java.sql.ResultSet;
 import java.sql.Statement;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * ProductDAO: JDBC CRUD operations and cache integration.
@@ -34,7 +42,9 @@ import java.util.Optional;
  * - WRITE (create): insert DB, then cache.put() - cache always reflects successful DB writes
  * - WRITE (update): optimistic-lock UPDATE in DB, on success reload and cache.put()
  * - WRITE (delete): delete from DB, then cache.remove()
- * - Invalidation: manual refreshCache() or scheduled background refresh
+ * - WRITE (bulk import): upsert() commits a chunk, then cache.remove() for every updated (or unconfirmed) id;
+ *   the importer bulk-loads all touched ids at the end with loadIntoCache() (one putAll per batch)
+ * - Invalidation: manual refreshCache(), or per id with refreshCached(id) / CacheManager.evict(id) (admin cache page)
  * 
  * Big-O Time Complexity:
  * - findById(id) with cache hit: O(1) - ConcurrentHashMap.get()
@@ -44,6 +54,7 @@ import java.util.Optional;
  * - delete(id): O(1) DB delete + O(1) cache.remove()
  * - findAll(): O(n) DB scan where n = total products
  * - refreshCache(): O(n) DB scan + n × O(1) cache operations
+ * - upsert(k rows): k / batchSize key lookups + batched UPDATE / INSERT, one transaction
  */
 public class ProductDAO {
     private final DBConnectionManager db;
@@ -54,7 +65,8 @@ public class ProductDAO {
         this.cache = cache;
     }
 
-    private Product mapRow(ResultSet rs) throws java.sql.SQLException {
+    /** Package-private so RowMappingBenchmark measures the real mapping. */
+    static Product mapRow(ResultSet rs) throws java.sql.SQLException {
         Product p = new Product();
         p.setId(rs.getInt("id"));
         p.setName(rs.getString("name"));
@@ -71,38 +83,72 @@ public class ProductDAO {
      * Load all products from DB. Refreshes cache entries with current DB data.
      */
     public List<Product> findAll() {
-        List<Product> list = new ArrayList<>();
-        String sql = "SELECT id,name,price,description,image_url,version,created_at,updated_at FROM products";
-        try (Connection conn = db.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
-            while (rs.next()) {
-                Product p = mapRow(rs);
-                list.add(p);
-                cache.put(p.getId(), p);
+        long started = System.nanoTime();
+        try {
+            List<Product> list = new ArrayList<>();
+            String sql = "SELECT id,name,price,description,image_url,version,created_at,updated_at FROM products";
+            try (Connection conn = db.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(sql);
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Product p = mapRow(rs);
+                    list.add(p);
+                    cache.put(p.getId(), p);
+                }
+            } catch (Exception e) {
+                throw new RuntimeException("Error reading products", e);
             }
-        } catch (Exception e) {
-            throw new RuntimeException("Error reading products", e);
+            return list;
+        } finally {
+            Metrics.recordDao("ProductDAO.findAll", started);
         }
-        return list;
     }
 
     /**
      * Find by id: check cache first, on miss load from DB and populate cache.
      */
     public Optional<Product> findById(int id) {
-        Product cached = cache.get(id);
-        if (cached != null) return Optional.of(cached);
+        long started = System.nanoTime();
+        try {
+            Product cached = cache.get(id);
+            if (cached != null) return Optional.of(cached);
+
+            long loadStarted = System.nanoTime();
+            Optional<Product> loaded;
+            try {
+                loaded = load(id);
+            } finally {
+                cache.recordLoad(System.nanoTime() - loadStarted);
+            }
+            loaded.ifPresent(p -> cache.put(p.getId(), p));
+            return loaded;
+        } finally {
+            Metrics.recordDao("ProductDAO.findById", started);
+        }
+    }
+
+    /**
+     * Re-read one product from DB into the cache (admin refresh). A product that no longer exists is
+     * evicted. Returns whether it exists.
+     */
+    public boolean refreshCached(int id) {
+        long started = System.nanoTime();
+        try {
+            Optional<Product> loaded = load(id);
+            if (loaded.isPresent()) cache.put(id, loaded.get());
+            else cache.evict(id);
+            return loaded.isPresent();
+        } finally {
+            Metrics.recordDao("ProductDAO.refreshCached", started);
+        }
+    }
 
+    private Optional<Product> load(int id) {
         String sql = "SELECT id,name,price,description,image_url,version,created_at,updated_at FROM products WHERE id = ?";
         try (Connection conn = db.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, id);
             try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    Product p = mapRow(rs);
-                    cache.put(p.getId(), p);
-                    return Optional.of(p);
-                }
+                if (rs.next()) return Optional.of(mapRow(rs));
             }
         } catch (Exception e) {
             throw new RuntimeException("Error finding product by id", e);
@@ -115,27 +161,32 @@ public class ProductDAO {
      * Returns generated id.
      */
     public int create(Product product) {
-        String sql = "INSERT INTO products (name,price,description,image_url,version) VALUES (?,?,?,?,1)";
-        try (Connection conn = db.getConnection(); PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            ps.setString(1, product.getName());
-            ps.setBigDecimal(2, product.getPrice());
-            ps.setString(3, product.getDescription());
-            ps.setString(4, product.getImageUrl());
-            int updated = ps.executeUpdate();
-            if (updated == 0) throw new RuntimeException("Insert failed, no rows affected");
-            try (ResultSet keys = ps.getGeneratedKeys()) {
-                if (keys.next()) {
-                    int id = keys.getInt(1);
-                    product.setId(id);
-                    product.setVersion(1);
-                    cache.put(id, product);
-                    return id;
-                } else {
-                    throw new RuntimeException("Insert failed, no ID obtained");
+        long started = System.nanoTime();
+        try {
+            String sql = "INSERT INTO products (name,price,description,image_url,version) VALUES (?,?,?,?,1)";
+            try (Connection conn = db.getConnection(); PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                ps.setString(1, product.getName());
+                ps.setBigDecimal(2, product.getPrice());
+                ps.setString(3, product.getDescription());
+                ps.setString(4, product.getImageUrl());
+                int updated = ps.executeUpdate();
+                if (updated == 0) throw new RuntimeException("Insert failed, no rows affected");
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    if (keys.next()) {
+                        int id = keys.getInt(1);
+                        product.setId(id);
+                        product.setVersion(1);
+                        cache.put(id, product);
+                        return id;
+                    } else {
+                        throw new RuntimeException("Insert failed, no ID obtained");
+                    }
                 }
+            } catch (Exception e) {
+                throw new RuntimeException("Error creating product", e);
             }
-        } catch (Exception e) {
-            throw new RuntimeException("Error creating product", e);
+        } finally {
+            Metrics.recordDao("ProductDAO.create", started);
         }
     }
 
@@ -144,26 +195,33 @@ public class ProductDAO {
      * On success updates cache and returns true. On version mismatch throws OptimisticLockException.
      */
     public boolean update(Product product, int expectedVersion) throws OptimisticLockException {
-        String sql = "UPDATE products SET name = ?, price = ?, description = ?, image_url = ?, version = version + 1 WHERE id = ? AND version = ?";
-        try (Connection conn = db.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, product.getName());
-            ps.setBigDecimal(2, product.getPrice());
-            ps.setString(3, product.getDescription());
-            ps.setString(4, product.getImageUrl());
-            ps.setInt(5, product.getId());
-            ps.setInt(6, expectedVersion);
-            int affected = ps.executeUpdate();
-            if (affected == 0) {
-                throw new OptimisticLockException("Update failed due to version mismatch for product id=" + product.getId());
+        long started = System.nanoTime();
+        try {
+            String sql = "UPDATE products SET name = ?, price = ?, description = ?, image_url = ?, version = version + 1 WHERE id = ? AND version = ?";
+            try (Connection conn = db.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setString(1, product.getName());
+                ps.setBigDecimal(2, product.getPrice());
+                ps.setString(3, product.getDescription());
+                ps.setString(4, product.getImageUrl());
+                ps.setInt(5, product.getId());
+                ps.setInt(6, expectedVersion);
+                int affected = ps.executeUpdate();
+                if (affected == 0) {
+                    throw new OptimisticLockException("Update failed due to version mismatch for product id=" + product.getId());
+                }
+                // reload updated row to get new version and timestamps; straight from DB, so the
+                // write does not show up as a cache miss
+                Optional<Product> reloaded = load(product.getId());
+                if (reloaded.isPresent()) cache.put(product.getId(), reloaded.get());
+                else cache.remove(product.getId());
+                return true;
+            } catch (OptimisticLockException ole) {
+                throw ole;
+            } catch (Exception e) {
+                throw new RuntimeException("Error updating product", e);
             }
-            // reload updated row to get new version and timestamps
-            Optional<Product> reloaded = findById(product.getId());
-            reloaded.ifPresent(p -> cache.put(p.getId(), p));
-            return true;
-        } catch (OptimisticLockException ole) {
-            throw ole;
-        } catch (Exception e) {
-            throw new RuntimeException("Error updating product", e);
+        } finally {
+            Metrics.recordDao("ProductDAO.update", started);
         }
     }
 
@@ -171,37 +229,326 @@ public class ProductDAO {
      * Delete product from DB and remove from cache.
      */
     public boolean delete(int id) {
-        String sql = "DELETE FROM products WHERE id = ?";
-        try (Connection conn = db.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, id);
-            int affected = ps.executeUpdate();
-            if (affected > 0) {
-                cache.remove(id);
-                return true;
+        long started = System.nanoTime();
+        try {
+            String sql = "DELETE FROM products WHERE id = ?";
+            try (Connection conn = db.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(1, id);
+                int affected = ps.executeUpdate();
+                if (affected > 0) {
+                    cache.remove(id);
+                    return true;
+                }
+                return false;
+            } catch (java.sql.SQLIntegrityConstraintViolationException fk) {
+                throw new DataIntegrityException("Cannot delete product because it is referenced by one or more cart items.", fk);
+            } catch (Exception e) {
+                throw new RuntimeException("Error deleting product", e);
             }
-            return false;
-        } catch (java.sql.SQLIntegrityConstraintViolationException fk) {
-            throw new DataIntegrityException("Cannot delete product because it is referenced by one or more cart items.", fk);
-        } catch (Exception e) {
-            throw new RuntimeException("Error deleting product", e);
+        } finally {
+            Metrics.recordDao("ProductDAO.delete", started);
+        }
+    }
+
+    /**
+     * Reference count per locally stored image (image_url under /images/), for the image sweeper.
+     */
+    public Map<String, Integer> countImageReferences() {
+        long started = System.nanoTime();
+        try {
+            Map<String, Integer> counts = new HashMap<>();
+            String sql = "SELECT image_url, COUNT(*) FROM products WHERE image_url LIKE '/images/%' GROUP BY image_url";
+            try (Connection conn = db.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(sql);
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) counts.put(rs.getString(1), rs.getInt(2));
+            } catch (Exception e) {
+                throw new RuntimeException("Error counting image references", e);
+            }
+            return counts;
+        } finally {
+            Metrics.recordDao("ProductDAO.countImageReferences", started);
         }
     }
 
+    /** Outcome of one upsert() chunk: ids written, rows left alone and rows refused. */
+    public static final class UpsertResult {
+        private final List<Integer> inserted = new ArrayList<>();
+        private final List<Integer> updated = new ArrayList<>();
+        private final List<Integer> unconfirmed = new ArrayList<>();
+        private final List<Integer> repriced = new ArrayList<>();
+        private final Map<Long, String> rejected = new LinkedHashMap<>();
+        private int unchanged;
+
+        public List<Integer> getInserted() { return inserted; }
+        /** Ids whose update the driver confirmed (update count 1). */
+        public List<Integer> getUpdated() { return updated; }
+        /**
+         * Ids whose update count the driver did not report (SUCCESS_NO_INFO, e.g. a rewritten batch):
+         * the update may or may not have applied, so they are neither counted as updated nor rejected.
+         */
+        public List<Integer> getUnconfirmed() { return unconfirmed; }
+        /** Updated ids whose price changed (open carts need repricing). */
+        public List<Integer> getRepriced() { return repriced; }
+        /** Line -> reason, for rows skipped without failing the chunk. */
+        public Map<Long, String> getRejected() { return rejected; }
+        public int getUnchanged() { return unchanged; }
+    }
+
+    /**
+     * Insert or update one chunk of a bulk import in a single transaction. Rows are matched to stored
+     * products on key by the database (IN-list lookups of batchSize keys, compared in the column's
+     * collation); updates are optimistic (WHERE version = ?, version + 1, like update()) and skipped
+     * when nothing changes; updates and inserts are sent as JDBC batches of batchSize.
+     *
+     * A name matching several products, two rows matching the same product, or a product edited
+     * between lookup and update rejects that row only. Any SQL error rolls the whole chunk back and is
+     * thrown, so the caller can retry the rows one by one to find the bad ones. Updated (and
+     * unconfirmed) ids are removed from the cache after the commit.
+     */
+    public UpsertResult upsert(List<ProductUpsert> rows, ProductUpsert.Key key, int batchSize) {
+        long started = System.nanoTime();
+        try {
+            UpsertResult result = new UpsertResult();
+            try (Connection conn = db.getConnection()) {
+                conn.setAutoCommit(false);
+                try {
+                    List<List<ProductUpsert>> stored = findByKeys(conn, rows, key, batchSize);
+                    List<ProductUpsert> updates = new ArrayList<>();
+                    List<ProductUpsert> inserts = new ArrayList<>();
+                    Set<Integer> priceChanged = new HashSet<>();
+                    Map<Integer, Long> claimed = new HashMap<>(); // stored id -> line of the row matched to it
+                    for (int i = 0; i < rows.size(); i++) {
+                        ProductUpsert row = rows.get(i);
+                        List<ProductUpsert> matches = stored.get(i);
+                        if (matches == null) {
+                            inserts.add(row);
+                        } else if (matches.size() > 1) {
+                            result.rejected.put(row.getLine(), matches.size() + " products are named \""
+                                    + row.getProduct().getName() + "\"; import by sku to tell them apart");
+                        } else if (claimed.putIfAbsent(matches.get(0).getProduct().getId(), row.getLine()) != null) {
+                            // keys that differ in Java but compare equal in the database's collation
+                            result.rejected.put(row.getLine(), "matches the same product as line "
+                                    + claimed.get(matches.get(0).getProduct().getId()) + "; not applied");
+                        } else {
+                            Product old = matches.get(0).getProduct();
+                            ProductUpsert merged = merge(row, matches.get(0));
+                            if (merged == null) {
+                                result.unchanged++;
+                            } else {
+                                updates.add(merged);
+                                if (old.getPrice().compareTo(merged.getProduct().getPrice()) != 0) priceChanged.add(old.getId());
+                            }
+                        }
+                    }
+                    executeUpdates(conn, updates, priceChanged, batchSize, result);
+                    executeInserts(conn, inserts, batchSize, result);
+                    conn.commit();
+                } catch (Exception e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            } catch (Exception e) {
+                throw new RuntimeException("Error importing products", e);
+            }
+            for (int id : result.updated) cache.remove(id);
+            for (int id : result.unconfirmed) cache.remove(id);
+            return result;
+        } finally {
+            Metrics.recordDao("ProductDAO.upsert", started);
+        }
+    }
+
+    /**
+     * Stored rows (as ProductUpsert with id, version and sku) matching each of rows, by position; null
+     * where nothing matches. The database decides what matches: every returned row carries the
+     * positions of the requested keys it equals (CASE WHEN column = ? per key), so accent-, case- and
+     * trailing-space-insensitive collations pair rows exactly as the IN list selected them.
+     */
+    private static List<List<ProductUpsert>> findByKeys(Connection conn, List<ProductUpsert> rows,
+                                                        ProductUpsert.Key key, int batchSize) throws java.sql.SQLException {
+        String column = key == ProductUpsert.Key.SKU ? "sku" : "name";
+        List<List<ProductUpsert>> stored = new ArrayList<>(Collections.nCopies(rows.size(), null));
+        for (int from = 0; from < rows.size(); from += batchSize) {
+            List<ProductUpsert> batch = rows.subList(from, Math.min(rows.size(), from + batchSize));
+            StringBuilder positions = new StringBuilder("CONCAT_WS(',', ''"); // '' first: H2 wants two or more values
+            for (int i = 0; i < batch.size(); i++) {
+                positions.append(", CASE WHEN ").append(column).append(" = ? THEN '").append(i).append("' END");
+            }
+            positions.append(')');
+            String sql = "SELECT id,name,price,description,image_url,sku,version," + positions + " AS matched FROM products WHERE "
+                    + column + " IN (" + placeholders(batch.size()) + ")";
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                for (int i = 0; i < batch.size(); i++) {
+                    ProductUpsert row = batch.get(i);
+                    String value = key == ProductUpsert.Key.SKU ? row.getSku() : row.getProduct().getName();
+                    ps.setString(i + 1, value);
+                    ps.setString(batch.size() + i + 1, value);
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        Product p = new Product();
+                        p.setId(rs.getInt("id"));
+                        p.setName(rs.getString("name"));
+                        p.setPrice(rs.getBigDecimal("price"));
+                        p.setDescription(rs.getString("description"));
+                        p.setImageUrl(rs.getString("image_url"));
+                        p.setVersion(rs.getInt("version"));
+                        ProductUpsert found = new ProductUpsert(0, p, rs.getString("sku"));
+                        String matched = rs.getString("matched");
+                        for (String position : matched.split(",")) {
+                            if (position.isEmpty()) continue;
+                            int index = from + Integer.parseInt(position);
+                            if (stored.get(index) == null) stored.set(index, new ArrayList<>(1));
+                            stored.get(index).add(found);
+                        }
+                    }
+                }
+            }
+        }
+        return stored;
+    }
+
+    /** row applied over stored (nulls keep the stored value), with stored's id and version; null if identical. */
+    private static ProductUpsert merge(ProductUpsert row, ProductUpsert stored) {
+        Product in = row.getProduct();
+        Product old = stored.getProduct();
+        Product p = new Product();
+        p.setId(old.getId());
+        p.setVersion(old.getVersion());
+        p.setName(in.getName());
+        p.setPrice(in.getPrice());
+        p.setDescription(in.getDescription() != null ? in.getDescription() : old.getDescription());
+        p.setImageUrl(in.getImageUrl() != null ? in.getImageUrl() : old.getImageUrl());
+        String sku = row.getSku() != null ? row.getSku() : stored.getSku();
+        boolean same = p.getName().equals(old.getName()) && p.getPrice().compareTo(old.getPrice()) == 0
+                && Objects.equals(p.getDescription(), old.getDescription())
+                && Objects.equals(p.getImageUrl(), old.getImageUrl()) && Objects.equals(sku, stored.getSku());
+        return same ? null : new ProductUpsert(row.getLine(), p, sku);
+    }
+
+    private static void executeUpdates(Connection conn, List<ProductUpsert> updates, Set<Integer> priceChanged,
+                                       int batchSize, UpsertResult result) throws java.sql.SQLException {
+        String sql = "UPDATE products SET name = ?, price = ?, description = ?, image_url = ?, sku = ?, version = version + 1 WHERE id = ? AND version = ?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int from = 0; from < updates.size(); from += batchSize) {
+                List<ProductUpsert> batch = updates.subList(from, Math.min(updates.size(), from + batchSize));
+                for (ProductUpsert row : batch) {
+                    Product p = row.getProduct();
+                    ps.setString(1, p.getName());
+                    ps.setBigDecimal(2, p.getPrice());
+                    ps.setString(3, p.getDescription());
+                    ps.setString(4, p.getImageUrl());
+                    ps.setString(5, row.getSku());
+                    ps.setInt(6, p.getId());
+                    ps.setInt(7, p.getVersion());
+                    ps.addBatch();
+                }
+                int[] counts = ps.executeBatch();
+                for (int i = 0; i < batch.size(); i++) {
+                    ProductUpsert row = batch.get(i);
+                    int id = row.getProduct().getId();
+                    int count = i < counts.length ? counts[i] : Statement.SUCCESS_NO_INFO;
+                    if (count > 0) {
+                        result.updated.add(id);
+                    } else if (count == Statement.SUCCESS_NO_INFO) {
+                        result.unconfirmed.add(id); // e.g. rewriteBatchedStatements: applied or not, unknown
+                    } else {
+                        result.rejected.put(row.getLine(), "product id=" + id + " was modified during the import; import it again");
+                        continue;
+                    }
+                    if (priceChanged.contains(id)) result.repriced.add(id);
+                }
+            }
+        }
+    }
+
+    private static void executeInserts(Connection conn, List<ProductUpsert> inserts, int batchSize,
+                                       UpsertResult result) throws java.sql.SQLException {
+        String sql = "INSERT INTO products (name,price,description,image_url,sku,version) VALUES (?,?,?,?,?,1)";
+        try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            for (int from = 0; from < inserts.size(); from += batchSize) {
+                List<ProductUpsert> batch = inserts.subList(from, Math.min(inserts.size(), from + batchSize));
+                for (ProductUpsert row : batch) {
+                    Product p = row.getProduct();
+                    ps.setString(1, p.getName());
+                    ps.setBigDecimal(2, p.getPrice());
+                    ps.setString(3, p.getDescription());
+                    ps.setString(4, p.getImageUrl());
+                    ps.setString(5, row.getSku());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    while (keys.next()) result.inserted.add(keys.getInt(1));
+                }
+            }
+        }
+    }
+
+    /**
+     * Put the given products into the cache straight from the DB (after a bulk import), batchSize ids
+     * per SELECT and one putAll per batch. Ids that no longer exist are skipped. Returns the number cached.
+     */
+    public int loadIntoCache(int[] ids, int count, int batchSize) {
+        long started = System.nanoTime();
+        try {
+            int cached = 0;
+            try (Connection conn = db.getConnection()) {
+                for (int from = 0; from < count; from += batchSize) {
+                    int size = Math.min(count - from, batchSize);
+                    String sql = "SELECT id,name,price,description,image_url,version,created_at,updated_at FROM products WHERE id IN ("
+                            + placeholders(size) + ")";
+                    Map<Integer, Product> loaded = new HashMap<>();
+                    try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                        for (int i = 0; i < size; i++) ps.setInt(i + 1, ids[from + i]);
+                        try (ResultSet rs = ps.executeQuery()) {
+                            while (rs.next()) {
+                                Product p = mapRow(rs);
+                                loaded.put(p.getId(), p);
+                            }
+                        }
+                    }
+                    cache.putAll(loaded);
+                    cached += loaded.size();
+                }
+            } catch (Exception e) {
+                throw new RuntimeException("Error loading imported products into the cache", e);
+            }
+            return cached;
+        } finally {
+            Metrics.recordDao("ProductDAO.loadIntoCache", started);
+        }
+    }
+
+    private static String placeholders(int n) {
+        StringBuilder sb = new StringBuilder(n * 2);
+        for (int i = 0; i < n; i++) sb.append(i == 0 ? "?" : ",?");
+        return sb.toString();
+    }
+
     public Map<Integer, Product> getCacheSnapshot() { return cache.getSnapshot(); }
 
     /**
      * Refresh full cache from DB (clears then repopulates).
      */
     public void refreshCache() {
-        String sql = "SELECT id,name,price,description,image_url,version,created_at,updated_at FROM products";
-        try (Connection conn = db.getConnection(); PreparedStatement ps = conn.prepareStatement(sql); ResultSet rs = ps.executeQuery()) {
-            cache.clear();
-            while (rs.next()) {
-                Product p = mapRow(rs);
-                cache.put(p.getId(), p);
+        long started = System.nanoTime();
+        try {
+            String sql = "SELECT id,name,price,description,image_url,version,created_at,updated_at FROM products";
+            try (Connection conn = db.getConnection(); PreparedStatement ps = conn.prepareStatement(sql); ResultSet rs = ps.executeQuery()) {
+                cache.clear();
+                while (rs.next()) {
+                    Product p = mapRow(rs);
+                    cache.put(p.getId(), p);
+                }
+            } catch (Exception e) {
+                throw new RuntimeException("Error refreshing cache", e);
             }
-        } catch (Exception e) {
-            throw new RuntimeException("Error refreshing cache", e);
+        } finally {
+            Metrics.recordDao("ProductDAO.refreshCache", started);
         }
     }
 }
@@ -1,16 +1,32 @@
 package com.example.store.dao;
 
 import com.example.store.model.User;
+import com.example.store.util.BloomFilter;
 import com.example.store.util.DBConnectionManager;
+import com.example.store.util.Metrics;
+import com.example.store.util.DataIntegrityException;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLIntegrityConstraintViolationException;
 import java.sql.Statement;
+import java.text.Normalizer;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.regex.Pattern;
 
 public class UserDAO {
+    /** Result of an availability check on registration. */
+    public enum Conflict { NONE, USERNAME, EMAIL }
+
+    private static final long MIN_FILTER_KEYS = 100_000;
+    private static final double FILTER_FALSE_POSITIVE_RATE = 0.01;
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
     private final DBConnectionManager db;
+    // usernames + emails already taken; null until loadAvailabilityFilter() succeeds (then every check hits the DB)
+    private volatile BloomFilter taken;
 
     public UserDAO(DBConnectionManager db) {
         this.db = db;
@@ -31,51 +47,161 @@ public class UserDAO {
     }
 
     public Optional<User> findByUsername(String username) {
-        String sql = "SELECT * FROM users WHERE username = ?";
-        try (Connection conn = db.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, username);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) return Optional.of(map(rs));
+        long started = System.nanoTime();
+        try {
+            String sql = "SELECT * FROM users WHERE username = ?";
+            try (Connection conn = db.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setString(1, username);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) return Optional.of(map(rs));
+                }
+            } catch (Exception e) {
+                throw new RuntimeException("Error finding user by username", e);
             }
-        } catch (Exception e) {
-            throw new RuntimeException("Error finding user by username", e);
+            return Optional.empty();
+        } finally {
+            Metrics.recordDao("UserDAO.findByUsername", started);
         }
-        return Optional.empty();
     }
 
     public Optional<User> findByEmail(String email) {
-        String sql = "SELECT * FROM users WHERE email = ?";
-        try (Connection conn = db.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, email);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) return Optional.of(map(rs));
+        long started = System.nanoTime();
+        try {
+            String sql = "SELECT * FROM users WHERE email = ?";
+            try (Connection conn = db.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setString(1, email);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) return Optional.of(map(rs));
+                }
+            } catch (Exception e) {
+                throw new RuntimeException("Error finding user by email", e);
+            }
+            return Optional.empty();
+        } finally {
+            Metrics.recordDao("UserDAO.findByEmail", started);
+        }
+    }
+
+    /**
+     * Load every username and email into an in-memory Bloom filter so findConflict() can answer
+     * "available" without a query. Sized for twice the current rows (min 100k keys) at 1% false positives.
+     * Returns the number of users loaded.
+     */
+    public int loadAvailabilityFilter() {
+        long started = System.nanoTime();
+        try {
+            try (Connection conn = db.getConnection()) {
+                long count;
+                try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM users")) {
+                    rs.next();
+                    count = rs.getLong(1);
+                }
+                BloomFilter filter = new BloomFilter(Math.max(MIN_FILTER_KEYS, count * 4), FILTER_FALSE_POSITIVE_RATE);
+                int loaded = 0;
+                try (Statement st = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                    st.setFetchSize(Integer.MIN_VALUE); // MySQL Connector/J: stream rows instead of buffering them all
+                    try (ResultSet rs = st.executeQuery("SELECT username, email FROM users")) {
+                        while (rs.next()) {
+                            filter.add(usernameKey(rs.getString(1)));
+                            filter.add(emailKey(rs.getString(2)));
+                            loaded++;
+                        }
+                    }
+                }
+                taken = filter;
+                return loaded;
+            } catch (Exception e) {
+                throw new RuntimeException("Error loading username/email filter", e);
             }
-        } catch (Exception e) {
-            throw new RuntimeException("Error finding user by email", e);
+        } finally {
+            Metrics.recordDao("UserDAO.loadAvailabilityFilter", started);
         }
-        return Optional.empty();
     }
 
+    /**
+     * Is username or email already registered?
+     *
+     * Keys the Bloom filter has never seen are definitely free: NONE with no DB round trip.
+     * Possible hits are confirmed with one EXISTS query on the unique indexes (no row data read).
+     * Advisory only: the unique keys still decide at insert time (see create()).
+     */
+    public Conflict findConflict(String username, String email) {
+        long started = System.nanoTime();
+        try {
+            BloomFilter filter = taken;
+            boolean checkUsername = filter == null || filter.mightContain(usernameKey(username));
+            boolean checkEmail = filter == null || filter.mightContain(emailKey(email));
+            if (!checkUsername && !checkEmail) return Conflict.NONE;
+
+            String sql = "SELECT "
+                    + (checkUsername ? "EXISTS(SELECT 1 FROM users WHERE username = ?)" : "FALSE") + ", "
+                    + (checkEmail ? "EXISTS(SELECT 1 FROM users WHERE email = ?)" : "FALSE");
+            try (Connection conn = db.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+                int idx = 1;
+                if (checkUsername) ps.setString(idx++, username);
+                if (checkEmail) ps.setString(idx, email);
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    if (rs.getBoolean(1)) return Conflict.USERNAME;
+                    if (rs.getBoolean(2)) return Conflict.EMAIL;
+                    return Conflict.NONE;
+                }
+            } catch (Exception e) {
+                throw new RuntimeException("Error checking username/email availability", e);
+            }
+        } finally {
+            Metrics.recordDao("UserDAO.findConflict", started);
+        }
+    }
+
+    /**
+     * Filter keys are folded more aggressively than MySQL's case/accent-insensitive collation
+     * (lower case, accents and trailing blanks stripped); over-folding only adds false positives,
+     * which the EXISTS query then resolves.
+     */
+    private static String usernameKey(String username) { return "u:" + fold(username); }
+    private static String emailKey(String email) { return "e:" + fold(email); }
+
+    private static String fold(String s) {
+        String decomposed = Normalizer.normalize(s.strip(), Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Insert a user. A username/email taken concurrently (unique key violation) raises DataIntegrityException.
+     */
     public long create(User user) {
-        String sql = "INSERT INTO users (username, email, password_hash, password_salt, role, version) VALUES (?, ?, ?, ?, ?, 1)";
-        try (Connection conn = db.getConnection(); PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            ps.setString(1, user.getUsername());
-            ps.setString(2, user.getEmail());
-            ps.setBytes(3, user.getPasswordHash());
-            ps.setBytes(4, user.getPasswordSalt());
-            ps.setString(5, user.getRole() == null ? "USER" : user.getRole());
-            int updated = ps.executeUpdate();
-            if (updated == 0) throw new RuntimeException("Insert failed, no rows affected");
-            try (ResultSet keys = ps.getGeneratedKeys()) {
-                if (keys.next()) {
-                    long id = keys.getLong(1);
-                    user.setId(id);
-                    return id;
+        long started = System.nanoTime();
+        try {
+            String sql = "INSERT INTO users (username, email, password_hash, password_salt, role, version) VALUES (?, ?, ?, ?, ?, 1)";
+            try (Connection conn = db.getConnection(); PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                ps.setString(1, user.getUsername());
+                ps.setString(2, user.getEmail());
+                ps.setBytes(3, user.getPasswordHash());
+                ps.setBytes(4, user.getPasswordSalt());
+                ps.setString(5, user.getRole() == null ? "USER" : user.getRole());
+                int updated = ps.executeUpdate();
+                if (updated == 0) throw new RuntimeException("Insert failed, no rows affected");
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    if (keys.next()) {
+                        long id = keys.getLong(1);
+                        user.setId(id);
+                        BloomFilter filter = taken;
+                        if (filter != null) {
+                            filter.add(usernameKey(user.getUsername()));
+                            filter.add(emailKey(user.getEmail()));
+                        }
+                        return id;
+                    }
                 }
+            } catch (SQLIntegrityConstraintViolationException dup) {
+                throw new DataIntegrityException("Username or email already registered.", dup);
+            } catch (Exception e) {
+                throw new RuntimeException("Error creating user", e);
             }
-        } catch (Exception e) {
-            throw new RuntimeException("Error creating user", e);
+            throw new RuntimeException("Insert failed, no ID obtained");
+        } finally {
+            Metrics.recordDao("UserDAO.create", started);
         }
-        throw new RuntimeException("Insert failed, no ID obtained");
     }
 }
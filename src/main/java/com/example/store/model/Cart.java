@@ -1,41 +1,73 @@
 package com.example.store.model;
 
+import com.example.store.util.CartCodec;
+import com.example.store.util.PersistentIntMap;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
 import java.math.BigDecimal;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.Collection;
-import java.util.LinkedHashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntFunction;
 
 /**
  * Cart model - manages shopping cart items.
- * 
- * Data Structure Choice: LinkedHashMap<Integer, CartItem>
- * 
- * WHY LinkedHashMap (not HashMap):
- * - Preserves insertion order for predictable, user-friendly display
- * - Maintains O(1) operations for get/put/remove like HashMap
- * - Minimal overhead compared to HashMap (just doubly-linked list pointers)
- * 
+ *
+ * Data Structure Choice: immutable Map<Integer, CartItem> snapshot behind an AtomicReference
+ *
+ * WHY copy-on-write snapshots (not a synchronized LinkedHashMap):
+ * - cart.jsp iterates the items while another request of the same session may mutate the cart;
+ *   a live LinkedHashMap would throw ConcurrentModificationException or render a half-applied change
+ * - Readers grab the current snapshot with one volatile read: no locks, always a consistent view
+ * - Writers build a new snapshot and publish it with compareAndSet, retrying if another writer won
+ *
+ * WHY two PersistentIntMap tries (not one):
+ * - seqByProduct: productId -> insertion sequence, O(1)-ish lookup by product ID
+ * - itemsBySeq: sequence -> CartItem, iterates in ascending sequence = insertion order for display
+ * - Both share structure between versions, so an update copies only a short trie path
+ *
  * WHY Map<Integer, CartItem> (not List<CartItem>):
  * - O(1) lookup by product ID vs O(n) linear search in List
  * - Built-in duplicate prevention via unique keys
  * - Direct key-based access for update/remove operations
  * - Automatic quantity merging when adding same product
- * 
- * Big-O Time Complexity Analysis:
- * - addProduct(product, qty): O(1) - uses Map.compute() for atomic update
- * - updateQuantity(productId, qty): O(1) - direct Map.get() + Map.put()
- * - removeProduct(productId): O(1) - Map.remove() by key
- * - totalQuantity(): O(n) - must iterate all n items to sum
- * - totalPrice(): O(n) - must iterate all n items and compute subtotals
- * - getItems(): O(n) - creates ArrayList view of n items
- * 
+ *
+ * Big-O Time Complexity Analysis (n = distinct products, log32 n is at most 7):
+ * - addProduct(product, qty): O(log32 n) - path copy in both tries + CAS
+ * - updateQuantity(productId, qty): O(log32 n) - replaces the item with a copy
+ * - removeProduct(productId): O(log32 n)
+ * - undo(applied): O(1) - one CAS back to the state apply() replaced
+ * - totalQuantity(): O(1) - maintained incrementally in each snapshot
+ * - totalPrice(): O(1) - maintained incrementally in each snapshot
+ * - getItems(): O(1) - read-only view of the current snapshot, iteration O(n)
+ * - snapshot(): O(1) - lines and both totals of one state; a page or JSON response that shows lines
+ *   and totals must read them all from one snapshot() (separate getters may see different states)
+ *
+ * Items returned by the views are shared with later snapshots and must be treated as read-only.
+ *
+ * Session persistence: the cart serializes as a CartCodec byte array (ids, quantities and price
+ * snapshots only), not as a Product graph. A deserialized cart holds id-only Product stubs until
+ * resolveProducts() re-attaches them from the product cache, so restart recovery needs no cart reload.
+ *
  * Space Complexity: O(n) where n is number of distinct products
  */
-public class Cart {
+public class Cart implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     private long id;
+    private int version;
     private String sessionId;
     private Long userId;
-    private Map<Integer, CartItem> items = new LinkedHashMap<>();
+    private final AtomicReference<Items> items = new AtomicReference<>(Items.EMPTY);
+    private volatile boolean productsUnresolved;
+    private volatile boolean detached;
 
     public Cart() {}
 
@@ -43,46 +75,273 @@ public class Cart {
 
     /**
      * Add product to cart or merge quantity if already exists.
-     * Time Complexity: O(1) - LinkedHashMap.compute() is constant time
-     * Thread-safe via synchronized method for servlet concurrency safety.
+     * Lock-free: the update function is retried if another request swapped the snapshot first.
      */
-    public synchronized void addProduct(Product p, int qty) {
-        items.compute(p.getId(), (k, v) -> {
-            if (v == null) return new CartItem(p, qty);
-            v.setQuantity(v.getQuantity() + qty);
-            return v;
-        });
-    }
+    public void addProduct(Product p, int qty) { items.updateAndGet(s -> s.plus(p, qty)); }
 
     /**
      * Update quantity for a product. Removes if qty <= 0.
-     * Time Complexity: O(1) - direct Map access by key
      */
-    public synchronized void updateQuantity(int productId, int qty) {
-        CartItem item = items.get(productId);
-        if (item == null) return;
-        if (qty <= 0) items.remove(productId);
-        else item.setQuantity(qty);
+    public void updateQuantity(int productId, int qty) { items.updateAndGet(s -> s.withQuantity(productId, qty)); }
+
+    public void removeProduct(int productId) { items.updateAndGet(s -> s.without(productId)); }
+
+    /**
+     * Apply a batch of line changes atomically: readers see either none or all of them.
+     * Changes are applied in list order on one working snapshot, published with a single CAS.
+     * Returns the published state; pass it to undo() to take the batch back.
+     * Time Complexity: O(k log32 n) for k changes.
+     */
+    public Snapshot apply(List<CartChange> changes) {
+        while (true) {
+            Items before = items.get();
+            Items after = before;
+            for (CartChange change : changes) {
+                switch (change.getKind()) {
+                    case ADD: after = after.plus(change.getProduct(), change.getQuantity()); break;
+                    case UPDATE: after = after.withQuantity(change.getProductId(), change.getQuantity()); break;
+                    case REMOVE: after = after.without(change.getProductId()); break;
+                    default: throw new IllegalArgumentException("Unknown change " + change.getKind());
+                }
+            }
+            if (items.compareAndSet(before, after)) return new Snapshot(after, before);
+        }
+    }
+
+    /**
+     * Put back the state that apply() replaced, with one CAS: only if the cart is still exactly
+     * the applied state. Returns false (and changes nothing) if another request changed it since.
+     */
+    public boolean undo(Snapshot applied) {
+        return applied.replaced != null && items.compareAndSet(applied.items, applied.replaced);
+    }
+
+    /**
+     * Insert or replace a line item as-is, keeping its price snapshot (used when loading from DB).
+     */
+    public void putItem(CartItem item) { items.updateAndGet(s -> s.with(item)); }
+
+    public void clear() { items.set(Items.EMPTY); }
+
+    /**
+     * Replace the line for product with the given Product instance and its current price as snapshot,
+     * keeping quantity and position. Used to push product price changes into live carts.
+     */
+    public void reprice(Product product) { items.updateAndGet(s -> s.repriced(product)); }
+
+    /** True after deserialization until resolveProducts() has run. */
+    public boolean hasUnresolvedProducts() { return productsUnresolved; }
+
+    public void markProductsUnresolved() { productsUnresolved = true; }
+
+    /**
+     * True once the cart has left its session (removed, replaced or expired). A detached cart may
+     * still be referenced by an in-flight request but must not be put back into LiveCartIndex.
+     * Not serialized: a restored cart is a new, attached object.
+     */
+    public boolean isDetached() { return detached; }
+
+    public void markDetached() { detached = true; }
+
+    /**
+     * Swap Product stubs for full products from lookup (normally the cache-first ProductDAO.findById).
+     * Lines whose product is no longer found keep their stub. No-op once resolved.
+     */
+    public void resolveProducts(IntFunction<Product> lookup) {
+        if (!productsUnresolved) return;
+        items.updateAndGet(s -> s.withProducts(lookup));
+        productsUnresolved = false;
     }
 
-    public synchronized void removeProduct(int productId) { items.remove(productId); }
+    public CartItem getItem(int productId) { return items.get().get(productId); }
+
+    public int totalQuantity() { return items.get().totalQuantity; }
+
+    public BigDecimal totalPrice() { return items.get().totalPrice; }
 
-    public synchronized void clear() { items.clear(); }
+    /**
+     * Read-only view of the current snapshot in insertion order. Later mutations are not visible through it.
+     */
+    public Collection<CartItem> getItems() { return snapshot().getItems(); }
 
-    public int totalQuantity() { return items.values().stream().mapToInt(CartItem::getQuantity).sum(); }
+    /** The current contents with their totals, fixed: later mutations are not visible through it. */
+    public Snapshot snapshot() { return new Snapshot(items.get(), null); }
+
+    /**
+     * Read-only productId -> CartItem view of the current snapshot in insertion order.
+     */
+    public Map<Integer, CartItem> getItemsMap() {
+        Items snapshot = items.get();
+        return new AbstractMap<>() {
+            @Override public CartItem get(Object key) { return key instanceof Integer ? snapshot.get((Integer) key) : null; }
+            @Override public boolean containsKey(Object key) { return get(key) != null; }
+            @Override public int size() { return snapshot.itemsBySeq.size(); }
 
-    public BigDecimal totalPrice() { return items.values().stream().map(CartItem::getTotalPrice).reduce(BigDecimal.ZERO, BigDecimal::add); }
+            @Override
+            public Set<Entry<Integer, CartItem>> entrySet() {
+                return new AbstractSet<>() {
+                    @Override public int size() { return snapshot.itemsBySeq.size(); }
 
-    public Collection<CartItem> getItems() { return items.values(); }
+                    @Override
+                    public Iterator<Entry<Integer, CartItem>> iterator() {
+                        Iterator<CartItem> it = snapshot.itemsBySeq.iterator();
+                        return new Iterator<>() {
+                            @Override public boolean hasNext() { return it.hasNext(); }
 
-    public Map<Integer, CartItem> getItemsMap() { return items; }
+                            @Override
+                            public Entry<Integer, CartItem> next() {
+                                CartItem item = it.next();
+                                return new SimpleImmutableEntry<>(item.getProduct().getId(), item);
+                            }
+                        };
+                    }
+                };
+            }
+        };
+    }
 
     public long getId() { return id; }
     public void setId(long id) { this.id = id; }
 
+    public int getVersion() { return version; }
+    public void setVersion(int version) { this.version = version; }
+
     public String getSessionId() { return sessionId; }
     public void setSessionId(String sessionId) { this.sessionId = sessionId; }
 
     public Long getUserId() { return userId; }
     public void setUserId(Long userId) { this.userId = userId; }
+
+    /** Serialize through the compact codec instead of the object graph. */
+    private Object writeReplace() throws ObjectStreamException { return new SessionForm(CartCodec.encode(this)); }
+
+    /**
+     * Serialized stand-in for a Cart: just the CartCodec bytes.
+     */
+    private static final class SessionForm implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final byte[] data;
+
+        SessionForm(byte[] data) { this.data = data; }
+
+        private Object readResolve() throws ObjectStreamException { return CartCodec.decode(data); }
+    }
+
+    /**
+     * One state of the cart, for rendering: lines, line lookup and totals all agree with each other.
+     */
+    public static final class Snapshot {
+        private final Items items;
+        private final Items replaced; // state before apply(), for undo(); null otherwise
+
+        private Snapshot(Items items, Items replaced) {
+            this.items = items;
+            this.replaced = replaced;
+        }
+
+        /** Lines in insertion order. */
+        public Collection<CartItem> getItems() {
+            return new AbstractCollection<>() {
+                @Override public Iterator<CartItem> iterator() { return items.itemsBySeq.iterator(); }
+                @Override public int size() { return items.itemsBySeq.size(); }
+            };
+        }
+
+        public CartItem getItem(int productId) { return items.get(productId); }
+
+        public boolean isEmpty() { return items.itemsBySeq.isEmpty(); }
+
+        public int getTotalQuantity() { return items.totalQuantity; }
+
+        public BigDecimal getTotalPrice() { return items.totalPrice; }
+    }
+
+    /**
+     * Immutable cart contents. Totals are carried along so readers never iterate to compute them.
+     */
+    private static final class Items {
+        static final Items EMPTY = new Items(PersistentIntMap.empty(), PersistentIntMap.empty(), 0, 0, BigDecimal.ZERO);
+
+        final PersistentIntMap<Integer> seqByProduct;
+        final PersistentIntMap<CartItem> itemsBySeq;
+        final int nextSeq;
+        final int totalQuantity;
+        final BigDecimal totalPrice;
+
+        Items(PersistentIntMap<Integer> seqByProduct, PersistentIntMap<CartItem> itemsBySeq,
+              int nextSeq, int totalQuantity, BigDecimal totalPrice) {
+            this.seqByProduct = seqByProduct;
+            this.itemsBySeq = itemsBySeq;
+            this.nextSeq = nextSeq;
+            this.totalQuantity = totalQuantity;
+            this.totalPrice = totalPrice;
+        }
+
+        CartItem get(int productId) {
+            Integer seq = seqByProduct.get(productId);
+            return seq == null ? null : itemsBySeq.get(seq);
+        }
+
+        Items plus(Product p, int qty) {
+            CartItem current = get(p.getId());
+            return with(current == null ? new CartItem(p, qty) : current.withQuantity(current.getQuantity() + qty));
+        }
+
+        Items withQuantity(int productId, int qty) {
+            CartItem current = get(productId);
+            if (current == null) return this;
+            return qty <= 0 ? without(productId) : with(current.withQuantity(qty));
+        }
+
+        Items repriced(Product product) {
+            CartItem current = get(product.getId());
+            return current == null ? this : with(new CartItem(product, current.getQuantity()));
+        }
+
+        Items with(CartItem item) {
+            int productId = item.getProduct().getId();
+            Integer seq = seqByProduct.get(productId);
+            if (seq != null) {
+                CartItem old = itemsBySeq.get(seq);
+                return new Items(seqByProduct, itemsBySeq.put(seq, item), nextSeq,
+                        totalQuantity - old.getQuantity() + item.getQuantity(),
+                        totalPrice.subtract(old.getTotalPrice()).add(item.getTotalPrice()));
+            }
+            Items base = nextSeq == Integer.MAX_VALUE ? renumbered() : this;
+            return new Items(base.seqByProduct.put(productId, base.nextSeq), base.itemsBySeq.put(base.nextSeq, item),
+                    base.nextSeq + 1, totalQuantity + item.getQuantity(), totalPrice.add(item.getTotalPrice()));
+        }
+
+        Items without(int productId) {
+            Integer seq = seqByProduct.get(productId);
+            if (seq == null) return this;
+            CartItem old = itemsBySeq.get(seq);
+            if (itemsBySeq.size() == 1) return EMPTY;
+            return new Items(seqByProduct.remove(productId), itemsBySeq.remove(seq), nextSeq,
+                    totalQuantity - old.getQuantity(), totalPrice.subtract(old.getTotalPrice()));
+        }
+
+        Items withProducts(IntFunction<Product> lookup) {
+            PersistentIntMap<CartItem> resolved = itemsBySeq;
+            for (CartItem item : itemsBySeq) {
+                int productId = item.getProduct().getId();
+                Product product = lookup.apply(productId);
+                if (product != null) resolved = resolved.put(seqByProduct.get(productId), item.withProduct(product));
+            }
+            return new Items(seqByProduct, resolved, nextSeq, totalQuantity, totalPrice);
+        }
+
+        /** Compact sequence numbers once they run out; only reachable after ~2^31 distinct adds. */
+        private Items renumbered() {
+            PersistentIntMap<Integer> seqs = PersistentIntMap.empty();
+            PersistentIntMap<CartItem> lines = PersistentIntMap.empty();
+            int seq = 0;
+            for (CartItem item : itemsBySeq) {
+                seqs = seqs.put(item.getProduct().getId(), seq);
+                lines = lines.put(seq, item);
+                seq++;
+            }
+            return new Items(seqs, lines, seq, totalQuantity, totalPrice);
+        }
+    }
 }
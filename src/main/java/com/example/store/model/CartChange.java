@@ -0,0 +1,32 @@
+package com.example.store.model;
+
+/**
+ * One line change of a batch cart mutation (see Cart.apply).
+ * ADD merges quantity into the line, UPDATE sets it (removes if <= 0), REMOVE drops the line.
+ */
+public class CartChange {
+    public enum Kind { ADD, UPDATE, REMOVE }
+
+    private final Kind kind;
+    private final int productId;
+    private final int quantity;
+    private final Product product;
+
+    private CartChange(Kind kind, int productId, int quantity, Product product) {
+        this.kind = kind;
+        this.productId = productId;
+        this.quantity = quantity;
+        this.product = product;
+    }
+
+    public static CartChange add(Product product, int quantity) { return new CartChange(Kind.ADD, product.getId(), quantity, product); }
+
+    public static CartChange update(int productId, int quantity) { return new CartChange(Kind.UPDATE, productId, quantity, null); }
+
+    public static CartChange remove(int productId) { return new CartChange(Kind.REMOVE, productId, 0, null); }
+
+    public Kind getKind() { return kind; }
+    public int getProductId() { return productId; }
+    public int getQuantity() { return quantity; }
+    public Product getProduct() { return product; }
+}
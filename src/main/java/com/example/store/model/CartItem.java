@@ -13,6 +13,21 @@ public class CartItem {
         this.priceSnapshot = product.getPrice();
     }
 
+    private CartItem(Product product, int quantity, BigDecimal priceSnapshot) {
+        this.product = product;
+        this.quantity = quantity;
+        this.priceSnapshot = priceSnapshot;
+    }
+
+    /**
+     * Copy of this line with a different quantity, keeping product and price snapshot.
+     * Cart never mutates an item it has published, it swaps in a copy instead.
+     */
+    public CartItem withQuantity(int quantity) { return new CartItem(product, quantity, priceSnapshot); }
+
+    /** Copy of this line pointing at another Product instance, keeping quantity and price snapshot. */
+    public CartItem withProduct(Product product) { return new CartItem(product, quantity, priceSnapshot); }
+
     public Product getProduct() { return product; }
     public void setProduct(Product product) { this.product = product; }
 
@@ -0,0 +1,35 @@
+package com.example.store.model;
+
+/**
+ * One validated row of a bulk product import (see ProductImporter, ProductDAO.upsert).
+ * The product has no id: the row is matched to an existing product by name or by sku, and inserted
+ * when there is none. Null description / imageUrl / sku keep the stored value on an update.
+ */
+public class ProductUpsert {
+    public enum Key { NAME, SKU }
+
+    private final long line;
+    private final Product product;
+    private final String sku;
+
+    public ProductUpsert(long line, Product product, String sku) {
+        this.line = line;
+        this.product = product;
+        this.sku = sku;
+    }
+
+    /** Line (CSV: record) number in the uploaded file, for error reports. */
+    public long getLine() { return line; }
+    public Product getProduct() { return product; }
+    public String getSku() { return sku; }
+
+    /**
+     * Value of the matching column, lower-cased: collapses a key repeated within one upload. Matching
+     * against stored products is left to the database (ProductDAO.upsert), whose collation may treat
+     * more keys as equal than this does.
+     */
+    public String key(Key key) {
+        String value = key == Key.SKU ? sku : product.getName();
+        return value == null ? null : value.toLowerCase(java.util.Locale.ROOT);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.store.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Concurrent Bloom filter over strings: "definitely absent" or "possibly present".
+ *
+ * Data Structure Choice: AtomicLongArray bit set
+ * - add() sets bits with a CAS per word, so concurrent adds never lose bits and readers need no lock
+ * - k bit positions by double hashing (h1 + i*h2) from one 64-bit hash, Kirsch-Mitzenmacher
+ * - Sized up front from the expected insertions and target false-positive rate; inserting more
+ *   only raises the false-positive rate, it never produces a false negative
+ *
+ * Big-O Time Complexity: add / mightContain O(k + key length), memory m bits
+ */
+public class BloomFilter {
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int hashes;
+
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("expectedInsertions must be positive and falsePositiveRate in (0,1)");
+        }
+        // m = -n ln p / (ln 2)^2, k = m/n ln 2
+        long m = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        m = Math.max(64, (m + 63) / 64 * 64);
+        if (m > 1L << 31) throw new IllegalArgumentException("filter too large"); // index() uses 31-bit positions
+        this.bits = m;
+        this.hashes = Math.max(1, (int) Math.round((double) m / expectedInsertions * Math.log(2)));
+        this.words = new AtomicLongArray((int) (m / 64));
+    }
+
+    public void add(String key) {
+        long h = hash(key);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32);
+        for (int i = 0; i < hashes; i++) {
+            long bit = index(h1 + i * h2);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long cur;
+            while (((cur = words.get(word)) & mask) == 0 && !words.compareAndSet(word, cur, cur | mask)) {
+                // retry: another bit in the same word changed
+            }
+        }
+    }
+
+    public boolean mightContain(String key) {
+        long h = hash(key);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32);
+        for (int i = 0; i < hashes; i++) {
+            long bit = index(h1 + i * h2);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    public long bitSize() { return bits; }
+    public int hashCount() { return hashes; }
+
+    private long index(int combined) {
+        return (combined & 0x7fffffffL) % bits;
+    }
+
+    /** FNV-1a 64 over the chars with a murmur3 fmix64 finish, so both 32-bit halves are well mixed. */
+    private static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
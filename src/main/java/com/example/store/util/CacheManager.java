@@ -3,19 +3,92 @@ package com.example.store.util;
 import com.example.store.model.Product;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Simple CacheManager wrapping a ConcurrentHashMap<Integer, Product>.
+ *
+ * Statistics (exported over JMX, /metrics and the /admin/cache page):
+ * - hits / misses / puts / removals: LongAdder counters, striped per CPU so concurrent readers
+ *   never contend on one cache line
+ * - evictions: entries dropped without a write (admin evict, plus every entry wiped by clear())
+ * - loads: DB load latency on a miss, reported by the DAO through recordLoad()
+ * - hottest ids: HotKeySketch samples 1 in 16 lookups, so ranking costs the hot path almost nothing
  */
-public class CacheManager {
+public class CacheManager implements CacheManagerMXBean {
+    private static final int SKETCH_WIDTH = 4096;
+    private static final int SKETCH_SAMPLE_RATE = 16;
+    private static final int SKETCH_TOP = 20;
+
     private final ConcurrentHashMap<Integer, Product> cache = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder removals = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder clears = new LongAdder();
+    private final LatencyHistogram loads = new LatencyHistogram();
+    private final HotKeySketch hotIds = new HotKeySketch(SKETCH_WIDTH, SKETCH_SAMPLE_RATE, SKETCH_TOP);
 
-    public Product get(int id) { return cache.get(id); }
-    public void put(int id, Product p) { cache.put(id, p); }
-    public void remove(int id) { cache.remove(id); }
+    public Product get(int id) {
+        Product p = cache.get(id);
+        if (p != null) {
+            hits.increment();
+            RequestTiming.cacheHit();
+        } else {
+            misses.increment();
+            RequestTiming.cacheMiss();
+        }
+        hotIds.record(id);
+        return p;
+    }
+    public void put(int id, Product p) { cache.put(id, p); puts.increment(); }
+    /** Bulk load (e.g. after a product import): one map operation per entry, one counter update. */
+    public void putAll(Map<Integer, Product> products) { cache.putAll(products); puts.add(products.size()); }
+    public void remove(int id) { if (cache.remove(id) != null) removals.increment(); }
+    /** Drop one entry without a write behind it; the next get() reloads it. */
+    public boolean evict(int id) {
+        if (cache.remove(id) == null) return false;
+        evictions.increment();
+        hotIds.forget(id);
+        return true;
+    }
     public Map<Integer, Product> getSnapshot() { return Collections.unmodifiableMap(cache);
     }
-    public void clear() { cache.clear(); }
+    public void clear() {
+        evictions.add(cache.size());
+        clears.increment();
+        cache.clear();
+    }
+
+    /** Time spent loading a missed entry from the database (found or not). */
+    public void recordLoad(long nanos) { loads.record(nanos); }
+
+    public LatencyHistogram getLoadHistogram() { return loads; }
+
+    /** Most-requested ids (hits and misses), hottest first, with sampled request estimates. */
+    public List<HotKeySketch.Hot> getHottest() { return hotIds.top(); }
+
+    public int getSketchSampleRate() { return hotIds.getSampleRate(); }
+
+    @Override public long getHits() { return hits.sum(); }
+    @Override public long getMisses() { return misses.sum(); }
+    @Override public double getHitRatio() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+    @Override public long getPuts() { return puts.sum(); }
+    @Override public long getRemovals() { return removals.sum(); }
+    @Override public long getEvictions() { return evictions.sum(); }
+    @Override public long getClears() { return clears.sum(); }
+    @Override public long getLoads() { return loads.count(); }
+    @Override public double getLoadMillisAverage() {
+        long n = getLoads();
+        return n == 0 ? 0 : loads.sumNanos() / 1e6 / n;
+    }
+    @Override public int getSize() { return cache.size(); }
 }
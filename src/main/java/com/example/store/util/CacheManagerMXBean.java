@@ -0,0 +1,17 @@
+package com.example.store.util;
+
+/**
+ * JMX view of CacheManager (registered as com.example.store:type=ProductCache).
+ */
+public interface CacheManagerMXBean {
+    long getHits();
+    long getMisses();
+    double getHitRatio();
+    long getPuts();
+    long getRemovals();
+    long getEvictions();
+    long getClears();
+    long getLoads();
+    double getLoadMillisAverage();
+    int getSize();
+}
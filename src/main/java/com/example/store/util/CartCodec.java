@@ -0,0 +1,152 @@
+package com.example.store.util;
+
+import com.example.store.model.Cart;
+import com.example.store.model.CartItem;
+import com.example.store.model.Product;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Compact binary form of a Cart for HttpSession persistence/replication.
+ *
+ * Only what is needed to rebuild the cart is written; the Product graph is not. Products are
+ * re-attached lazily from the product cache (Cart.resolveProducts) on first use after loading.
+ *
+ * Layout (all integers are LEB128 varints, signed values zigzag-encoded):
+ *   format byte | flags byte (bit0 userId, bit1 sessionId) | cartId | version
+ *   [userId] [sessionId: length + UTF-8 bytes]
+ *   itemCount, then per item in display order: productId delta (zigzag), quantity, priceCents (zigzag)
+ *
+ * A 10-line cart with a 32-char session id encodes to roughly 80 bytes, versus several KB for
+ * default Java serialization of the Cart/CartItem/Product graph.
+ */
+public final class CartCodec {
+    private static final int FORMAT_V1 = 1;
+    private static final int HAS_USER = 1;
+    private static final int HAS_SESSION = 2;
+
+    private CartCodec() {}
+
+    public static byte[] encode(Cart cart) {
+        Writer w = new Writer(32 + cart.getItems().size() * 8);
+        w.buf[w.len++] = FORMAT_V1;
+        String sessionId = cart.getSessionId();
+        w.buf[w.len++] = (byte) ((cart.getUserId() != null ? HAS_USER : 0) | (sessionId != null ? HAS_SESSION : 0));
+        w.varLong(cart.getId());
+        w.varLong(cart.getVersion() & 0xFFFFFFFFL);
+        if (cart.getUserId() != null) w.varLong(cart.getUserId());
+        if (sessionId != null) w.bytes(sessionId.getBytes(StandardCharsets.UTF_8));
+
+        Collection<CartItem> items = cart.getItems();
+        w.varLong(items.size());
+        int previousId = 0;
+        for (CartItem item : items) {
+            int productId = item.getProduct().getId();
+            w.varLong(zigzag((long) productId - previousId));
+            w.varLong(item.getQuantity() & 0xFFFFFFFFL);
+            w.varLong(zigzag(toCents(item.getPriceSnapshot())));
+            previousId = productId;
+        }
+        return w.toByteArray();
+    }
+
+    /**
+     * Rebuild a cart. Items reference id-only Product stubs until Cart.resolveProducts is called.
+     */
+    public static Cart decode(byte[] data) {
+        Reader r = new Reader(data);
+        int format = r.u8();
+        if (format != FORMAT_V1) throw new IllegalArgumentException("Unsupported cart encoding " + format);
+        int flags = r.u8();
+        Cart cart = new Cart(r.varLong());
+        cart.setVersion((int) r.varLong());
+        if ((flags & HAS_USER) != 0) cart.setUserId(r.varLong());
+        if ((flags & HAS_SESSION) != 0) cart.setSessionId(new String(r.bytes(), StandardCharsets.UTF_8));
+
+        long count = r.varLong();
+        int productId = 0;
+        for (long i = 0; i < count; i++) {
+            productId += (int) unzigzag(r.varLong());
+            int quantity = (int) r.varLong();
+            BigDecimal price = BigDecimal.valueOf(unzigzag(r.varLong()), 2);
+            Product stub = new Product(productId, null);
+            stub.setPrice(price);
+            CartItem item = new CartItem(stub, quantity);
+            cart.putItem(item);
+        }
+        cart.markProductsUnresolved();
+        return cart;
+    }
+
+    /** Price snapshots come from DECIMAL(10,2) columns, so two decimal places are exact. */
+    private static long toCents(BigDecimal price) {
+        return price.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private static long zigzag(long v) { return (v << 1) ^ (v >> 63); }
+
+    private static long unzigzag(long v) { return (v >>> 1) ^ -(v & 1); }
+
+    private static final class Writer {
+        byte[] buf;
+        int len;
+
+        Writer(int capacity) { buf = new byte[capacity]; }
+
+        void ensure(int extra) {
+            if (len + extra > buf.length) buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + extra));
+        }
+
+        void varLong(long v) {
+            ensure(10);
+            while ((v & ~0x7FL) != 0) {
+                buf[len++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[len++] = (byte) v;
+        }
+
+        void bytes(byte[] b) {
+            varLong(b.length);
+            ensure(b.length);
+            System.arraycopy(b, 0, buf, len, b.length);
+            len += b.length;
+        }
+
+        byte[] toByteArray() { return Arrays.copyOf(buf, len); }
+    }
+
+    private static final class Reader {
+        final byte[] buf;
+        int pos;
+
+        Reader(byte[] buf) { this.buf = buf; }
+
+        int u8() {
+            if (pos >= buf.length) throw new IllegalArgumentException("Truncated cart encoding");
+            return buf[pos++] & 0xFF;
+        }
+
+        long varLong() {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = u8();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return result;
+            }
+            throw new IllegalArgumentException("Malformed varint in cart encoding");
+        }
+
+        byte[] bytes() {
+            int n = (int) varLong();
+            if (n < 0 || pos + n > buf.length) throw new IllegalArgumentException("Truncated cart encoding");
+            byte[] b = Arrays.copyOfRange(buf, pos, pos + n);
+            pos += n;
+            return b;
+        }
+    }
+}
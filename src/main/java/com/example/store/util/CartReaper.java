@@ -0,0 +1,127 @@
+package com.example.store.util;
+
+import com.example.store.dao.CartDAO;
+
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Background maintenance job that removes abandoned and cleared carts.
+ *
+ * - Anonymous OPEN carts untouched for openRetention are reaped (user-owned carts are kept)
+ * - CLEARED carts and guest carts MERGED into a user cart at login, older than clearedRetention, are reaped
+ * - ARCHIVE mode copies rows to carts_archive / cart_items_archive before deleting; DELETE mode just deletes
+ *
+ * Work is done in small keyset-driven chunks: each chunk is one index range read plus one short
+ * transaction, followed by a pause, so the job never holds row locks for long or saturates the DB.
+ * openRetention must exceed the session timeout, otherwise a live session could still hold the cart.
+ */
+public class CartReaper implements Runnable {
+    private static final Logger LOG = Logger.getLogger(CartReaper.class.getName());
+
+    public enum Mode { ARCHIVE, DELETE }
+
+    private final CartDAO cartDAO;
+    private final long openRetentionMillis;
+    private final long clearedRetentionMillis;
+    private final int chunkSize;
+    private final long pauseMillis;
+    private final Mode mode;
+    private volatile Report lastReport;
+
+    public CartReaper(CartDAO cartDAO, long openRetentionMillis, long clearedRetentionMillis,
+                      int chunkSize, long pauseMillis, Mode mode) {
+        if (chunkSize <= 0) throw new IllegalArgumentException("chunkSize must be positive");
+        this.cartDAO = cartDAO;
+        this.openRetentionMillis = openRetentionMillis;
+        this.clearedRetentionMillis = clearedRetentionMillis;
+        this.chunkSize = chunkSize;
+        this.pauseMillis = pauseMillis;
+        this.mode = mode;
+    }
+
+    /**
+     * Rows processed and time spent by one run.
+     */
+    public static final class Report {
+        private final int carts;
+        private final int items;
+        private final int chunks;
+        private final long elapsedMillis;
+
+        Report(int carts, int items, int chunks, long elapsedMillis) {
+            this.carts = carts;
+            this.items = items;
+            this.chunks = chunks;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public int getCarts() { return carts; }
+        public int getItems() { return items; }
+        public int getChunks() { return chunks; }
+        public long getElapsedMillis() { return elapsedMillis; }
+
+        @Override
+        public String toString() {
+            return "carts=" + carts + ", items=" + items + ", chunks=" + chunks + ", elapsedMs=" + elapsedMillis;
+        }
+    }
+
+    /** Scheduler entry point: never lets an exception escape, which would cancel the schedule. */
+    @Override
+    public void run() {
+        try {
+            Report report = reap();
+            LOG.info(() -> "Cart reaper (" + mode + ") finished: " + report);
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Cart reaper run failed", e);
+        }
+    }
+
+    /**
+     * Reap one full pass over all stale categories and return what was done.
+     */
+    public Report reap() {
+        long start = System.nanoTime();
+        long now = System.currentTimeMillis();
+        int[] totals = new int[3]; // carts, items, chunks
+        reapCategory("OPEN", true, new Timestamp(now - openRetentionMillis), totals);
+        Timestamp closedCutoff = new Timestamp(now - clearedRetentionMillis);
+        reapCategory("CLEARED", false, closedCutoff, totals);
+        reapCategory("MERGED", false, closedCutoff, totals);
+        Report report = new Report(totals[0], totals[1], totals[2],
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        lastReport = report;
+        return report;
+    }
+
+    public Report getLastReport() { return lastReport; }
+
+    private void reapCategory(String status, boolean anonymousOnly, Timestamp cutoff, int[] totals) {
+        Timestamp afterUpdatedAt = null;
+        long afterId = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            CartDAO.StalePage page = cartDAO.findStaleCarts(status, anonymousOnly, cutoff, afterUpdatedAt, afterId, chunkSize);
+            if (page.getIds().isEmpty()) return;
+            CartDAO.ReapCount count = cartDAO.reapCarts(page.getIds(), status, anonymousOnly, cutoff, mode == Mode.ARCHIVE);
+            totals[0] += count.getCarts();
+            totals[1] += count.getItems();
+            totals[2]++;
+            if (page.getIds().size() < chunkSize) return;
+            afterUpdatedAt = page.getLastUpdatedAt();
+            afterId = page.getLastId();
+            pause();
+        }
+    }
+
+    private void pause() {
+        if (pauseMillis <= 0) return;
+        try {
+            Thread.sleep(pauseMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
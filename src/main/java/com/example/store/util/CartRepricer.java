@@ -0,0 +1,44 @@
+package com.example.store.util;
+
+import com.example.store.dao.CartDAO;
+import com.example.store.model.Cart;
+import com.example.store.model.Product;
+
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Propagates a product price change to open carts.
+ *
+ * 1. In-memory: carts in live sessions are found through LiveCartIndex and their line is swapped
+ *    for one with the new product and price snapshot (a lock-free Cart snapshot swap).
+ * 2. Database: CartDAO.repriceOpenCarts finds affected OPEN carts through the cart_items.product_id
+ *    index and updates their price_snapshot in chunked IN-list statements.
+ *
+ * Both steps only touch carts that hold the product, so the cost is proportional to the number of
+ * affected carts, never to the total number of carts or sessions. Live carts are updated first so a
+ * concurrent saveCart from one of those sessions writes the new price rather than the old one.
+ */
+public class CartRepricer {
+    private static final Logger LOG = Logger.getLogger(CartRepricer.class.getName());
+    private static final int CHUNK_SIZE = 500;
+
+    private final CartDAO cartDAO;
+    private final LiveCartIndex liveCarts;
+
+    public CartRepricer(CartDAO cartDAO, LiveCartIndex liveCarts) {
+        this.cartDAO = cartDAO;
+        this.liveCarts = liveCarts;
+    }
+
+    /**
+     * Reprice every open cart holding product to product.getPrice(). Returns the number of DB carts updated.
+     */
+    public int productRepriced(Product product) {
+        List<Cart> live = liveCarts.cartsContaining(product.getId());
+        for (Cart cart : live) cart.reprice(product);
+        int updated = cartDAO.repriceOpenCarts(product.getId(), product.getPrice(), CHUNK_SIZE);
+        LOG.fine(() -> "Repriced product " + product.getId() + ": " + live.size() + " live carts, " + updated + " stored carts");
+        return updated;
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.store.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming RFC 4180 CSV reader: next() returns one record, so memory is bounded by the longest
+ * record (maxRecordChars), never by the size of the file.
+ *
+ * - Fields are separated by ',', records by LF or CRLF; quoted fields may hold ',', line breaks and
+ *   "" (an escaped quote). Fields are returned as written, untrimmed
+ * - A byte order mark before the first record (spreadsheet exports) and blank lines are skipped
+ * - A malformed or oversized record throws IllegalArgumentException once the reader has moved past
+ *   it, so the caller can report that record and carry on with the next one
+ *
+ * Reads through its own char buffer rather than BufferedReader.read(), which takes a lock per char.
+ */
+public final class CsvReader implements Closeable {
+    private final Reader in;
+    private final int maxRecordChars;
+    private final char[] buf = new char[8192];
+    private final StringBuilder field = new StringBuilder();
+    private int pos;
+    private int limit;
+    private int pushedBack = -2;
+    private boolean started;
+    private long line = 1;
+    private long recordLine;
+
+    public CsvReader(Reader in, int maxRecordChars) {
+        this.in = in;
+        this.maxRecordChars = maxRecordChars;
+    }
+
+    /** Next record's fields, or null at the end of input. */
+    public List<String> next() throws IOException {
+        int c;
+        while (true) {
+            c = read();
+            if (c == -1) return null;
+            boolean bom = !started && c == '\uFEFF';
+            started = true;
+            if (c == '\n') line++;
+            else if (c != '\r' && !bom) break;
+        }
+        pushedBack = c;
+        recordLine = line;
+
+        List<String> fields = new ArrayList<>();
+        field.setLength(0);
+        String error = null;
+        boolean quoted = false;
+        boolean closedQuote = false;
+        int chars = 0;
+        while (true) {
+            c = read();
+            if (c == -1) {
+                if (quoted && error == null) error = "unterminated quoted field";
+                fields.add(field.toString());
+                break;
+            }
+            if (++chars > maxRecordChars && error == null) {
+                error = "record longer than " + maxRecordChars + " characters";
+                field.setLength(0);
+            }
+            if (quoted) {
+                if (c == '"') {
+                    int n = read();
+                    if (n == '"') {
+                        append(error, '"');
+                        continue;
+                    }
+                    pushedBack = n;
+                    quoted = false;
+                    closedQuote = true;
+                    continue;
+                }
+                if (c == '\n') line++;
+                append(error, (char) c);
+                continue;
+            }
+            if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+                closedQuote = false;
+            } else if (c == '\n' || c == '\r') {
+                if (c == '\r') {
+                    int n = read();
+                    if (n != '\n') pushedBack = n;
+                }
+                line++;
+                fields.add(field.toString());
+                break;
+            } else if (closedQuote) {
+                if (error == null) error = "unexpected character after a closing quote";
+            } else if (c == '"') {
+                if (field.length() == 0) quoted = true;
+                else if (error == null) error = "quote inside an unquoted field";
+            } else {
+                append(error, (char) c);
+            }
+        }
+        if (error != null) throw new IllegalArgumentException(error);
+        return fields;
+    }
+
+    /** Line on which the record last returned (or rejected) by next() starts. */
+    public long getLine() { return recordLine; }
+
+    @Override
+    public void close() throws IOException { in.close(); }
+
+    private void append(String error, char c) {
+        if (error == null) field.append(c); // a rejected record is skipped, not held
+    }
+
+    private int read() throws IOException {
+        if (pushedBack != -2) {
+            int c = pushedBack;
+            pushedBack = -2;
+            return c;
+        }
+        if (pos == limit) {
+            limit = in.read(buf, 0, buf.length);
+            pos = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buf[pos++];
+    }
+}
@@ -5,11 +5,15 @@ import java.sql.Connection;
 /**
  * DBConnectionManager: provide JDBC Connections (wrap DataSource or DriverManager).
  * Explicitly loads MySQL driver to avoid "No suitable driver" in some classloader setups.
+ *
+ * When a StatementProfiler is installed (process-wide, by StoreContextListener) every connection is
+ * handed out wrapped by it, whichever servlet created this manager.
  */
 public class DBConnectionManager {
     private final String jdbcUrl;
     private final String username;
     private final String password;
+    private static volatile StatementProfiler profiler;
 
     static {
         try {
@@ -27,6 +31,15 @@ public class DBConnectionManager {
     }
 
     public Connection getConnection() throws java.sql.SQLException {
-        return java.sql.DriverManager.getConnection(jdbcUrl, username, password);
+        Connection conn = java.sql.DriverManager.getConnection(jdbcUrl, username, password);
+        StatementProfiler p = profiler;
+        return p == null ? conn : p.wrap(conn);
     }
+
+    /** Install (or with null, remove) the profiler wrapping connections from every manager. */
+    public static void setProfiler(StatementProfiler statementProfiler) {
+        profiler = statementProfiler;
+    }
+
+    public static StatementProfiler getProfiler() { return profiler; }
 }
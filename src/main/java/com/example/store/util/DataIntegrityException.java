@@ -1,7 +1,7 @@
 package com.example.store.util;
 
 /**
- * Thrown when a delete/update violates database referential integrity (FK constraints).
+ * Thrown when a write violates database integrity: referential (FK constraints) or a unique key.
  */
 public class DataIntegrityException extends RuntimeException {
     public DataIntegrityException(String message) { super(message); }
@@ -0,0 +1,197 @@
+package com.example.store.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * In-memory size / mtime / ETag / MIME type for files under one root directory.
+ *
+ * WHY: serving an image used to cost exists + isReadable + probeContentType (several syscalls and
+ * a content-type lookup) per request. A hit here is one ConcurrentHashMap lookup.
+ *
+ * Invalidation:
+ * - A WatchService thread drops the entry of any file created, modified or deleted under the root
+ *   (subdirectories included); an OVERFLOW event drops everything
+ * - Safety net for file systems without change notification: entries older than maxAgeMillis are
+ *   re-validated with a single readAttributes call
+ * - Bounded: past maxEntries the map is cleared and refills from live traffic
+ *
+ * MIME types are resolved once per file extension.
+ */
+public class FileMetadataCache implements Closeable {
+    private static final Logger LOG = Logger.getLogger(FileMetadataCache.class.getName());
+
+    /**
+     * Immutable metadata snapshot of one regular file.
+     */
+    public static final class FileInfo {
+        private final Path path;
+        private final long size;
+        private final long lastModifiedMillis;
+        private final String etag;
+        private final String contentType;
+        private final long loadedAtNanos;
+
+        FileInfo(Path path, long size, long lastModifiedMillis, long lastModifiedNanos, String contentType) {
+            this.path = path;
+            this.size = size;
+            this.lastModifiedMillis = lastModifiedMillis;
+            // strong validator: changes whenever the bytes can have changed (size or ns-precision mtime)
+            this.etag = "\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModifiedNanos) + "\"";
+            this.contentType = contentType;
+            this.loadedAtNanos = System.nanoTime();
+        }
+
+        public Path getPath() { return path; }
+        public long getSize() { return size; }
+        public long getLastModifiedMillis() { return lastModifiedMillis; }
+        public String getEtag() { return etag; }
+        public String getContentType() { return contentType; }
+    }
+
+    private final Path root;
+    private final int maxEntries;
+    private final long maxAgeNanos;
+    private final ConcurrentHashMap<Path, FileInfo> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, String> mimeByExtension = new ConcurrentHashMap<>();
+    private final WatchService watcher;
+    private final Thread watchThread;
+
+    public FileMetadataCache(Path root, int maxEntries, long maxAgeMillis) {
+        this.root = root.toAbsolutePath().normalize();
+        this.maxEntries = maxEntries;
+        this.maxAgeNanos = TimeUnit.MILLISECONDS.toNanos(maxAgeMillis);
+        WatchService ws = null;
+        try {
+            ws = FileSystems.getDefault().newWatchService();
+            registerTree(ws, this.root);
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "No change notification for " + this.root + ", relying on max age", e);
+        }
+        this.watcher = ws;
+        if (ws != null) {
+            watchThread = new Thread(this::watchLoop, "file-metadata-watch");
+            watchThread.setDaemon(true);
+            watchThread.start();
+        } else {
+            watchThread = null;
+        }
+    }
+
+    /**
+     * Metadata for root-relative path, or null if it is not a readable regular file inside root.
+     */
+    public FileInfo get(String relativePath) throws IOException {
+        Path file = root.resolve(relativePath).normalize();
+        if (!file.startsWith(root) || file.equals(root)) return null;
+
+        FileInfo cached = entries.get(file);
+        if (cached != null && System.nanoTime() - cached.loadedAtNanos < maxAgeNanos) return cached;
+
+        FileInfo loaded = load(file);
+        if (loaded == null) {
+            entries.remove(file);
+            return null;
+        }
+        if (entries.size() >= maxEntries) entries.clear();
+        entries.put(file, loaded);
+        return loaded;
+    }
+
+    public void invalidate(Path file) {
+        entries.remove(file.toAbsolutePath().normalize());
+    }
+
+    public int size() { return entries.size(); }
+
+    @Override
+    public void close() {
+        if (watcher == null) return;
+        try {
+            watcher.close();
+        } catch (IOException ignored) {
+            // shutting down
+        }
+        watchThread.interrupt();
+    }
+
+    private FileInfo load(Path file) throws IOException {
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        if (!attrs.isRegularFile() || !Files.isReadable(file)) return null;
+        long mtimeNanos = attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+        return new FileInfo(file, attrs.size(), attrs.lastModifiedTime().toMillis(), mtimeNanos, contentType(file));
+    }
+
+    private String contentType(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String ext = dot < 0 ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT);
+        return mimeByExtension.computeIfAbsent(ext, e -> {
+            try {
+                String probed = Files.probeContentType(file);
+                return probed == null ? "application/octet-stream" : probed;
+            } catch (IOException ex) {
+                return "application/octet-stream";
+            }
+        });
+    }
+
+    private static void registerTree(WatchService ws, Path dir) throws IOException {
+        try (Stream<Path> dirs = Files.walk(dir)) {
+            for (Path d : (Iterable<Path>) dirs.filter(Files::isDirectory)::iterator) register(ws, d);
+        }
+    }
+
+    private static void register(WatchService ws, Path dir) throws IOException {
+        dir.register(ws, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+    }
+
+    private void watchLoop() {
+        try {
+            while (true) {
+                WatchKey key = watcher.take();
+                Path dir = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        entries.clear();
+                        continue;
+                    }
+                    Path changed = dir.resolve((Path) event.context());
+                    entries.remove(changed);
+                    if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(changed)) {
+                        try {
+                            registerTree(watcher, changed);
+                        } catch (IOException e) {
+                            LOG.log(Level.WARNING, "Cannot watch " + changed, e);
+                        }
+                    }
+                }
+                key.reset();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+}
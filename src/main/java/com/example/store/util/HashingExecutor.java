@@ -0,0 +1,103 @@
+package com.example.store.util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bounded worker pool dedicated to PBKDF2 password hashing.
+ *
+ * WHY a separate pool (not the Tomcat connector threads):
+ * - 120,000 PBKDF2 iterations are pure CPU; a login burst on request threads starves every other page
+ * - Threads = cores: more threads than cores only adds context switching for CPU-bound work
+ * - Bounded queue + AbortPolicy: when saturated, submit() fails fast so the caller can answer 503
+ *   instead of piling up requests that would time out anyway
+ *
+ * Queue wait and hash time are recorded with LongAdder / LongAccumulator (no contention on the
+ * hot path) and exposed through HashingExecutorMXBean.
+ */
+public class HashingExecutor implements HashingExecutorMXBean {
+    private final ThreadPoolExecutor pool;
+    private final int threads;
+    private final int queueCapacity;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final LongAccumulator queueWaitMaxNanos = new LongAccumulator(Long::max, 0);
+    private final LongAdder hashNanos = new LongAdder();
+    private final LongAccumulator hashMaxNanos = new LongAccumulator(Long::max, 0);
+
+    public HashingExecutor(int threads, int queueCapacity) {
+        this.threads = threads;
+        this.queueCapacity = queueCapacity;
+        AtomicInteger seq = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "password-hash-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /** Pool sized to the available cores with a queue of queuePerThread jobs per worker. */
+    public static HashingExecutor forAvailableCores(int queuePerThread) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        return new HashingExecutor(cores, cores * queuePerThread);
+    }
+
+    /**
+     * Queue a hashing job. Throws RejectedExecutionException immediately when the queue is full.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> job) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        long enqueued = System.nanoTime();
+        try {
+            pool.execute(() -> {
+                long started = System.nanoTime();
+                long waited = started - enqueued;
+                queueWaitNanos.add(waited);
+                queueWaitMaxNanos.accumulate(waited);
+                try {
+                    result.complete(job.get());
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                } finally {
+                    long took = System.nanoTime() - started;
+                    hashNanos.add(took);
+                    hashMaxNanos.accumulate(took);
+                    completed.increment();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw e;
+        }
+        submitted.increment();
+        return result;
+    }
+
+    public void shutdown() { pool.shutdownNow(); }
+
+    @Override public int getThreads() { return threads; }
+    @Override public int getQueueCapacity() { return queueCapacity; }
+    @Override public int getQueueDepth() { return pool.getQueue().size(); }
+    @Override public int getActiveCount() { return pool.getActiveCount(); }
+    @Override public long getSubmitted() { return submitted.sum(); }
+    @Override public long getRejected() { return rejected.sum(); }
+    @Override public long getCompleted() { return completed.sum(); }
+    @Override public long getQueueWaitMillisTotal() { return TimeUnit.NANOSECONDS.toMillis(queueWaitNanos.sum()); }
+    @Override public long getQueueWaitMillisMax() { return TimeUnit.NANOSECONDS.toMillis(queueWaitMaxNanos.get()); }
+    @Override public long getHashMillisTotal() { return TimeUnit.NANOSECONDS.toMillis(hashNanos.sum()); }
+    @Override public long getHashMillisMax() { return TimeUnit.NANOSECONDS.toMillis(hashMaxNanos.get()); }
+    @Override public boolean isFastPbkdf2() { return PasswordHasher.usesFastPbkdf2(); }
+}
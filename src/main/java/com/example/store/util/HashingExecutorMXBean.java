@@ -0,0 +1,20 @@
+package com.example.store.util;
+
+/**
+ * JMX view of HashingExecutor (registered as com.example.store:type=PasswordHashing).
+ */
+public interface HashingExecutorMXBean {
+    int getThreads();
+    int getQueueCapacity();
+    int getQueueDepth();
+    int getActiveCount();
+    long getSubmitted();
+    long getRejected();
+    long getCompleted();
+    long getQueueWaitMillisTotal();
+    long getQueueWaitMillisMax();
+    long getHashMillisTotal();
+    long getHashMillisMax();
+    /** PasswordHasher uses Pbkdf2HmacSha256 (false: its self-test failed, JDK provider in use). */
+    boolean isFastPbkdf2();
+}
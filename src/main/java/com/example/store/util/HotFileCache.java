@@ -0,0 +1,111 @@
+package com.example.store.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Byte-budgeted LRU cache of read-only memory-mapped files, for the few images that get most traffic.
+ *
+ * WHY mmap: the bytes live in the OS page cache, outside the Java heap. Each entry costs the heap
+ * one MappedByteBuffer object and a few fields whatever the file size, and a hit needs no read()
+ * syscall. Used when the connector cannot sendfile (e.g. TLS connections).
+ *
+ * Data Structure Choice: ConcurrentHashMap&lt;Path, Entry&gt; + per-entry access stamp
+ * - Hits are lock-free: a map get plus a volatile write of a logical clock
+ * - Eviction (only when a miss pushes resident bytes past the budget) takes a lock and removes the
+ *   smallest stamps; O(n) over the hot set, which is small by construction
+ * - Keyed by path and validated against size + mtime, so a changed file is re-mapped
+ *
+ * Safe only for files that are never rewritten in place (truncating a mapped file faults the
+ * reader): uploads are content-addressed and variants are published by atomic rename.
+ * Evicted mappings are released by the GC; resident bytes count live cache entries.
+ */
+public class HotFileCache implements HotFileCacheMXBean {
+    private static final class Entry {
+        final MappedByteBuffer buffer;
+        final long size;
+        final long lastModifiedMillis;
+        volatile long stamp;
+
+        Entry(MappedByteBuffer buffer, long size, long lastModifiedMillis, long stamp) {
+            this.buffer = buffer;
+            this.size = size;
+            this.lastModifiedMillis = lastModifiedMillis;
+            this.stamp = stamp;
+        }
+    }
+
+    private final ConcurrentHashMap<Path, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicLong residentBytes = new AtomicLong();
+    private final long budgetBytes;
+    private final long maxFileBytes;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public HotFileCache(long budgetBytes, long maxFileBytes) {
+        this.budgetBytes = budgetBytes;
+        this.maxFileBytes = Math.min(maxFileBytes, budgetBytes);
+    }
+
+    /**
+     * Read-only view of the whole file (position 0, limit size), or null if it is too large to cache.
+     * Callers get their own duplicate, so positions never interfere.
+     */
+    public ByteBuffer get(Path file, long size, long lastModifiedMillis) throws IOException {
+        Entry e = entries.get(file);
+        if (e != null && e.size == size && e.lastModifiedMillis == lastModifiedMillis) {
+            e.stamp = clock.incrementAndGet();
+            hits.increment();
+            return e.buffer.duplicate();
+        }
+        misses.increment();
+        if (size == 0 || size > maxFileBytes) return null;
+
+        MappedByteBuffer mapped;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (ch.size() != size) return null; // changed since the metadata was read
+            mapped = ch.map(FileChannel.MapMode.READ_ONLY, 0, size); // mapping outlives the channel
+        }
+        Entry fresh = new Entry(mapped, size, lastModifiedMillis, clock.incrementAndGet());
+        Entry old = entries.put(file, fresh);
+        if (old != null) residentBytes.addAndGet(-old.size);
+        if (residentBytes.addAndGet(size) > budgetBytes) evict();
+        return mapped.duplicate();
+    }
+
+    private synchronized void evict() {
+        while (residentBytes.get() > budgetBytes) {
+            Map.Entry<Path, Entry> oldest = null;
+            for (Map.Entry<Path, Entry> candidate : entries.entrySet()) {
+                if (oldest == null || candidate.getValue().stamp < oldest.getValue().stamp) oldest = candidate;
+            }
+            if (oldest == null) return;
+            if (entries.remove(oldest.getKey(), oldest.getValue())) {
+                residentBytes.addAndGet(-oldest.getValue().size);
+                evictions.increment();
+            }
+        }
+    }
+
+    @Override public long getHits() { return hits.sum(); }
+    @Override public long getMisses() { return misses.sum(); }
+    @Override public double getHitRatio() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+    @Override public long getEvictions() { return evictions.sum(); }
+    @Override public long getResidentBytes() { return residentBytes.get(); }
+    @Override public long getBudgetBytes() { return budgetBytes; }
+    @Override public int getEntries() { return entries.size(); }
+}
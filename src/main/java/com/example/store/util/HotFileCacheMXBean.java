@@ -0,0 +1,14 @@
+package com.example.store.util;
+
+/**
+ * JMX view of HotFileCache (registered as com.example.store:type=ImageCache).
+ */
+public interface HotFileCacheMXBean {
+    long getHits();
+    long getMisses();
+    double getHitRatio();
+    long getEvictions();
+    long getResidentBytes();
+    long getBudgetBytes();
+    int getEntries();
+}
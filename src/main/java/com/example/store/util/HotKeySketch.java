@@ -0,0 +1,162 @@
+package com.example.store.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Approximate "which int keys are hottest" tracker: a sampled count-min sketch plus a small
+ * candidate set for the top N.
+ *
+ * Data Structure Choice: count-min sketch (4 rows x width AtomicIntegerArray)
+ * - Fixed memory whatever the key space; estimates never undercount, overcount is bounded by
+ *   collisions (width 4096 keeps it negligible for a product catalogue)
+ * - Only 1 in sampleRate record() calls touches the sketch (one ThreadLocalRandom draw otherwise),
+ *   so the cache hot path stays a map lookup plus a LongAdder increment
+ * - Aging: after 10 x width samples every counter is halved, so the ranking follows recent traffic
+ *   instead of all-time totals
+ *
+ * The top-N candidate set (4N keys) is only touched on sampled calls, under a lock. A ReentrantLock
+ * rather than a monitor: a virtual thread (RequestExecutor) waiting for it unmounts from its carrier.
+ *
+ * Big-O Time Complexity: record O(1) (O(4N) for a sampled key that is not yet a candidate), top O(N log N)
+ */
+public class HotKeySketch {
+    private static final int DEPTH = 4;
+    private static final int[] SEEDS = {0x9e3779b9, 0x85ebca6b, 0xc2b2ae35, 0x27d4eb2f};
+
+    /** One key and its estimated (scaled back up by the sample rate) access count. */
+    public static final class Hot {
+        private final int key;
+        private final long estimate;
+
+        Hot(int key, long estimate) {
+            this.key = key;
+            this.estimate = estimate;
+        }
+
+        public int getKey() { return key; }
+        public long getEstimate() { return estimate; }
+    }
+
+    private final AtomicIntegerArray counters;
+    private final int widthMask;
+    private final int sampleMask;
+    private final int topN;
+    private final long resetAfter;
+    private final AtomicLong samples = new AtomicLong();
+    private final Map<Integer, Integer> candidates = new HashMap<>();
+    private final ReentrantLock candidatesLock = new ReentrantLock();
+
+    /**
+     * @param width      counters per row, rounded up to a power of two
+     * @param sampleRate record 1 in sampleRate calls, rounded up to a power of two
+     * @param topN       number of hottest keys to track
+     */
+    public HotKeySketch(int width, int sampleRate, int topN) {
+        int w = width <= 16 ? 16 : Integer.highestOneBit((width - 1) << 1);
+        this.widthMask = w - 1;
+        this.sampleMask = sampleRate <= 1 ? 0 : Integer.highestOneBit((sampleRate - 1) << 1) - 1;
+        this.topN = topN;
+        this.resetAfter = 10L * w;
+        this.counters = new AtomicIntegerArray(DEPTH * w);
+    }
+
+    public void record(int key) {
+        if ((ThreadLocalRandom.current().nextInt() & sampleMask) != 0) return;
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, counters.incrementAndGet(index(row, key)));
+        }
+        offer(key, estimate);
+        if (samples.incrementAndGet() % resetAfter == 0) age();
+    }
+
+    /** Hottest keys first, at most topN. */
+    public List<Hot> top() {
+        List<Hot> result = new ArrayList<>();
+        candidatesLock.lock();
+        try {
+            for (Map.Entry<Integer, Integer> e : candidates.entrySet()) {
+                result.add(new Hot(e.getKey(), (long) estimate(e.getKey()) * (sampleMask + 1)));
+            }
+        } finally {
+            candidatesLock.unlock();
+        }
+        result.sort((a, b) -> Long.compare(b.estimate, a.estimate));
+        return result.size() > topN ? new ArrayList<>(result.subList(0, topN)) : result;
+    }
+
+    public void forget(int key) {
+        candidatesLock.lock();
+        try {
+            candidates.remove(key);
+        } finally {
+            candidatesLock.unlock();
+        }
+    }
+
+    public int getSampleRate() { return sampleMask + 1; }
+
+    public int memoryBytes() { return counters.length() * Integer.BYTES; }
+
+    private int estimate(int key) {
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) estimate = Math.min(estimate, counters.get(index(row, key)));
+        return estimate;
+    }
+
+    private void offer(int key, int estimate) {
+        candidatesLock.lock();
+        try {
+            if (candidates.replace(key, estimate) != null) return;
+            if (candidates.size() < topN * 4) {
+                candidates.put(key, estimate);
+                return;
+            }
+            Integer coldest = null;
+            int coldestEstimate = estimate;
+            for (Map.Entry<Integer, Integer> e : candidates.entrySet()) {
+                if (e.getValue() < coldestEstimate) {
+                    coldest = e.getKey();
+                    coldestEstimate = e.getValue();
+                }
+            }
+            if (coldest != null) {
+                candidates.remove(coldest);
+                candidates.put(key, estimate);
+            }
+        } finally {
+            candidatesLock.unlock();
+        }
+    }
+
+    /** Halve every counter; increments racing with this may survive unhalved, which is harmless. */
+    private void age() {
+        for (int i = 0; i < counters.length(); i++) {
+            int cur;
+            do {
+                cur = counters.get(i);
+            } while (!counters.compareAndSet(i, cur, cur >>> 1));
+        }
+        candidatesLock.lock();
+        try {
+            candidates.replaceAll((k, v) -> v >>> 1);
+        } finally {
+            candidatesLock.unlock();
+        }
+    }
+
+    private int index(int row, int key) {
+        int h = (key ^ SEEDS[row]) * 0x9e3779b9;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return row * (widthMask + 1) + (h & widthMask);
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.store.util;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Generates resized variants of uploaded images in the background.
+ *
+ * Variants live next to the originals as uploadDir/_thumb/&lt;name&gt; and uploadDir/_medium/&lt;name&gt;
+ * (same file name and format), so ImageServlet maps ?size=thumb to a path with no lookup table.
+ *
+ * - THUMB: 600x320 centre crop = the 300x160 product card at 2x pixel density
+ * - MEDIUM: fits within 1200x1200, aspect ratio kept
+ *
+ * WHY a bounded pool: decoding a 5 MB upload is CPU and memory heavy. Threads = half the cores
+ * and a small queue keep it from competing with request threads; a full queue drops the job and
+ * the variant is requested again the next time ImageServlet serves the original in its place.
+ * Decoding uses ImageIO source subsampling, so a large JPEG is never fully decoded at full size.
+ * Formats without an ImageIO codec (webp on a stock JDK) keep serving the original.
+ */
+public class ImageDerivatives {
+    private static final Logger LOG = Logger.getLogger(ImageDerivatives.class.getName());
+
+    public enum Variant {
+        THUMB("thumb", 600, 320, true),
+        MEDIUM("medium", 1200, 1200, false);
+
+        private final String param;
+        private final int width;
+        private final int height;
+        private final boolean crop;
+
+        Variant(String param, int width, int height, boolean crop) {
+            this.param = param;
+            this.width = width;
+            this.height = height;
+            this.crop = crop;
+        }
+
+        /** Variant for a ?size= value, or null for the original. */
+        public static Variant fromParam(String value) {
+            if (value == null) return null;
+            for (Variant v : values()) {
+                if (v.param.equalsIgnoreCase(value)) return v;
+            }
+            return null;
+        }
+
+        /** Upload-dir relative path of this variant of fileName. */
+        public String path(String fileName) {
+            return "_" + param + "/" + fileName;
+        }
+    }
+
+    private final Path uploadDir;
+    private final ThreadPoolExecutor pool;
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    private final LongAdder generated = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    public ImageDerivatives(Path uploadDir, int threads, int queueCapacity) {
+        this.uploadDir = uploadDir;
+        AtomicInteger seq = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "image-derivatives-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    t.setPriority(Thread.MIN_PRIORITY);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public static ImageDerivatives forAvailableCores(Path uploadDir) {
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        return new ImageDerivatives(uploadDir, threads, 64);
+    }
+
+    /**
+     * Queue generation of every variant of fileName (an upload-dir relative original). Returns
+     * immediately; duplicate requests for a file already queued are ignored.
+     */
+    public void request(String fileName) {
+        // originals live at the top of uploadDir; anything with a path is a variant or foreign file
+        if (fileName.indexOf('/') >= 0 || !supported(fileName) || !inFlight.add(fileName)) return;
+        try {
+            pool.execute(() -> {
+                try {
+                    generate(fileName);
+                } finally {
+                    inFlight.remove(fileName);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(fileName);
+            dropped.increment();
+        }
+    }
+
+    public long getGenerated() { return generated.sum(); }
+    public long getDropped() { return dropped.sum(); }
+    public long getFailed() { return failed.sum(); }
+
+    public void shutdown() { pool.shutdownNow(); }
+
+    private void generate(String fileName) {
+        Path original = uploadDir.resolve(fileName);
+        for (Variant v : Variant.values()) {
+            Path target = uploadDir.resolve(v.path(fileName));
+            try {
+                if (Files.exists(target) && Files.getLastModifiedTime(target).compareTo(Files.getLastModifiedTime(original)) >= 0) {
+                    continue;
+                }
+                BufferedImage source = decode(original, v);
+                if (source == null) return; // no codec for this format
+                BufferedImage scaled = resize(source, v, !"jpeg".equals(formatOf(fileName)));
+                Files.createDirectories(target.getParent());
+                Path tmp = Files.createTempFile(target.getParent(), ".tmp-", "");
+                try {
+                    if (!ImageIO.write(scaled, formatOf(fileName), tmp.toFile())) return;
+                    // atomic rename: ImageServlet never sees a half-written variant
+                    Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(tmp);
+                }
+                generated.increment();
+            } catch (IOException | RuntimeException e) {
+                failed.increment();
+                LOG.log(Level.WARNING, "Could not generate " + v + " for " + fileName, e);
+                return;
+            }
+        }
+    }
+
+    /** Decode with the largest subsampling that still leaves twice the variant's size (headroom for bicubic scaling). */
+    private static BufferedImage decode(Path file, Variant v) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            if (in == null) return null;
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) return null;
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int w = reader.getWidth(0);
+                int h = reader.getHeight(0);
+                double scale = v.crop
+                        ? Math.max((double) v.width / w, (double) v.height / h)
+                        : Math.min((double) v.width / w, (double) v.height / h);
+                int step = Math.max(1, (int) Math.floor(1 / scale / 2));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage resize(BufferedImage src, Variant v, boolean keepAlpha) {
+        int w = src.getWidth();
+        int h = src.getHeight();
+        double scale = v.crop
+                ? Math.max((double) v.width / w, (double) v.height / h)
+                : Math.min((double) v.width / w, (double) v.height / h);
+        scale = Math.min(1.0, scale); // never upscale
+        int scaledW = Math.max(1, (int) Math.round(w * scale));
+        int scaledH = Math.max(1, (int) Math.round(h * scale));
+        int outW = v.crop ? Math.min(v.width, scaledW) : scaledW;
+        int outH = v.crop ? Math.min(v.height, scaledH) : scaledH;
+
+        int type = keepAlpha && src.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage out = new BufferedImage(outW, outH, type);
+        Graphics2D g = out.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(src, (outW - scaledW) / 2, (outH - scaledH) / 2, scaledW, scaledH, null);
+        } finally {
+            g.dispose();
+        }
+        return out;
+    }
+
+    private static boolean supported(String fileName) {
+        String format = formatOf(fileName);
+        return format != null && ImageIO.getImageWritersByFormatName(format).hasNext();
+    }
+
+    private static String formatOf(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        if (dot < 0) return null;
+        String ext = fileName.substring(dot + 1).toLowerCase(Locale.ROOT);
+        return ext.equals("jpg") ? "jpeg" : ext;
+    }
+}
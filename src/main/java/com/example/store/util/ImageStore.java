@@ -0,0 +1,92 @@
+package com.example.store.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed storage for uploaded images: a file is named after the SHA-256 of its bytes.
+ *
+ * - The upload is streamed to a temp file in the upload directory while the digest is updated from
+ *   the same 64 KB buffer: one pass, nothing buffered beyond that buffer
+ * - The temp file is then atomically renamed to &lt;sha256&gt;.&lt;ext&gt;; if that name already exists the
+ *   bytes are identical, so the temp file is dropped (deduplication)
+ * - Because a name can never refer to different bytes, ImageServlet may let clients cache it forever
+ *
+ * Recently stored names are remembered so ImageSweeper does not delete a file that was just
+ * deduplicated against an orphan before the product row referencing it is written.
+ */
+public class ImageStore {
+    private static final Pattern CONTENT_ADDRESSED = Pattern.compile("[0-9a-f]{64}\\.[a-z0-9]+");
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path uploadDir;
+    private final ConcurrentHashMap<String, Long> storedAt = new ConcurrentHashMap<>();
+
+    public ImageStore(Path uploadDir) {
+        this.uploadDir = uploadDir;
+    }
+
+    public Path getUploadDir() { return uploadDir; }
+
+    /** True for names produced by store(): immutable content. */
+    public static boolean isContentAddressed(String fileName) {
+        return CONTENT_ADDRESSED.matcher(fileName).matches();
+    }
+
+    /**
+     * Store in under its content hash. ext is the file extension without dot (e.g. "jpg").
+     * Returns the upload-dir relative file name.
+     */
+    public String store(InputStream in, String ext) throws IOException {
+        MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+        Path tmp = Files.createTempFile(uploadDir, ".upload-", ".tmp");
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                int n;
+                while ((n = in.read(buffer)) > 0) {
+                    sha256.update(buffer, 0, n);
+                    out.write(buffer, 0, n);
+                }
+            }
+            String fileName = HexFormat.of().formatHex(sha256.digest()) + "." + ext;
+            storedAt.put(fileName, System.currentTimeMillis());
+            Path target = uploadDir.resolve(fileName);
+            if (!Files.exists(target)) {
+                try {
+                    Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException raced) {
+                    // identical upload won the race; same bytes, keep theirs
+                }
+            }
+            return fileName;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /** When fileName was last returned by store(), or 0. */
+    public long lastStoredMillis(String fileName) {
+        return storedAt.getOrDefault(fileName, 0L);
+    }
+
+    /** Forget store() timestamps older than cutoff (called by the sweeper). */
+    void expireStoredBefore(long cutoffMillis) {
+        storedAt.values().removeIf(t -> t < cutoffMillis);
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.store.util;
+
+import com.example.store.dao.ProductDAO;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Deletes uploaded images (and their thumb/medium variants) that no product references any more.
+ *
+ * Reference counts come from one GROUP BY over products.image_url per run, so they are always the
+ * database's view, shared by every node. A file is deleted only when its count is zero and it is
+ * older than the grace period, both since it was released and since ImageStore last stored it,
+ * which covers a save that is still in flight for a deduplicated upload.
+ *
+ * - release(url): a product was deleted or its image replaced; checked on the next run
+ * - each run also scans the upload directory for content-addressed files nobody references
+ *   (e.g. an upload whose product save then failed)
+ */
+public class ImageSweeper implements Runnable {
+    private static final Logger LOG = Logger.getLogger(ImageSweeper.class.getName());
+    private static final String URL_PREFIX = "/images/";
+
+    private final ProductDAO productDAO;
+    private final ImageStore store;
+    private final long graceMillis;
+    private final ConcurrentHashMap<String, Long> released = new ConcurrentHashMap<>();
+
+    public ImageSweeper(ProductDAO productDAO, ImageStore store, long graceMillis) {
+        this.productDAO = productDAO;
+        this.store = store;
+        this.graceMillis = graceMillis;
+    }
+
+    /** Mark the image behind imageUrl as possibly orphaned. Non-local URLs are ignored. */
+    public void release(String imageUrl) {
+        String name = fileName(imageUrl);
+        if (name != null) released.put(name, System.currentTimeMillis());
+    }
+
+    @Override
+    public void run() {
+        try {
+            int deleted = sweep();
+            if (deleted > 0) LOG.info("Image sweeper deleted " + deleted + " orphaned images");
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Image sweep failed", e);
+        }
+    }
+
+    /** One pass; returns the number of originals deleted. */
+    public int sweep() {
+        long now = System.currentTimeMillis();
+        long cutoff = now - graceMillis;
+        Map<String, Integer> refs = productDAO.countImageReferences();
+        int deleted = 0;
+
+        for (Map.Entry<String, Long> e : released.entrySet()) {
+            String name = e.getKey();
+            if (refs.containsKey(URL_PREFIX + name)) {
+                released.remove(name); // referenced again
+            } else if (e.getValue() < cutoff && store.lastStoredMillis(name) < cutoff) {
+                if (delete(name)) deleted++;
+                released.remove(name);
+            }
+        }
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(store.getUploadDir())) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (!ImageStore.isContentAddressed(name) || refs.containsKey(URL_PREFIX + name)) continue;
+                if (store.lastStoredMillis(name) >= cutoff) continue;
+                if (Files.getLastModifiedTime(file).toMillis() >= cutoff) continue;
+                if (delete(name)) deleted++;
+            }
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Cannot scan " + store.getUploadDir(), e);
+        }
+        store.expireStoredBefore(cutoff);
+        return deleted;
+    }
+
+    private boolean delete(String name) {
+        try {
+            for (ImageDerivatives.Variant v : ImageDerivatives.Variant.values()) {
+                Files.deleteIfExists(store.getUploadDir().resolve(v.path(name)));
+            }
+            return Files.deleteIfExists(store.getUploadDir().resolve(name));
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Cannot delete image " + name, e);
+            return false;
+        }
+    }
+
+    /** "/images/abc.jpg" -> "abc.jpg"; null for external URLs and anything with a sub-path. */
+    private static String fileName(String imageUrl) {
+        if (imageUrl == null || !imageUrl.startsWith(URL_PREFIX)) return null;
+        String name = imageUrl.substring(URL_PREFIX.length());
+        return name.isEmpty() || name.contains("/") || name.contains("..") ? null : name;
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.store.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Streaming JSON Lines reader: next() parses one line holding one flat object, e.g.
+ * {"name":"Mug","price":4.50,"sku":"MUG-1"}, so memory is bounded by maxLineChars, not by the file.
+ *
+ * - Values come back as text: strings unescaped, numbers exactly as written (4.50 is not rounded
+ *   through a double), true / false, and null for JSON null
+ * - Nested objects and arrays are rejected: import rows are flat
+ * - A byte order mark and blank lines are skipped; a malformed or oversized line throws
+ *   IllegalArgumentException once the reader has moved past it, so the caller can report that line
+ *   and carry on with the next one
+ */
+public final class JsonLineReader implements Closeable {
+    private final Reader in;
+    private final int maxLineChars;
+    private final char[] buf = new char[8192];
+    private final StringBuilder lineText = new StringBuilder();
+    private int pos;
+    private int limit;
+    private long line;
+
+    private String text;
+    private int at;
+
+    public JsonLineReader(Reader in, int maxLineChars) {
+        this.in = in;
+        this.maxLineChars = maxLineChars;
+    }
+
+    /** Next object's fields (last one wins on a repeated name), or null at the end of input. */
+    public Map<String, String> next() throws IOException {
+        while (true) {
+            int status = readLine();
+            if (status == -1) return null;
+            text = lineText.toString();
+            if (line == 1 && text.startsWith("\uFEFF")) text = text.substring(1);
+            if (status == 0) throw new IllegalArgumentException("line longer than " + maxLineChars + " characters");
+            if (!text.isBlank()) return parseObject();
+        }
+    }
+
+    /** Number of the line last returned (or rejected) by next(). */
+    public long getLine() { return line; }
+
+    @Override
+    public void close() throws IOException { in.close(); }
+
+    /** Reads the next line into lineText: 1 read, 0 too long (skipped), -1 end of input. */
+    private int readLine() throws IOException {
+        lineText.setLength(0);
+        boolean any = false;
+        boolean tooLong = false;
+        while (true) {
+            if (pos == limit) {
+                limit = in.read(buf, 0, buf.length);
+                pos = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    if (!any) return -1;
+                    break;
+                }
+            }
+            any = true;
+            char c = buf[pos++];
+            if (c == '\n') break;
+            if (tooLong) continue;
+            if (lineText.length() == maxLineChars) {
+                tooLong = true;
+                lineText.setLength(0);
+                continue;
+            }
+            lineText.append(c);
+        }
+        line++;
+        int end = lineText.length();
+        if (end > 0 && lineText.charAt(end - 1) == '\r') lineText.setLength(end - 1);
+        return tooLong ? 0 : 1;
+    }
+
+    private Map<String, String> parseObject() {
+        at = 0;
+        Map<String, String> fields = new LinkedHashMap<>();
+        skipSpace();
+        if (peek() != '{') throw error("expected one JSON object per line");
+        at++;
+        skipSpace();
+        if (peek() == '}') {
+            at++;
+        } else {
+            while (true) {
+                skipSpace();
+                if (peek() != '"') throw error("expected a field name");
+                String name = parseString();
+                skipSpace();
+                if (peek() != ':') throw error("expected ':'");
+                at++;
+                skipSpace();
+                fields.put(name, parseValue());
+                skipSpace();
+                char c = peek();
+                at++;
+                if (c == '}') break;
+                if (c != ',') throw error("expected ',' or '}'");
+            }
+        }
+        skipSpace();
+        if (at < text.length()) throw error("unexpected text after the object");
+        return fields;
+    }
+
+    private String parseValue() {
+        char c = peek();
+        if (c == '"') return parseString();
+        if (c == '{' || c == '[') throw error("nested objects and arrays are not supported");
+        if (text.startsWith("null", at)) {
+            at += 4;
+            return null;
+        }
+        if (text.startsWith("true", at) || text.startsWith("false", at)) {
+            String literal = c == 't' ? "true" : "false";
+            at += literal.length();
+            return literal;
+        }
+        int start = at;
+        if (peek() == '-') at++;
+        int digits = digits();
+        if (digits == 0) throw error("expected a value");
+        if (peek() == '.') {
+            at++;
+            if (digits() == 0) throw error("expected digits after '.'");
+        }
+        if (peek() == 'e' || peek() == 'E') {
+            at++;
+            if (peek() == '+' || peek() == '-') at++;
+            if (digits() == 0) throw error("expected an exponent");
+        }
+        return text.substring(start, at);
+    }
+
+    private int digits() {
+        int start = at;
+        while (at < text.length() && text.charAt(at) >= '0' && text.charAt(at) <= '9') at++;
+        return at - start;
+    }
+
+    private String parseString() {
+        at++; // opening quote
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            if (at >= text.length()) throw error("unterminated string");
+            char c = text.charAt(at++);
+            if (c == '"') return sb.toString();
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            if (at >= text.length()) throw error("unterminated string");
+            char e = text.charAt(at++);
+            switch (e) {
+                case '"': case '\\': case '/': sb.append(e); break;
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'n': sb.append('\n'); break;
+                case 'r': sb.append('\r'); break;
+                case 't': sb.append('\t'); break;
+                case 'u':
+                    if (at + 4 > text.length()) throw error("bad \\u escape");
+                    try {
+                        sb.append((char) Integer.parseInt(text.substring(at, at + 4), 16));
+                    } catch (NumberFormatException nfe) {
+                        throw error("bad \\u escape");
+                    }
+                    at += 4;
+                    break;
+                default:
+                    throw error("bad escape \\" + e);
+            }
+        }
+    }
+
+    private void skipSpace() {
+        while (at < text.length() && Character.isWhitespace(text.charAt(at))) at++;
+    }
+
+    private char peek() {
+        return at < text.length() ? text.charAt(at) : '\0';
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at column " + (at + 1));
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.store.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+
+/**
+ * Minimal streaming JSON writer: writes straight to the response Writer, no tree, no buffering.
+ *
+ * Comma placement is tracked in one long bitmask (one bit per nesting level) rather than a stack
+ * of container objects. Numbers are still formatted through Long.toString / toPlainString, so each
+ * numeric value costs a short String. Nesting is limited to 64 levels.
+ *
+ * Usage: w.beginObject().name("id").value(1).name("tags").beginArray().value("a").endArray().endObject();
+ */
+public final class JsonWriter {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final char LINE_SEPARATOR = 0x2028;
+    private static final char PARAGRAPH_SEPARATOR = 0x2029;
+
+    private final Writer out;
+    private long firstInLevel; // bit (depth - 1) set while the current container has no elements yet
+    private int depth;
+    private boolean afterName;
+
+    public JsonWriter(Writer out) { this.out = out; }
+
+    public JsonWriter beginObject() throws IOException { return open('{'); }
+
+    public JsonWriter endObject() throws IOException { return close('}'); }
+
+    public JsonWriter beginArray() throws IOException { return open('['); }
+
+    public JsonWriter endArray() throws IOException { return close(']'); }
+
+    public JsonWriter name(String name) throws IOException {
+        separate();
+        string(name);
+        out.write(':');
+        afterName = true;
+        return this;
+    }
+
+    public JsonWriter value(String value) throws IOException {
+        beforeValue();
+        if (value == null) out.write("null");
+        else string(value);
+        return this;
+    }
+
+    public JsonWriter value(long value) throws IOException {
+        beforeValue();
+        out.write(Long.toString(value));
+        return this;
+    }
+
+    public JsonWriter value(boolean value) throws IOException {
+        beforeValue();
+        out.write(value ? "true" : "false");
+        return this;
+    }
+
+    /** Exact decimal as a JSON number (no exponent), e.g. prices. */
+    public JsonWriter value(BigDecimal value) throws IOException {
+        beforeValue();
+        out.write(value == null ? "null" : value.toPlainString());
+        return this;
+    }
+
+    public JsonWriter nullValue() throws IOException {
+        beforeValue();
+        out.write("null");
+        return this;
+    }
+
+    public void flush() throws IOException { out.flush(); }
+
+    private JsonWriter open(char c) throws IOException {
+        if (depth == 64) throw new IllegalStateException("JSON nesting too deep");
+        beforeValue();
+        out.write(c);
+        firstInLevel |= 1L << depth;
+        depth++;
+        return this;
+    }
+
+    private JsonWriter close(char c) throws IOException {
+        if (depth == 0) throw new IllegalStateException("No open JSON container");
+        depth--;
+        firstInLevel &= ~(1L << depth);
+        out.write(c);
+        return this;
+    }
+
+    private void beforeValue() throws IOException {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        separate();
+    }
+
+    private void separate() throws IOException {
+        if (depth == 0) return;
+        long bit = 1L << (depth - 1);
+        if ((firstInLevel & bit) != 0) firstInLevel &= ~bit;
+        else out.write(',');
+    }
+
+    private void string(String s) throws IOException {
+        out.write('"');
+        int start = 0;
+        int len = s.length();
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\' && c != '<' && c != LINE_SEPARATOR && c != PARAGRAPH_SEPARATOR) continue;
+            out.write(s, start, i - start);
+            switch (c) {
+                case '"': out.write("\\\""); break;
+                case '\\': out.write("\\\\"); break;
+                case '\n': out.write("\\n"); break;
+                case '\r': out.write("\\r"); break;
+                case '\t': out.write("\\t"); break;
+                default:
+                    // other control chars, '<' (keeps "</script>" inert) and JS line separators
+                    out.write("\\u");
+                    out.write(HEX[(c >> 12) & 0xF]);
+                    out.write(HEX[(c >> 8) & 0xF]);
+                    out.write(HEX[(c >> 4) & 0xF]);
+                    out.write(HEX[c & 0xF]);
+            }
+            start = i + 1;
+        }
+        out.write(s, start, len - start);
+        out.write('"');
+    }
+}
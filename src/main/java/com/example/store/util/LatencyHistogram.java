@@ -0,0 +1,99 @@
+package com.example.store.util;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-bucket latency histogram, cheap enough to stay on in production.
+ *
+ * Buckets are log-linear: every power of two from 8.192 us to 17.2 s is split into two linear halves
+ * (2^n, 1.5 * 2^n, 2^(n+1), ...), 43 bounds plus +Inf. Relative error is at most 33% at any latency,
+ * and the bounds never change, as Prometheus histograms require.
+ *
+ * record() is allocation-free and lock-free: a binary search over a static long[] and a LongAdder
+ * increment (striped, so concurrent requests do not contend on one cache line).
+ */
+public final class LatencyHistogram {
+    private static final int MIN_SHIFT = 13;
+    private static final int MAX_SHIFT = 34;
+    static final long[] BOUNDS_NANOS = bounds();
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDS_NANOS.length + 1];
+    private final LongAdder sumNanos = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) buckets[i] = new LongAdder();
+    }
+
+    private static long[] bounds() {
+        long[] b = new long[1 + (MAX_SHIFT - MIN_SHIFT) * 2];
+        int i = 0;
+        b[i++] = 1L << MIN_SHIFT;
+        for (int shift = MIN_SHIFT; shift < MAX_SHIFT; shift++) {
+            b[i++] = (1L << shift) + (1L << (shift - 1));
+            b[i++] = 1L << (shift + 1);
+        }
+        return b;
+    }
+
+    public void record(long nanos) {
+        int idx = Arrays.binarySearch(BOUNDS_NANOS, nanos);
+        if (idx < 0) idx = -idx - 1; // first bound >= nanos; BOUNDS_NANOS.length = +Inf
+        buckets[idx].increment();
+        sumNanos.add(nanos);
+    }
+
+    /** Record the time elapsed since startedNanos (a System.nanoTime() value). */
+    public void recordSince(long startedNanos) {
+        record(System.nanoTime() - startedNanos);
+    }
+
+    /** Per-bucket (non-cumulative) counts; the last element is the +Inf bucket. */
+    public long[] snapshot() {
+        long[] counts = new long[buckets.length];
+        for (int i = 0; i < counts.length; i++) counts[i] = buckets[i].sum();
+        return counts;
+    }
+
+    public long sumNanos() { return sumNanos.sum(); }
+
+    public long count() {
+        long n = 0;
+        for (LongAdder b : buckets) n += b.sum();
+        return n;
+    }
+
+    /**
+     * Upper bound of the bucket holding quantile q (0..1), e.g. 0.99 for p99; 0 when empty. When q
+     * falls in the +Inf bucket this is the largest finite bound (maxBoundNanos()), a lower bound
+     * rather than an upper one: check quantileOverflows(q) before presenting it as "<=".
+     */
+    public long quantileUpperBoundNanos(double q) {
+        int bucket = quantileBucket(q);
+        if (bucket < 0) return 0;
+        return BOUNDS_NANOS[Math.min(bucket, BOUNDS_NANOS.length - 1)];
+    }
+
+    /** True when quantile q lies beyond the largest finite bound (the +Inf bucket). */
+    public boolean quantileOverflows(double q) {
+        return quantileBucket(q) == BOUNDS_NANOS.length;
+    }
+
+    /** Largest finite bucket bound (about 17.2 s). */
+    public static long maxBoundNanos() { return BOUNDS_NANOS[BOUNDS_NANOS.length - 1]; }
+
+    /** Index of the bucket holding quantile q (BOUNDS_NANOS.length = +Inf), or -1 when empty. */
+    private int quantileBucket(double q) {
+        long[] counts = snapshot();
+        long total = 0;
+        for (long c : counts) total += c;
+        if (total == 0) return -1;
+        long rank = (long) Math.ceil(q * total);
+        long seen = 0;
+        for (int i = 0; i < BOUNDS_NANOS.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) return i;
+        }
+        return BOUNDS_NANOS.length;
+    }
+}
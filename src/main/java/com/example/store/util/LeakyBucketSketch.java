@@ -0,0 +1,135 @@
+package com.example.store.util;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size, lock-free rate limiter keyed by arbitrary strings: a count-min sketch whose cells are
+ * leaky buckets.
+ *
+ * Each cell holds a level that leaks linearly at leakPerSecond and is bumped by one per acquire;
+ * a key is over the limit when the minimum level over its rows would exceed capacity. With one row
+ * this is a plain token bucket per hash slot; with several rows, colliding keys can only make the
+ * estimate too high (never too low), and the chance that every row collides shrinks geometrically.
+ *
+ * Data Structure Choice: AtomicLongArray of rows * width packed cells
+ * - Memory is fixed up front (8 bytes per cell) no matter how many distinct keys arrive, so a
+ *   spoofed-key flood cannot grow it; old keys simply leak back to zero ("decay")
+ * - Cell = level in thousandths (high 24 bits) | last update millis since construction (low 40 bits),
+ *   updated with a CAS loop: no locks, no allocation per call
+ * - Key hash and row indexes come from per-instance random seeds, so collisions cannot be precomputed
+ *
+ * Big-O Time Complexity: tryAcquire O(rows + key length)
+ */
+public class LeakyBucketSketch {
+    private static final int TIME_BITS = 40;
+    private static final long TIME_MASK = (1L << TIME_BITS) - 1;
+    private static final long MAX_LEVEL = (1L << (64 - TIME_BITS)) - 1;
+    private static final long UNIT = 1000;
+
+    private final int rows;
+    private final int mask;
+    private final long seed;
+    private final long[] seeds;
+    private final AtomicLongArray cells;
+    private final long capacity;       // in thousandths
+    private final double leakPerMilli; // thousandths leaked per millisecond
+    private final long startNanos = System.nanoTime();
+
+    /**
+     * @param rows independent hash rows (1 for an exact-per-slot token bucket)
+     * @param width cells per row, rounded up to a power of two
+     * @param capacity burst size: acquires allowed back to back from an empty bucket
+     * @param leakPerSecond sustained acquires per second
+     */
+    public LeakyBucketSketch(int rows, int width, int capacity, double leakPerSecond) {
+        if (rows < 1 || width < 1 || capacity < 1 || leakPerSecond <= 0) {
+            throw new IllegalArgumentException("rows, width, capacity and leakPerSecond must be positive");
+        }
+        if ((capacity + 1) * UNIT > MAX_LEVEL) throw new IllegalArgumentException("capacity too large: " + capacity);
+        int size = Integer.highestOneBit(Math.max(1, width - 1)) << 1;
+        this.rows = rows;
+        this.mask = size - 1;
+        this.cells = new AtomicLongArray(rows * size);
+        this.capacity = capacity * UNIT;
+        this.leakPerMilli = leakPerSecond * UNIT / 1000.0;
+        SecureRandom random = new SecureRandom();
+        this.seed = random.nextLong();
+        this.seeds = new long[rows];
+        for (int r = 0; r < rows; r++) seeds[r] = random.nextLong();
+    }
+
+    /**
+     * Count one attempt for key if it is under the limit.
+     *
+     * @return 0 if the attempt was counted, otherwise the milliseconds until one more attempt fits
+     */
+    public long tryAcquire(String key) {
+        long now = nowMillis();
+        long h = hash(key);
+        long min = Long.MAX_VALUE;
+        for (int r = 0; r < rows; r++) {
+            min = Math.min(min, leaked(cells.get(slot(h, r)), now));
+        }
+        if (min + UNIT > capacity) {
+            return Math.max(1, (long) Math.ceil((min + UNIT - capacity) / leakPerMilli));
+        }
+        for (int r = 0; r < rows; r++) {
+            int slot = slot(h, r);
+            long cur, next;
+            do {
+                cur = cells.get(slot);
+                long level = Math.min(MAX_LEVEL, leaked(cur, now) + UNIT);
+                next = (level << TIME_BITS) | now;
+            } while (!cells.compareAndSet(slot, cur, next));
+        }
+        return 0;
+    }
+
+    /** Estimated attempts currently held for key (after leak), for diagnostics. */
+    public double estimate(String key) {
+        long now = nowMillis();
+        long h = hash(key);
+        long min = Long.MAX_VALUE;
+        for (int r = 0; r < rows; r++) {
+            min = Math.min(min, leaked(cells.get(slot(h, r)), now));
+        }
+        return min / (double) UNIT;
+    }
+
+    public int memoryBytes() { return cells.length() * Long.BYTES; }
+
+    private long leaked(long cell, long now) {
+        long level = cell >>> TIME_BITS;
+        long elapsed = now - (cell & TIME_MASK);
+        if (elapsed <= 0) return level;
+        return Math.max(0, level - (long) (elapsed * leakPerMilli));
+    }
+
+    private long nowMillis() {
+        return ((System.nanoTime() - startNanos) / 1_000_000) & TIME_MASK;
+    }
+
+    private int slot(long h, int row) {
+        return row * (mask + 1) + (int) (fmix(h + seeds[row]) & mask);
+    }
+
+    /** FNV-1a over the chars, started from the instance seed so collisions cannot be precomputed. */
+    private long hash(String key) {
+        long h = seed ^ 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /** murmur3 fmix64 avalanche, gives each row an independent index from one key hash. */
+    private static long fmix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
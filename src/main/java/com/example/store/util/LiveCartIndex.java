@@ -0,0 +1,92 @@
+package com.example.store.util;
+
+import com.example.store.model.Cart;
+import com.example.store.model.CartItem;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reverse index productId -> carts currently held in live HttpSessions.
+ *
+ * Lets a product write find the in-memory carts it affects without scanning every session.
+ * Entries are added when a cart is bound to a session or mutated (track) and dropped when the
+ * cart leaves the session (untrack). Lines removed from a cart leave a stale entry behind that is
+ * pruned the next time that product is looked up.
+ *
+ * untrack() marks the cart detached before dropping its entries, and track() refuses detached
+ * carts. A request still holding the cart when its session expires may call track() concurrently
+ * with untrack(); track() re-checks the flag after adding and removes what it added, so the dead
+ * cart cannot stay in the index.
+ *
+ * Data Structure Choice: two ConcurrentHashMaps with concurrent key sets
+ * - cartsByProduct: productId -> carts, the lookup used by repricing
+ * - productsByCart: cart -> tracked productIds, so untrack() removes exactly what track() added
+ * Carts are compared by identity (Cart does not override equals/hashCode).
+ *
+ * Big-O Time Complexity:
+ * - track(cart): O(n) for n lines, no-op adds for already tracked products
+ * - untrack(cart): O(t) for t tracked products
+ * - cartsContaining(productId): O(k) for k carts indexed under the product
+ */
+public class LiveCartIndex {
+    private final ConcurrentHashMap<Integer, Set<Cart>> cartsByProduct = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Cart, Set<Integer>> productsByCart = new ConcurrentHashMap<>();
+
+    public void track(Cart cart) {
+        if (cart.isDetached()) return;
+        Set<Integer> tracked = productsByCart.computeIfAbsent(cart, c -> ConcurrentHashMap.newKeySet());
+        for (CartItem item : cart.getItems()) {
+            int productId = item.getProduct().getId();
+            if (!tracked.add(productId)) continue;
+            // compute() keeps add and empty-set removal atomic per product key
+            cartsByProduct.compute(productId, (k, carts) -> {
+                if (carts == null) carts = ConcurrentHashMap.newKeySet();
+                carts.add(cart);
+                return carts;
+            });
+        }
+        if (cart.isDetached()) {
+            // lost a race with untrack(): tracked may already be out of productsByCart
+            productsByCart.remove(cart, tracked);
+            for (Integer productId : tracked) unlink(productId, cart);
+        }
+    }
+
+    public void untrack(Cart cart) {
+        cart.markDetached(); // before the removal, so a concurrent track() sees it on its re-check
+        Set<Integer> tracked = productsByCart.remove(cart);
+        if (tracked == null) return;
+        for (Integer productId : tracked) unlink(productId, cart);
+    }
+
+    /**
+     * Live carts that still contain productId. Stale entries found along the way are removed.
+     */
+    public List<Cart> cartsContaining(int productId) {
+        Set<Cart> carts = cartsByProduct.get(productId);
+        if (carts == null) return List.of();
+        List<Cart> result = new ArrayList<>(carts.size());
+        for (Cart cart : carts) {
+            if (cart.getItem(productId) != null) {
+                result.add(cart);
+            } else {
+                Set<Integer> tracked = productsByCart.get(cart);
+                if (tracked != null) tracked.remove(productId);
+                unlink(productId, cart);
+            }
+        }
+        return result;
+    }
+
+    public int trackedCarts() { return productsByCart.size(); }
+
+    private void unlink(int productId, Cart cart) {
+        cartsByProduct.computeIfPresent(productId, (k, carts) -> {
+            carts.remove(cart);
+            return carts.isEmpty() ? null : carts;
+        });
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.store.util;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rate limits sign-in attempts before any DB lookup or PBKDF2 work is done.
+ *
+ * WHY: every failed login costs a full 120,000-iteration hash, so a credential-stuffing burst is
+ * a CPU-exhaustion attack. Rejecting over-limit attempts up front costs a few CAS operations.
+ *
+ * Two dimensions, both LeakyBucketSketch (fixed memory, lock-free, decays on its own):
+ * - username: one row of 65,536 token buckets; stops guessing against a single account
+ *   (case-folded, since username lookups are case-insensitive in MySQL)
+ * - client IP: count-min sketch, 4 rows x 16,384 buckets; stops one source spraying many accounts
+ *
+ * The IP check runs first so a flooding client does not drain the per-username buckets of the
+ * accounts it targets. Throttled attempts are counted per dimension and exposed over JMX.
+ */
+public class LoginThrottle implements LoginThrottleMXBean {
+    private static final int USER_WIDTH = 1 << 16;
+    private static final int IP_ROWS = 4;
+    private static final int IP_WIDTH = 1 << 14;
+
+    private final LeakyBucketSketch byUsername;
+    private final LeakyBucketSketch byIp;
+    private final int usernameBurst;
+    private final double usernamePerMinute;
+    private final int ipBurst;
+    private final double ipPerMinute;
+
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder throttledByUsername = new LongAdder();
+    private final LongAdder throttledByIp = new LongAdder();
+
+    public LoginThrottle(int usernameBurst, double usernamePerMinute, int ipBurst, double ipPerMinute) {
+        this.usernameBurst = usernameBurst;
+        this.usernamePerMinute = usernamePerMinute;
+        this.ipBurst = ipBurst;
+        this.ipPerMinute = ipPerMinute;
+        this.byUsername = new LeakyBucketSketch(1, USER_WIDTH, usernameBurst, usernamePerMinute / 60.0);
+        this.byIp = new LeakyBucketSketch(IP_ROWS, IP_WIDTH, ipBurst, ipPerMinute / 60.0);
+    }
+
+    /**
+     * Count a login attempt. Returns 0 when it may proceed, otherwise the suggested Retry-After in seconds.
+     */
+    public long tryLogin(String username, String clientIp) {
+        attempts.increment();
+        long wait = byIp.tryAcquire(clientIp);
+        if (wait > 0) {
+            throttledByIp.increment();
+            return toSeconds(wait);
+        }
+        wait = byUsername.tryAcquire(username.trim().toLowerCase(Locale.ROOT));
+        if (wait > 0) {
+            throttledByUsername.increment();
+            return toSeconds(wait);
+        }
+        return 0;
+    }
+
+    /**
+     * Count an attempt that only needs the IP dimension (registration also costs a hash).
+     * Returns 0 when it may proceed, otherwise the suggested Retry-After in seconds.
+     */
+    public long tryFromIp(String clientIp) {
+        attempts.increment();
+        long wait = byIp.tryAcquire(clientIp);
+        if (wait > 0) {
+            throttledByIp.increment();
+            return toSeconds(wait);
+        }
+        return 0;
+    }
+
+    private static long toSeconds(long millis) {
+        return Math.max(1, (millis + 999) / 1000);
+    }
+
+    @Override public long getAttempts() { return attempts.sum(); }
+    @Override public long getThrottledByUsername() { return throttledByUsername.sum(); }
+    @Override public long getThrottledByIp() { return throttledByIp.sum(); }
+    @Override public int getUsernameBurst() { return usernameBurst; }
+    @Override public double getUsernamePerMinute() { return usernamePerMinute; }
+    @Override public int getIpBurst() { return ipBurst; }
+    @Override public double getIpPerMinute() { return ipPerMinute; }
+    @Override public int getMemoryBytes() { return byUsername.memoryBytes() + byIp.memoryBytes(); }
+}
@@ -0,0 +1,15 @@
+package com.example.store.util;
+
+/**
+ * JMX view of LoginThrottle (registered as com.example.store:type=LoginThrottle).
+ */
+public interface LoginThrottleMXBean {
+    long getAttempts();
+    long getThrottledByUsername();
+    long getThrottledByIp();
+    int getUsernameBurst();
+    double getUsernamePerMinute();
+    int getIpBurst();
+    double getIpPerMinute();
+    int getMemoryBytes();
+}
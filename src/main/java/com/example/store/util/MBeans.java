@@ -0,0 +1,33 @@
+package com.example.store.util;
+
+import java.lang.management.ManagementFactory;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Registers the store's MXBeans on the platform MBean server. Failures are logged, never thrown:
+ * metrics are optional, serving requests is not.
+ */
+public final class MBeans {
+    private MBeans() {}
+
+    /** Register bean under objectName, replacing a bean left behind by a previous deployment. */
+    public static void register(String objectName, Object bean) {
+        try {
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(objectName);
+            if (mbs.isRegistered(name)) mbs.unregisterMBean(name);
+            mbs.registerMBean(bean, name);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    public static void unregister(String objectName) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(objectName));
+        } catch (Exception ignored) {
+            // not registered
+        }
+    }
+}
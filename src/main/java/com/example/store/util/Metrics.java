@@ -0,0 +1,136 @@
+package com.example.store.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide metric registry, exported in Prometheus text format by MetricsServlet.
+ *
+ * Series are looked up by a constant label string (a ConcurrentHashMap get, no allocation), so
+ * callers can record inline:
+ * <pre>
+ *     long started = System.nanoTime();
+ *     try { ... } finally { Metrics.recordDao("ProductDAO.findById", started); }
+ * </pre>
+ * Label values must come from code, never from request input, to keep the series count bounded.
+ */
+public final class Metrics {
+    private Metrics() {}
+
+    /** One histogram metric with a single label. */
+    public static final class HistogramFamily {
+        private final String name;
+        private final String help;
+        private final String label;
+        private final ConcurrentHashMap<String, LatencyHistogram> series = new ConcurrentHashMap<>();
+
+        HistogramFamily(String name, String help, String label) {
+            this.name = name;
+            this.help = help;
+            this.label = label;
+        }
+
+        public LatencyHistogram get(String labelValue) {
+            LatencyHistogram h = series.get(labelValue);
+            return h != null ? h : series.computeIfAbsent(labelValue, k -> new LatencyHistogram());
+        }
+
+        public void recordSince(String labelValue, long startedNanos) {
+            get(labelValue).recordSince(startedNanos);
+        }
+    }
+
+    /** One counter metric with a single label. */
+    public static final class CounterFamily {
+        private final String name;
+        private final String help;
+        private final String label;
+        private final ConcurrentHashMap<String, LongAdder> series = new ConcurrentHashMap<>();
+
+        CounterFamily(String name, String help, String label) {
+            this.name = name;
+            this.help = help;
+            this.label = label;
+        }
+
+        public void increment(String labelValue) {
+            LongAdder c = series.get(labelValue);
+            if (c == null) c = series.computeIfAbsent(labelValue, k -> new LongAdder());
+            c.increment();
+        }
+    }
+
+    public static final HistogramFamily DAO = new HistogramFamily(
+            "store_dao_duration_seconds", "Latency of DAO methods.", "method");
+    public static final HistogramFamily ACTIONS = new HistogramFamily(
+            "store_http_action_duration_seconds", "Latency of servlet actions, including async completion.", "action");
+    public static final CounterFamily ACTION_ERRORS = new CounterFamily(
+            "store_http_action_errors_total", "Servlet actions that ended with an exception or a 5xx status.", "action");
+
+    /** DAO method timing: the DAO histogram plus the current request's db time (RequestTiming). */
+    public static void recordDao(String method, long startedNanos) {
+        long nanos = System.nanoTime() - startedNanos;
+        DAO.get(method).record(nanos);
+        RequestTiming.db(nanos);
+    }
+
+    private static final HistogramFamily[] HISTOGRAMS = {DAO, ACTIONS};
+    private static final CounterFamily[] COUNTERS = {ACTION_ERRORS};
+
+    /** Write every registered family in Prometheus text exposition format 0.0.4. */
+    public static void writePrometheus(Writer out) throws IOException {
+        for (HistogramFamily f : HISTOGRAMS) {
+            out.write("# HELP " + f.name + " " + f.help + "\n");
+            out.write("# TYPE " + f.name + " histogram\n");
+            for (Map.Entry<String, LatencyHistogram> e : new TreeMap<>(f.series).entrySet()) {
+                writeSeries(out, f.name, f.label + "=\"" + escape(e.getKey()) + "\"", e.getValue());
+            }
+        }
+        for (CounterFamily f : COUNTERS) {
+            out.write("# HELP " + f.name + " " + f.help + "\n");
+            out.write("# TYPE " + f.name + " counter\n");
+            for (Map.Entry<String, LongAdder> e : new TreeMap<>(f.series).entrySet()) {
+                out.write(f.name + "{" + f.label + "=\"" + escape(e.getKey()) + "\"} " + e.getValue().sum() + "\n");
+            }
+        }
+    }
+
+    /** Write a single unlabelled sample with its HELP/TYPE header (for gauges and counters read from MXBeans). */
+    public static void writeSample(Writer out, String name, String type, String help, double value) throws IOException {
+        out.write("# HELP " + name + " " + help + "\n");
+        out.write("# TYPE " + name + " " + type + "\n");
+        out.write(name + " " + (value == Math.rint(value) ? Long.toString((long) value) : Double.toString(value)) + "\n");
+    }
+
+    /** Write a histogram kept outside the registry (e.g. CacheManager load times) with a single label. */
+    public static void writeHistogram(Writer out, String name, String help, String label, String labelValue,
+                                      LatencyHistogram histogram) throws IOException {
+        out.write("# HELP " + name + " " + help + "\n");
+        out.write("# TYPE " + name + " histogram\n");
+        writeSeries(out, name, label + "=\"" + escape(labelValue) + "\"", histogram);
+    }
+
+    private static void writeSeries(Writer out, String name, String labels, LatencyHistogram histogram) throws IOException {
+        long[] counts = histogram.snapshot();
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i];
+            String le = i < LatencyHistogram.BOUNDS_NANOS.length ? seconds(LatencyHistogram.BOUNDS_NANOS[i]) : "+Inf";
+            out.write(name + "_bucket{" + labels + ",le=\"" + le + "\"} " + cumulative + "\n");
+        }
+        out.write(name + "_sum{" + labels + "} " + seconds(histogram.sumNanos()) + "\n");
+        out.write(name + "_count{" + labels + "} " + cumulative + "\n");
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / 1e9);
+    }
+
+    private static String escape(String labelValue) {
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
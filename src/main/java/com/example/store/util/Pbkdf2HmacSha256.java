@@ -0,0 +1,250 @@
+package com.example.store.util;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+/**
+ * PBKDF2-HMAC-SHA256 (RFC 8018) specialised for password hashing.
+ *
+ * WHY not SecretKeyFactory("PBKDF2WithHmacSHA256"):
+ * - The JDK Mac re-absorbs the 64-byte ipad/opad key block on every HMAC call, i.e. 4 SHA-256
+ *   compressions per iteration. Here the ipad/opad states are compressed once per password and
+ *   reused, so each iteration is exactly 2 compressions (inner + outer) - half the CPU.
+ * - Iterations work on int words in per-thread buffers: no byte[] / object allocation in the loop.
+ *
+ * Output is byte-identical to the JDK: the password is UTF-8 encoded the same way
+ * (Charset.encode, malformed input replaced), keys longer than 64 bytes are pre-hashed as in HMAC.
+ * selfTest() checks an RFC 7914 vector and cross-checks against the JDK implementation.
+ */
+public final class Pbkdf2HmacSha256 {
+    private static final int[] K = {
+            0x428a2f98, 0x71374491, 0xb5c0fbcf, 0xe9b5dba5, 0x3956c25b, 0x59f111f1, 0x923f82a4, 0xab1c5ed5,
+            0xd807aa98, 0x12835b01, 0x243185be, 0x550c7dc3, 0x72be5d74, 0x80deb1fe, 0x9bdc06a7, 0xc19bf174,
+            0xe49b69c1, 0xefbe4786, 0x0fc19dc6, 0x240ca1cc, 0x2de92c6f, 0x4a7484aa, 0x5cb0a9dc, 0x76f988da,
+            0x983e5152, 0xa831c66d, 0xb00327c8, 0xbf597fc7, 0xc6e00bf3, 0xd5a79147, 0x06ca6351, 0x14292967,
+            0x27b70a85, 0x2e1b2138, 0x4d2c6dfc, 0x53380d13, 0x650a7354, 0x766a0abb, 0x81c2c92e, 0x92722c85,
+            0xa2bfe8a1, 0xa81a664b, 0xc24b8b70, 0xc76c51a3, 0xd192e819, 0xd6990624, 0xf40e3585, 0x106aa070,
+            0x19a4c116, 0x1e376c08, 0x2748774c, 0x34b0bcb5, 0x391c0cb3, 0x4ed8aa4a, 0x5b9cca4f, 0x682e6ff3,
+            0x748f82ee, 0x78a5636f, 0x84c87814, 0x8cc70208, 0x90befffa, 0xa4506ceb, 0xbef9a3f7, 0xc67178f2
+    };
+    private static final int[] IV = {
+            0x6a09e667, 0xbb67ae85, 0x3c6ef372, 0xa54ff53a, 0x510e527f, 0x9b05688c, 0x1f83d9ab, 0x5be0cd19
+    };
+    private static final int BLOCK = 64;
+    private static final int DIGEST = 32;
+    /** Bit length of a one-block HMAC message after the pad block: (64 + 32) bytes. */
+    private static final int PADDED_DIGEST_BITS = (BLOCK + DIGEST) * 8;
+
+    /** Per-thread scratch space so logins on the same worker reuse buffers. */
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private Pbkdf2HmacSha256() {}
+
+    private static final class Scratch {
+        final int[] w = new int[64];
+        final int[] inner = new int[8];
+        final int[] outer = new int[8];
+        final int[] u = new int[8];
+        final int[] t = new int[8];
+        final byte[] pad = new byte[BLOCK];
+        byte[] tail = new byte[128];
+    }
+
+    /**
+     * Derive keyLength bytes from password and salt with the given iteration count.
+     */
+    public static byte[] derive(char[] password, byte[] salt, int iterations, int keyLength) {
+        if (iterations < 1 || keyLength < 1) throw new IllegalArgumentException("iterations and keyLength must be positive");
+        Scratch s = SCRATCH.get();
+        byte[] key = passwordBytes(password);
+        try {
+            precomputePads(key, s);
+        } finally {
+            Arrays.fill(key, (byte) 0);
+        }
+
+        byte[] out = new byte[keyLength];
+        int blocks = (keyLength + DIGEST - 1) / DIGEST;
+        for (int block = 1; block <= blocks; block++) {
+            firstIteration(salt, block, s);
+            System.arraycopy(s.u, 0, s.t, 0, 8);
+            for (int i = 1; i < iterations; i++) {
+                nextIteration(s);
+                int[] u = s.u;
+                int[] t = s.t;
+                for (int j = 0; j < 8; j++) t[j] ^= u[j];
+            }
+            int offset = (block - 1) * DIGEST;
+            for (int j = 0; j < 8 && offset + j * 4 < keyLength; j++) {
+                int word = s.t[j];
+                for (int b = 0; b < 4 && offset + j * 4 + b < keyLength; b++) {
+                    out[offset + j * 4 + b] = (byte) (word >>> (24 - 8 * b));
+                }
+            }
+        }
+        Arrays.fill(s.inner, 0);
+        Arrays.fill(s.outer, 0);
+        Arrays.fill(s.u, 0);
+        Arrays.fill(s.t, 0);
+        Arrays.fill(s.w, 0);
+        return out;
+    }
+
+    /**
+     * Known-answer test (RFC 7914 section 11, c=1) plus a cross-check against the JDK provider
+     * with a non-ASCII password. Returns false if this implementation must not be used.
+     */
+    public static boolean selfTest() {
+        try {
+            byte[] expected = hex("55ac046e56e3089fec1691c22544b605f94185216dde0465e68b9d57c20dacbc"
+                    + "49ca9cccf179b645991664b39d77ef317c71b845b1e30bd509112041d3a19783");
+            if (!Arrays.equals(expected, derive("passwd".toCharArray(), "salt".getBytes(StandardCharsets.US_ASCII), 1, 64))) {
+                return false;
+            }
+            char[] password = "päss wörd €".toCharArray();
+            byte[] salt = hex("000102030405060708090a0b0c0d0e0f");
+            PBEKeySpec spec = new PBEKeySpec(password, salt, 3, 256);
+            byte[] jdk = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+            return Arrays.equals(jdk, derive(password, salt, 3, 32));
+        } catch (GeneralSecurityException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    /** Same encoding as the JDK PBKDF2 key: Charset.encode (malformed chars become '?'). */
+    private static byte[] passwordBytes(char[] password) {
+        ByteBuffer bb = StandardCharsets.UTF_8.encode(CharBuffer.wrap(password));
+        byte[] bytes = new byte[bb.remaining()];
+        bb.get(bytes);
+        bb.clear();
+        while (bb.hasRemaining()) bb.put((byte) 0);
+        return bytes;
+    }
+
+    /** inner = SHA256 state after (key ^ ipad), outer = after (key ^ opad). */
+    private static void precomputePads(byte[] key, Scratch s) {
+        if (key.length > BLOCK) {
+            try {
+                key = MessageDigest.getInstance("SHA-256").digest(key);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("SHA-256 unavailable", e);
+            }
+        }
+        byte[] pad = s.pad;
+        Arrays.fill(pad, (byte) 0);
+        System.arraycopy(key, 0, pad, 0, key.length);
+        for (int i = 0; i < BLOCK; i++) pad[i] ^= 0x36;
+        System.arraycopy(IV, 0, s.inner, 0, 8);
+        loadBlock(pad, 0, s.w);
+        compress(s.inner, s.w);
+        for (int i = 0; i < BLOCK; i++) pad[i] ^= 0x36 ^ 0x5c;
+        System.arraycopy(IV, 0, s.outer, 0, 8);
+        loadBlock(pad, 0, s.w);
+        compress(s.outer, s.w);
+        Arrays.fill(pad, (byte) 0);
+    }
+
+    /** U1 = HMAC(P, salt || INT(block)); the only step with a variable-length message. */
+    private static void firstIteration(byte[] salt, int block, Scratch s) {
+        int len = salt.length + 4;
+        int padded = ((len + 8) / BLOCK + 1) * BLOCK;
+        if (s.tail.length < padded) s.tail = new byte[padded];
+        byte[] tail = s.tail;
+        Arrays.fill(tail, 0, padded, (byte) 0);
+        System.arraycopy(salt, 0, tail, 0, salt.length);
+        tail[salt.length] = (byte) (block >>> 24);
+        tail[salt.length + 1] = (byte) (block >>> 16);
+        tail[salt.length + 2] = (byte) (block >>> 8);
+        tail[salt.length + 3] = (byte) block;
+        tail[len] = (byte) 0x80;
+        long bits = (long) (BLOCK + len) * 8;
+        for (int i = 0; i < 8; i++) tail[padded - 1 - i] = (byte) (bits >>> (8 * i));
+
+        int[] u = s.u;
+        System.arraycopy(s.inner, 0, u, 0, 8);
+        for (int off = 0; off < padded; off += BLOCK) {
+            loadBlock(tail, off, s.w);
+            compress(u, s.w);
+        }
+        outerHash(s);
+    }
+
+    /** U(i+1) = HMAC(P, U(i)): two compressions over fixed-layout blocks. */
+    private static void nextIteration(Scratch s) {
+        int[] u = s.u;
+        int[] w = s.w;
+        System.arraycopy(u, 0, w, 0, 8);
+        w[8] = 0x80000000;
+        Arrays.fill(w, 9, 15, 0);
+        w[15] = PADDED_DIGEST_BITS;
+        System.arraycopy(s.inner, 0, u, 0, 8);
+        compress(u, w);
+        outerHash(s);
+    }
+
+    /** u = SHA256 state after (key ^ opad) || u, finalised. */
+    private static void outerHash(Scratch s) {
+        int[] u = s.u;
+        int[] w = s.w;
+        System.arraycopy(u, 0, w, 0, 8);
+        w[8] = 0x80000000;
+        Arrays.fill(w, 9, 15, 0);
+        w[15] = PADDED_DIGEST_BITS;
+        System.arraycopy(s.outer, 0, u, 0, 8);
+        compress(u, w);
+    }
+
+    private static void loadBlock(byte[] b, int off, int[] w) {
+        for (int i = 0; i < 16; i++) {
+            int p = off + i * 4;
+            w[i] = (b[p] << 24) | ((b[p + 1] & 0xff) << 16) | ((b[p + 2] & 0xff) << 8) | (b[p + 3] & 0xff);
+        }
+    }
+
+    /** SHA-256 compression of the 16 words in w[0..15] into state. Clobbers w[16..63]. */
+    private static void compress(int[] state, int[] w) {
+        for (int i = 16; i < 64; i++) {
+            int x = w[i - 15];
+            int y = w[i - 2];
+            int s0 = Integer.rotateRight(x, 7) ^ Integer.rotateRight(x, 18) ^ (x >>> 3);
+            int s1 = Integer.rotateRight(y, 17) ^ Integer.rotateRight(y, 19) ^ (y >>> 10);
+            w[i] = w[i - 16] + s0 + w[i - 7] + s1;
+        }
+        int a = state[0], b = state[1], c = state[2], d = state[3];
+        int e = state[4], f = state[5], g = state[6], h = state[7];
+        for (int i = 0; i < 64; i++) {
+            int t1 = h + (Integer.rotateRight(e, 6) ^ Integer.rotateRight(e, 11) ^ Integer.rotateRight(e, 25))
+                    + ((e & f) ^ (~e & g)) + K[i] + w[i];
+            int t2 = (Integer.rotateRight(a, 2) ^ Integer.rotateRight(a, 13) ^ Integer.rotateRight(a, 22))
+                    + ((a & b) ^ (a & c) ^ (b & c));
+            h = g;
+            g = f;
+            f = e;
+            e = d + t1;
+            d = c;
+            c = b;
+            b = a;
+            a = t1 + t2;
+        }
+        state[0] += a;
+        state[1] += b;
+        state[2] += c;
+        state[3] += d;
+        state[4] += e;
+        state[5] += f;
+        state[6] += g;
+        state[7] += h;
+    }
+
+    private static byte[] hex(String s) {
+        byte[] out = new byte[s.length() / 2];
+        for (int i = 0; i < out.length; i++) out[i] = (byte) Integer.parseInt(s.substring(2 * i, 2 * i + 2), 16);
+        return out;
+    }
+}
@@ -0,0 +1,271 @@
+package com.example.store.util;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable int-keyed map backed by a path-compressed 32-way radix trie.
+ *
+ * Every update returns a new map that shares all untouched nodes with the old one,
+ * so a reference to a map is a consistent snapshot that can be read without locking.
+ *
+ * Data Structure Choice: bitmap-compressed radix trie on the key bits (not a hash)
+ * - Branches on 5 key bits per level, most significant first, so iteration is in ascending key order
+ * - Nodes only store occupied slots (bitmap + dense array), single-child chains are skipped via a prefix
+ * - A 32-bit key needs at most 7 levels; typical small maps are 1-2 levels deep
+ *
+ * Big-O Time Complexity:
+ * - get(key): O(log32 n), bounded by 7 node visits
+ * - put(key, value) / remove(key): O(log32 n) path copy, bounded by 7 small array copies
+ * - size(): O(1)
+ * - iteration: O(n), ascending by key
+ */
+public final class PersistentIntMap<V> implements Iterable<V> {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final int MAX_DEPTH = 8; // root + 7 levels (shifts 30, 25, ..., 0)
+
+    private static final PersistentIntMap<Object> EMPTY = new PersistentIntMap<>(null, 0);
+
+    /** Callback for key/value iteration without boxing the key. */
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        void accept(int key, V value);
+    }
+
+    // null, Leaf or Node
+    private final Object root;
+    private final int size;
+
+    private PersistentIntMap(Object root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <V> PersistentIntMap<V> empty() { return (PersistentIntMap<V>) EMPTY; }
+
+    public int size() { return size; }
+
+    public boolean isEmpty() { return size == 0; }
+
+    public boolean containsKey(int key) { return find(root, bits(key)) != null; }
+
+    public V get(int key) {
+        Leaf<V> leaf = find(root, bits(key));
+        return leaf == null ? null : leaf.value;
+    }
+
+    /**
+     * Return a map with key bound to value. Returns this map when the binding is unchanged.
+     */
+    public PersistentIntMap<V> put(int key, V value) {
+        boolean[] added = new boolean[1];
+        Object newRoot = put(root, bits(key), value, added);
+        if (newRoot == root) return this;
+        return new PersistentIntMap<>(newRoot, added[0] ? size + 1 : size);
+    }
+
+    /**
+     * Return a map without key. Returns this map when key is absent.
+     */
+    public PersistentIntMap<V> remove(int key) {
+        Object newRoot = remove(root, bits(key));
+        if (newRoot == root) return this;
+        return newRoot == null ? empty() : new PersistentIntMap<>(newRoot, size - 1);
+    }
+
+    /** Visit every entry in ascending key order. */
+    @SuppressWarnings("unchecked")
+    public void forEachEntry(EntryConsumer<? super V> action) {
+        Itr<V> it = new Itr<>(root);
+        while (it.hasNext()) {
+            Leaf<V> leaf = it.nextLeaf();
+            action.accept(leaf.key ^ Integer.MIN_VALUE, leaf.value);
+        }
+    }
+
+    /** Values in ascending key order. The iterator does not support remove(). */
+    @Override
+    public Iterator<V> iterator() { return new Itr<>(root); }
+
+    // ---- trie internals ----
+
+    /** Flip the sign bit so unsigned bit order matches signed int order. */
+    private static int bits(int key) { return key ^ Integer.MIN_VALUE; }
+
+    private static int chunk(int bits, int shift) { return (bits >>> shift) & MASK; }
+
+    /** Mask selecting the key bits above the slice a node at this shift branches on. */
+    private static int prefixMask(int shift) { return shift + BITS >= 32 ? 0 : -1 << (shift + BITS); }
+
+    /** Shift of the level at which two distinct keys first land in different slots. */
+    private static int splitShift(int a, int b) {
+        int highestDiff = 31 - Integer.numberOfLeadingZeros(a ^ b);
+        return (highestDiff / BITS) * BITS;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> Leaf<V> find(Object n, int bits) {
+        while (n instanceof Node) {
+            Node node = (Node) n;
+            if ((bits & prefixMask(node.shift)) != node.prefix) return null;
+            int bit = 1 << chunk(bits, node.shift);
+            if ((node.bitmap & bit) == 0) return null;
+            n = node.slots[node.index(bit)];
+        }
+        if (n == null) return null;
+        Leaf<V> leaf = (Leaf<V>) n;
+        return leaf.key == bits ? leaf : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> Object put(Object n, int bits, V value, boolean[] added) {
+        if (n == null) {
+            added[0] = true;
+            return new Leaf<>(bits, value);
+        }
+        if (n instanceof Leaf) {
+            Leaf<V> leaf = (Leaf<V>) n;
+            if (leaf.key == bits) return leaf.value == value ? leaf : new Leaf<>(bits, value);
+            added[0] = true;
+            return branch(leaf, leaf.key, new Leaf<>(bits, value));
+        }
+        Node node = (Node) n;
+        if ((bits & prefixMask(node.shift)) != node.prefix) {
+            added[0] = true;
+            return branch(node, node.prefix, new Leaf<>(bits, value));
+        }
+        int bit = 1 << chunk(bits, node.shift);
+        int idx = node.index(bit);
+        if ((node.bitmap & bit) == 0) {
+            added[0] = true;
+            return node.withInserted(bit, idx, new Leaf<>(bits, value));
+        }
+        Object child = node.slots[idx];
+        Object newChild = put(child, bits, value, added);
+        return newChild == child ? node : node.withReplaced(idx, newChild);
+    }
+
+    private static Object remove(Object n, int bits) {
+        if (n == null) return null;
+        if (n instanceof Leaf) return ((Leaf<?>) n).key == bits ? null : n;
+        Node node = (Node) n;
+        if ((bits & prefixMask(node.shift)) != node.prefix) return node;
+        int bit = 1 << chunk(bits, node.shift);
+        if ((node.bitmap & bit) == 0) return node;
+        int idx = node.index(bit);
+        Object child = node.slots[idx];
+        Object newChild = remove(child, bits);
+        if (newChild == child) return node;
+        if (newChild != null) return node.withReplaced(idx, newChild);
+        // Nodes always hold >= 2 slots; collapse to the survivor instead of keeping a 1-slot node.
+        if (node.slots.length == 2) return node.slots[1 - idx];
+        return node.withRemoved(bit, idx);
+    }
+
+    /** New node holding an existing subtree/leaf and a new leaf whose keys diverge at some level. */
+    private static Node branch(Object existing, int existingBits, Leaf<?> leaf) {
+        int shift = splitShift(existingBits, leaf.key);
+        int a = chunk(existingBits, shift);
+        int b = chunk(leaf.key, shift);
+        Object[] slots = a < b ? new Object[]{existing, leaf} : new Object[]{leaf, existing};
+        return new Node(shift, leaf.key & prefixMask(shift), (1 << a) | (1 << b), slots);
+    }
+
+    private static final class Leaf<V> {
+        final int key; // sign-flipped key bits
+        final V value;
+
+        Leaf(int key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private static final class Node {
+        final int shift;
+        final int prefix;
+        final int bitmap;
+        final Object[] slots;
+
+        Node(int shift, int prefix, int bitmap, Object[] slots) {
+            this.shift = shift;
+            this.prefix = prefix;
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        int index(int bit) { return Integer.bitCount(bitmap & (bit - 1)); }
+
+        Node withReplaced(int idx, Object child) {
+            Object[] copy = slots.clone();
+            copy[idx] = child;
+            return new Node(shift, prefix, bitmap, copy);
+        }
+
+        Node withInserted(int bit, int idx, Object child) {
+            Object[] copy = new Object[slots.length + 1];
+            System.arraycopy(slots, 0, copy, 0, idx);
+            copy[idx] = child;
+            System.arraycopy(slots, idx, copy, idx + 1, slots.length - idx);
+            return new Node(shift, prefix, bitmap | bit, copy);
+        }
+
+        Node withRemoved(int bit, int idx) {
+            Object[] copy = new Object[slots.length - 1];
+            System.arraycopy(slots, 0, copy, 0, idx);
+            System.arraycopy(slots, idx + 1, copy, idx, slots.length - idx - 1);
+            return new Node(shift, prefix, bitmap & ~bit, copy);
+        }
+    }
+
+    /** Depth-first, slot-order walk; slot order is key order because nodes branch on high bits first. */
+    private static final class Itr<V> implements Iterator<V> {
+        private final Object[][] stack = new Object[MAX_DEPTH][];
+        private final int[] pos = new int[MAX_DEPTH];
+        private int depth = -1;
+        private Leaf<V> next;
+
+        Itr(Object root) {
+            if (root != null) {
+                stack[0] = new Object[]{root};
+                depth = 0;
+            }
+            advance();
+        }
+
+        @SuppressWarnings("unchecked")
+        private void advance() {
+            next = null;
+            while (depth >= 0) {
+                Object[] slots = stack[depth];
+                if (pos[depth] == slots.length) {
+                    depth--;
+                    continue;
+                }
+                Object o = slots[pos[depth]++];
+                if (o instanceof Leaf) {
+                    next = (Leaf<V>) o;
+                    return;
+                }
+                depth++;
+                stack[depth] = ((Node) o).slots;
+                pos[depth] = 0;
+            }
+        }
+
+        Leaf<V> nextLeaf() {
+            if (next == null) throw new NoSuchElementException();
+            Leaf<V> leaf = next;
+            advance();
+            return leaf;
+        }
+
+        @Override
+        public boolean hasNext() { return next != null; }
+
+        @Override
+        public V next() { return nextLeaf().value; }
+    }
+}
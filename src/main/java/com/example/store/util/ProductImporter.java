@@ -0,0 +1,362 @@
+package com.example.store.util;
+
+import com.example.store.dao.ProductDAO;
+import com.example.store.model.Product;
+import com.example.store.model.ProductUpsert;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bulk product import from CSV (header row) or JSON Lines, streamed: rows are read, validated and
+ * written one chunk at a time, so memory depends on chunkSize, not on the file (plus 4 bytes per
+ * written row for the final cache load).
+ *
+ * - Columns / fields: name and price (required), description, image_url (or imageUrl), sku; others
+ *   are ignored and listed in the report. Empty or missing optional values keep the stored value
+ * - Rows are matched to existing products on name or on sku (the Key) and updated, only when something
+ *   changed; the rest are inserted. A key repeated within a chunk keeps the last row
+ * - Each chunk of chunkSize valid rows is one transaction (ProductDAO.upsert, JDBC batches of
+ *   batchSize). A chunk that fails is rolled back and retried row by row, so a bad row costs its own
+ *   error, not the import; committed chunks stay if the upload breaks off
+ * - Per-row errors (line + reason) are kept up to maxErrors, then only counted
+ * - At the end every written product is loaded into CacheManager in bulk, and open carts holding a
+ *   product whose price changed are repriced (CartRepricer), as a single save does
+ */
+public class ProductImporter {
+    private static final Logger LOG = Logger.getLogger(ProductImporter.class.getName());
+    private static final int MAX_RECORD_CHARS = 256 * 1024;
+    private static final int MAX_IGNORED_COLUMNS = 20;
+    private static final BigDecimal MAX_PRICE = new BigDecimal("99999999.99"); // DECIMAL(10,2)
+
+    public enum Format { CSV, JSON_LINES }
+
+    /** One rejected row. */
+    public static final class RowError {
+        private final long line;
+        private final String message;
+
+        RowError(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        public long getLine() { return line; }
+        public String getMessage() { return message; }
+    }
+
+    /** Counts and errors of one import; rowsRead = inserted + updated + unconfirmed + unchanged + duplicates + failed. */
+    public static final class Report {
+        private final Format format;
+        private final ProductUpsert.Key key;
+        private final List<RowError> errors = new ArrayList<>();
+        private final Set<String> ignoredColumns = new LinkedHashSet<>();
+        private long rowsRead;
+        private long inserted;
+        private long updated;
+        private long unconfirmed;
+        private long unchanged;
+        private long duplicates;
+        private long failed;
+        private long chunks;
+        private long cached;
+        private long repriced;
+        private long elapsedNanos;
+        private String aborted;
+
+        Report(Format format, ProductUpsert.Key key) {
+            this.format = format;
+            this.key = key;
+        }
+
+        public Format getFormat() { return format; }
+        public ProductUpsert.Key getKey() { return key; }
+        /** First maxErrors rejected rows, in line order. */
+        public List<RowError> getErrors() { return errors; }
+        public boolean isErrorsTruncated() { return failed > errors.size(); }
+        public Set<String> getIgnoredColumns() { return ignoredColumns; }
+        public long getRowsRead() { return rowsRead; }
+        public long getInserted() { return inserted; }
+        public long getUpdated() { return updated; }
+        /** Updates sent but not confirmed by the driver (SUCCESS_NO_INFO); they may or may not have applied. */
+        public long getUnconfirmed() { return unconfirmed; }
+        public long getUnchanged() { return unchanged; }
+        public long getDuplicates() { return duplicates; }
+        public long getFailed() { return failed; }
+        public long getChunks() { return chunks; }
+        public long getCached() { return cached; }
+        public long getRepriced() { return repriced; }
+        public long getElapsedMillis() { return TimeUnit.NANOSECONDS.toMillis(elapsedNanos); }
+        public double getRowsPerSecond() { return elapsedNanos == 0 ? 0 : rowsRead * 1e9 / elapsedNanos; }
+        /** Why the import stopped early (input broken off), or null if the whole input was read. */
+        public String getAborted() { return aborted; }
+    }
+
+    /** Source of rows as field name -> value; throws IllegalArgumentException for a malformed row. */
+    private interface RowSource {
+        Map<String, String> next() throws IOException;
+        long line();
+    }
+
+    private final ProductDAO productDAO;
+    private final CartRepricer repricer;
+    private final int batchSize;
+    private final int chunkSize;
+    private final int maxErrors;
+
+    public ProductImporter(ProductDAO productDAO, CartRepricer repricer, int batchSize, int chunkSize, int maxErrors) {
+        this.productDAO = productDAO;
+        this.repricer = repricer;
+        this.batchSize = batchSize;
+        this.chunkSize = chunkSize;
+        this.maxErrors = maxErrors;
+    }
+
+    /**
+     * Import everything in. Throws IllegalArgumentException (before writing anything) when a CSV header
+     * lacks a required column; every other problem is reported per row or in Report.getAborted().
+     */
+    public Report run(Reader in, Format format, ProductUpsert.Key key) {
+        long started = System.nanoTime();
+        Report report = new Report(format, key);
+        IntList written = new IntList();
+        IntList priceChanged = new IntList();
+        Map<String, ProductUpsert> chunk = new LinkedHashMap<>();
+        try {
+            RowSource rows = format == Format.CSV ? csv(new CsvReader(in, MAX_RECORD_CHARS), key, report)
+                    : jsonLines(new JsonLineReader(in, MAX_RECORD_CHARS), report);
+            while (true) {
+                Map<String, String> fields;
+                try {
+                    fields = rows.next();
+                } catch (IllegalArgumentException malformed) {
+                    report.rowsRead++;
+                    fail(report, rows.line(), malformed.getMessage());
+                    continue;
+                }
+                if (fields == null) break;
+                report.rowsRead++;
+                ProductUpsert row;
+                try {
+                    row = validate(rows.line(), fields, key);
+                } catch (IllegalArgumentException invalid) {
+                    fail(report, rows.line(), invalid.getMessage());
+                    continue;
+                }
+                if (chunk.put(row.key(key), row) != null) report.duplicates++;
+                if (chunk.size() == chunkSize) write(chunk, key, report, written, priceChanged);
+            }
+            write(chunk, key, report, written, priceChanged);
+        } catch (IOException e) {
+            report.aborted = "Input ended early after " + report.rowsRead + " rows (" + e.getMessage()
+                    + "); " + report.chunks + " chunks were committed before that";
+        } finally {
+            finish(report, written, priceChanged);
+            report.elapsedNanos = System.nanoTime() - started;
+        }
+        report.errors.sort(Comparator.comparingLong(RowError::getLine));
+        LOG.info(String.format(Locale.ROOT, "Product import (%s by %s): %d rows in %.1f s (%.0f rows/s), %d inserted, %d updated,"
+                        + " %d unconfirmed, %d unchanged, %d duplicates, %d failed%s",
+                format, key, report.rowsRead, report.elapsedNanos / 1e9, report.getRowsPerSecond(), report.inserted,
+                report.updated, report.unconfirmed, report.unchanged, report.duplicates, report.failed,
+                report.aborted == null ? "" : "; " + report.aborted));
+        return report;
+    }
+
+    private RowSource csv(CsvReader reader, ProductUpsert.Key key, Report report) throws IOException {
+        List<String> header = reader.next();
+        if (header == null) header = List.of();
+        String[] columns = new String[header.size()];
+        for (int i = 0; i < columns.length; i++) {
+            String column = column(header.get(i));
+            columns[i] = column;
+            if (column == null) report.ignoredColumns.add(header.get(i).trim());
+        }
+        List<String> known = Arrays.asList(columns);
+        List<String> required = key == ProductUpsert.Key.SKU ? List.of("name", "price", "sku") : List.of("name", "price");
+        for (String column : required) {
+            if (!known.contains(column)) {
+                throw new IllegalArgumentException("The CSV header must name the columns " + required + " (found " + header + ")");
+            }
+        }
+        return new RowSource() {
+            @Override
+            public Map<String, String> next() throws IOException {
+                List<String> record = reader.next();
+                if (record == null) return null;
+                if (record.size() > columns.length) {
+                    throw new IllegalArgumentException(record.size() + " fields for " + columns.length + " header columns");
+                }
+                Map<String, String> fields = new LinkedHashMap<>();
+                for (int i = 0; i < record.size(); i++) {
+                    if (columns[i] != null) fields.put(columns[i], record.get(i));
+                }
+                return fields;
+            }
+
+            @Override
+            public long line() { return reader.getLine(); }
+        };
+    }
+
+    private RowSource jsonLines(JsonLineReader reader, Report report) {
+        return new RowSource() {
+            @Override
+            public Map<String, String> next() throws IOException {
+                Map<String, String> object = reader.next();
+                if (object == null) return null;
+                Map<String, String> fields = new LinkedHashMap<>();
+                for (Map.Entry<String, String> e : object.entrySet()) {
+                    String column = column(e.getKey());
+                    if (column != null) fields.put(column, e.getValue());
+                    else if (report.ignoredColumns.size() < MAX_IGNORED_COLUMNS) report.ignoredColumns.add(e.getKey());
+                }
+                return fields;
+            }
+
+            @Override
+            public long line() { return reader.getLine(); }
+        };
+    }
+
+    /** Canonical column for a header / field name, or null if it is not imported. */
+    private static String column(String name) {
+        switch (name.trim().toLowerCase(Locale.ROOT)) {
+            case "name": return "name";
+            case "price": return "price";
+            case "description": return "description";
+            case "image_url": case "imageurl": return "image_url";
+            case "sku": return "sku";
+            default: return null;
+        }
+    }
+
+    /** A row as ProductUpsert, or IllegalArgumentException saying what is wrong with it. */
+    private static ProductUpsert validate(long line, Map<String, String> fields, ProductUpsert.Key key) {
+        String name = trimToNull(fields.get("name"));
+        if (name == null) throw new IllegalArgumentException("name is required");
+        if (name.length() > 255) throw new IllegalArgumentException("name is longer than 255 characters");
+
+        String priceText = trimToNull(fields.get("price"));
+        if (priceText == null) throw new IllegalArgumentException("price is required");
+        BigDecimal price;
+        try {
+            price = new BigDecimal(priceText);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("price is not a number: " + priceText);
+        }
+        if (price.signum() < 0) throw new IllegalArgumentException("price is negative: " + priceText);
+        if (price.stripTrailingZeros().scale() > 2) throw new IllegalArgumentException("price has more than 2 decimals: " + priceText);
+        if (price.compareTo(MAX_PRICE) > 0) throw new IllegalArgumentException("price is above " + MAX_PRICE + ": " + priceText);
+
+        String description = trimToNull(fields.get("description"));
+        // TEXT holds 65535 bytes; only long values can exceed it, so only they are encoded
+        if (description != null && description.length() > 65535 / 4
+                && description.getBytes(StandardCharsets.UTF_8).length > 65535) {
+            throw new IllegalArgumentException("description is longer than 65535 bytes");
+        }
+        String imageUrl = trimToNull(fields.get("image_url"));
+        if (imageUrl != null && imageUrl.length() > 512) throw new IllegalArgumentException("image_url is longer than 512 characters");
+        String sku = trimToNull(fields.get("sku"));
+        if (sku != null && sku.length() > 64) throw new IllegalArgumentException("sku is longer than 64 characters");
+        if (sku == null && key == ProductUpsert.Key.SKU) throw new IllegalArgumentException("sku is required when importing by sku");
+
+        Product product = new Product();
+        product.setName(name);
+        product.setPrice(price.setScale(2));
+        product.setDescription(description);
+        product.setImageUrl(imageUrl);
+        return new ProductUpsert(line, product, sku);
+    }
+
+    /** Commit one chunk; if the chunk fails, retry its rows one by one to isolate the bad ones. */
+    private void write(Map<String, ProductUpsert> chunk, ProductUpsert.Key key, Report report,
+                       IntList written, IntList priceChanged) {
+        if (chunk.isEmpty()) return;
+        List<ProductUpsert> rows = new ArrayList<>(chunk.values());
+        chunk.clear();
+        try {
+            record(productDAO.upsert(rows, key, batchSize), report, written, priceChanged);
+        } catch (RuntimeException chunkFailed) {
+            LOG.log(Level.FINE, "Import chunk failed, retrying row by row", chunkFailed);
+            for (ProductUpsert row : rows) {
+                try {
+                    record(productDAO.upsert(List.of(row), key, batchSize), report, written, priceChanged);
+                } catch (RuntimeException rowFailed) {
+                    fail(report, row.getLine(), rootMessage(rowFailed));
+                }
+            }
+        }
+        report.chunks++;
+    }
+
+    private void record(ProductDAO.UpsertResult result, Report report, IntList written, IntList priceChanged) {
+        report.inserted += result.getInserted().size();
+        report.updated += result.getUpdated().size();
+        report.unconfirmed += result.getUnconfirmed().size();
+        report.unchanged += result.getUnchanged();
+        for (int id : result.getInserted()) written.add(id);
+        for (int id : result.getUpdated()) written.add(id);
+        for (int id : result.getUnconfirmed()) written.add(id);
+        for (int id : result.getRepriced()) priceChanged.add(id);
+        for (Map.Entry<Long, String> e : result.getRejected().entrySet()) fail(report, e.getKey(), e.getValue());
+    }
+
+    /** Bulk cache load and cart repricing for what was committed; failures only cost cache warmth. */
+    private void finish(Report report, IntList written, IntList priceChanged) {
+        try {
+            report.cached = productDAO.loadIntoCache(written.values, written.size, batchSize);
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Imported products could not be loaded into the cache; they load on first use", e);
+        }
+        for (int i = 0; i < priceChanged.size; i++) {
+            try {
+                productDAO.findById(priceChanged.values[i]).ifPresent(repricer::productRepriced);
+                report.repriced++;
+            } catch (RuntimeException e) {
+                LOG.log(Level.WARNING, "Could not reprice carts for product " + priceChanged.values[i], e);
+            }
+        }
+    }
+
+    private void fail(Report report, long line, String message) {
+        report.failed++;
+        if (report.errors.size() < maxErrors) report.errors.add(new RowError(line, message));
+    }
+
+    private static String rootMessage(Throwable t) {
+        while (t.getCause() != null) t = t.getCause();
+        return t.getMessage();
+    }
+
+    private static String trimToNull(String s) {
+        if (s == null) return null;
+        String trimmed = s.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    /** Growable int array: written ids cost 4 bytes each, not a boxed Integer. */
+    private static final class IntList {
+        int[] values = new int[1024];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+    }
+}
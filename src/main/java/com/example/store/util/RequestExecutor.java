@@ -0,0 +1,137 @@
+package com.example.store.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Runs blocking request handlers (servlet service() bodies doing JDBC) on virtual threads, at most
+ * maxConcurrent at a time.
+ *
+ * WHY virtual threads for the JDBC servlets:
+ * - A request spends most of its time waiting on MySQL; a virtual thread parked on a socket read
+ *   gives its carrier back, so waiting requests no longer tie up Tomcat's connector threads
+ * - The handler code stays plain blocking code (no callbacks), exactly as in thread-per-request
+ *
+ * WHY a semaphore (not a bounded pool):
+ * - Virtual threads are cheap, database connections are not: DBConnectionManager opens a connection
+ *   per call, so concurrency must stay within the database's connection budget; maxConcurrent is that
+ *   budget, and everything past it waits in FIFO order (fair semaphore) on a parked virtual thread
+ * - At most maxQueued requests wait; beyond that execute() fails fast, and a request that waited
+ *   queueTimeoutMillis without a permit gets onTimeout, so the caller can answer 503 instead of
+ *   letting requests pile up (same contract as HashingExecutor)
+ *
+ * Pinning: a virtual thread blocked inside a monitor (synchronized) keeps its carrier on Java 21-23.
+ * Nothing on the cart/product path blocks inside one: Cart is lock-free, HotKeySketch uses a
+ * ReentrantLock and Connector/J 9.x guards its socket I/O with locks. Run with
+ * -Djdk.tracePinnedThreads=short to list any that remain.
+ *
+ * Virtual threads need Java 21+; on older runtimes virtualThreads() returns null and callers keep
+ * serving requests on the container thread.
+ */
+public class RequestExecutor implements RequestExecutorMXBean {
+    private static final Logger LOG = Logger.getLogger(RequestExecutor.class.getName());
+
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final long queueTimeoutMillis;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final LongAccumulator queueWaitMaxNanos = new LongAccumulator(Long::max, 0);
+
+    public RequestExecutor(ExecutorService executor, int maxConcurrent, int maxQueued, long queueTimeoutMillis) {
+        this.executor = executor;
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.queueTimeoutMillis = queueTimeoutMillis;
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor(), looked up reflectively so the webapp still builds
+     * and runs on Java 17; null (logged) when the runtime has no virtual threads.
+     */
+    public static ExecutorService virtualThreads() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            LOG.warning("Virtual threads need Java 21+ (running " + Runtime.version() + "); requests stay on container threads");
+            return null;
+        }
+    }
+
+    /**
+     * Start task on its own virtual thread once a permit is free. onTimeout runs instead (on that
+     * thread) when no permit frees up within queueTimeoutMillis. Throws RejectedExecutionException
+     * immediately when maxQueued tasks are already waiting or the executor is shut down.
+     */
+    public void execute(Runnable task, Runnable onTimeout) {
+        if (waiting.incrementAndGet() > maxQueued) {
+            waiting.decrementAndGet();
+            rejected.increment();
+            throw new RejectedExecutionException("Request queue full (" + maxQueued + " waiting)");
+        }
+        long enqueued = System.nanoTime();
+        try {
+            executor.execute(() -> run(task, onTimeout, enqueued));
+        } catch (RejectedExecutionException e) {
+            waiting.decrementAndGet();
+            rejected.increment();
+            throw e;
+        }
+        submitted.increment();
+    }
+
+    private void run(Runnable task, Runnable onTimeout, long enqueued) {
+        boolean acquired = false;
+        try {
+            acquired = permits.tryAcquire(queueTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            waiting.decrementAndGet();
+        }
+        long waited = System.nanoTime() - enqueued;
+        queueWaitNanos.add(waited);
+        queueWaitMaxNanos.accumulate(waited);
+        if (!acquired) {
+            timedOut.increment();
+            onTimeout.run();
+            return;
+        }
+        try {
+            task.run();
+        } finally {
+            permits.release();
+            completed.increment();
+        }
+    }
+
+    /** Stop accepting requests; running handlers finish on their own. */
+    public void shutdown() { executor.shutdown(); }
+
+    @Override public int getMaxConcurrent() { return maxConcurrent; }
+    @Override public int getMaxQueued() { return maxQueued; }
+    @Override public long getQueueTimeoutMillis() { return queueTimeoutMillis; }
+    @Override public int getActiveCount() { return maxConcurrent - permits.availablePermits(); }
+    @Override public int getQueueDepth() { return waiting.get(); }
+    @Override public long getSubmitted() { return submitted.sum(); }
+    @Override public long getRejected() { return rejected.sum(); }
+    @Override public long getTimedOut() { return timedOut.sum(); }
+    @Override public long getCompleted() { return completed.sum(); }
+    @Override public long getQueueWaitMillisTotal() { return TimeUnit.NANOSECONDS.toMillis(queueWaitNanos.sum()); }
+    @Override public long getQueueWaitMillisMax() { return TimeUnit.NANOSECONDS.toMillis(queueWaitMaxNanos.get()); }
+}
@@ -0,0 +1,18 @@
+package com.example.store.util;
+
+/**
+ * JMX view of RequestExecutor (registered as com.example.store:type=RequestExecutor).
+ */
+public interface RequestExecutorMXBean {
+    int getMaxConcurrent();
+    int getMaxQueued();
+    long getQueueTimeoutMillis();
+    int getActiveCount();
+    int getQueueDepth();
+    long getSubmitted();
+    long getRejected();
+    long getTimedOut();
+    long getCompleted();
+    long getQueueWaitMillisTotal();
+    long getQueueWaitMillisMax();
+}
@@ -0,0 +1,131 @@
+package com.example.store.util;
+
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * Per-request time breakdown (DB, product cache, password hashing, view rendering), reported into
+ * by the DAOs, CacheManager, PasswordHasher and the view dispatcher, and rendered by
+ * ServerTimingFilter as a Server-Timing header.
+ *
+ * The current request's instance lives in a ThreadLocal, so reporting needs no parameter threading
+ * and is a no-op (one ThreadLocal read) outside a timed request: background jobs, startup.
+ * Work handed to another thread carries the context with bind(t, job), t captured with current() on
+ * the request thread before the hand-off; the fields are plain because exactly one thread works on a
+ * request at a time and every hand-off (executor submit, CompletableFuture completion,
+ * AsyncContext.start) is a happens-before edge.
+ */
+public final class RequestTiming {
+    private static final ThreadLocal<RequestTiming> CURRENT = new ThreadLocal<>();
+
+    private final long startedNanos = System.nanoTime();
+    private long dbNanos;
+    private int dbCalls;
+    private int cacheHits;
+    private int cacheMisses;
+    private long hashNanos;
+    private long renderNanos;
+    private long renderStartedNanos;
+
+    /** Start timing a request on this thread. */
+    public static RequestTiming begin() {
+        RequestTiming t = new RequestTiming();
+        CURRENT.set(t);
+        return t;
+    }
+
+    /** Detach the context from this thread (the instance stays readable). */
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    public static void db(long nanos) {
+        RequestTiming t = CURRENT.get();
+        if (t != null) {
+            t.dbNanos += nanos;
+            t.dbCalls++;
+        }
+    }
+
+    public static void cacheHit() {
+        RequestTiming t = CURRENT.get();
+        if (t != null) t.cacheHits++;
+    }
+
+    public static void cacheMiss() {
+        RequestTiming t = CURRENT.get();
+        if (t != null) t.cacheMisses++;
+    }
+
+    public static void hash(long nanos) {
+        RequestTiming t = CURRENT.get();
+        if (t != null) t.hashNanos += nanos;
+    }
+
+    /** The context attached to this thread, or null outside a timed request. */
+    public static RequestTiming current() {
+        return CURRENT.get();
+    }
+
+    /** job, running with context t (may be null: job unchanged) attached. */
+    public static <T> Supplier<T> bind(RequestTiming t, Supplier<T> job) {
+        if (t == null) return job;
+        return () -> {
+            RequestTiming previous = CURRENT.get();
+            CURRENT.set(t);
+            try {
+                return job.get();
+            } finally {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    public static Runnable bind(RequestTiming t, Runnable task) {
+        if (t == null) return task;
+        Supplier<Void> bound = bind(t, () -> {
+            task.run();
+            return null;
+        });
+        return bound::get;
+    }
+
+    public void startRender() {
+        if (renderStartedNanos == 0) renderStartedNanos = System.nanoTime();
+    }
+
+    /** Idempotent: the first call after startRender() counts. */
+    public void stopRender() {
+        if (renderStartedNanos != 0) {
+            renderNanos += System.nanoTime() - renderStartedNanos;
+            renderStartedNanos = 0;
+        }
+    }
+
+    public long elapsedNanos() { return System.nanoTime() - startedNanos; }
+
+    /** Server-Timing header value, e.g. db;dur=12.4;desc="3 calls", cache;desc="hit", render;dur=3.1, total;dur=17.9 */
+    public String toHeader() {
+        StringBuilder sb = new StringBuilder(128);
+        if (dbCalls > 0) {
+            metric(sb, "db", dbNanos).append(";desc=\"").append(dbCalls).append(dbCalls == 1 ? " call\"" : " calls\"");
+        }
+        if (cacheHits + cacheMisses > 0) {
+            if (sb.length() > 0) sb.append(", ");
+            sb.append("cache;desc=\"");
+            if (cacheMisses == 0) sb.append("hit");
+            else if (cacheHits == 0) sb.append("miss");
+            else sb.append(cacheHits).append(" hit ").append(cacheMisses).append(" miss");
+            sb.append('"');
+        }
+        if (hashNanos > 0) metric(sb, "hash", hashNanos);
+        if (renderNanos > 0) metric(sb, "render", renderNanos);
+        metric(sb, "total", elapsedNanos());
+        return sb.toString();
+    }
+
+    private static StringBuilder metric(StringBuilder sb, String name, long nanos) {
+        if (sb.length() > 0) sb.append(", ");
+        return sb.append(name).append(";dur=").append(String.format(Locale.ROOT, "%.1f", nanos / 1e6));
+    }
+}
@@ -0,0 +1,292 @@
+package com.example.store.util;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Versioned schema migrations for users, products, carts, cart_items and the cart archive tables.
+ *
+ * Replaces the old SchemaInitializer, which ran CREATE TABLE + ALTER TABLE on every AuthServlet.init().
+ *
+ * - Warm start: one SELECT on schema_version; if every migration is recorded with a matching
+ *   checksum, no DDL runs and no metadata lock is taken
+ * - Cold start / new version: a MySQL named lock (GET_LOCK) serialises nodes of a rolling deploy,
+ *   the version table is re-read under the lock, and only missing migrations run, in order
+ * - Each migration is recorded with a CRC32 of its DDL; editing an applied migration fails startup
+ *   instead of silently diverging. Schema changes go into a new migration at the end of the list.
+ *
+ * V1 is written idempotently (IF NOT EXISTS, index/column existence checks) so databases created
+ * from schema.sql or by the old SchemaInitializer are adopted without errors.
+ */
+public final class SchemaMigrator {
+    private static final Logger LOG = Logger.getLogger(SchemaMigrator.class.getName());
+    private static final String LOCK_NAME = "homework_ds.schema_migration";
+    private static final int LOCK_TIMEOUT_SECONDS = 60;
+
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "users, products, carts, cart_items",
+                    Step.sql("CREATE TABLE IF NOT EXISTS users ("
+                            + "id BIGINT NOT NULL AUTO_INCREMENT,"
+                            + "username VARCHAR(100) NOT NULL,"
+                            + "email VARCHAR(255) NOT NULL,"
+                            + "password_hash VARBINARY(255) NOT NULL,"
+                            + "password_salt VARBINARY(255) NOT NULL,"
+                            + "role VARCHAR(20) NOT NULL DEFAULT 'USER',"
+                            + "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,"
+                            + "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,"
+                            + "version INT NOT NULL DEFAULT 1,"
+                            + "PRIMARY KEY (id),"
+                            + "UNIQUE KEY uk_users_username (username),"
+                            + "UNIQUE KEY uk_users_email (email)"
+                            + ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4"),
+                    // users tables created before the role column existed
+                    Step.addColumn("users", "role", "ALTER TABLE users ADD COLUMN role VARCHAR(20) NOT NULL DEFAULT 'USER'"),
+                    Step.sql("CREATE TABLE IF NOT EXISTS products ("
+                            + "id INT NOT NULL AUTO_INCREMENT,"
+                            + "name VARCHAR(255) NOT NULL,"
+                            + "price DECIMAL(10,2) NOT NULL,"
+                            + "description TEXT,"
+                            + "image_url VARCHAR(512) DEFAULT NULL,"
+                            + "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,"
+                            + "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,"
+                            + "version INT NOT NULL DEFAULT 1,"
+                            + "PRIMARY KEY (id)"
+                            + ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4"),
+                    Step.sql("CREATE TABLE IF NOT EXISTS carts ("
+                            + "id BIGINT NOT NULL AUTO_INCREMENT,"
+                            + "session_id VARCHAR(128) DEFAULT NULL,"
+                            + "user_id BIGINT DEFAULT NULL,"
+                            + "status VARCHAR(32) DEFAULT 'OPEN',"
+                            + "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,"
+                            + "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,"
+                            + "version INT NOT NULL DEFAULT 1,"
+                            + "PRIMARY KEY (id),"
+                            + "INDEX (session_id),"
+                            + "INDEX (user_id)"
+                            + ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4"),
+                    Step.sql("CREATE TABLE IF NOT EXISTS cart_items ("
+                            + "id BIGINT NOT NULL AUTO_INCREMENT,"
+                            + "cart_id BIGINT NOT NULL,"
+                            + "product_id INT NOT NULL,"
+                            + "quantity INT NOT NULL,"
+                            + "price_snapshot DECIMAL(10,2) NOT NULL,"
+                            + "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,"
+                            + "PRIMARY KEY (id),"
+                            + "INDEX (cart_id),"
+                            + "INDEX (product_id),"
+                            + "CONSTRAINT fk_cart_items_cart FOREIGN KEY (cart_id) REFERENCES carts(id) ON DELETE CASCADE,"
+                            + "CONSTRAINT fk_cart_items_product FOREIGN KEY (product_id) REFERENCES products(id) ON DELETE RESTRICT"
+                            + ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4")),
+            new Migration(2, "carts (status, updated_at) index for the cart reaper",
+                    Step.addIndex("carts", "idx_carts_status_updated",
+                            "CREATE INDEX idx_carts_status_updated ON carts (status, updated_at)")),
+            new Migration(3, "cart archive tables",
+                    Step.sql("CREATE TABLE IF NOT EXISTS carts_archive ("
+                            + "id BIGINT NOT NULL,"
+                            + "session_id VARCHAR(128) DEFAULT NULL,"
+                            + "user_id BIGINT DEFAULT NULL,"
+                            + "status VARCHAR(32) DEFAULT NULL,"
+                            + "created_at TIMESTAMP NULL DEFAULT NULL,"
+                            + "updated_at TIMESTAMP NULL DEFAULT NULL,"
+                            + "version INT NOT NULL DEFAULT 1,"
+                            + "archived_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,"
+                            + "PRIMARY KEY (id)"
+                            + ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4"),
+                    Step.sql("CREATE TABLE IF NOT EXISTS cart_items_archive ("
+                            + "id BIGINT NOT NULL,"
+                            + "cart_id BIGINT NOT NULL,"
+                            + "product_id INT NOT NULL,"
+                            + "quantity INT NOT NULL,"
+                            + "price_snapshot DECIMAL(10,2) NOT NULL,"
+                            + "created_at TIMESTAMP NULL DEFAULT NULL,"
+                            + "PRIMARY KEY (id),"
+                            + "INDEX (cart_id)"
+                            + ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4")),
+            new Migration(4, "products.sku and name index for bulk import upserts",
+                    Step.addColumn("products", "sku", "ALTER TABLE products ADD COLUMN sku VARCHAR(64) DEFAULT NULL"),
+                    Step.addIndex("products", "uk_products_sku", "CREATE UNIQUE INDEX uk_products_sku ON products (sku)"),
+                    Step.addIndex("products", "idx_products_name", "CREATE INDEX idx_products_name ON products (name)"))
+    );
+
+    private SchemaMigrator() {}
+
+    /** Latest schema version this build expects. */
+    public static int latestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+    }
+
+    /**
+     * Bring the schema up to latestVersion(). Returns the number of migrations applied (0 on a warm start).
+     */
+    public static int migrate(DBConnectionManager db) {
+        try (Connection conn = db.getConnection()) {
+            Map<Integer, Long> applied = appliedVersions(conn);
+            if (applied != null && isCurrent(applied)) return 0;
+
+            if (!acquireLock(conn)) {
+                throw new IllegalStateException("Timed out waiting for schema migration lock " + LOCK_NAME);
+            }
+            try {
+                try (Statement st = conn.createStatement()) {
+                    st.executeUpdate("CREATE TABLE IF NOT EXISTS schema_version ("
+                            + "version INT NOT NULL,"
+                            + "description VARCHAR(200) NOT NULL,"
+                            + "checksum BIGINT NOT NULL,"
+                            + "installed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,"
+                            + "PRIMARY KEY (version)"
+                            + ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
+                }
+                // another node may have migrated while we waited for the lock
+                applied = appliedVersions(conn);
+                if (isCurrent(applied)) return 0;
+                int count = 0;
+                for (Migration m : MIGRATIONS) {
+                    if (applied.containsKey(m.version)) continue;
+                    long started = System.currentTimeMillis();
+                    for (Step step : m.steps) step.apply(conn);
+                    try (PreparedStatement ps = conn.prepareStatement(
+                            "INSERT INTO schema_version (version, description, checksum) VALUES (?, ?, ?)")) {
+                        ps.setInt(1, m.version);
+                        ps.setString(2, m.description);
+                        ps.setLong(3, m.checksum());
+                        ps.executeUpdate();
+                    }
+                    LOG.info("Applied schema migration V" + m.version + " (" + m.description + ") in "
+                            + (System.currentTimeMillis() - started) + " ms");
+                    count++;
+                }
+                return count;
+            } finally {
+                releaseLock(conn);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Schema migration failed", e);
+        }
+    }
+
+    /** version -> checksum, or null if schema_version does not exist yet. */
+    private static Map<Integer, Long> appliedVersions(Connection conn) throws SQLException {
+        Map<Integer, Long> applied = new TreeMap<>();
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT version, checksum FROM schema_version")) {
+            while (rs.next()) applied.put(rs.getInt(1), rs.getLong(2));
+        } catch (SQLException e) {
+            // ER_NO_SUCH_TABLE (MySQL) / 42S02 (standard, e.g. the H2 stand-in): fresh or pre-migration database
+            if (e.getErrorCode() == 1146 || "42S02".equals(e.getSQLState())) return null;
+            throw e;
+        }
+        return applied;
+    }
+
+    /** True if every known migration is recorded; fails on a checksum mismatch. */
+    private static boolean isCurrent(Map<Integer, Long> applied) {
+        boolean current = true;
+        for (Migration m : MIGRATIONS) {
+            Long recorded = applied.get(m.version);
+            if (recorded == null) {
+                current = false;
+            } else if (recorded != m.checksum()) {
+                throw new IllegalStateException("Schema migration V" + m.version + " was modified after it was applied"
+                        + " (recorded checksum " + recorded + ", current " + m.checksum() + "); add a new migration instead");
+            }
+        }
+        return current;
+    }
+
+    private static boolean acquireLock(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            ps.setString(1, LOCK_NAME);
+            ps.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        }
+    }
+
+    private static void releaseLock(Connection conn) {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            ps.setString(1, LOCK_NAME);
+            ps.executeQuery().close();
+        } catch (SQLException ignored) {
+            // lock is released with the connection anyway
+        }
+    }
+
+    private static final class Migration {
+        final int version;
+        final String description;
+        final List<Step> steps;
+
+        Migration(int version, String description, Step... steps) {
+            this.version = version;
+            this.description = description;
+            this.steps = List.of(steps);
+        }
+
+        long checksum() {
+            CRC32 crc = new CRC32();
+            for (Step step : steps) {
+                crc.update(step.ddl.getBytes(StandardCharsets.UTF_8));
+                crc.update('\n');
+            }
+            return crc.getValue();
+        }
+    }
+
+    /**
+     * One DDL statement, optionally skipped when the index/column already exists
+     * (MySQL has no ADD COLUMN / CREATE INDEX ... IF NOT EXISTS).
+     */
+    private static final class Step {
+        final String ddl;
+        final String table;
+        final String column;
+        final String index;
+
+        private Step(String ddl, String table, String column, String index) {
+            this.ddl = ddl;
+            this.table = table;
+            this.column = column;
+            this.index = index;
+        }
+
+        static Step sql(String ddl) { return new Step(ddl, null, null, null); }
+        static Step addColumn(String table, String column, String ddl) { return new Step(ddl, table, column, null); }
+        static Step addIndex(String table, String index, String ddl) { return new Step(ddl, table, null, index); }
+
+        void apply(Connection conn) throws SQLException {
+            if (column != null && columnExists(conn)) return;
+            if (index != null && indexExists(conn)) return;
+            try (Statement st = conn.createStatement()) {
+                st.executeUpdate(ddl);
+            }
+        }
+
+        private boolean columnExists(Connection conn) throws SQLException {
+            DatabaseMetaData md = conn.getMetaData();
+            try (ResultSet rs = md.getColumns(conn.getCatalog(), null, table, column)) {
+                return rs.next();
+            }
+        }
+
+        private boolean indexExists(Connection conn) throws SQLException {
+            DatabaseMetaData md = conn.getMetaData();
+            try (ResultSet rs = md.getIndexInfo(conn.getCatalog(), null, table, false, false)) {
+                while (rs.next()) {
+                    if (index.equalsIgnoreCase(rs.getString("INDEX_NAME"))) return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,427 @@
+package com.example.store.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * JDBC statement profiler: wraps Connections handed out by DBConnectionManager so every statement
+ * execution and result-set iteration is timed and aggregated per normalized SQL text.
+ *
+ * - exec time: inside execute/executeQuery/executeUpdate/executeBatch
+ * - fetch time: inside ResultSet.next() calls only, so time the DAO spends mapping rows is excluded
+ * - normalized SQL: whitespace collapsed, literals and "IN (?,?,...)" lists folded, so the chunked
+ *   CartDAO statements aggregate into one row whatever their chunk size
+ * - slow log: executions whose exec + fetch time reaches slowMillis are logged (WARNING) and kept
+ *   in a ring of the last 50 for the admin page, with bind values when the statement was sampled
+ *
+ * WHY sampled binds: recording every setXxx call costs an array store per parameter on every
+ * statement. Only 1 in bindSampleRate prepared statements records its binds.
+ *
+ * WHY an allow-list of bind columns (not a deny-list of sensitive ones): a new column holding
+ * secrets or personal data (passwords, emails, session ids) stays hidden until someone decides it is
+ * safe to log. A bind prints only when its placeholder can be tied to a column in
+ * LOGGABLE_BIND_COLUMNS ("col = ?", "col IN (?, ...)", INSERT column lists, LIMIT/OFFSET);
+ * every other bind prints as <redacted>. This is worked out on the slow path only.
+ *
+ * Overhead: JDK dynamic proxies (one reflective call per JDBC method), two nanoTime reads per
+ * execute and per next(), LongAdder updates; small next to a database round trip.
+ */
+public class StatementProfiler {
+    private static final Logger LOG = Logger.getLogger(StatementProfiler.class.getName());
+    private static final int MAX_STATEMENTS = 500;
+    private static final int SLOW_LOG_SIZE = 50;
+    private static final int MAX_BIND_CHARS = 40;
+    private static final String OTHER = "(other statements)";
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern IN_LIST = Pattern.compile("\\bIN ?\\(\\?(?:\\s*,\\s*\\?)*\\)", Pattern.CASE_INSENSITIVE);
+    private static final Set<String> LOGGABLE_BIND_COLUMNS = Set.of(
+            "id", "cart_id", "product_id", "user_id", "quantity", "price", "price_snapshot", "status", "version",
+            "updated_at", "limit", "offset");
+    private static final Pattern COMPARED_BIND = Pattern.compile(
+            "([A-Za-z_][\\w.]*)\\s*(?:=|<>|!=|<=|>=|<|>)\\s*\\?|([A-Za-z_][\\w.]*)\\s+IN\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)"
+            + "|\\b(LIMIT|OFFSET)\\s+\\?", Pattern.CASE_INSENSITIVE);
+    private static final Pattern INSERT_VALUES = Pattern.compile(
+            "\\bINSERT\\s+INTO\\s+[\\w.]+\\s*\\(([^)]*)\\)\\s*VALUES\\s*\\(([^)]*)\\)", Pattern.CASE_INSENSITIVE);
+
+    /** Aggregate for one normalized statement; getters read as a bean by the admin page. */
+    public static final class Summary {
+        private final String sql;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder execNanos = new LongAdder();
+        private final LongAdder fetchNanos = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        Summary(String sql) { this.sql = sql; }
+
+        public String getSql() { return sql; }
+        public long getCount() { return count.sum(); }
+        public long getErrors() { return errors.sum(); }
+        public long getRows() { return rows.sum(); }
+        public double getTotalMillis() { return (execNanos.sum() + fetchNanos.sum()) / 1e6; }
+        public double getExecMillis() { return execNanos.sum() / 1e6; }
+        public double getFetchMillis() { return fetchNanos.sum() / 1e6; }
+        public double getMaxMillis() { return maxNanos.get() / 1e6; }
+        public double getAverageMillis() {
+            long n = count.sum();
+            return n == 0 ? 0 : getTotalMillis() / n;
+        }
+    }
+
+    /** One slow execution. */
+    public static final class SlowQuery {
+        private final Date at;
+        private final String sql;
+        private final double millis;
+        private final long rows;
+        private final String binds;
+
+        SlowQuery(Date at, String sql, double millis, long rows, String binds) {
+            this.at = at;
+            this.sql = sql;
+            this.millis = millis;
+            this.rows = rows;
+            this.binds = binds;
+        }
+
+        public Date getAt() { return at; }
+        public String getSql() { return sql; }
+        public double getMillis() { return millis; }
+        public long getRows() { return rows; }
+        public String getBinds() { return binds; }
+    }
+
+    private final long slowNanos;
+    private final int bindSampleMask;
+    private final ConcurrentHashMap<String, Summary> summaries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, String> normalized = new ConcurrentHashMap<>();
+    private final ArrayDeque<SlowQuery> slowLog = new ArrayDeque<>();
+
+    /**
+     * @param slowMillis     executions at or above this many ms are logged
+     * @param bindSampleRate record binds for 1 in bindSampleRate statements (rounded up to a power of two)
+     */
+    public StatementProfiler(long slowMillis, int bindSampleRate) {
+        this.slowNanos = TimeUnit.MILLISECONDS.toNanos(slowMillis);
+        this.bindSampleMask = bindSampleRate <= 1 ? 0 : Integer.highestOneBit((bindSampleRate - 1) << 1) - 1;
+    }
+
+    public Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(StatementProfiler.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnectionHandler(connection));
+    }
+
+    /** Aggregates, most total time first. */
+    public List<Summary> summaries() {
+        List<Summary> list = new ArrayList<>(summaries.values());
+        list.sort((a, b) -> Double.compare(b.getTotalMillis(), a.getTotalMillis()));
+        return list;
+    }
+
+    /** Recent slow executions, newest first. */
+    public List<SlowQuery> slowQueries() {
+        synchronized (slowLog) {
+            List<SlowQuery> list = new ArrayList<>(slowLog);
+            Collections.reverse(list);
+            return list;
+        }
+    }
+
+    public long getSlowMillis() { return TimeUnit.NANOSECONDS.toMillis(slowNanos); }
+
+    public int getBindSampleRate() { return bindSampleMask + 1; }
+
+    public void reset() {
+        summaries.clear();
+        synchronized (slowLog) {
+            slowLog.clear();
+        }
+    }
+
+    void record(String rawSql, long execNanos, long fetchNanos, long rows, Object[] binds, boolean failed) {
+        Summary s = summary(rawSql);
+        s.count.increment();
+        if (failed) s.errors.increment();
+        s.execNanos.add(execNanos);
+        if (fetchNanos > 0) s.fetchNanos.add(fetchNanos);
+        if (rows > 0) s.rows.add(rows);
+        long total = execNanos + fetchNanos;
+        long max;
+        while (total > (max = s.maxNanos.get()) && !s.maxNanos.compareAndSet(max, total)) {
+            // retry: a concurrent execution raised the max
+        }
+        if (total >= slowNanos) slow(s, rawSql, total, execNanos, fetchNanos, rows, binds);
+    }
+
+    private void slow(Summary s, String rawSql, long total, long execNanos, long fetchNanos, long rows, Object[] binds) {
+        String bindText = binds == null ? "not sampled" : formatBinds(binds, bindColumns(rawSql));
+        LOG.warning(String.format(Locale.ROOT, "Slow SQL %.1f ms (exec %.1f ms, fetch %.1f ms, %d rows): %s [binds: %s]",
+                total / 1e6, execNanos / 1e6, fetchNanos / 1e6, rows, s.sql, bindText));
+        synchronized (slowLog) {
+            if (slowLog.size() == SLOW_LOG_SIZE) slowLog.removeFirst();
+            slowLog.addLast(new SlowQuery(new Date(), s.sql, total / 1e6, rows, bindText));
+        }
+    }
+
+    private Summary summary(String rawSql) {
+        String key = normalized.get(rawSql);
+        if (key == null) {
+            key = normalize(rawSql);
+            if (normalized.size() >= MAX_STATEMENTS * 4) normalized.clear(); // raw texts vary more than keys
+            normalized.put(rawSql, key);
+        }
+        Summary s = summaries.get(key);
+        if (s != null) return s;
+        if (summaries.size() >= MAX_STATEMENTS) key = OTHER; // bound memory if SQL is ever built from data
+        return summaries.computeIfAbsent(key, Summary::new);
+    }
+
+    static String normalize(String sql) {
+        String s = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+        s = STRING_LITERAL.matcher(s).replaceAll("?");
+        s = NUMBER_LITERAL.matcher(s).replaceAll("?");
+        return IN_LIST.matcher(s).replaceAll("IN (?+)");
+    }
+
+    /**
+     * Column each placeholder of sql binds to, by 1-based parameter index; null where it cannot be
+     * told (e.g. "SELECT ?, ..."), which formatBinds treats as not loggable.
+     */
+    static String[] bindColumns(String sql) {
+        int[] marks = new int[8];
+        int count = 0;
+        boolean quoted = false;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (c == '?' && !quoted) {
+                if (count == marks.length) marks = Arrays.copyOf(marks, count * 2);
+                marks[count++] = i;
+            }
+        }
+        marks = Arrays.copyOf(marks, count);
+        String[] columns = new String[count + 1];
+        Matcher m = COMPARED_BIND.matcher(sql);
+        while (m.find()) {
+            String column = m.group(1) != null ? m.group(1) : m.group(2) != null ? m.group(2) : m.group(3);
+            for (int i = firstMarkAtOrAfter(marks, m.start()); i < count && marks[i] < m.end(); i++) {
+                columns[i + 1] = column;
+            }
+        }
+        m = INSERT_VALUES.matcher(sql);
+        while (m.find()) {
+            String[] names = m.group(1).split(",");
+            String[] values = m.group(2).split(",");
+            int mark = firstMarkAtOrAfter(marks, m.start(2));
+            for (int v = 0; v < values.length && v < names.length; v++) {
+                if (values[v].trim().equals("?")) columns[++mark] = names[v].trim();
+            }
+        }
+        return columns;
+    }
+
+    private static int firstMarkAtOrAfter(int[] marks, int position) {
+        int i = Arrays.binarySearch(marks, position);
+        return i >= 0 ? i : -i - 1;
+    }
+
+    private static boolean loggable(String column) {
+        if (column == null) return false;
+        String name = column.substring(column.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+        return LOGGABLE_BIND_COLUMNS.contains(name);
+    }
+
+    private static String formatBinds(Object[] binds, String[] columns) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 1; i < binds.length; i++) {
+            if (i > 1) sb.append(", ");
+            Object v = binds[i];
+            if (i >= columns.length || !loggable(columns[i])) {
+                sb.append("<redacted>");
+            } else if (v instanceof byte[]) {
+                sb.append('<').append(((byte[]) v).length).append(" bytes>");
+            } else if (v instanceof CharSequence) {
+                String text = v.toString();
+                sb.append('\'').append(text.length() > MAX_BIND_CHARS ? text.substring(0, MAX_BIND_CHARS) + "..." : text).append('\'');
+            } else {
+                sb.append(v);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private final class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+
+        ConnectionHandler(Connection target) { this.target = target; }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals": return proxy == args[0];
+                case "hashCode": return System.identityHashCode(proxy);
+                default: break;
+            }
+            Object result = StatementProfiler.invoke(target, method, args);
+            if (result instanceof Statement) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                boolean sampled = sql != null && (ThreadLocalRandom.current().nextInt() & bindSampleMask) == 0;
+                Class<?> type = result instanceof CallableStatement ? CallableStatement.class
+                        : result instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+                return Proxy.newProxyInstance(StatementProfiler.class.getClassLoader(), new Class<?>[]{type},
+                        new StatementHandler((Statement) result, sql, sampled));
+            }
+            return result;
+        }
+    }
+
+    private final class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final String sql;
+        private Object[] binds;
+
+        StatementHandler(Statement target, String sql, boolean sampled) {
+            this.target = target;
+            this.sql = sql;
+            this.binds = sampled ? new Object[8] : null;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) return execute(method, args, name);
+            if (binds != null && name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                bind((Integer) args[0], name.equals("setNull") ? null : args[1]);
+            } else if (name.equals("equals")) {
+                return proxy == args[0];
+            } else if (name.equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            }
+            return StatementProfiler.invoke(target, method, args);
+        }
+
+        private void bind(int index, Object value) {
+            if (index < 1 || index > 1000) return;
+            if (index >= binds.length) binds = Arrays.copyOf(binds, Math.max(index + 1, binds.length * 2));
+            binds[index] = value;
+        }
+
+        private Object execute(Method method, Object[] args, String name) throws Throwable {
+            String text = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : sql;
+            if (text == null) return StatementProfiler.invoke(target, method, args); // executeBatch of a plain Statement
+            Object[] sampledBinds = binds == null ? null : Arrays.copyOf(binds, lastBind() + 1);
+            long started = System.nanoTime();
+            Object result;
+            try {
+                result = StatementProfiler.invoke(target, method, args);
+            } catch (Throwable t) {
+                record(text, System.nanoTime() - started, 0, 0, sampledBinds, true);
+                throw t;
+            }
+            long execNanos = System.nanoTime() - started;
+            if (result instanceof ResultSet) {
+                return Proxy.newProxyInstance(StatementProfiler.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                        new ResultSetHandler((ResultSet) result, text, execNanos, sampledBinds));
+            }
+            long rows = 0;
+            if (result instanceof Integer || result instanceof Long) {
+                rows = ((Number) result).longValue();
+            } else if (result instanceof int[]) {
+                for (int n : (int[]) result) if (n > 0) rows += n;
+            } else if (result instanceof long[]) {
+                for (long n : (long[]) result) if (n > 0) rows += n;
+            }
+            record(text, execNanos, 0, rows, sampledBinds, false);
+            return result;
+        }
+
+        private int lastBind() {
+            int last = 0;
+            for (int i = binds.length - 1; i > 0; i--) {
+                if (binds[i] != null) {
+                    last = i;
+                    break;
+                }
+            }
+            return last;
+        }
+    }
+
+    private final class ResultSetHandler implements InvocationHandler {
+        private final ResultSet target;
+        private final String sql;
+        private final long execNanos;
+        private final Object[] binds;
+        private long fetchNanos;
+        private long rows;
+        private boolean finished;
+
+        ResultSetHandler(ResultSet target, String sql, long execNanos, Object[] binds) {
+            this.target = target;
+            this.sql = sql;
+            this.execNanos = execNanos;
+            this.binds = binds;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "next": {
+                    long started = System.nanoTime();
+                    boolean more = (Boolean) StatementProfiler.invoke(target, method, args);
+                    fetchNanos += System.nanoTime() - started;
+                    if (more) rows++;
+                    else finish();
+                    return more;
+                }
+                case "close":
+                    finish();
+                    return StatementProfiler.invoke(target, method, args);
+                case "equals": return proxy == args[0];
+                case "hashCode": return System.identityHashCode(proxy);
+                default: return StatementProfiler.invoke(target, method, args);
+            }
+        }
+
+        private void finish() {
+            if (finished) return;
+            finished = true;
+            record(sql, execNanos, fetchNanos, rows, binds, false);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+<%@ taglib prefix="c" uri="jakarta.tags.core" %>
+<%@ taglib prefix="fmt" uri="jakarta.tags.fmt" %>
+<%@ page contentType="text/html;charset=UTF-8" language="java" %>
+<!DOCTYPE html>
+<html>
+<head>
+    <meta charset="UTF-8" />
+    <title>Product Cache</title>
+    <style>
+        body { font-family: Arial, sans-serif; margin: 20px; background: #f5f7fb; }
+        .header { display: flex; justify-content: space-between; align-items: center; }
+        .panel { background: #fff; border: 1px solid #e5e7eb; border-radius: 10px; padding: 12px; margin-top: 16px; }
+        table { border-collapse: collapse; }
+        th, td { text-align: left; padding: 4px 12px 4px 0; }
+        td.num { text-align: right; font-variant-numeric: tabular-nums; }
+        .btn { padding: 6px 10px; text-decoration: none; border: none; cursor: pointer; border-radius: 6px; font-size: 0.9rem; }
+        .btn-primary { background-color: #2563eb; color: white; }
+        .btn-danger { background-color: #dc2626; color: white; }
+        .btn-warning { background-color: #d97706; color: white; }
+        .error { color: #b30000; background: #ffe6e6; padding: 10px; border: 1px solid #b30000; margin-top: 10px; }
+        .message { color: #065f46; background: #d1fae5; padding: 10px; border: 1px solid #065f46; margin-top: 10px; }
+    </style>
+</head>
+<body>
+<div class="header">
+    <h1>Product Cache</h1>
+    <a href="${pageContext.request.contextPath}/products?action=list" class="btn btn-primary">Products</a>
+</div>
+<c:if test="${not empty error}">
+    <div class="error"><c:out value="${error}" /></div>
+</c:if>
+<c:if test="${not empty message}">
+    <div class="message"><c:out value="${message}" /></div>
+</c:if>
+
+<div class="panel">
+    <h3>Statistics (since deploy)</h3>
+    <table>
+        <tr><th>Entries</th><td class="num">${stats.size}</td></tr>
+        <tr><th>Hit ratio</th><td class="num"><fmt:formatNumber value="${stats.hitRatio}" type="percent" maxFractionDigits="2" /></td></tr>
+        <tr><th>Hits</th><td class="num">${stats.hits}</td></tr>
+        <tr><th>Misses</th><td class="num">${stats.misses}</td></tr>
+        <tr><th>Puts</th><td class="num">${stats.puts}</td></tr>
+        <tr><th>Removals (writes)</th><td class="num">${stats.removals}</td></tr>
+        <tr><th>Evictions</th><td class="num">${stats.evictions}</td></tr>
+        <tr><th>Full clears (refreshCache)</th><td class="num">${stats.clears}</td></tr>
+        <tr><th>Miss loads</th><td class="num">${stats.loads}</td></tr>
+        <tr><th>Load time avg / p50 / p99 (ms)</th>
+            <td class="num"><fmt:formatNumber value="${stats.loadMillisAverage}" maxFractionDigits="2" /> /
+                ${loadP50Overflow ? '&gt;' : '&le;'} <fmt:formatNumber value="${loadP50Millis}" maxFractionDigits="2" /> /
+                ${loadP99Overflow ? '&gt;' : '&le;'} <fmt:formatNumber value="${loadP99Millis}" maxFractionDigits="2" /></td></tr>
+    </table>
+</div>
+
+<div class="panel">
+    <h3>Hottest ids</h3>
+    <p>Sampled (1 in ${stats.sketchSampleRate} lookups, recent traffic weighted); counts are estimates.</p>
+    <c:choose>
+        <c:when test="${empty hottest}"><p>No lookups sampled yet.</p></c:when>
+        <c:otherwise>
+            <table>
+                <tr><th>Id</th><th>Name</th><th>Est. lookups</th><th>Cached</th></tr>
+                <c:forEach var="h" items="${hottest}">
+                    <tr>
+                        <td class="num">${h.key}</td>
+                        <td><c:out value="${cached[h.key].name}" /></td>
+                        <td class="num">${h.estimate}</td>
+                        <td>${empty cached[h.key] ? 'no' : 'yes'}</td>
+                    </tr>
+                </c:forEach>
+            </table>
+        </c:otherwise>
+    </c:choose>
+</div>
+
+<div class="panel">
+    <h3>Controls</h3>
+    <form method="post" action="${pageContext.request.contextPath}/admin/cache">
+        <label>Product ids <input type="text" name="ids" placeholder="3, 17, 42" size="40" /></label>
+        <button type="submit" name="action" value="refresh" class="btn btn-primary">Refresh from DB</button>
+        <button type="submit" name="action" value="evict" class="btn btn-warning">Evict</button>
+    </form>
+    <form method="post" action="${pageContext.request.contextPath}/admin/cache" style="margin-top:10px">
+        <input type="hidden" name="action" value="refreshAll" />
+        <button type="submit" class="btn btn-danger" onclick="return confirm('Clear and reload the whole cache?');">Reload entire cache</button>
+    </form>
+</div>
+</body>
+</html>
@@ -21,6 +21,7 @@
         .empty-cart { text-align: center; padding: 40px; background-color: #f5f5f5; margin: 20px 0; }
         .cart-actions { margin-top: 20px; text-align: right; }
         .header { display: flex; justify-content: space-between; align-items: center; }
+        .error { color: #b30000; background: #ffe6e6; padding: 10px; border: 1px solid #b30000; margin-top: 10px; }
     </style>
 </head>
 <body>
@@ -28,9 +29,12 @@
     <h1>Shopping Cart</h1>
     <a href="${pageContext.request.contextPath}/products?action=list" class="btn btn-primary">Continue Shopping</a>
 </div>
+<c:if test="${not empty error}">
+    <div class="error"><c:out value="${error}" /></div>
+</c:if>
 
 <c:choose>
-    <c:when test="${empty cart or empty cart.items}">
+    <c:when test="${empty cartSnapshot.items}">
         <div class="empty-cart">
             <h2>Your cart is empty</h2>
             <p>Add some products to get started!</p>
@@ -50,18 +54,16 @@
                 </tr>
             </thead>
             <tbody>
-            <c:forEach var="item" items="${cart.items}">
+            <c:forEach var="item" items="${cartSnapshot.items}">
                 <tr>
                     <td>${item.product.name}</td>
                     <td>${item.product.description}</td>
                     <td><fmt:formatNumber value="${item.priceSnapshot}" type="currency" /></td>
                     <td>
-                        <form method="post" action="${pageContext.request.contextPath}/cart" style="display:inline">
-                            <input type="hidden" name="action" value="update" />
-                            <input type="hidden" name="id" value="${item.product.id}" />
-                            <input type="number" name="qty" value="${item.quantity}" min="1" class="qty-input" />
-                            <button type="submit" class="btn btn-primary">Update</button>
-                        </form>
+                        <%-- Quantities belong to the batch form below: one request updates every line --%>
+                        <input type="hidden" name="op" value="update" form="cart-batch" />
+                        <input type="hidden" name="id" value="${item.product.id}" form="cart-batch" />
+                        <input type="number" name="qty" value="${item.quantity}" min="1" class="qty-input" form="cart-batch" />
                     </td>
                     <td><fmt:formatNumber value="${item.totalPrice}" type="currency" /></td>
                     <td>
@@ -75,14 +77,18 @@
             </c:forEach>
             <tr class="total-row">
                 <td colspan="3">Total</td>
-                <td>${cart.totalQuantity()} items</td>
-                <td><fmt:formatNumber value="${cart.totalPrice()}" type="currency" /></td>
+                <td>${cartSnapshot.totalQuantity} items</td>
+                <td><fmt:formatNumber value="${cartSnapshot.totalPrice}" type="currency" /></td>
                 <td></td>
             </tr>
             </tbody>
         </table>
         
         <div class="cart-actions">
+            <form id="cart-batch" method="post" action="${pageContext.request.contextPath}/cart" style="display:inline">
+                <input type="hidden" name="action" value="batch" />
+                <button type="submit" class="btn btn-primary">Update Quantities</button>
+            </form>
             <form method="post" action="${pageContext.request.contextPath}/cart" style="display:inline">
                 <input type="hidden" name="action" value="clear" />
                 <button type="submit" class="btn btn-danger" onclick="return confirm('Clear entire cart?');">Clear Cart</button>
@@ -96,18 +102,19 @@
 <!--
 Data Structure Choices:
 
-1. LinkedHashMap<Integer, CartItem> for cart items:
-   - WHY: O(1) lookup by product ID for update/remove operations
+1. Copy-on-write Map<Integer, CartItem> snapshot for cart items:
+   - WHY: O(1)-ish lookup by product ID for update/remove operations
    - WHY: Preserves insertion order for predictable display
+   - WHY: This page iterates an immutable snapshot, so concurrent updates cannot break rendering
    - WHY: Map prevents duplicate products (merge quantities instead)
    - Alternative List would require O(n) search to find product
 
 2. Time Complexity Analysis:
-   - addProduct(product, qty): O(1) - HashMap compute operation
-   - updateQuantity(productId, qty): O(1) - direct Map access by key
-   - removeProduct(productId): O(1) - direct Map remove by key
-   - totalQuantity(): O(n) - must iterate all items
-   - totalPrice(): O(n) - must iterate and sum all items
+   - addProduct(product, qty): O(log32 n) - persistent trie path copy
+   - updateQuantity(productId, qty): O(log32 n) - direct access by key
+   - removeProduct(productId): O(log32 n) - direct remove by key
+   - totalQuantity(): O(1) - maintained in the snapshot
+   - totalPrice(): O(1) - maintained in the snapshot
 -->
 </body>
 </html>
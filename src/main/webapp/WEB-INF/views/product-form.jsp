@@ -1,4 +1,5 @@
 <%@ taglib prefix="c" uri="jakarta.tags.core" %>
+<%@ taglib prefix="fn" uri="jakarta.tags.functions" %>
 <%@ page contentType="text/html;charset=UTF-8" language="java" %>
 <!DOCTYPE html>
 <html>
@@ -70,7 +71,7 @@
     <div class="form-group img-row">
         <div>
             <div class="info">Preview</div>
-            <img src="${empty product.imageUrl ? 'https://via.placeholder.com/140?text=No+Image' : product.imageUrl}" alt="Preview" class="img-preview" onerror="this.src='https://via.placeholder.com/140?text=No+Image'" />
+            <img src="${empty product.imageUrl ? 'https://via.placeholder.com/140?text=No+Image' : (fn:startsWith(product.imageUrl, '/images/') ? product.imageUrl += '?size=thumb' : product.imageUrl)}" alt="Preview" class="img-preview" onerror="this.src='https://via.placeholder.com/140?text=No+Image'" />
         </div>
     </div>
 
@@ -0,0 +1,89 @@
+<%@ taglib prefix="c" uri="jakarta.tags.core" %>
+<%@ taglib prefix="fmt" uri="jakarta.tags.fmt" %>
+<%@ page contentType="text/html;charset=UTF-8" language="java" %>
+<!DOCTYPE html>
+<html>
+<head>
+    <meta charset="UTF-8" />
+    <title>Product Import</title>
+    <style>
+        body { font-family: Arial, sans-serif; margin: 20px; background: #f5f7fb; }
+        .header { display: flex; justify-content: space-between; align-items: center; }
+        .panel { background: #fff; border: 1px solid #e5e7eb; border-radius: 10px; padding: 12px; margin-top: 16px; }
+        table { border-collapse: collapse; }
+        th, td { text-align: left; padding: 4px 12px 4px 0; }
+        td.num { text-align: right; font-variant-numeric: tabular-nums; }
+        .btn { padding: 6px 10px; text-decoration: none; border: none; cursor: pointer; border-radius: 6px; font-size: 0.9rem; }
+        .btn-primary { background-color: #2563eb; color: white; }
+        .error { color: #b30000; background: #ffe6e6; padding: 10px; border: 1px solid #b30000; margin-top: 10px; }
+        .message { color: #065f46; background: #d1fae5; padding: 10px; border: 1px solid #065f46; margin-top: 10px; }
+        code { background: #f3f4f6; padding: 1px 4px; }
+    </style>
+</head>
+<body>
+<div class="header">
+    <h1>Product Import</h1>
+    <a href="${pageContext.request.contextPath}/products?action=list" class="btn btn-primary">Products</a>
+</div>
+<c:if test="${not empty error}">
+    <div class="error"><c:out value="${error}" /></div>
+</c:if>
+<c:if test="${not empty message}">
+    <div class="message"><c:out value="${message}" /></div>
+</c:if>
+
+<c:if test="${not empty report}">
+    <div class="panel">
+        <h3>Result (${report.format} by ${report.key})</h3>
+        <table>
+            <tr><th>Rows read</th><td class="num">${report.rowsRead}</td></tr>
+            <tr><th>Inserted</th><td class="num">${report.inserted}</td></tr>
+            <tr><th>Updated</th><td class="num">${report.updated}</td></tr>
+            <c:if test="${report.unconfirmed gt 0}">
+                <tr><th>Updates not confirmed by the driver</th><td class="num">${report.unconfirmed}</td></tr>
+            </c:if>
+            <tr><th>Unchanged</th><td class="num">${report.unchanged}</td></tr>
+            <tr><th>Duplicates (later row kept)</th><td class="num">${report.duplicates}</td></tr>
+            <tr><th>Failed</th><td class="num">${report.failed}</td></tr>
+            <tr><th>Transactions (chunks)</th><td class="num">${report.chunks}</td></tr>
+            <tr><th>Loaded into cache</th><td class="num">${report.cached}</td></tr>
+            <tr><th>Price changes repriced in carts</th><td class="num">${report.repriced}</td></tr>
+            <tr><th>Time</th><td class="num"><fmt:formatNumber value="${report.elapsedMillis / 1000}" maxFractionDigits="1" /> s</td></tr>
+            <tr><th>Rows / second</th><td class="num"><fmt:formatNumber value="${report.rowsPerSecond}" maxFractionDigits="0" /></td></tr>
+        </table>
+        <c:if test="${not empty report.ignoredColumns}">
+            <p>Ignored columns: <c:forEach var="col" items="${report.ignoredColumns}" varStatus="s"><code><c:out value="${col}" /></code>${s.last ? '' : ', '}</c:forEach></p>
+        </c:if>
+    </div>
+    <c:if test="${not empty report.errors}">
+        <div class="panel">
+            <h3>Rejected rows</h3>
+            <c:if test="${report.errorsTruncated}">
+                <p>Showing the first ${report.errors.size()} of ${report.failed}.</p>
+            </c:if>
+            <table>
+                <tr><th>Line</th><th>Reason</th></tr>
+                <c:forEach var="e" items="${report.errors}">
+                    <tr><td class="num">${e.line}</td><td><c:out value="${e.message}" /></td></tr>
+                </c:forEach>
+            </table>
+        </div>
+    </c:if>
+</c:if>
+
+<div class="panel">
+    <h3>Upload</h3>
+    <p>CSV with a header row, or JSON Lines (one object per line). Columns: <code>name</code>, <code>price</code>
+        (required), <code>description</code>, <code>image_url</code>, <code>sku</code>. Empty optional values keep the
+        stored value.</p>
+    <form method="post" action="${pageContext.request.contextPath}/admin/import" enctype="multipart/form-data">
+        <p><input type="file" name="file" accept=".csv,.jsonl,.ndjson,.json,text/csv,application/json" /></p>
+        <p>Match existing products by
+            <label><input type="radio" name="key" value="name" checked /> name</label>
+            <label><input type="radio" name="key" value="sku" /> sku</label>
+        </p>
+        <button type="submit" class="btn btn-primary">Import</button>
+    </form>
+</div>
+</body>
+</html>
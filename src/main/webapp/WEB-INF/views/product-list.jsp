@@ -1,5 +1,6 @@
 <%@ taglib prefix="c" uri="jakarta.tags.core" %>
 <%@ taglib prefix="fmt" uri="jakarta.tags.fmt" %>
+<%@ taglib prefix="fn" uri="jakarta.tags.functions" %>
 <%@ page contentType="text/html;charset=UTF-8" language="java" %>
 <!DOCTYPE html>
 <html>
@@ -34,6 +35,9 @@
         <c:if test="${sessionScope.currentUserRole eq 'ADMIN'}">
             <a href="${pageContext.request.contextPath}/products?action=list" class="btn btn-primary">Admin: Products</a>
             <a href="${pageContext.request.contextPath}/products?action=new" class="btn btn-primary">Add New Product</a>
+            <a href="${pageContext.request.contextPath}/admin/cache" class="btn btn-primary">Admin: Cache</a>
+            <a href="${pageContext.request.contextPath}/admin/import" class="btn btn-primary">Admin: Import</a>
+            <a href="${pageContext.request.contextPath}/admin/queries" class="btn btn-primary">Admin: SQL</a>
         </c:if>
     </div>
 </div>
@@ -61,7 +65,7 @@
     <div class="grid">
         <c:forEach var="p" items="${products}">
             <div class="card">
-                <img src="${empty p.imageUrl ? 'https://via.placeholder.com/300x160?text=No+Image' : p.imageUrl}" alt="${p.name}" onerror="this.src='https://via.placeholder.com/300x160?text=No+Image'" />
+                <img src="${empty p.imageUrl ? 'https://via.placeholder.com/300x160?text=No+Image' : (fn:startsWith(p.imageUrl, '/images/') ? p.imageUrl += '?size=thumb' : p.imageUrl)}" alt="${p.name}" onerror="this.src='https://via.placeholder.com/300x160?text=No+Image'" />
                 <h3>${p.name}</h3>
                 <div class="price"><fmt:formatNumber value="${p.price}" type="currency" /></div>
                 <div class="desc">${p.description}</div>
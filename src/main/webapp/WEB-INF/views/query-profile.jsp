@@ -0,0 +1,85 @@
+<%@ taglib prefix="c" uri="jakarta.tags.core" %>
+<%@ taglib prefix="fmt" uri="jakarta.tags.fmt" %>
+<%@ page contentType="text/html;charset=UTF-8" language="java" %>
+<!DOCTYPE html>
+<html>
+<head>
+    <meta charset="UTF-8" />
+    <title>SQL Profile</title>
+    <style>
+        body { font-family: Arial, sans-serif; margin: 20px; background: #f5f7fb; }
+        .header { display: flex; justify-content: space-between; align-items: center; }
+        .panel { background: #fff; border: 1px solid #e5e7eb; border-radius: 10px; padding: 12px; margin-top: 16px; overflow-x: auto; }
+        table { border-collapse: collapse; width: 100%; }
+        th, td { text-align: left; padding: 4px 10px 4px 0; vertical-align: top; border-bottom: 1px solid #f1f5f9; }
+        td.num, th.num { text-align: right; font-variant-numeric: tabular-nums; white-space: nowrap; }
+        code { font-size: 0.85rem; }
+        .btn { padding: 6px 10px; text-decoration: none; border: none; cursor: pointer; border-radius: 6px; font-size: 0.9rem; }
+        .btn-primary { background-color: #2563eb; color: white; }
+        .btn-danger { background-color: #dc2626; color: white; }
+        .empty { padding: 20px; background: #fff; border: 1px dashed #cbd5e1; border-radius: 8px; }
+    </style>
+</head>
+<body>
+<div class="header">
+    <h1>SQL Profile</h1>
+    <div>
+        <a href="${pageContext.request.contextPath}/admin/cache" class="btn btn-primary">Cache</a>
+        <a href="${pageContext.request.contextPath}/products?action=list" class="btn btn-primary">Products</a>
+    </div>
+</div>
+
+<c:choose>
+    <c:when test="${empty profiler}">
+        <p class="empty">JDBC profiling is disabled (context-param <code>jdbcProfiler.enabled</code>).</p>
+    </c:when>
+    <c:otherwise>
+        <div class="panel">
+            <h3>Statements (most total time first)</h3>
+            <form method="post" action="${pageContext.request.contextPath}/admin/queries">
+                <input type="hidden" name="action" value="reset" />
+                <button type="submit" class="btn btn-danger">Reset</button>
+            </form>
+            <table>
+                <tr><th>SQL</th><th class="num">Count</th><th class="num">Total ms</th><th class="num">Exec ms</th>
+                    <th class="num">Fetch ms</th><th class="num">Avg ms</th><th class="num">Max ms</th><th class="num">Rows</th><th class="num">Errors</th></tr>
+                <c:forEach var="s" items="${statements}">
+                    <tr>
+                        <td><code><c:out value="${s.sql}" /></code></td>
+                        <td class="num">${s.count}</td>
+                        <td class="num"><fmt:formatNumber value="${s.totalMillis}" maxFractionDigits="1" /></td>
+                        <td class="num"><fmt:formatNumber value="${s.execMillis}" maxFractionDigits="1" /></td>
+                        <td class="num"><fmt:formatNumber value="${s.fetchMillis}" maxFractionDigits="1" /></td>
+                        <td class="num"><fmt:formatNumber value="${s.averageMillis}" maxFractionDigits="2" /></td>
+                        <td class="num"><fmt:formatNumber value="${s.maxMillis}" maxFractionDigits="1" /></td>
+                        <td class="num">${s.rows}</td>
+                        <td class="num">${s.errors}</td>
+                    </tr>
+                </c:forEach>
+            </table>
+        </div>
+
+        <div class="panel">
+            <h3>Recent slow queries (&ge; ${profiler.slowMillis} ms, binds sampled 1 in ${profiler.bindSampleRate})</h3>
+            <c:choose>
+                <c:when test="${empty slowQueries}"><p>None.</p></c:when>
+                <c:otherwise>
+                    <table>
+                        <tr><th>At</th><th class="num">ms</th><th class="num">Rows</th><th>SQL</th><th>Binds</th></tr>
+                        <c:forEach var="q" items="${slowQueries}">
+                            <tr>
+                                <td class="num"><fmt:formatDate value="${q.at}" pattern="yyyy-MM-dd HH:mm:ss" /></td>
+                                <td class="num"><fmt:formatNumber value="${q.millis}" maxFractionDigits="1" /></td>
+                                <td class="num">${q.rows}</td>
+                                <td><code><c:out value="${q.sql}" /></code></td>
+                                <td><code><c:out value="${q.binds}" /></code></td>
+                            </tr>
+                        </c:forEach>
+                    </table>
+                </c:otherwise>
+            </c:choose>
+        </div>
+    </c:otherwise>
+</c:choose>
+</body>
+</html>
@@ -0,0 +1,128 @@
+package com.example.store.standin;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * JDBC driver for jdbc:mysql-on-h2:&lt;url&gt; that opens &lt;url&gt; (an H2 database in MODE=MySQL) and
+ * accepts the MySQL-only JDBC the DAOs use, so the load test and the benchmarks run the production
+ * code unchanged:
+ *
+ * - UPDATE a x JOIN b y ON ... SET x.col = expr WHERE ... (the multi-table update MySQL needs because
+ *   it rejects a subquery on the updated table, error 1093) becomes the equivalent correlated
+ *   UPDATE a x SET col = (SELECT expr FROM b y WHERE on) WHERE ... AND EXISTS (...), with the
+ *   placeholders numbered (?1, ?2) so the caller's parameter indexes still apply
+ * - setFetchSize(Integer.MIN_VALUE), Connector/J's "stream the rows" request, becomes the H2 default
+ *
+ * Anything else is passed through; H2's own MySQL mode covers the rest.
+ */
+public final class MySqlOnH2Driver implements Driver {
+    private static final String PREFIX = "jdbc:mysql-on-h2:";
+    private static final Pattern UPDATE_JOIN = Pattern.compile(
+            "UPDATE\\s+(\\w+)\\s+(\\w+)\\s+JOIN\\s+(\\w+)\\s+(\\w+)\\s+ON\\s+(.+?)\\s+SET\\s+\\w+\\.(\\w+)\\s*=\\s*(.+?)\\s+WHERE\\s+(.+)",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    static {
+        try {
+            DriverManager.registerDriver(new MySqlOnH2Driver());
+        } catch (SQLException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /** url (an H2 URL) opened through this driver (registers the driver). */
+    public static String url(String url) {
+        return PREFIX + url;
+    }
+
+    @Override
+    public Connection connect(String url, Properties info) throws SQLException {
+        if (!acceptsURL(url)) return null;
+        return translating(Connection.class, DriverManager.getConnection(url.substring(PREFIX.length()), info));
+    }
+
+    static String translate(String sql) {
+        Matcher m = UPDATE_JOIN.matcher(sql.trim());
+        if (!m.matches() || m.group(7).contains(",")) return sql; // one assignment only
+        int[] next = {1};
+        String on = numbered(m.group(5), next);
+        String value = numbered(m.group(7), next);
+        String where = numbered(m.group(8), next);
+        String joined = " FROM " + m.group(3) + " " + m.group(4) + " WHERE " + on;
+        return "UPDATE " + m.group(1) + " " + m.group(2) + " SET " + m.group(6) + " = (SELECT " + value + joined + ")"
+                + " WHERE " + where + " AND EXISTS (SELECT 1" + joined + ")";
+    }
+
+    private static String numbered(String part, int[] next) {
+        StringBuilder sb = new StringBuilder(part.length() + 8);
+        for (int i = 0; i < part.length(); i++) {
+            char c = part.charAt(i);
+            sb.append(c);
+            if (c == '?') sb.append(next[0]++);
+        }
+        return sb.toString();
+    }
+
+    private static <T> T translating(Class<T> type, T target) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            String name = method.getName();
+            if (args != null && args.length > 0 && args[0] instanceof String
+                    && (name.startsWith("prepare") || name.startsWith("execute") || name.equals("addBatch"))) {
+                args[0] = translate((String) args[0]);
+            } else if (name.equals("setFetchSize") && Integer.valueOf(Integer.MIN_VALUE).equals(args[0])) {
+                args[0] = 0;
+            }
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            Class<?> returned = method.getReturnType();
+            if (result != null && (returned == Statement.class || returned == PreparedStatement.class
+                    || returned == CallableStatement.class)) {
+                return translatingStatement(returned, result);
+            }
+            return result;
+        };
+        return type.cast(Proxy.newProxyInstance(MySqlOnH2Driver.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private static <T> Object translatingStatement(Class<T> type, Object statement) {
+        return translating(type, type.cast(statement));
+    }
+
+    @Override
+    public boolean acceptsURL(String url) {
+        return url != null && url.startsWith(PREFIX);
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+        return new DriverPropertyInfo[0];
+    }
+
+    @Override public int getMajorVersion() { return 1; }
+    @Override public int getMinorVersion() { return 0; }
+    @Override public boolean jdbcCompliant() { return false; }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+}